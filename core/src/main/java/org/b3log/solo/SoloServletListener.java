@@ -16,6 +16,10 @@
 package org.b3log.solo;
 
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletRequestEvent;
@@ -35,8 +39,20 @@ import org.b3log.latke.servlet.AbstractServletListener;
 import org.b3log.latke.util.Requests;
 import org.b3log.latke.util.Stopwatchs;
 import org.b3log.latke.util.Strings;
-import org.b3log.solo.event.comment.ArticleCommentReplyNotifier;
-import org.b3log.solo.event.comment.PageCommentReplyNotifier;
+import org.b3log.solo.cache.CaptchaPool;
+import org.b3log.solo.cache.ContentVersion;
+import org.b3log.solo.cache.FeedCache;
+import org.b3log.solo.cache.GravatarCache;
+import org.b3log.solo.cache.Invalidatable;
+import org.b3log.solo.cache.OnlineVisitorTracker;
+import org.b3log.solo.cache.PageCache;
+import org.b3log.solo.cache.PermalinkIndex;
+import org.b3log.solo.cache.SitemapCache;
+import org.b3log.solo.cache.WidgetCache;
+import org.b3log.solo.event.AsyncEventListener;
+import org.b3log.solo.event.EventDispatcher;
+import org.b3log.solo.event.EventTypes;
+import org.b3log.solo.event.cache.CacheInvalidator;
 import org.b3log.solo.event.ping.AddArticleGoogleBlogSearchPinger;
 import org.b3log.solo.event.ping.UpdateArticleGoogleBlogSearchPinger;
 import org.b3log.solo.event.plugin.PluginRefresher;
@@ -48,6 +64,7 @@ import org.b3log.solo.model.Skin;
 import org.b3log.solo.repository.PreferenceRepository;
 import org.b3log.solo.repository.impl.PreferenceRepositoryImpl;
 import org.b3log.solo.service.PreferenceMgmtService;
+import org.b3log.solo.service.PreferenceQueryService;
 import org.b3log.solo.service.StatisticMgmtService;
 import org.b3log.solo.util.Skins;
 import org.json.JSONObject;
@@ -57,7 +74,7 @@ import org.json.JSONObject;
  * B3log Solo servlet listener.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.1.0.2, Oct 27, 2013
+ * @version 1.1.0.17, Nov 2, 2013
  * @since 0.3.1
  */
 public final class SoloServletListener extends AbstractServletListener {
@@ -92,6 +109,23 @@ public final class SoloServletListener extends AbstractServletListener {
      */
     public static final String B3LOG_SYMPHONY_SERVE_PATH;
 
+    /**
+     * Whether to estimate online visitor count with a fixed size sketch.
+     * 
+     * @see OnlineVisitorTracker#setEstimating(boolean) 
+     */
+    public static final boolean ONLINE_VISITOR_ESTIMATING;
+
+    /**
+     * Whether to serve visitors without creating server-side sessions.
+     * 
+     * <p>
+     * If enabled, a session will be created only while a request really needs it (captcha, article password, login), 
+     * online visitors are tracked by remote address.
+     * </p>
+     */
+    public static final boolean SESSION_STATELESS;
+
     /**
      * Bean manager.
      */
@@ -102,6 +136,10 @@ public final class SoloServletListener extends AbstractServletListener {
 
         B3LOG_RHYTHM_SERVE_PATH = b3log.getString("rhythm.servePath");
         B3LOG_SYMPHONY_SERVE_PATH = b3log.getString("symphony.servePath");
+        ONLINE_VISITOR_ESTIMATING = b3log.containsKey("onlineVisitor.estimating")
+            && Boolean.parseBoolean(b3log.getString("onlineVisitor.estimating"));
+        SESSION_STATELESS = b3log.containsKey("session.stateless")
+            && Boolean.parseBoolean(b3log.getString("session.stateless"));
     }
 
     @Override
@@ -131,6 +169,11 @@ public final class SoloServletListener extends AbstractServletListener {
             }
         }
 
+        loadPermalinkIndex();
+        loadCaptchas();
+
+        beanManager.getReference(OnlineVisitorTracker.class).setEstimating(ONLINE_VISITOR_ESTIMATING);
+
         registerEventProcessor();
 
         final PluginManager pluginManager = beanManager.getReference(PluginManager.class);
@@ -145,6 +188,17 @@ public final class SoloServletListener extends AbstractServletListener {
 
     @Override
     public void contextDestroyed(final ServletContextEvent servletContextEvent) {
+        if (null != beanManager) {
+            // Persists the buffered view count and the statistic counters before shutting down
+            final StatisticMgmtService statisticMgmtService = beanManager.getReference(StatisticMgmtService.class);
+
+            statisticMgmtService.flushViewCount();
+            statisticMgmtService.checkpointStatistic();
+
+            beanManager.getReference(GravatarCache.class).shutdown();
+            beanManager.getReference(EventDispatcher.class).shutdown();
+        }
+
         super.contextDestroyed(servletContextEvent);
 
         LOGGER.info("Destroyed the context");
@@ -171,11 +225,14 @@ public final class SoloServletListener extends AbstractServletListener {
             LOGGER.log(Level.DEBUG, "Request made from a search engine[User-Agent={0}]", httpServletRequest.getHeader("User-Agent"));
             httpServletRequest.setAttribute(Keys.HttpRequest.IS_SEARCH_ENGINE_BOT, true);
         } else {
-            // Gets the session of this request
-            final HttpSession session = httpServletRequest.getSession();
+            if (!SESSION_STATELESS) {
+                // Gets the session of this request
+                final HttpSession session = httpServletRequest.getSession();
+
+                LOGGER.log(Level.DEBUG, "Gets a session[id={0}, remoteAddr={1}, User-Agent={2}, isNew={3}]", session.getId(),
+                    httpServletRequest.getRemoteAddr(), httpServletRequest.getHeader("User-Agent"), session.isNew());
+            }
 
-            LOGGER.log(Level.DEBUG, "Gets a session[id={0}, remoteAddr={1}, User-Agent={2}, isNew={3}]", session.getId(),
-                httpServletRequest.getRemoteAddr(), httpServletRequest.getHeader("User-Agent"), session.isNew());
             // Online visitor count
             final StatisticMgmtService statisticMgmtService = beanManager.getReference(StatisticMgmtService.class);
 
@@ -229,6 +286,44 @@ public final class SoloServletListener extends AbstractServletListener {
         Stopwatchs.end();
     }
 
+    /**
+     * Loads permalink index.
+     * 
+     * <p>
+     *   If loads failed, the index will be loaded at the first permalink lookup.
+     * </p>
+     */
+    private void loadPermalinkIndex() {
+        Stopwatchs.start("Load Permalink Index");
+
+        try {
+            beanManager.getReference(PermalinkIndex.class).load();
+        } catch (final Exception e) {
+            LOGGER.log(Level.ERROR, "Loads permalink index failed", e);
+        }
+
+        Stopwatchs.end();
+    }
+
+    /**
+     * Loads captchas.
+     * 
+     * <p>
+     *   If loads failed, the captchas will be loaded at the first captcha request.
+     * </p>
+     */
+    private void loadCaptchas() {
+        Stopwatchs.start("Load Captchas");
+
+        try {
+            beanManager.getReference(CaptchaPool.class).load();
+        } catch (final Exception e) {
+            LOGGER.log(Level.ERROR, "Loads captchas failed", e);
+        }
+
+        Stopwatchs.end();
+    }
+
     /**
      * Register event processors.
      */
@@ -239,19 +334,20 @@ public final class SoloServletListener extends AbstractServletListener {
         try {
             final EventManager eventManager = beanManager.getReference(EventManager.class);
 
-            // Comment
-            eventManager.registerListener(new ArticleCommentReplyNotifier());
-            eventManager.registerListener(new PageCommentReplyNotifier());
             // Article
-            eventManager.registerListener(new AddArticleGoogleBlogSearchPinger());
-            eventManager.registerListener(new UpdateArticleGoogleBlogSearchPinger());
+            eventManager.registerListener(new AsyncEventListener(new AddArticleGoogleBlogSearchPinger()));
+            eventManager.registerListener(new AsyncEventListener(new UpdateArticleGoogleBlogSearchPinger()));
             // Plugin
             eventManager.registerListener(new PluginRefresher());
             eventManager.registerListener(new ViewLoadEventHandler());
             // Sync
-            eventManager.registerListener(new ArticleSender());
-            eventManager.registerListener(new ArticleUpdater());
-            eventManager.registerListener(new CommentSender());
+            eventManager.registerListener(new AsyncEventListener(new ArticleSender()));
+            eventManager.registerListener(new AsyncEventListener(new ArticleUpdater()));
+            eventManager.registerListener(new AsyncEventListener(new CommentSender()));
+            // Cache
+            for (final Map.Entry<String, List<Invalidatable>> invalidation : getCacheInvalidations().entrySet()) {
+                eventManager.registerListener(new CacheInvalidator(invalidation.getKey(), invalidation.getValue()));
+            }
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, "Register event processors error", e);
             throw new IllegalStateException(e);
@@ -262,15 +358,63 @@ public final class SoloServletListener extends AbstractServletListener {
         Stopwatchs.end();
     }
 
+    /**
+     * Gets the caches to invalidate for each blog content change event type.
+     * 
+     * <p>
+     * The content version is always the last one, so a validator of the new version is never generated from a stale 
+     * cache.
+     * </p>
+     * 
+     * @return a map of (event type, caches to invalidate)
+     */
+    private Map<String, List<Invalidatable>> getCacheInvalidations() {
+        final Invalidatable pageCache = beanManager.getReference(PageCache.class);
+        final Invalidatable widgetCache = beanManager.getReference(WidgetCache.class);
+        final Invalidatable feedCache = beanManager.getReference(FeedCache.class);
+        final Invalidatable sitemapCache = beanManager.getReference(SitemapCache.class);
+        final Invalidatable contentVersion = beanManager.getReference(ContentVersion.class);
+
+        final List<Invalidatable> articleCaches = Arrays.asList(pageCache, widgetCache, feedCache, sitemapCache, contentVersion);
+        final List<Invalidatable> commentCaches = Arrays.asList(pageCache, widgetCache, contentVersion);
+        final List<Invalidatable> pageCaches = Arrays.asList(pageCache, sitemapCache, contentVersion);
+        final List<Invalidatable> linkCaches = Arrays.asList(pageCache, widgetCache, contentVersion);
+        final List<Invalidatable> preferenceCaches = Arrays.asList(pageCache, feedCache, contentVersion);
+
+        final Map<String, List<Invalidatable>> ret = new LinkedHashMap<String, List<Invalidatable>>();
+
+        ret.put(EventTypes.ADD_ARTICLE, articleCaches);
+        ret.put(EventTypes.UPDATE_ARTICLE, articleCaches);
+        ret.put(EventTypes.REMOVE_ARTICLE, articleCaches);
+        ret.put(EventTypes.CANCEL_PUBLISH_ARTICLE, articleCaches);
+        ret.put(EventTypes.ADD_COMMENT_TO_ARTICLE, commentCaches);
+        ret.put(EventTypes.ADD_COMMENT_TO_ARTICLE_FROM_SYMPHONY, commentCaches);
+        ret.put(EventTypes.ADD_COMMENT_TO_PAGE, commentCaches);
+        ret.put(EventTypes.REMOVE_COMMENT, commentCaches);
+        ret.put(EventTypes.ADD_PAGE, pageCaches);
+        ret.put(EventTypes.UPDATE_PAGE, pageCaches);
+        ret.put(EventTypes.REMOVE_PAGE, pageCaches);
+        ret.put(EventTypes.ADD_LINK, linkCaches);
+        ret.put(EventTypes.UPDATE_LINK, linkCaches);
+        ret.put(EventTypes.REMOVE_LINK, linkCaches);
+        ret.put(EventTypes.UPDATE_PREFERENCE, preferenceCaches);
+
+        return ret;
+    }
+
     /**
      * Resolve skin (template) for the specified HTTP servlet request.
      * 
+     * <p>
+     * The preference is read from cache, see {@link PreferenceQueryService#getPreference()} for more details.
+     * </p>
+     * 
      * @param httpServletRequest the specified HTTP servlet request
      */
     private void resolveSkinDir(final HttpServletRequest httpServletRequest) {
         try {
-            final PreferenceRepository preferenceRepository = beanManager.getReference(PreferenceRepositoryImpl.class);
-            final JSONObject preference = preferenceRepository.get(Preference.PREFERENCE);
+            final PreferenceQueryService preferenceQueryService = beanManager.getReference(PreferenceQueryService.class);
+            final JSONObject preference = preferenceQueryService.getPreference();
 
             if (null == preference) { // Did not initialize yet
                 return;
@@ -32,8 +32,6 @@ import org.b3log.latke.Latkes;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
 import org.b3log.latke.model.User;
-import org.b3log.latke.repository.Transaction;
-import org.b3log.latke.service.ServiceException;
 import org.b3log.latke.servlet.HTTPRequestContext;
 import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.servlet.annotation.RequestProcessing;
@@ -43,7 +41,6 @@ import org.b3log.latke.util.MD5;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Preference;
 import org.b3log.solo.model.Tag;
-import org.b3log.solo.repository.ArticleRepository;
 import org.b3log.solo.service.ArticleMgmtService;
 import org.b3log.solo.service.ArticleQueryService;
 import org.b3log.solo.service.PreferenceQueryService;
@@ -73,7 +70,7 @@ import org.jsoup.Jsoup;
  * </p>
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.11, May 17, 2013
+ * @version 1.0.0.12, Nov 2, 2013
  * @since 0.4.0
  */
 @RequestProcessor
@@ -108,12 +105,6 @@ public class MetaWeblogAPI {
     @Inject
     private ArticleMgmtService articleMgmtService;
 
-    /**
-     * Article repository.
-     */
-    @Inject
-    private ArticleRepository articleRepository;
-
     /**
      * User query service.
      */
@@ -333,18 +324,11 @@ public class MetaWeblogAPI {
      * @throws Exception exception
      */
     private void addArticle(final JSONObject article) throws Exception {
-        final Transaction transaction = articleRepository.beginTransaction();
+        final JSONObject requestJSONObject = new JSONObject();
 
-        try {
-            articleMgmtService.addArticleInternal(article);
-            transaction.commit();
-        } catch (final ServiceException e) {
-            if (transaction.isActive()) {
-                transaction.rollback();
-            }
+        requestJSONObject.put(Article.ARTICLE, article);
 
-            throw e;
-        }
+        articleMgmtService.addArticle(requestJSONObject);
     }
 
     /**
@@ -25,6 +25,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang.time.DateFormatUtils;
 import org.b3log.latke.Keys;
 import org.b3log.latke.event.Event;
+import org.b3log.latke.event.EventException;
 import org.b3log.latke.event.EventManager;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
@@ -39,6 +40,8 @@ import org.b3log.latke.urlfetch.URLFetchService;
 import org.b3log.latke.urlfetch.URLFetchServiceFactory;
 import org.b3log.latke.util.Requests;
 import org.b3log.latke.util.Strings;
+import org.b3log.solo.cache.CommentCache;
+import org.b3log.solo.cache.GravatarCache;
 import org.b3log.solo.event.EventTypes;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Comment;
@@ -58,7 +61,7 @@ import org.json.JSONObject;
  * Comment receiver (from B3log Symphony).
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.8, Aug 29, 2013
+ * @version 1.0.0.12, Nov 2, 2013
  * @since 0.5.5
  */
 @RequestProcessor
@@ -121,6 +124,18 @@ public class CommentReceiver {
     @Inject
     private StatisticMgmtService statisticMgmtService;
 
+    /**
+     * Gravatar cache.
+     */
+    @Inject
+    private GravatarCache gravatarCache;
+
+    /**
+     * Comment cache.
+     */
+    @Inject
+    private CommentCache commentCache;
+
     /**
      * Adds an article with the specified request.
      *
@@ -242,7 +257,7 @@ public class CommentReceiver {
                 comment.put(Comment.COMMENT_ORIGINAL_COMMENT_NAME, "");
             }
 
-            CommentMgmtService.setCommentThumbnailURL(comment);
+            final boolean thumbnailResolved = CommentMgmtService.setCommentThumbnailURL(comment);
             ret.put(Comment.COMMENT_THUMBNAIL_URL, comment.getString(Comment.COMMENT_THUMBNAIL_URL));
             // Sets comment on article....
             comment.put(Comment.COMMENT_ON_ID, articleId);
@@ -258,20 +273,34 @@ public class CommentReceiver {
             // Step 3: Update blog statistic comment count
             statisticMgmtService.incBlogCommentCount();
             statisticMgmtService.incPublishedBlogCommentCount();
-            // Step 4: Send an email to admin
+            // Step 4: Queue a notification mail to admin
             try {
-                commentMgmtService.sendNotificationMail(article, comment, originalComment, preference);
+                commentMgmtService.queueNotificationMail(comment, originalComment, preference);
             } catch (final Exception e) {
-                LOGGER.log(Level.WARN, "Send mail failed", e);
+                LOGGER.log(Level.WARN, "Queue mail failed", e);
             }
-            // Step 5: Fire add comment event
+
+            transaction.commit();
+
+            statisticMgmtService.publishCountChanges();
+
+            // Step 5: Fire add comment event after commit, so that the listeners (caches, etc.) see the committed comment
             final JSONObject eventData = new JSONObject();
 
             eventData.put(Comment.COMMENT, comment);
             eventData.put(Article.ARTICLE, article);
-            eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.ADD_COMMENT_TO_ARTICLE_FROM_SYMPHONY, eventData));
+            try {
+                eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.ADD_COMMENT_TO_ARTICLE_FROM_SYMPHONY, eventData));
+            } catch (final EventException e) {
+                LOGGER.log(Level.WARN, "Add comment event process failed", e);
+            }
+
+            commentCache.remove(articleId);
+
+            if (!thumbnailResolved) {
+                gravatarCache.backfill(commentEmail, commentId);
+            }
 
-            transaction.commit();
             ret.put(Keys.STATUS_CODE, true);
             ret.put(Keys.OBJECT_ID, commentId);
 
@@ -287,6 +316,9 @@ public class CommentReceiver {
 
             renderer.setJSONObject(jsonObject);
             jsonObject.put(Keys.MSG, e.getMessage());
+        } finally {
+            // Drops the count changes of an uncommitted transaction, no-op after published
+            statisticMgmtService.discardCountChanges();
         }
     }
 }
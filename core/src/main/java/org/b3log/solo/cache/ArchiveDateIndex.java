@@ -0,0 +1,486 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.apache.commons.lang.time.DateFormatUtils;
+import org.b3log.latke.Keys;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.RepositoryException;
+import org.b3log.latke.util.Dates;
+import org.b3log.solo.model.ArchiveDate;
+import org.b3log.solo.model.Common;
+import org.b3log.solo.repository.ArchiveDateRepository;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * Archive date index.
+ * 
+ * <p>
+ * A resident, sorted (by {@link ArchiveDate#ARCHIVE_TIME archive time} descending) index of all archive dates, each 
+ * entry holds its year, month and English month name formatted once while indexing, so the archive dates side bar 
+ * needs not to query, deduplicate and format archive dates per request. The index will be loaded lazily at the first 
+ * lookup and kept current by article management service.
+ * </p>
+ * 
+ * <p>
+ * Entries are keyed by archive time, at most one archive date per month could be indexed. Duplicated archive dates 
+ * persisted by former versions are dropped (with a warning) while loading.
+ * </p>
+ * 
+ * <p>
+ * An archive date created by an uncommitted transaction is {@link #putPending(JSONObject) pending}: it is invisible to
+ * lookups until the creating thread {@link #publishPendings() publishes} it after commit, and 
+ * {@link #getForUpdate(String) updates} of the same month by other threads wait for it meanwhile. So a month never 
+ * gets two archive dates, and no article is archived into an archive date which will be rolled back.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The index is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.1.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class ArchiveDateIndex {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ArchiveDateIndex.class.getName());
+
+    /**
+     * Maximum time in milliseconds to wait for a pending archive date created by another thread.
+     */
+    private static final long PENDING_WAIT_TIMEOUT = 1000 * 10;
+
+    /**
+     * Archive date repository.
+     */
+    @Inject
+    private ArchiveDateRepository archiveDateRepository;
+
+    /**
+     * Archive time &rarr; entry, archive time descending.
+     */
+    private final ConcurrentSkipListMap<Long, Entry> entriesByTime =
+        new ConcurrentSkipListMap<Long, Entry>(Collections.reverseOrder());
+
+    /**
+     * Archive date string (yyyy/MM) &rarr; entry.
+     */
+    private final Map<String, Entry> entriesByDateString = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Archive date id &rarr; entry.
+     */
+    private final Map<String, Entry> entriesById = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Archive date string (yyyy/MM) &rarr; pending archive date, guarded by this index.
+     */
+    private final Map<String, Pending> pendings = new HashMap<String, Pending>();
+
+    /**
+     * Whether the index has been loaded.
+     */
+    private volatile boolean loaded;
+
+    /**
+     * Gets archive dates of published articles.
+     * 
+     * @return copies of the archive dates (with {@link ArchiveDate#ARCHIVE_DATE_YEAR year} and 
+     * {@link ArchiveDate#ARCHIVE_DATE_MONTH month}) ordered by archive time descending, returns an empty list if not 
+     * found
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    public List<JSONObject> getArchiveDates() throws RepositoryException {
+        return getArchiveDates(null);
+    }
+
+    /**
+     * Gets archive dates of published articles for the specified language.
+     * 
+     * @param language the specified language, the archive dates will be with {@link Common#MONTH_NAME month name} if 
+     * it is "en"
+     * @return copies of the archive dates (with {@link ArchiveDate#ARCHIVE_DATE_YEAR year} and 
+     * {@link ArchiveDate#ARCHIVE_DATE_MONTH month}) ordered by archive time descending, returns an empty list if not 
+     * found
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    public List<JSONObject> getArchiveDates(final String language) throws RepositoryException {
+        ensureLoaded();
+
+        final boolean withMonthName = "en".equals(language);
+        final List<JSONObject> ret = new ArrayList<JSONObject>();
+
+        for (final Entry entry : entriesByTime.values()) {
+            if (0 >= entry.archiveDate.optInt(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT)) {
+                continue;
+            }
+
+            final JSONObject archiveDate = copy(entry.archiveDate);
+
+            archiveDate.put(ArchiveDate.ARCHIVE_DATE_YEAR, entry.year);
+            archiveDate.put(ArchiveDate.ARCHIVE_DATE_MONTH, entry.month);
+            if (withMonthName) {
+                archiveDate.put(Common.MONTH_NAME, entry.monthName);
+            }
+
+            ret.add(archiveDate);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Gets an archive date by the specified archive date string.
+     * 
+     * @param archiveDateString the specified archive date string (yyyy/MM)
+     * @return a copy of the archive date, returns {@code null} if not found
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    public JSONObject getByArchiveDate(final String archiveDateString) throws RepositoryException {
+        ensureLoaded();
+
+        final Entry entry = entriesByDateString.get(archiveDateString);
+
+        if (null == entry) {
+            return null;
+        }
+
+        return copy(entry.archiveDate);
+    }
+
+    /**
+     * Gets an archive date by the specified archive date string for updating it in the current transaction.
+     * 
+     * <p>
+     * Waits if the archive date is pending for another thread, returns the pending one if it is pending for the 
+     * current thread. Callers should synchronize on this index while getting and putting the updated archive date.
+     * </p>
+     * 
+     * @param archiveDateString the specified archive date string (yyyy/MM)
+     * @return a copy of the archive date, returns {@code null} if not found
+     * @throws RepositoryException if the index not loaded and loads it failed, or waits for the pending archive date 
+     * timeout
+     */
+    public synchronized JSONObject getForUpdate(final String archiveDateString) throws RepositoryException {
+        final long deadline = System.currentTimeMillis() + PENDING_WAIT_TIMEOUT;
+        Pending pending = pendings.get(archiveDateString);
+
+        while (null != pending && Thread.currentThread() != pending.owner) {
+            final long remaining = deadline - System.currentTimeMillis();
+
+            if (0 >= remaining) {
+                throw new RepositoryException("Waits for pending archive date[" + archiveDateString + "] timeout");
+            }
+
+            try {
+                wait(remaining);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new RepositoryException(e);
+            }
+
+            pending = pendings.get(archiveDateString);
+        }
+
+        if (null != pending) {
+            return copy(pending.archiveDate);
+        }
+
+        return getByArchiveDate(archiveDateString);
+    }
+
+    /**
+     * Puts the specified archive date created by the current thread as pending, it will be indexed after 
+     * {@link #publishPendings() published}.
+     * 
+     * @param archiveDate the specified archive date, the index holds a copy of it
+     */
+    public synchronized void putPending(final JSONObject archiveDate) {
+        final String archiveDateString = DateFormatUtils.format(archiveDate.optLong(ArchiveDate.ARCHIVE_TIME), "yyyy/MM");
+
+        pendings.put(archiveDateString, new Pending(copy(archiveDate)));
+    }
+
+    /**
+     * Indexes the archive dates pending for the current thread, invoked after the creating transaction committed.
+     */
+    public synchronized void publishPendings() {
+        final Iterator<Pending> iterator = pendings.values().iterator();
+
+        while (iterator.hasNext()) {
+            final Pending pending = iterator.next();
+
+            if (Thread.currentThread() == pending.owner) {
+                iterator.remove();
+
+                if (loaded) {
+                    putInternal(pending.archiveDate);
+                }
+            }
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Drops the archive dates pending for the current thread, invoked after the creating transaction rolled back.
+     */
+    public synchronized void discardPendings() {
+        final Iterator<Pending> iterator = pendings.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (Thread.currentThread() == iterator.next().owner) {
+                iterator.remove();
+            }
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Loads the index from repository, replaces the current index.
+     * 
+     * @throws RepositoryException repository exception
+     */
+    public synchronized void load() throws RepositoryException {
+        entriesByTime.clear();
+        entriesByDateString.clear();
+        entriesById.clear();
+
+        final JSONObject result = archiveDateRepository.get(new Query().setPageCount(1));
+        final JSONArray archiveDates = result.optJSONArray(Keys.RESULTS);
+
+        for (int i = 0; i < archiveDates.length(); i++) {
+            final JSONObject archiveDate = archiveDates.optJSONObject(i);
+            final Entry duplicated = entriesByTime.get(archiveDate.optLong(ArchiveDate.ARCHIVE_TIME));
+
+            if (null != duplicated) {
+                LOGGER.log(Level.WARN, "Found a duplicated archive date[{0}, id={1}]",
+                    new Object[] {duplicated.dateString, archiveDate.optString(Keys.OBJECT_ID)});
+
+                continue;
+            }
+
+            putInternal(archiveDate);
+        }
+
+        loaded = true;
+
+        LOGGER.log(Level.INFO, "Loaded archive date index[archiveDateCnt={0}]", entriesByTime.size());
+    }
+
+    /**
+     * Puts the specified archive date, replaces the old one which has the same archive time if exists.
+     * 
+     * <p>
+     * Updates the pending one instead if the archive date is pending for the current thread. Does nothing if the index
+     * has not been loaded, the archive date will be loaded with the index.
+     * </p>
+     * 
+     * @param archiveDate the specified archive date, the index holds a copy of it
+     */
+    public synchronized void put(final JSONObject archiveDate) {
+        final Pending pending = pendings.get(DateFormatUtils.format(archiveDate.optLong(ArchiveDate.ARCHIVE_TIME), "yyyy/MM"));
+
+        if (null != pending && Thread.currentThread() == pending.owner) {
+            putPending(archiveDate);
+
+            return;
+        }
+
+        if (!loaded) {
+            return;
+        }
+
+        putInternal(archiveDate);
+    }
+
+    /**
+     * Removes an archive date specified by the given id.
+     * 
+     * @param archiveDateId the given id
+     */
+    public synchronized void remove(final String archiveDateId) {
+        final Entry entry = entriesById.remove(archiveDateId);
+
+        if (null != entry) {
+            entriesByTime.remove(entry.time);
+            entriesByDateString.remove(entry.dateString);
+        }
+    }
+
+    /**
+     * Clears the index, it will be reloaded at the next lookup. Pending archive dates are kept.
+     */
+    public synchronized void clear() {
+        loaded = false;
+        entriesByTime.clear();
+        entriesByDateString.clear();
+        entriesById.clear();
+    }
+
+    /**
+     * Loads the index if it has not been loaded.
+     * 
+     * @throws RepositoryException repository exception
+     */
+    private void ensureLoaded() throws RepositoryException {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load();
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the specified archive date.
+     * 
+     * @param archiveDate the specified archive date
+     */
+    private void putInternal(final JSONObject archiveDate) {
+        final Entry entry = new Entry(copy(archiveDate));
+        final Entry old = entriesByTime.put(entry.time, entry);
+
+        if (null != old) {
+            entriesById.remove(old.id);
+        }
+
+        entriesByDateString.put(entry.dateString, entry);
+        entriesById.put(entry.id, entry);
+    }
+
+    /**
+     * Copies the specified archive date.
+     * 
+     * @param archiveDate the specified archive date
+     * @return a copy of the specified archive date
+     */
+    private static JSONObject copy(final JSONObject archiveDate) {
+        return new JSONObject(archiveDate, JSONObject.getNames(archiveDate));
+    }
+
+    /**
+     * Archive date created by an uncommitted transaction.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Pending {
+
+        /**
+         * Owner thread, the thread of the creating transaction.
+         */
+        private final Thread owner = Thread.currentThread();
+
+        /**
+         * Archive date.
+         */
+        private final JSONObject archiveDate;
+
+        /**
+         * Constructs a pending archive date of the current thread with the specified archive date.
+         * 
+         * @param archiveDate the specified archive date
+         */
+        private Pending(final JSONObject archiveDate) {
+            this.archiveDate = archiveDate;
+        }
+    }
+
+    /**
+     * Archive date index entry.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Entry {
+
+        /**
+         * Archive date id.
+         */
+        private final String id;
+
+        /**
+         * Archive time.
+         */
+        private final long time;
+
+        /**
+         * Archive date string (yyyy/MM).
+         */
+        private final String dateString;
+
+        /**
+         * Year (yyyy).
+         */
+        private final String year;
+
+        /**
+         * Month (MM).
+         */
+        private final String month;
+
+        /**
+         * English month name.
+         */
+        private final String monthName;
+
+        /**
+         * Archive date.
+         */
+        private final JSONObject archiveDate;
+
+        /**
+         * Constructs an entry with the specified archive date.
+         * 
+         * @param archiveDate the specified archive date
+         */
+        private Entry(final JSONObject archiveDate) {
+            this.id = archiveDate.optString(Keys.OBJECT_ID);
+            this.time = archiveDate.optLong(ArchiveDate.ARCHIVE_TIME);
+            this.dateString = DateFormatUtils.format(time, "yyyy/MM");
+            this.year = dateString.substring(0, 4);
+            this.month = dateString.substring(5);
+            this.monthName = Dates.EN_MONTHS.get(month);
+            this.archiveDate = archiveDate;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.Keys;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.repository.FilterOperator;
+import org.b3log.latke.repository.PropertyFilter;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.RepositoryException;
+import org.b3log.solo.model.Article;
+import org.b3log.solo.repository.ArticleRepository;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * Article timeline.
+ * 
+ * <p>
+ * A resident timeline of published articles (id, title, permalink, create date and update date), sorted by 
+ * {@link Article#ARTICLE_CREATE_DATE create date} for the previous/next article navigation, and by 
+ * {@link Article#ARTICLE_UPDATE_DATE update date} for the recent articles, so these lookups are neighbor lookups 
+ * instead of range queries. The timeline will be loaded lazily at the first lookup and kept current by 
+ * {@link org.b3log.solo.service.ArticleMgmtService}.
+ * </p>
+ * 
+ * <p>
+ * An entry may be stale if the transaction updated it rolled back, the article management service 
+ * {@link #clear() clears} the timeline while rolling back.
+ * </p>
+ * 
+ * <p>
+ * The entries are held by one {@link Timeline} referenced by a volatile field, {@link #load() loading} builds a new 
+ * one and swaps it in, {@link #clear() clearing} drops the reference, so a lookup works on the same timeline all 
+ * the time and never sees the timeline emptied under it.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The timeline is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.1.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class ArticleTimeline {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ArticleTimeline.class.getName());
+
+    /**
+     * Create date comparator, create date ascending, and then id ascending.
+     */
+    private static final Comparator<Entry> CREATE_DATE_COMPARATOR = new Comparator<Entry>() {
+        @Override
+        public int compare(final Entry entry1, final Entry entry2) {
+            if (entry1.createTime != entry2.createTime) {
+                return entry1.createTime < entry2.createTime ? -1 : 1;
+            }
+
+            return entry1.id.compareTo(entry2.id);
+        }
+    };
+
+    /**
+     * Update date comparator, update date descending, and then id ascending.
+     */
+    private static final Comparator<Entry> UPDATE_DATE_COMPARATOR = new Comparator<Entry>() {
+        @Override
+        public int compare(final Entry entry1, final Entry entry2) {
+            if (entry1.updateTime != entry2.updateTime) {
+                return entry1.updateTime > entry2.updateTime ? -1 : 1;
+            }
+
+            return entry1.id.compareTo(entry2.id);
+        }
+    };
+
+    /**
+     * Article repository.
+     */
+    @Inject
+    private ArticleRepository articleRepository;
+
+    /**
+     * The current timeline, {@code null} if not loaded.
+     */
+    private volatile Timeline timeline;
+
+    /**
+     * Determines whether the timeline contains a published article specified by the given article id.
+     * 
+     * @param articleId the given article id
+     * @return {@code true} if it contains, returns {@code false} otherwise
+     * @throws RepositoryException if the timeline not loaded and loads it failed
+     */
+    public boolean contains(final String articleId) throws RepositoryException {
+        return getTimeline().entriesById.containsKey(articleId);
+    }
+
+    /**
+     * Gets the previous (by create date) published article of an article specified by the given article id.
+     * 
+     * @param articleId the given article id
+     * @return the previous article,
+     * <pre>
+     * {
+     *     "articleTitle": "",
+     *     "articlePermalink": ""
+     * }
+     * </pre>
+     * returns {@code null} if not found or the specified article is not in the timeline
+     * @throws RepositoryException if the timeline not loaded and loads it failed
+     */
+    public JSONObject getPrevious(final String articleId) throws RepositoryException {
+        final Timeline current = getTimeline();
+        final Entry entry = current.entriesById.get(articleId);
+
+        if (null == entry) {
+            return null;
+        }
+
+        return toJSONObject(current.entriesByCreateDate.lower(entry));
+    }
+
+    /**
+     * Gets the next (by create date) published article of an article specified by the given article id.
+     * 
+     * @param articleId the given article id
+     * @return the next article,
+     * <pre>
+     * {
+     *     "articleTitle": "",
+     *     "articlePermalink": ""
+     * }
+     * </pre>
+     * returns {@code null} if not found or the specified article is not in the timeline
+     * @throws RepositoryException if the timeline not loaded and loads it failed
+     */
+    public JSONObject getNext(final String articleId) throws RepositoryException {
+        final Timeline current = getTimeline();
+        final Entry entry = current.entriesById.get(articleId);
+
+        if (null == entry) {
+            return null;
+        }
+
+        return toJSONObject(current.entriesByCreateDate.higher(entry));
+    }
+
+    /**
+     * Gets the ids of the recent updated published articles.
+     * 
+     * @param fetchSize the specified fetch size
+     * @return article ids ordered by update date descending, its size less or equal to the specified fetch size
+     * @throws RepositoryException if the timeline not loaded and loads it failed
+     */
+    public List<String> getRecentArticleIds(final int fetchSize) throws RepositoryException {
+        final List<String> ret = new ArrayList<String>();
+
+        for (final Entry entry : getTimeline().entriesByUpdateDate) {
+            if (ret.size() >= fetchSize) {
+                break;
+            }
+
+            ret.add(entry.id);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Gets time of the recent updated published article.
+     * 
+     * @return time of the recent updated article, returns {@code 0} if not found
+     * @throws RepositoryException if the timeline not loaded and loads it failed
+     */
+    public long getRecentArticleTime() throws RepositoryException {
+        for (final Entry entry : getTimeline().entriesByUpdateDate) {
+            return entry.updateTime;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Loads the timeline from repository, replaces the current timeline.
+     * 
+     * @throws RepositoryException repository exception
+     */
+    public synchronized void load() throws RepositoryException {
+        final Timeline loaded = new Timeline();
+        final Query query = new Query().setFilter(new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, true));
+
+        query.setPageCount(1).addProjection(Keys.OBJECT_ID, String.class).addProjection(Article.ARTICLE_TITLE, String.class);
+        query.addProjection(Article.ARTICLE_PERMALINK, String.class).addProjection(Article.ARTICLE_CREATE_DATE, Date.class);
+        query.addProjection(Article.ARTICLE_UPDATE_DATE, Date.class);
+
+        final JSONArray articles = articleRepository.get(query).optJSONArray(Keys.RESULTS);
+
+        for (int i = 0; i < articles.length(); i++) {
+            loaded.put(new Entry(articles.optJSONObject(i)));
+        }
+
+        timeline = loaded;
+
+        LOGGER.log(Level.DEBUG, "Loaded article timeline[articleCnt={0}]", loaded.entriesById.size());
+    }
+
+    /**
+     * Puts the specified article into the timeline, removes it from the timeline if it is not published.
+     * 
+     * <p>
+     * Does nothing if the timeline has not been loaded, the article will be loaded with the timeline.
+     * </p>
+     * 
+     * @param article the specified article
+     */
+    public synchronized void putArticle(final JSONObject article) {
+        final Timeline current = timeline;
+
+        if (null == current) {
+            return;
+        }
+
+        current.remove(article.optString(Keys.OBJECT_ID));
+
+        if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED)) {
+            current.put(new Entry(article));
+        }
+    }
+
+    /**
+     * Removes an article specified by the given article id from the timeline.
+     * 
+     * @param articleId the given article id
+     */
+    public synchronized void remove(final String articleId) {
+        final Timeline current = timeline;
+
+        if (null != current) {
+            current.remove(articleId);
+        }
+    }
+
+    /**
+     * Clears the timeline, the next lookup will reload it from repository.
+     * 
+     * <p>
+     * The lookups working on the current timeline are not affected.
+     * </p>
+     */
+    public synchronized void clear() {
+        timeline = null;
+    }
+
+    /**
+     * Gets the current timeline, loads it if it has not been loaded.
+     * 
+     * @return the current timeline
+     * @throws RepositoryException repository exception
+     */
+    private Timeline getTimeline() throws RepositoryException {
+        Timeline ret = timeline;
+
+        if (null == ret) {
+            synchronized (this) {
+                if (null == timeline) {
+                    load();
+                }
+
+                ret = timeline;
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Converts the specified entry to a json object with title and permalink.
+     * 
+     * @param entry the specified entry, may be {@code null}
+     * @return json object, returns {@code null} if the specified entry is {@code null}
+     */
+    private static JSONObject toJSONObject(final Entry entry) {
+        if (null == entry) {
+            return null;
+        }
+
+        final JSONObject ret = new JSONObject();
+
+        ret.put(Article.ARTICLE_TITLE, entry.title);
+        ret.put(Article.ARTICLE_PERMALINK, entry.permalink);
+
+        return ret;
+    }
+
+    /**
+     * Gets time of the specified date property of the specified article.
+     * 
+     * @param article the specified article
+     * @param key the specified date property key
+     * @return time, returns {@code 0} if the property is not a date
+     */
+    private static long getTime(final JSONObject article, final String key) {
+        final Object value = article.opt(key);
+
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+
+        return 0;
+    }
+
+    /**
+     * Timeline entries.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Timeline {
+
+        /**
+         * Article id &rarr; entry.
+         */
+        private final Map<String, Entry> entriesById = new ConcurrentHashMap<String, Entry>();
+
+        /**
+         * Entries ordered by {@link ArticleTimeline#CREATE_DATE_COMPARATOR}.
+         */
+        private final ConcurrentSkipListSet<Entry> entriesByCreateDate =
+            new ConcurrentSkipListSet<Entry>(CREATE_DATE_COMPARATOR);
+
+        /**
+         * Entries ordered by {@link ArticleTimeline#UPDATE_DATE_COMPARATOR}.
+         */
+        private final ConcurrentSkipListSet<Entry> entriesByUpdateDate =
+            new ConcurrentSkipListSet<Entry>(UPDATE_DATE_COMPARATOR);
+
+        /**
+         * Puts the specified entry.
+         * 
+         * @param entry the specified entry
+         */
+        private void put(final Entry entry) {
+            entriesById.put(entry.id, entry);
+            entriesByCreateDate.add(entry);
+            entriesByUpdateDate.add(entry);
+        }
+
+        /**
+         * Removes an entry specified by the given article id.
+         * 
+         * @param articleId the given article id
+         */
+        private void remove(final String articleId) {
+            final Entry entry = entriesById.remove(articleId);
+
+            if (null == entry) {
+                return;
+            }
+
+            entriesByCreateDate.remove(entry);
+            entriesByUpdateDate.remove(entry);
+        }
+    }
+
+    /**
+     * Article timeline entry.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Entry {
+
+        /**
+         * Article id.
+         */
+        private final String id;
+
+        /**
+         * Article title.
+         */
+        private final String title;
+
+        /**
+         * Article permalink.
+         */
+        private final String permalink;
+
+        /**
+         * Create time.
+         */
+        private final long createTime;
+
+        /**
+         * Update time.
+         */
+        private final long updateTime;
+
+        /**
+         * Constructs an entry with the specified article.
+         * 
+         * @param article the specified article
+         */
+        private Entry(final JSONObject article) {
+            this.id = article.optString(Keys.OBJECT_ID);
+            this.title = article.optString(Article.ARTICLE_TITLE);
+            this.permalink = article.optString(Article.ARTICLE_PERMALINK);
+            this.createTime = getTime(article, Article.ARTICLE_CREATE_DATE);
+            this.updateTime = getTime(article, Article.ARTICLE_UPDATE_DATE);
+        }
+    }
+}
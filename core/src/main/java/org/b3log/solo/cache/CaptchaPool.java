@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.apache.commons.io.IOUtils;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+
+
+/**
+ * Captcha pool.
+ * 
+ * <p>
+ * Holds the static captcha images (captcha_static.zip) as encoded image bytes, the images are read once at startup 
+ * into an immutable array, a captcha request just picks one of them and writes the bytes to the response directly.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class CaptchaPool {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CaptchaPool.class.getName());
+
+    /**
+     * Captcha images resource name.
+     */
+    private static final String CAPTCHA_ZIP = "captcha_static.zip";
+
+    /**
+     * Random of the current thread.
+     */
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    /**
+     * Captchas, immutable after loaded.
+     */
+    private volatile Captcha[] captchas;
+
+    /**
+     * Gets a captcha randomly.
+     * 
+     * @return captcha
+     */
+    public Captcha random() {
+        Captcha[] pool = captchas;
+
+        if (null == pool) {
+            load();
+            pool = captchas;
+        }
+
+        return pool[RANDOM.get().nextInt(pool.length)];
+    }
+
+    /**
+     * Loads the captchas, does nothing if loaded.
+     */
+    public synchronized void load() {
+        if (null != captchas) {
+            return;
+        }
+
+        LOGGER.info("Loading captchas....");
+
+        final List<Captcha> loaded = new ArrayList<Captcha>();
+        final InputStream inputStream = CaptchaPool.class.getClassLoader().getResourceAsStream(CAPTCHA_ZIP);
+
+        if (null == inputStream) {
+            throw new IllegalStateException("Not found captcha images [" + CAPTCHA_ZIP + "]");
+        }
+
+        final ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+
+        try {
+            ZipEntry entry;
+
+            while (null != (entry = zipInputStream.getNextEntry())) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                final String name = entry.getName();
+                final int dotIndex = name.lastIndexOf('.');
+                final String extension = name.substring(dotIndex + 1).toLowerCase();
+                final String contentType = "png".equals(extension) ? "image/png" : "image/jpeg";
+
+                loaded.add(new Captcha(name.substring(0, dotIndex), contentType, IOUtils.toByteArray(zipInputStream)));
+            }
+        } catch (final IOException e) {
+            LOGGER.log(Level.ERROR, "Can not load captchas", e);
+
+            throw new IllegalStateException(e);
+        } finally {
+            IOUtils.closeQuietly(zipInputStream);
+        }
+
+        if (loaded.isEmpty()) {
+            throw new IllegalStateException("Not found captcha images in [" + CAPTCHA_ZIP + "]");
+        }
+
+        captchas = loaded.toArray(new Captcha[loaded.size()]);
+
+        LOGGER.log(Level.INFO, "Loaded [{0}] captchas", captchas.length);
+    }
+
+    /**
+     * Captcha.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    public static final class Captcha {
+
+        /**
+         * Answer.
+         */
+        private final String answer;
+
+        /**
+         * Content type of the image.
+         */
+        private final String contentType;
+
+        /**
+         * Encoded image bytes.
+         */
+        private final byte[] data;
+
+        /**
+         * Constructs a captcha with the specified answer, content type and image bytes.
+         * 
+         * @param answer the specified answer
+         * @param contentType the specified content type
+         * @param data the specified image bytes
+         */
+        private Captcha(final String answer, final String contentType, final byte[] data) {
+            this.answer = answer;
+            this.contentType = contentType;
+            this.data = data;
+        }
+
+        /**
+         * Gets the answer.
+         * 
+         * @return answer
+         */
+        public String getAnswer() {
+            return answer;
+        }
+
+        /**
+         * Gets the content type of the image.
+         * 
+         * @return content type
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Gets the encoded image bytes.
+         * 
+         * <p>
+         * The bytes are shared by all requests, callers MUST NOT modify them.
+         * </p>
+         * 
+         * @return image bytes
+         */
+        public byte[] getData() {
+            return data;
+        }
+    }
+}
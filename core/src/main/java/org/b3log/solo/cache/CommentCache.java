@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.json.JSONObject;
+
+
+/**
+ * Comment cache.
+ * 
+ * <p>
+ * Caches the prepared (content line breaks converted, name and URL escaped, etc) comment pages of an article or page, 
+ * keyed by the article or page id. The pages of an article or page will be {@link #remove(java.lang.String) removed}
+ * while a comment added to or removed from it. At most {@value #MAX_ENTRIES} articles or pages are cached, the least 
+ * recently used one will be evicted. An empty page other than the first one is past the end, it will not be cached.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The cache is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.1, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class CommentCache {
+
+    /**
+     * Maximum number of cached articles or pages.
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    /**
+     * Version, increments every time the cache {@link #remove(java.lang.String) removed} or {@link #clear() cleared}.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * On id &rarr; (page number &rarr; prepared comments).
+     */
+    private final Map<String, Map<Integer, List<JSONObject>>> pages =
+        new LinkedHashMap<String, Map<Integer, List<JSONObject>>>(16, 0.75f, true) {
+        /**
+         * Default serial version uid.
+         */
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Map<Integer, List<JSONObject>>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Gets the version of the cache.
+     * 
+     * <p>
+     * Used by loading, gets the version before loading comments from repository, and 
+     * {@link #putPage(java.lang.String, int, java.util.List, long) puts} them with the version.
+     * </p>
+     * 
+     * @return version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Gets the prepared comments of the specified page of an article or page specified by the given on id.
+     * 
+     * @param onId the given on id
+     * @param pageNum the specified page number
+     * @return a list of copies of the prepared comments, returns {@code null} if not cached
+     */
+    public synchronized List<JSONObject> getPage(final String onId, final int pageNum) {
+        final Map<Integer, List<JSONObject>> onPages = pages.get(onId);
+
+        if (null == onPages) {
+            return null;
+        }
+
+        final List<JSONObject> comments = onPages.get(pageNum);
+
+        if (null == comments) {
+            return null;
+        }
+
+        return copy(comments);
+    }
+
+    /**
+     * Puts the specified prepared comments as the specified page of an article or page specified by the given on id if
+     * the cache version equals to the specified expected version.
+     * 
+     * @param onId the given on id
+     * @param pageNum the specified page number
+     * @param comments the specified prepared comments, the cache holds copies of them
+     * @param expectedVersion the specified expected version
+     * @return {@code true} if put, returns {@code false} if the cache has been changed since the expected version or 
+     * the specified page is past the end
+     */
+    public synchronized boolean putPage(final String onId, final int pageNum, final List<JSONObject> comments,
+        final long expectedVersion) {
+        if (version.get() != expectedVersion) {
+            return false;
+        }
+
+        if (comments.isEmpty() && 1 != pageNum) {
+            return false;
+        }
+
+        Map<Integer, List<JSONObject>> onPages = pages.get(onId);
+
+        if (null == onPages) {
+            onPages = new HashMap<Integer, List<JSONObject>>();
+            pages.put(onId, onPages);
+        }
+
+        onPages.put(pageNum, copy(comments));
+
+        return true;
+    }
+
+    /**
+     * Removes all pages of an article or page specified by the given on id.
+     * 
+     * @param onId the given on id
+     */
+    public synchronized void remove(final String onId) {
+        version.incrementAndGet();
+
+        pages.remove(onId);
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public synchronized void clear() {
+        version.incrementAndGet();
+
+        pages.clear();
+    }
+
+    /**
+     * Copies the specified comments.
+     * 
+     * @param comments the specified comments
+     * @return copies of the comments
+     */
+    private static List<JSONObject> copy(final List<JSONObject> comments) {
+        final List<JSONObject> ret = new ArrayList<JSONObject>(comments.size());
+
+        for (final JSONObject comment : comments) {
+            ret.add(new JSONObject(comment, JSONObject.getNames(comment)));
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.concurrent.atomic.AtomicReference;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+
+
+/**
+ * Site content version.
+ * 
+ * <p>
+ * A monotonically increasing version of the blog content, every mutation (articles, comments, pages, links, 
+ * preference, users, plugins, etc.) {@link #bump() bumps} it. The version is combined into the validators 
+ * (ETag/Last-Modified) of the blog-facing pages, see {@link org.b3log.solo.util.ConditionalGets}.
+ * </p>
+ * 
+ * <p>
+ * The {@link #getTag() tag} starts with the startup time, so tags of different runs never collide.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The version is NOT cluster-safe. View counts do not bump the version.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.1, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class ContentVersion implements Invalidatable {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ContentVersion.class.getName());
+
+    /**
+     * Startup time.
+     */
+    private final long startupTime = System.currentTimeMillis();
+
+    /**
+     * Current snapshot.
+     */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(new Snapshot(0, startupTime));
+
+    /**
+     * Bumps the version.
+     */
+    public void bump() {
+        Snapshot current;
+        Snapshot next;
+
+        do {
+            current = snapshot.get();
+            next = new Snapshot(current.version + 1, System.currentTimeMillis());
+        } while (!snapshot.compareAndSet(current, next));
+
+        LOGGER.log(Level.DEBUG, "Bumped content version to [{0}]", next.version);
+    }
+
+    /**
+     * Invalidates the current version by {@link #bump() bumping} it.
+     */
+    @Override
+    public void invalidate() {
+        bump();
+    }
+
+    /**
+     * Gets the version.
+     * 
+     * @return version
+     */
+    public long getVersion() {
+        return snapshot.get().version;
+    }
+
+    /**
+     * Gets the tag of the current version, for example "141f1e2a3b0.12".
+     * 
+     * @return tag
+     */
+    public String getTag() {
+        return Long.toHexString(startupTime) + '.' + snapshot.get().version;
+    }
+
+    /**
+     * Gets the time of the last bump (the startup time if never bumped), in milliseconds truncated to seconds.
+     * 
+     * @return last modified time
+     */
+    public long getLastModified() {
+        return snapshot.get().time / 1000 * 1000;
+    }
+
+    /**
+     * Version snapshot.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Snapshot {
+
+        /**
+         * Version.
+         */
+        private final long version;
+
+        /**
+         * Bumped time.
+         */
+        private final long time;
+
+        /**
+         * Constructs a snapshot with the specified version and time.
+         * 
+         * @param version the specified version
+         * @param time the specified time
+         */
+        private Snapshot(final long version, final long time) {
+            this.version = version;
+            this.time = time;
+        }
+    }
+}
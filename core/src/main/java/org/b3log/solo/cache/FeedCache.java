@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.util.MD5;
+
+
+/**
+ * Feed cache.
+ * 
+ * <p>
+ * Caches the serialized Atom/RSS feeds as encoded (and gzipped) bytes with their entity tags, keyed by feed variant 
+ * (for example, "atom" or "rss:tagId"). The cache is filled by {@link org.b3log.solo.processor.FeedProcessor} and 
+ * cleared by {@link org.b3log.solo.event.cache.CacheInvalidator} while articles or preference changed.
+ * </p>
+ * 
+ * <p>
+ * Every feed is tagged with the {@link #getGeneration() generation} current while it was generating, a feed generated
+ * across a {@link #clear() clear} is never cached. Cached feeds also expire after {@link #MAX_AGE}.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The cache is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.2, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class FeedCache implements Invalidatable {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(FeedCache.class.getName());
+
+    /**
+     * Maximum count of cached feeds.
+     */
+    public static final int MAX_COUNT = 256;
+
+    /**
+     * Maximum age of a cached feed in milliseconds.
+     */
+    public static final long MAX_AGE = 1000 * 60 * 30;
+
+    /**
+     * Generation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Cached feeds, in access order.
+     */
+    private final Map<String, CachedFeed> feeds = Collections.synchronizedMap(
+        new LinkedHashMap<String, CachedFeed>(MAX_COUNT / 4, 0.75F, true) {
+
+        /**
+         * Default serial version uid.
+         */
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CachedFeed> eldest) {
+            return size() > MAX_COUNT;
+        }
+    });
+
+    /**
+     * Gets the current generation.
+     * 
+     * @return current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Gets a cached feed by the specified key.
+     * 
+     * @param key the specified key
+     * @return cached feed, returns {@code null} if not found, stale or expired
+     */
+    public CachedFeed get(final String key) {
+        final CachedFeed ret = feeds.get(key);
+
+        if (null == ret) {
+            return null;
+        }
+
+        if (ret.generation != generation.get() || System.currentTimeMillis() - ret.cachedTime > MAX_AGE) {
+            feeds.remove(key);
+
+            return null;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Encodes the specified feed content generated in the specified generation and puts it into cache with the 
+     * specified key.
+     * 
+     * <p>
+     * The encoded feed will not be cached if the cache has been cleared while generating.
+     * </p>
+     * 
+     * @param key the specified key
+     * @param loadedGeneration the specified generation, got by {@link #getGeneration()} before generating
+     * @param content the specified feed content
+     * @return the encoded feed
+     * @throws IOException if encodes failed
+     */
+    public CachedFeed put(final String key, final long loadedGeneration, final String content) throws IOException {
+        final CachedFeed ret = new CachedFeed(loadedGeneration, content);
+
+        if (loadedGeneration != generation.get()) {
+            return ret;
+        }
+
+        feeds.put(key, ret);
+
+        LOGGER.log(Level.DEBUG, "Cached feed[key={0}, etag={1}]", key, ret.getETag());
+
+        return ret;
+    }
+
+    /**
+     * Invalidates all cached feeds by {@link #clear() clearing} them.
+     */
+    @Override
+    public void invalidate() {
+        clear();
+    }
+
+    /**
+     * Clears all cached feeds.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        feeds.clear();
+
+        LOGGER.log(Level.DEBUG, "Cleared feed cache");
+    }
+
+    /**
+     * Cached feed.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.1, Nov 2, 2013
+     */
+    public static final class CachedFeed {
+
+        /**
+         * Content bytes (UTF-8).
+         */
+        private final byte[] content;
+
+        /**
+         * Gzipped content bytes.
+         */
+        private final byte[] gzippedContent;
+
+        /**
+         * Entity tag of the content.
+         */
+        private final String etag;
+
+        /**
+         * Entity tag of the gzipped content.
+         */
+        private final String gzippedETag;
+
+        /**
+         * Last modified time, in seconds precision as HTTP dates.
+         */
+        private final long lastModified;
+
+        /**
+         * Generation.
+         */
+        private final long generation;
+
+        /**
+         * Cached time.
+         */
+        private final long cachedTime;
+
+        /**
+         * Constructs a cached feed with the specified generation and content.
+         * 
+         * @param generation the specified generation
+         * @param content the specified content
+         * @throws UnsupportedEncodingException unsupported encoding exception
+         * @throws IOException io exception
+         */
+        private CachedFeed(final long generation, final String content) throws UnsupportedEncodingException, IOException {
+            final String hash = MD5.hash(content);
+
+            this.generation = generation;
+            this.content = content.getBytes("UTF-8");
+            this.etag = '"' + hash + '"';
+            this.gzippedETag = "\"" + hash + "-gzip\"";
+            this.cachedTime = System.currentTimeMillis();
+            this.lastModified = cachedTime / 1000 * 1000;
+
+            final ByteArrayOutputStream gzipped = new ByteArrayOutputStream(this.content.length / 4);
+            final GZIPOutputStream gzip = new GZIPOutputStream(gzipped);
+
+            gzip.write(this.content);
+            gzip.close();
+
+            this.gzippedContent = gzipped.toByteArray();
+        }
+
+        /**
+         * Gets the content bytes.
+         * 
+         * @return content bytes
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Gets the gzipped content bytes.
+         * 
+         * @return gzipped content bytes
+         */
+        public byte[] getGzippedContent() {
+            return gzippedContent;
+        }
+
+        /**
+         * Gets the entity tag of the content.
+         * 
+         * @return entity tag, quoted
+         */
+        public String getETag() {
+            return etag;
+        }
+
+        /**
+         * Gets the entity tag of the gzipped content.
+         * 
+         * @return entity tag, quoted
+         */
+        public String getGzippedETag() {
+            return gzippedETag;
+        }
+
+        /**
+         * Gets the last modified time.
+         * 
+         * @return last modified time in milliseconds
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
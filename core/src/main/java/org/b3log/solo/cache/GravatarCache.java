@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.http.HttpServletResponse;
+import org.b3log.latke.Latkes;
+import org.b3log.latke.RuntimeEnv;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.repository.Transaction;
+import org.b3log.latke.urlfetch.HTTPRequest;
+import org.b3log.latke.urlfetch.HTTPResponse;
+import org.b3log.latke.util.MD5;
+import org.b3log.solo.model.Comment;
+import org.b3log.solo.repository.CommentRepository;
+import org.b3log.solo.util.Thumbnails;
+import org.b3log.solo.util.URLFetches;
+import org.json.JSONObject;
+
+
+/**
+ * Gravatar cache.
+ * 
+ * <p>
+ * Caches whether an email has a <a href="http://gravatar.com">Gravatar</a> (positive) or not (negative), keyed by the 
+ * MD5 of the email. Comments of unknown emails are saved with the default thumbnail, and their 
+ * {@link Comment#COMMENT_THUMBNAIL_URL thumbnail URL} will be backfilled by a bounded worker pool after the Gravatar 
+ * resolved, so the comment submission never waits for the Gravatar round trip.
+ * </p>
+ * 
+ * <p>
+ * If the worker queue is full, the backfill will be dropped, the comment keeps the default thumbnail. On 
+ * {@link RuntimeEnv#GAE GAE}, background threads are not allowed, so the backfill runs in the calling thread.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The cache is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.2, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class GravatarCache {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(GravatarCache.class.getName());
+
+    /**
+     * Default user thumbnail.
+     */
+    private static final String DEFAULT_USER_THUMBNAIL = "default-user-thumbnail.png";
+
+    /**
+     * Thumbnail size.
+     */
+    private static final String THUMBNAIL_SIZE = "60";
+
+    /**
+     * Time to live of a positive entry, in milliseconds.
+     */
+    private static final long POSITIVE_TTL = 1000L * 60 * 60 * 24;
+
+    /**
+     * Time to live of a negative entry, in milliseconds.
+     */
+    private static final long NEGATIVE_TTL = 1000L * 60 * 60;
+
+    /**
+     * Maximum number of entries, the cache will be cleared if exceeded.
+     */
+    private static final int MAX_ENTRIES = 4096;
+
+    /**
+     * Number of workers.
+     */
+    private static final int WORKER_CNT = 2;
+
+    /**
+     * Capacity of the worker queue.
+     */
+    private static final int QUEUE_CAPACITY = 256;
+
+    /**
+     * Comment repository.
+     */
+    @Inject
+    private CommentRepository commentRepository;
+
+    /**
+     * Page cache.
+     */
+    @Inject
+    private PageCache pageCache;
+
+    /**
+     * Widget cache.
+     */
+    @Inject
+    private WidgetCache widgetCache;
+
+    /**
+     * Content version.
+     */
+    @Inject
+    private ContentVersion contentVersion;
+
+    /**
+     * Comment cache.
+     */
+    @Inject
+    private CommentCache commentCache;
+
+    /**
+     * Email MD5 &rarr; entry.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Gravatar address.
+     */
+    private volatile String gravatar = Thumbnails.GRAVATAR;
+
+    /**
+     * Workers.
+     */
+    private final ThreadPoolExecutor workers = new ThreadPoolExecutor(WORKER_CNT, WORKER_CNT, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+        /**
+         * Thread number.
+         */
+        private final AtomicInteger threadNum = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread ret = new Thread(runnable, "Gravatar-" + threadNum.incrementAndGet());
+
+            ret.setDaemon(true);
+
+            return ret;
+        }
+    });
+
+    /**
+     * Public constructor.
+     */
+    public GravatarCache() {
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Gets the thumbnail URL of the specified email from the cache.
+     * 
+     * @param email the specified email
+     * @return the Gravatar URL if the email has a Gravatar, the {@link #getDefaultThumbnailURL() default thumbnail URL}
+     * if not, returns {@code null} if unknown
+     */
+    public String getThumbnailURL(final String email) {
+        final Entry entry = entries.get(MD5.hash(email));
+
+        if (null == entry) {
+            return null;
+        }
+
+        if (entry.expireTime < System.currentTimeMillis()) {
+            entries.remove(entry.hash);
+
+            return null;
+        }
+
+        return null == entry.thumbnailURL ? getDefaultThumbnailURL() : entry.thumbnailURL;
+    }
+
+    /**
+     * Gets the default thumbnail URL.
+     * 
+     * @return default thumbnail URL
+     */
+    public String getDefaultThumbnailURL() {
+        return Latkes.getStaticServePath() + "/images/" + DEFAULT_USER_THUMBNAIL;
+    }
+
+    /**
+     * Resolves the Gravatar of the specified email asynchronously, and backfills the thumbnail URL of a comment 
+     * specified by the given comment id if the email has a Gravatar.
+     * 
+     * @param email the specified email
+     * @param commentId the given comment id
+     */
+    public void backfill(final String email, final String commentId) {
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                final String thumbnailURL = resolve(email);
+
+                if (!getDefaultThumbnailURL().equals(thumbnailURL)) {
+                    updateCommentThumbnailURL(commentId, thumbnailURL);
+                }
+            }
+        };
+
+        if (RuntimeEnv.GAE == Latkes.getRuntimeEnv()) {
+            task.run();
+
+            return;
+        }
+
+        try {
+            workers.execute(task);
+        } catch (final RejectedExecutionException e) {
+            LOGGER.log(Level.WARN, "Gravatar workers are busy, skips backfill of comment[id={0}]", commentId);
+        }
+    }
+
+    /**
+     * Resolves the Gravatar of the specified email, fetches Gravatar if the email is unknown.
+     * 
+     * @param email the specified email
+     * @return the Gravatar URL if the email has a Gravatar, the default thumbnail URL if not
+     */
+    public String resolve(final String email) {
+        final String cached = getThumbnailURL(email);
+
+        if (null != cached) {
+            return cached;
+        }
+
+        final String hash = MD5.hash(email);
+        final String thumbnailURL = gravatar + hash + "?s=" + THUMBNAIL_SIZE;
+        int statusCode = HttpServletResponse.SC_OK;
+
+        try {
+            final HTTPRequest request = new HTTPRequest();
+
+            request.setURL(new URL(thumbnailURL));
+            final HTTPResponse response = URLFetches.fetch(request);
+
+            statusCode = response.getResponseCode();
+        } catch (final IOException e) {
+            LOGGER.log(Level.WARN, "Can not fetch thumbnail from Gravatar[email={0}]", email);
+
+            return getDefaultThumbnailURL(); // Not cached, retries next time
+        }
+
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+
+        if (HttpServletResponse.SC_OK == statusCode) {
+            entries.put(hash, new Entry(hash, thumbnailURL, System.currentTimeMillis() + POSITIVE_TTL));
+
+            return thumbnailURL;
+        }
+
+        entries.put(hash, new Entry(hash, null, System.currentTimeMillis() + NEGATIVE_TTL));
+
+        return getDefaultThumbnailURL();
+    }
+
+    /**
+     * Sets the Gravatar address with the specified Gravatar address, for testing with a local server.
+     * 
+     * @param gravatar the specified Gravatar address, for example "http://localhost:8090/avatar/"
+     */
+    public void setGravatar(final String gravatar) {
+        this.gravatar = gravatar;
+
+        clear();
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Shuts down the workers, pending backfills will be dropped.
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Updates the thumbnail URL of a comment specified by the given comment id with the specified thumbnail URL.
+     * 
+     * @param commentId the given comment id
+     * @param thumbnailURL the specified thumbnail URL
+     */
+    private void updateCommentThumbnailURL(final String commentId, final String thumbnailURL) {
+        final Transaction transaction = commentRepository.beginTransaction();
+
+        try {
+            final JSONObject comment = commentRepository.get(commentId);
+
+            if (null == comment) {
+                transaction.rollback();
+
+                return;
+            }
+
+            comment.put(Comment.COMMENT_THUMBNAIL_URL, thumbnailURL);
+            commentRepository.update(commentId, comment);
+
+            transaction.commit();
+
+            commentCache.remove(comment.getString(Comment.COMMENT_ON_ID));
+            pageCache.clear();
+            widgetCache.invalidate();
+            contentVersion.bump();
+
+            LOGGER.log(Level.DEBUG, "Backfilled thumbnail of comment[id={0}]", commentId);
+        } catch (final Exception e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            LOGGER.log(Level.ERROR, "Backfills thumbnail of comment[id=" + commentId + "] failed", e);
+        }
+    }
+
+    /**
+     * Gravatar cache entry.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Entry {
+
+        /**
+         * Email MD5.
+         */
+        private final String hash;
+
+        /**
+         * Thumbnail URL, {@code null} for negative.
+         */
+        private final String thumbnailURL;
+
+        /**
+         * Expire time.
+         */
+        private final long expireTime;
+
+        /**
+         * Constructs an entry with the specified email MD5, thumbnail URL and expire time.
+         * 
+         * @param hash the specified email MD5
+         * @param thumbnailURL the specified thumbnail URL, {@code null} for negative
+         * @param expireTime the specified expire time
+         */
+        private Entry(final String hash, final String thumbnailURL, final long expireTime) {
+            this.hash = hash;
+            this.thumbnailURL = thumbnailURL;
+            this.expireTime = expireTime;
+        }
+    }
+}
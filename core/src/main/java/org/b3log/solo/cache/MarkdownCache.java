@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.util.MD5;
+import org.b3log.latke.util.Strings;
+import org.b3log.solo.util.Markdowns;
+
+
+/**
+ * Markdown cache.
+ * 
+ * <p>
+ * Caches the HTML converted by {@link Markdowns#toHTML(java.lang.String)}, keyed by the MD5 hash of the markdown text. 
+ * Articles and pages are converted once while saving, and the converting will be performed again only if the markdown 
+ * text changed (or the cached HTML has been evicted). 
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The cache is NOT cluster-safe, a server converts the markdown text saved by another server on its first 
+ *   view.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class MarkdownCache {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(MarkdownCache.class.getName());
+
+    /**
+     * Maximum count of cached HTML.
+     */
+    public static final int MAX_COUNT = 512;
+
+    /**
+     * Cached HTML, in access order.
+     * 
+     * <p>
+     * &lt;MD5 hash of markdown text, HTML&gt;
+     * </p>
+     */
+    private final Map<String, String> htmls = Collections.synchronizedMap(new LinkedHashMap<String, String>(MAX_COUNT / 4, 0.75F, true) {
+
+        /**
+         * Default serial version uid.
+         */
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+            return size() > MAX_COUNT;
+        }
+    });
+
+    /**
+     * Converts the specified markdown text to HTML, uses the cached HTML if the text has been converted.
+     * 
+     * @param markdownText the specified markdown text
+     * @return converted HTML, returns {@code null} if the specified markdown text is "" or {@code null}
+     * @see Markdowns#toHTML(java.lang.String) 
+     */
+    public String toHTML(final String markdownText) {
+        if (Strings.isEmptyOrNull(markdownText)) {
+            return null;
+        }
+
+        final String key = MD5.hash(markdownText);
+        String ret = htmls.get(key);
+
+        if (null != ret) {
+            return ret;
+        }
+
+        // Converts out of the lock, a text may be converted more than once concurrently, that is harmless
+        ret = Markdowns.toHTML(markdownText);
+        htmls.put(key, ret);
+
+        LOGGER.log(Level.TRACE, "Cached markdown HTML[key={0}]", key);
+
+        return ret;
+    }
+
+    /**
+     * Clears all cached HTML.
+     */
+    public void clear() {
+        htmls.clear();
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+
+/**
+ * Online visitor tracker.
+ * 
+ * <p>
+ * Tracks the distinct visitors in a sliding window of {@value #BUCKET_CNT} buckets (each spans 
+ * {@value #BUCKET_SPAN} milliseconds). A visit updates the current bucket only, and the bucket falls out of the window 
+ * as a whole, so both updating and expiring cost O(1) per visitor.
+ * </p>
+ * 
+ * <p>
+ * Two modes:
+ *   <ul>
+ *     <li>Exact (default): holds every visitor seen in the window</li>
+ *     <li>{@link #setEstimating(boolean) Estimating}: holds a fixed size 
+ *     <a href="http://en.wikipedia.org/wiki/HyperLogLog">HyperLogLog</a> sketch per bucket, memory usage does not grow 
+ *     with the traffic, the standard error of the count is about 3%</li>
+ *   </ul>
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The tracker is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class OnlineVisitorTracker {
+
+    /**
+     * Bucket span in milliseconds, 1 minute.
+     */
+    public static final long BUCKET_SPAN = 60000;
+
+    /**
+     * Bucket count of the window, the window spans 5 minutes.
+     */
+    public static final int BUCKET_CNT = 5;
+
+    /**
+     * Register index bits of the sketch.
+     */
+    private static final int REGISTER_INDEX_BITS = 10;
+
+    /**
+     * Register count of the sketch.
+     */
+    private static final int REGISTER_CNT = 1 << REGISTER_INDEX_BITS;
+
+    /**
+     * Buckets, indexed by epoch modulo {@value #BUCKET_CNT}.
+     */
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<Bucket>(BUCKET_CNT);
+
+    /**
+     * Visitors in the window (exact mode).
+     * 
+     * <p>
+     * &lt;visitor, epoch of the latest visit&gt;
+     * </p>
+     */
+    private final ConcurrentMap<String, Long> visitors = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Whether the tracker is in estimating mode.
+     */
+    private volatile boolean estimating;
+
+    /**
+     * Records a visit of the specified visitor.
+     * 
+     * @param visitor the specified visitor, for example, an IP address
+     */
+    public void visit(final String visitor) {
+        visit(visitor, System.currentTimeMillis());
+    }
+
+    /**
+     * Gets the count of distinct visitors in the window.
+     * 
+     * @return visitor count
+     */
+    public int count() {
+        return count(System.currentTimeMillis());
+    }
+
+    /**
+     * Removes the expired buckets.
+     * 
+     * <p>
+     * Expired buckets will also be removed while {@link #visit(java.lang.String) visiting} and 
+     * {@link #count() counting}, this method is for releasing memory in idle time.
+     * </p>
+     */
+    public void removeExpired() {
+        removeExpired(epoch(System.currentTimeMillis()));
+    }
+
+    /**
+     * Determines whether the tracker is in estimating mode.
+     * 
+     * @return {@code true} if it is, returns {@code false} otherwise
+     */
+    public boolean isEstimating() {
+        return estimating;
+    }
+
+    /**
+     * Sets the tracker mode, all tracked visitors will be cleared if the mode changed.
+     * 
+     * @param estimating {@code true} for estimating mode, {@code false} for exact mode
+     */
+    public synchronized void setEstimating(final boolean estimating) {
+        if (this.estimating == estimating) {
+            return;
+        }
+
+        this.estimating = estimating;
+
+        clear();
+    }
+
+    /**
+     * Clears all tracked visitors.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < BUCKET_CNT; i++) {
+            buckets.set(i, null);
+        }
+
+        visitors.clear();
+    }
+
+    /**
+     * Records a visit of the specified visitor at the specified time.
+     * 
+     * @param visitor the specified visitor
+     * @param time the specified time in milliseconds
+     */
+    void visit(final String visitor, final long time) {
+        final long epoch = epoch(time);
+        final Bucket bucket = getBucket(epoch);
+
+        if (null != bucket.registers) { // The mode may be changed in the meantime, follows the bucket
+            bucket.offer(hash(visitor));
+
+            return;
+        }
+
+        final Long latest = visitors.put(visitor, epoch);
+
+        if (null == latest || latest != epoch) {
+            bucket.visitors.add(visitor);
+        }
+    }
+
+    /**
+     * Gets the count of distinct visitors in the window ends at the specified time.
+     * 
+     * @param time the specified time in milliseconds
+     * @return visitor count
+     */
+    int count(final long time) {
+        final long epoch = epoch(time);
+
+        removeExpired(epoch);
+
+        if (!estimating) {
+            return visitors.size();
+        }
+
+        final int[] registers = new int[REGISTER_CNT];
+
+        for (int i = 0; i < BUCKET_CNT; i++) {
+            final Bucket bucket = buckets.get(i);
+
+            if (null == bucket || bucket.epoch > epoch || null == bucket.registers) {
+                continue;
+            }
+
+            for (int j = 0; j < REGISTER_CNT; j++) {
+                registers[j] = Math.max(registers[j], bucket.registers.get(j));
+            }
+        }
+
+        return estimate(registers);
+    }
+
+    /**
+     * Gets the bucket of the specified epoch, replaces the expired bucket in the slot if need.
+     * 
+     * @param epoch the specified epoch
+     * @return bucket
+     */
+    private Bucket getBucket(final long epoch) {
+        final int slot = (int) (epoch % BUCKET_CNT);
+        Bucket ret = buckets.get(slot);
+
+        while (null == ret || ret.epoch < epoch) {
+            final Bucket bucket = new Bucket(epoch, estimating);
+
+            if (buckets.compareAndSet(slot, ret, bucket)) {
+                expire(ret);
+
+                return bucket;
+            }
+
+            ret = buckets.get(slot);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Removes the buckets expired at the specified epoch.
+     * 
+     * @param epoch the specified epoch
+     */
+    private void removeExpired(final long epoch) {
+        for (int i = 0; i < BUCKET_CNT; i++) {
+            final Bucket bucket = buckets.get(i);
+
+            if (null != bucket && bucket.epoch <= epoch - BUCKET_CNT && buckets.compareAndSet(i, bucket, null)) {
+                expire(bucket);
+            }
+        }
+    }
+
+    /**
+     * Expires the specified bucket, removes the visitors whose latest visit falls in the bucket.
+     * 
+     * @param bucket the specified bucket, may be {@code null}
+     */
+    private void expire(final Bucket bucket) {
+        if (null == bucket || null == bucket.visitors) {
+            return;
+        }
+
+        final Long epoch = bucket.epoch;
+
+        for (final String visitor : bucket.visitors) {
+            visitors.remove(visitor, epoch);
+        }
+    }
+
+    /**
+     * Gets the epoch of the specified time.
+     * 
+     * @param time the specified time in milliseconds
+     * @return epoch
+     */
+    private static long epoch(final long time) {
+        return time / BUCKET_SPAN;
+    }
+
+    /**
+     * Gets the 64-bit hash of the specified visitor (FNV-1a with a final avalanche mixing).
+     * 
+     * @param visitor the specified visitor
+     * @return hash
+     */
+    private static long hash(final String visitor) {
+        long ret = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < visitor.length(); i++) {
+            ret ^= visitor.charAt(i);
+            ret *= 0x100000001b3L;
+        }
+
+        ret ^= ret >>> 33;
+        ret *= 0xff51afd7ed558ccdL;
+        ret ^= ret >>> 33;
+        ret *= 0xc4ceb9fe1a85ec53L;
+        ret ^= ret >>> 33;
+
+        return ret;
+    }
+
+    /**
+     * Estimates the cardinality with the specified registers.
+     * 
+     * @param registers the specified registers
+     * @return estimated cardinality
+     */
+    private static int estimate(final int[] registers) {
+        double sum = 0;
+        int zeros = 0;
+
+        for (final int register : registers) {
+            sum += 1.0 / (1L << register);
+
+            if (0 == register) {
+                zeros++;
+            }
+        }
+
+        final double alpha = 0.7213 / (1 + 1.079 / REGISTER_CNT);
+        double ret = alpha * REGISTER_CNT * REGISTER_CNT / sum;
+
+        if (ret <= 2.5 * REGISTER_CNT && 0 != zeros) { // Small range correction, linear counting
+            ret = REGISTER_CNT * Math.log((double) REGISTER_CNT / zeros);
+        }
+
+        return (int) Math.round(ret);
+    }
+
+    /**
+     * Bucket.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Bucket {
+
+        /**
+         * Epoch.
+         */
+        private final long epoch;
+
+        /**
+         * Visitors whose latest visit falls in this bucket (exact mode), {@code null} in estimating mode.
+         */
+        private final Set<String> visitors;
+
+        /**
+         * Sketch registers (estimating mode), {@code null} in exact mode.
+         */
+        private final AtomicIntegerArray registers;
+
+        /**
+         * Constructs a bucket with the specified epoch and mode.
+         * 
+         * @param epoch the specified epoch
+         * @param estimating the specified mode
+         */
+        private Bucket(final long epoch, final boolean estimating) {
+            this.epoch = epoch;
+
+            if (estimating) {
+                visitors = null;
+                registers = new AtomicIntegerArray(REGISTER_CNT);
+            } else {
+                visitors = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                registers = null;
+            }
+        }
+
+        /**
+         * Offers the specified hash into the sketch.
+         * 
+         * @param hash the specified hash
+         */
+        private void offer(final long hash) {
+            final int index = (int) (hash >>> (Long.SIZE - REGISTER_INDEX_BITS));
+            final int rank = Long.numberOfLeadingZeros((hash << REGISTER_INDEX_BITS) | (1L << (REGISTER_INDEX_BITS - 1))) + 1;
+
+            int current = registers.get(index);
+
+            while (rank > current && !registers.compareAndSet(index, current, rank)) {
+                current = registers.get(index);
+            }
+        }
+    }
+}
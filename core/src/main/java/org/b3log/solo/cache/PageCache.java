@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.servlet.http.HttpServletRequest;
+import org.b3log.latke.Keys;
+import org.b3log.latke.Latkes;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+
+
+/**
+ * Page cache.
+ * 
+ * <p>
+ * Caches the rendered HTML of pages served to anonymous visitors, keyed by {@link #getKey(HttpServletRequest) request URI,
+ * skin directory and locale}. The cache is filled by {@link org.b3log.solo.filter.PageCacheFilter} for the requests 
+ * marked {@link #CACHEABLE cacheable} by the processors, and cleared by 
+ * {@link org.b3log.solo.event.cache.CacheInvalidator} while articles, comments, pages, links or preference changed.
+ * </p>
+ * 
+ * <p>
+ * Every page is tagged with the {@link #getGeneration() generation} current while it was rendering, a page rendered 
+ * across a {@link #clear() clear} is never cached, so it could not outlive the change which cleared the cache.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The cache is NOT cluster-safe. Changes without an event (users, plugins, view counts, etc.) will
+ *   be seen by anonymous visitors after the cached page {@link #MAX_AGE expired}.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.3, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class PageCache implements Invalidatable {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(PageCache.class.getName());
+
+    /**
+     * Request attribute name, a processor sets it to {@code true} to make the current rendered page cacheable.
+     */
+    public static final String CACHEABLE = "pageCacheable";
+
+    /**
+     * Maximum count of cached pages.
+     */
+    public static final int MAX_COUNT = 1024;
+
+    /**
+     * Maximum age of a cached page in milliseconds.
+     */
+    public static final long MAX_AGE = 1000 * 60 * 5;
+
+    /**
+     * Generation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Cached pages, in access order.
+     */
+    private final Map<String, CachedPage> pages = Collections.synchronizedMap(
+        new LinkedHashMap<String, CachedPage>(MAX_COUNT / 4, 0.75F, true) {
+
+        /**
+         * Default serial version uid.
+         */
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CachedPage> eldest) {
+            return size() > MAX_COUNT;
+        }
+    });
+
+    /**
+     * Gets the cache key of the specified request.
+     * 
+     * @param request the specified request
+     * @return cache key
+     */
+    public static String getKey(final HttpServletRequest request) {
+        final StringBuilder keyBuilder = new StringBuilder(request.getRequestURI());
+        final String queryString = request.getQueryString();
+
+        if (null != queryString) {
+            keyBuilder.append('?').append(queryString);
+        }
+
+        keyBuilder.append('|').append(request.getAttribute(Keys.TEMAPLTE_DIR_NAME));
+        keyBuilder.append('|').append(Latkes.getLocale());
+
+        return keyBuilder.toString();
+    }
+
+    /**
+     * Gets the current generation.
+     * 
+     * @return current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Gets a cached page by the specified key.
+     * 
+     * @param key the specified key
+     * @return cached page, returns {@code null} if not found, stale or expired
+     */
+    public CachedPage get(final String key) {
+        final CachedPage ret = pages.get(key);
+
+        if (null == ret) {
+            return null;
+        }
+
+        if (ret.generation != generation.get() || System.currentTimeMillis() - ret.getCachedTime() > MAX_AGE) {
+            pages.remove(key);
+
+            return null;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Puts the specified page rendered in the specified generation into cache with the specified key.
+     * 
+     * <p>
+     * The page will not be cached if the cache has been cleared while rendering.
+     * </p>
+     * 
+     * @param key the specified key
+     * @param loadedGeneration the specified generation, got by {@link #getGeneration()} before rendering
+     * @param page the specified page
+     */
+    public void put(final String key, final long loadedGeneration, final CachedPage page) {
+        if (loadedGeneration != generation.get()) {
+            return;
+        }
+
+        page.generation = loadedGeneration;
+        pages.put(key, page);
+
+        LOGGER.log(Level.TRACE, "Cached page[key={0}]", key);
+    }
+
+    /**
+     * Invalidates all cached pages by {@link #clear() clearing} them.
+     */
+    @Override
+    public void invalidate() {
+        clear();
+    }
+
+    /**
+     * Clears all cached pages.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        pages.clear();
+
+        LOGGER.log(Level.DEBUG, "Cleared page cache");
+    }
+
+    /**
+     * Gets the count of cached pages.
+     * 
+     * @return count of cached pages
+     */
+    public int size() {
+        return pages.size();
+    }
+
+    /**
+     * Cached page.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    public static final class CachedPage {
+
+        /**
+         * Content bytes.
+         */
+        private final byte[] content;
+
+        /**
+         * Content type.
+         */
+        private final String contentType;
+
+        /**
+         * Id of the article displayed in this page, {@code null} if it is not an article page.
+         */
+        private final String articleId;
+
+        /**
+         * ETag, {@code null} if no validators.
+         */
+        private final String eTag;
+
+        /**
+         * Last modified time.
+         */
+        private final long lastModified;
+
+        /**
+         * Cached time.
+         */
+        private final long cachedTime;
+
+        /**
+         * Generation, set while putting into cache.
+         */
+        private volatile long generation;
+
+        /**
+         * Constructs a cached page with the specified content, content type, article id and validators.
+         * 
+         * @param content the specified content
+         * @param contentType the specified content type
+         * @param articleId the specified article id, may be {@code null}
+         * @param eTag the specified ETag, may be {@code null}
+         * @param lastModified the specified last modified time
+         * @see org.b3log.solo.util.ConditionalGets
+         */
+        public CachedPage(final byte[] content, final String contentType, final String articleId, final String eTag,
+            final long lastModified) {
+            this.content = content;
+            this.contentType = contentType;
+            this.articleId = articleId;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.cachedTime = System.currentTimeMillis();
+        }
+
+        /**
+         * Gets the content.
+         * 
+         * @return content
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Gets the content type.
+         * 
+         * @return content type
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Gets the article id.
+         * 
+         * @return article id, returns {@code null} if it is not an article page
+         */
+        public String getArticleId() {
+            return articleId;
+        }
+
+        /**
+         * Gets the ETag.
+         * 
+         * @return ETag, returns {@code null} if no validators
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Gets the last modified time.
+         * 
+         * @return last modified time
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Gets the cached time.
+         * 
+         * @return cached time
+         */
+        public long getCachedTime() {
+            return cachedTime;
+        }
+    }
+}
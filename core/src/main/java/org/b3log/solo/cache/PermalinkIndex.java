@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.Keys;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.RepositoryException;
+import org.b3log.solo.model.Article;
+import org.b3log.solo.model.Page;
+import org.b3log.solo.repository.ArticleRepository;
+import org.b3log.solo.repository.PageRepository;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * Permalink index.
+ * 
+ * <p>
+ * A resident permalink &rarr; (type, id) index of all articles and pages, used by 
+ * {@link org.b3log.solo.filter.PermalinkFilter} to resolve permalinks without querying the repository. The index 
+ * will be loaded at startup (or lazily at the first lookup) and kept current by article/page management services.
+ * </p>
+ * 
+ * <p>
+ * An entry may be stale if the transaction added it rolled back, so the target MUST be loaded by its id and checked.
+ * A permalink not in the index may have been added on another node, so the caller SHOULD check it in the repository 
+ * unless it {@link #isMissed(String) missed} recently.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The index is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.1.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class PermalinkIndex {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(PermalinkIndex.class.getName());
+
+    /**
+     * Maximum age of a missed permalink in milliseconds.
+     */
+    public static final long MISS_MAX_AGE = 1000 * 30;
+
+    /**
+     * Maximum count of missed permalinks.
+     */
+    private static final int MAX_MISS_CNT = 1024;
+
+    /**
+     * Article repository.
+     */
+    @Inject
+    private ArticleRepository articleRepository;
+
+    /**
+     * Page repository.
+     */
+    @Inject
+    private PageRepository pageRepository;
+
+    /**
+     * Permalink &rarr; target.
+     */
+    private final Map<String, Target> targets = new ConcurrentHashMap<String, Target>();
+
+    /**
+     * Target id &rarr; permalink.
+     */
+    private final Map<String, String> permalinks = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Missed permalink &rarr; missed time.
+     */
+    private final Map<String, Long> misses = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Whether the index has been loaded.
+     */
+    private volatile boolean loaded;
+
+    /**
+     * Gets the target of the specified permalink.
+     * 
+     * @param permalink the specified permalink
+     * @return target, returns {@code null} if not found
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    public Target get(final String permalink) throws RepositoryException {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load();
+                }
+            }
+        }
+
+        return targets.get(permalink);
+    }
+
+    /**
+     * Loads the index from repository, replaces the current index.
+     * 
+     * @throws RepositoryException repository exception
+     */
+    public synchronized void load() throws RepositoryException {
+        targets.clear();
+        permalinks.clear();
+        misses.clear();
+
+        final Query articleQuery = new Query().setPageCount(1).addProjection(Keys.OBJECT_ID, String.class);
+
+        articleQuery.addProjection(Article.ARTICLE_PERMALINK, String.class);
+
+        final JSONArray articles = articleRepository.get(articleQuery).optJSONArray(Keys.RESULTS);
+
+        for (int i = 0; i < articles.length(); i++) {
+            final JSONObject article = articles.optJSONObject(i);
+
+            putInternal(Article.ARTICLE, article.optString(Keys.OBJECT_ID), article.optString(Article.ARTICLE_PERMALINK));
+        }
+
+        final Query pageQuery = new Query().setPageCount(1).addProjection(Keys.OBJECT_ID, String.class);
+
+        pageQuery.addProjection(Page.PAGE_PERMALINK, String.class);
+
+        final JSONArray pages = pageRepository.get(pageQuery).optJSONArray(Keys.RESULTS);
+
+        for (int i = 0; i < pages.length(); i++) {
+            final JSONObject page = pages.optJSONObject(i);
+
+            putInternal(Page.PAGE, page.optString(Keys.OBJECT_ID), page.optString(Page.PAGE_PERMALINK));
+        }
+
+        loaded = true;
+
+        LOGGER.log(Level.INFO, "Loaded permalink index[articleCnt={0}, pageCnt={1}]",
+            new Object[] {articles.length(), pages.length()});
+    }
+
+    /**
+     * Puts an article with the specified id and permalink, replaces the old permalink of the article if exists.
+     * 
+     * @param articleId the specified id
+     * @param permalink the specified permalink
+     */
+    public synchronized void putArticle(final String articleId, final String permalink) {
+        putInternal(Article.ARTICLE, articleId, permalink);
+    }
+
+    /**
+     * Puts a page with the specified id and permalink, replaces the old permalink of the page if exists.
+     * 
+     * @param pageId the specified id
+     * @param permalink the specified permalink
+     */
+    public synchronized void putPage(final String pageId, final String permalink) {
+        putInternal(Page.PAGE, pageId, permalink);
+    }
+
+    /**
+     * Determines whether the specified permalink missed in the repository within {@link #MISS_MAX_AGE}.
+     * 
+     * @param permalink the specified permalink
+     * @return {@code true} if missed recently, returns {@code false} otherwise
+     */
+    public boolean isMissed(final String permalink) {
+        final Long missedTime = misses.get(permalink);
+
+        if (null == missedTime) {
+            return false;
+        }
+
+        if (System.currentTimeMillis() - missedTime > MISS_MAX_AGE) {
+            misses.remove(permalink);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Records the specified permalink missed in the repository.
+     * 
+     * @param permalink the specified permalink
+     */
+    public void putMiss(final String permalink) {
+        if (MAX_MISS_CNT <= misses.size()) {
+            misses.clear();
+        }
+
+        misses.put(permalink, System.currentTimeMillis());
+    }
+
+    /**
+     * Removes an article or a page specified by the given id.
+     * 
+     * @param id the given id
+     */
+    public synchronized void remove(final String id) {
+        final String permalink = permalinks.remove(id);
+
+        if (null != permalink) {
+            targets.remove(permalink);
+        }
+    }
+
+    /**
+     * Clears the index, it will be reloaded at the next lookup.
+     */
+    public synchronized void clear() {
+        loaded = false;
+        targets.clear();
+        permalinks.clear();
+        misses.clear();
+    }
+
+    /**
+     * Puts a target with the specified type, id and permalink.
+     * 
+     * @param type the specified type
+     * @param id the specified id
+     * @param permalink the specified permalink
+     */
+    private void putInternal(final String type, final String id, final String permalink) {
+        final String oldPermalink = permalinks.put(id, permalink);
+
+        if (null != oldPermalink && !oldPermalink.equals(permalink)) {
+            targets.remove(oldPermalink);
+        }
+
+        targets.put(permalink, new Target(type, id));
+        misses.remove(permalink);
+    }
+
+    /**
+     * Permalink target.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    public static final class Target {
+
+        /**
+         * Type, {@link Article#ARTICLE} or {@link Page#PAGE}.
+         */
+        private final String type;
+
+        /**
+         * Id.
+         */
+        private final String id;
+
+        /**
+         * Constructs a target with the specified type and id.
+         * 
+         * @param type the specified type
+         * @param id the specified id
+         */
+        private Target(final String type, final String id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        /**
+         * Determines whether this target is an article.
+         * 
+         * @return {@code true} if it is an article, returns {@code false} if it is a page
+         */
+        public boolean isArticle() {
+            return Article.ARTICLE.equals(type);
+        }
+
+        /**
+         * Gets the id.
+         * 
+         * @return id
+         */
+        public String getId() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.concurrent.atomic.AtomicReference;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.json.JSONObject;
+
+
+/**
+ * Preference cache.
+ * 
+ * <p>
+ * Holds an immutable snapshot of the {@link org.b3log.solo.model.Preference#PREFERENCE preference}, the snapshot will be 
+ * swapped atomically while the preference updated. Every {@link #getPreference() get} returns a copy, so callers could 
+ * modify the returned preference freely.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The cache is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class PreferenceCache {
+
+    /**
+     * Current snapshot.
+     */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(new Snapshot(0, null));
+
+    /**
+     * Gets the cached preference.
+     * 
+     * @return a copy of the cached preference, returns {@code null} if not cached
+     */
+    public JSONObject getPreference() {
+        final JSONObject preference = snapshot.get().preference;
+
+        if (null == preference) {
+            return null;
+        }
+
+        return new JSONObject(preference, JSONObject.getNames(preference));
+    }
+
+    /**
+     * Gets the version of the current snapshot.
+     * 
+     * <p>
+     * The version increments every time the snapshot {@link #putPreference(org.json.JSONObject) swapped} or 
+     * {@link #clear() cleared}.
+     * </p>
+     * 
+     * @return snapshot version
+     */
+    public long getVersion() {
+        return snapshot.get().version;
+    }
+
+    /**
+     * Swaps the current snapshot with the specified preference.
+     * 
+     * @param preference the specified preference, the cache holds a copy of it
+     */
+    public void putPreference(final JSONObject preference) {
+        final JSONObject copy = new JSONObject(preference, JSONObject.getNames(preference));
+
+        swap(copy);
+    }
+
+    /**
+     * Swaps the current snapshot with the specified preference if the current snapshot version equals to the specified
+     * expected version.
+     *
+     * <p>
+     * Used by lazy loading, a preference loaded from repository will not override a newer snapshot swapped by an update
+     * in the meantime.
+     * </p>
+     *
+     * @param preference the specified preference, the cache holds a copy of it
+     * @param expectedVersion the specified expected version
+     * @return {@code true} if swapped, returns {@code false} otherwise
+     */
+    public boolean putPreference(final JSONObject preference, final long expectedVersion) {
+        final Snapshot current = snapshot.get();
+
+        if (current.version != expectedVersion) {
+            return false;
+        }
+
+        final JSONObject copy = new JSONObject(preference, JSONObject.getNames(preference));
+
+        return snapshot.compareAndSet(current, new Snapshot(current.version + 1, copy));
+    }
+
+    /**
+     * Clears the cached preference, the next {@link org.b3log.solo.service.PreferenceQueryService#getPreference() query} 
+     * will reload it from repository.
+     */
+    public void clear() {
+        swap(null);
+    }
+
+    /**
+     * Swaps the current snapshot with a new snapshot holds the specified preference.
+     * 
+     * @param preference the specified preference, may be {@code null}
+     */
+    private void swap(final JSONObject preference) {
+        Snapshot current;
+
+        do {
+            current = snapshot.get();
+        } while (!snapshot.compareAndSet(current, new Snapshot(current.version + 1, preference)));
+    }
+
+    /**
+     * Preference snapshot.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Snapshot {
+
+        /**
+         * Version.
+         */
+        private final long version;
+
+        /**
+         * Preference.
+         */
+        private final JSONObject preference;
+
+        /**
+         * Constructs a snapshot with the specified version and preference.
+         * 
+         * @param version the specified version
+         * @param preference the specified preference
+         */
+        private Snapshot(final long version, final JSONObject preference) {
+            this.version = version;
+            this.preference = preference;
+        }
+    }
+}
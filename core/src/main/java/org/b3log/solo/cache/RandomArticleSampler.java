@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.Keys;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.repository.FilterOperator;
+import org.b3log.latke.repository.PropertyFilter;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.RepositoryException;
+import org.b3log.solo.model.Article;
+import org.b3log.solo.repository.ArticleRepository;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * Random article sampler.
+ * 
+ * <p>
+ * A resident array of published article ids, used by 
+ * {@link org.b3log.solo.service.ArticleQueryService#getArticlesRandomly(int)} to sample articles uniformly without 
+ * replacement, instead of querying by {@link Article#ARTICLE_RANDOM_DOUBLE random double}. Putting and removing an 
+ * article costs O(1) (removal swaps the last id into the hole), sampling k articles costs O(k). The sampler will be 
+ * loaded lazily at the first sampling and kept current by {@link org.b3log.solo.service.ArticleMgmtService}.
+ * </p>
+ * 
+ * <p>
+ * An id may be stale if the transaction updated it rolled back, so the articles MUST be loaded by their ids and 
+ * checked.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The sampler is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class RandomArticleSampler {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(RandomArticleSampler.class.getName());
+
+    /**
+     * Random.
+     */
+    private final Random random = new Random();
+
+    /**
+     * Article repository.
+     */
+    @Inject
+    private ArticleRepository articleRepository;
+
+    /**
+     * Published article ids.
+     */
+    private final List<String> articleIds = new ArrayList<String>();
+
+    /**
+     * Article id &rarr; position in {@link #articleIds}.
+     */
+    private final Map<String, Integer> positions = new HashMap<String, Integer>();
+
+    /**
+     * Whether the sampler has been loaded.
+     */
+    private boolean loaded;
+
+    /**
+     * Samples published article ids uniformly without replacement.
+     * 
+     * @param num the specified number of ids to sample
+     * @return distinct article ids, its size is the less one of the specified number and the count of published 
+     * articles
+     * @throws RepositoryException if the sampler not loaded and loads it failed
+     */
+    public synchronized List<String> sample(final int num) throws RepositoryException {
+        if (!loaded) {
+            load();
+        }
+
+        final int size = articleIds.size();
+        final List<String> ret = new ArrayList<String>();
+
+        if (num >= size) {
+            ret.addAll(articleIds);
+            Collections.shuffle(ret, random);
+
+            return ret;
+        }
+
+        // Floyd's algorithm, picks num distinct positions from [0, size) with num random numbers
+        final Set<Integer> chosen = new HashSet<Integer>();
+
+        for (int i = size - num; i < size; i++) {
+            final int position = random.nextInt(i + 1);
+
+            if (chosen.add(position)) {
+                ret.add(articleIds.get(position));
+            } else {
+                chosen.add(i);
+                ret.add(articleIds.get(i));
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Loads the sampler from repository, replaces the current ids.
+     * 
+     * @throws RepositoryException repository exception
+     */
+    public synchronized void load() throws RepositoryException {
+        articleIds.clear();
+        positions.clear();
+
+        final Query query = new Query().setFilter(new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, true)).setPageCount(
+            1).addProjection(Keys.OBJECT_ID, String.class);
+        final JSONArray articles = articleRepository.get(query).optJSONArray(Keys.RESULTS);
+
+        for (int i = 0; i < articles.length(); i++) {
+            putInternal(articles.optJSONObject(i).optString(Keys.OBJECT_ID));
+        }
+
+        loaded = true;
+
+        LOGGER.log(Level.DEBUG, "Loaded random article sampler[articleCnt={0}]", articleIds.size());
+    }
+
+    /**
+     * Puts the specified article into the sampler, removes it from the sampler if it is not published.
+     * 
+     * <p>
+     * Does nothing if the sampler has not been loaded, the article will be loaded with the sampler.
+     * </p>
+     * 
+     * @param article the specified article
+     */
+    public synchronized void putArticle(final JSONObject article) {
+        if (!loaded) {
+            return;
+        }
+
+        final String articleId = article.optString(Keys.OBJECT_ID);
+
+        if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED)) {
+            putInternal(articleId);
+        } else {
+            removeInternal(articleId);
+        }
+    }
+
+    /**
+     * Removes an article specified by the given article id from the sampler.
+     * 
+     * @param articleId the given article id
+     */
+    public synchronized void remove(final String articleId) {
+        removeInternal(articleId);
+    }
+
+    /**
+     * Clears the sampler, the next sampling will reload it from repository.
+     */
+    public synchronized void clear() {
+        articleIds.clear();
+        positions.clear();
+
+        loaded = false;
+    }
+
+    /**
+     * Puts an article specified by the given article id.
+     * 
+     * @param articleId the given article id
+     */
+    private void putInternal(final String articleId) {
+        if (positions.containsKey(articleId)) {
+            return;
+        }
+
+        positions.put(articleId, articleIds.size());
+        articleIds.add(articleId);
+    }
+
+    /**
+     * Removes an article specified by the given article id, moves the last id into its position.
+     * 
+     * @param articleId the given article id
+     */
+    private void removeInternal(final String articleId) {
+        final Integer position = positions.remove(articleId);
+
+        if (null == position) {
+            return;
+        }
+
+        final String last = articleIds.remove(articleIds.size() - 1);
+
+        if (position < articleIds.size()) {
+            articleIds.set(position, last);
+            positions.put(last, position);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.Keys;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.repository.FilterOperator;
+import org.b3log.latke.repository.PropertyFilter;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.RepositoryException;
+import org.b3log.latke.util.Strings;
+import org.b3log.solo.model.Article;
+import org.b3log.solo.repository.ArticleRepository;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * Relevant article index.
+ * 
+ * <p>
+ * A resident tag title &rarr; published article ids index, used by 
+ * {@link org.b3log.solo.service.ArticleQueryService#getRelevantArticles(org.json.JSONObject, org.json.JSONObject)} to 
+ * find the articles sharing tags with an article without querying tag and tag-article relations. The index will be 
+ * loaded lazily at the first lookup and kept current by {@link org.b3log.solo.service.ArticleMgmtService}.
+ * </p>
+ * 
+ * <p>
+ * An entry may be stale if the transaction updated it rolled back, so the articles MUST be loaded by their ids and 
+ * checked.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The index is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.1, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class RelevantArticleIndex {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(RelevantArticleIndex.class.getName());
+
+    /**
+     * Article repository.
+     */
+    @Inject
+    private ArticleRepository articleRepository;
+
+    /**
+     * Tag title &rarr; published article ids.
+     */
+    private final Map<String, Set<String>> tagArticles = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Published article id &rarr; tag titles.
+     */
+    private final Map<String, String[]> articleTags = new ConcurrentHashMap<String, String[]>();
+
+    /**
+     * Whether the index has been loaded.
+     */
+    private volatile boolean loaded;
+
+    /**
+     * Gets the ids of published articles tagged with the specified tag title.
+     * 
+     * @param tagTitle the specified tag title
+     * @return article ids, returns an empty list if not found
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    public List<String> getArticleIds(final String tagTitle) throws RepositoryException {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load();
+                }
+            }
+        }
+
+        final Set<String> articleIds = tagArticles.get(tagTitle);
+
+        if (null == articleIds) {
+            return Collections.emptyList();
+        }
+
+        return new ArrayList<String>(articleIds);
+    }
+
+    /**
+     * Loads the index from repository, replaces the current index.
+     * 
+     * @throws RepositoryException repository exception
+     */
+    public synchronized void load() throws RepositoryException {
+        tagArticles.clear();
+        articleTags.clear();
+
+        final Query query = new Query().setFilter(new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, true)).setPageCount(1);
+
+        query.addProjection(Keys.OBJECT_ID, String.class).addProjection(Article.ARTICLE_TAGS_REF, String.class);
+
+        final JSONArray articles = articleRepository.get(query).optJSONArray(Keys.RESULTS);
+
+        for (int i = 0; i < articles.length(); i++) {
+            final JSONObject article = articles.optJSONObject(i);
+
+            putInternal(article.optString(Keys.OBJECT_ID), article.optString(Article.ARTICLE_TAGS_REF));
+        }
+
+        loaded = true;
+
+        LOGGER.log(Level.DEBUG, "Loaded relevant article index[articleCnt={0}, tagCnt={1}]", articleTags.size(), tagArticles.size());
+    }
+
+    /**
+     * Puts the specified article into the index, removes it from the index if it is not published.
+     * 
+     * @param article the specified article
+     */
+    public synchronized void putArticle(final JSONObject article) {
+        final String articleId = article.optString(Keys.OBJECT_ID);
+
+        removeInternal(articleId);
+
+        if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED)) {
+            putInternal(articleId, article.optString(Article.ARTICLE_TAGS_REF));
+        }
+    }
+
+    /**
+     * Removes an article specified by the given article id from the index.
+     * 
+     * @param articleId the given article id
+     */
+    public synchronized void remove(final String articleId) {
+        removeInternal(articleId);
+    }
+
+    /**
+     * Clears the index, the next lookup will reload it from repository.
+     */
+    public synchronized void clear() {
+        tagArticles.clear();
+        articleTags.clear();
+
+        loaded = false;
+    }
+
+    /**
+     * Puts an article specified by the given article id with the specified tags string.
+     * 
+     * @param articleId the given article id
+     * @param tagsString the specified tags string, for example "tag1,tag2"
+     */
+    private void putInternal(final String articleId, final String tagsString) {
+        if (Strings.isEmptyOrNull(tagsString)) {
+            return;
+        }
+
+        final String[] tagTitles = tagsString.split(",");
+
+        for (int i = 0; i < tagTitles.length; i++) {
+            tagTitles[i] = tagTitles[i].trim();
+
+            Set<String> articleIds = tagArticles.get(tagTitles[i]);
+
+            if (null == articleIds) {
+                articleIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                tagArticles.put(tagTitles[i], articleIds);
+            }
+
+            articleIds.add(articleId);
+        }
+
+        articleTags.put(articleId, tagTitles);
+    }
+
+    /**
+     * Removes an article specified by the given article id.
+     * 
+     * @param articleId the given article id
+     */
+    private void removeInternal(final String articleId) {
+        final String[] tagTitles = articleTags.remove(articleId);
+
+        if (null == tagTitles) {
+            return;
+        }
+
+        for (final String tagTitle : tagTitles) {
+            final Set<String> articleIds = tagArticles.get(tagTitle);
+
+            if (null == articleIds) {
+                continue;
+            }
+
+            articleIds.remove(articleId);
+
+            if (articleIds.isEmpty()) {
+                tagArticles.remove(tagTitle);
+            }
+        }
+    }
+}
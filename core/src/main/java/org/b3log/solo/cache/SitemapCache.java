@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+
+
+/**
+ * Sitemap cache.
+ * 
+ * <p>
+ * Caches the generated sitemap parts (the sitemap index or a sub-sitemap, for example "articles-2") as UTF-8 encoded 
+ * bytes. The cache is filled by {@link org.b3log.solo.processor.SitemapProcessor} and cleared by 
+ * {@link org.b3log.solo.event.cache.CacheInvalidator} while articles or pages changed.
+ * </p>
+ * 
+ * <p>
+ * Every part is tagged with the {@link #getGeneration() generation} current while it was generating, a part generated
+ * across a {@link #clear() clear} is never cached.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The cache is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.2, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class SitemapCache implements Invalidatable {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(SitemapCache.class.getName());
+
+    /**
+     * Generation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Cached parts.
+     */
+    private final Map<String, Part> parts = new ConcurrentHashMap<String, Part>();
+
+    /**
+     * Gets the current generation.
+     * 
+     * @return current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Gets a cached part by the specified key.
+     * 
+     * @param key the specified key
+     * @return cached part content, returns {@code null} if not found or stale
+     */
+    public byte[] get(final String key) {
+        final Part part = parts.get(key);
+
+        if (null == part) {
+            return null;
+        }
+
+        if (part.generation != generation.get()) {
+            parts.remove(key);
+
+            return null;
+        }
+
+        return part.content;
+    }
+
+    /**
+     * Puts the specified part content generated in the specified generation into cache with the specified key.
+     * 
+     * <p>
+     * The part will not be cached if the cache has been cleared while generating.
+     * </p>
+     * 
+     * @param key the specified key
+     * @param loadedGeneration the specified generation, got by {@link #getGeneration()} before generating
+     * @param content the specified part content
+     */
+    public void put(final String key, final long loadedGeneration, final byte[] content) {
+        if (loadedGeneration != generation.get()) {
+            return;
+        }
+
+        parts.put(key, new Part(loadedGeneration, content));
+
+        LOGGER.log(Level.DEBUG, "Cached sitemap part[key={0}, length={1}]", key, content.length);
+    }
+
+    /**
+     * Invalidates all cached parts by {@link #clear() clearing} them.
+     */
+    @Override
+    public void invalidate() {
+        clear();
+    }
+
+    /**
+     * Clears all cached parts.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        parts.clear();
+
+        LOGGER.log(Level.DEBUG, "Cleared sitemap cache");
+    }
+
+    /**
+     * Cached part.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Part {
+
+        /**
+         * Generation.
+         */
+        private final long generation;
+
+        /**
+         * Content bytes (UTF-8).
+         */
+        private final byte[] content;
+
+        /**
+         * Constructs a part with the specified generation and content.
+         * 
+         * @param generation the specified generation
+         * @param content the specified content
+         */
+        private Part(final long generation, final byte[] content) {
+            this.generation = generation;
+            this.content = content;
+        }
+    }
+}
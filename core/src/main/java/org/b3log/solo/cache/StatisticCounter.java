@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.repository.RepositoryException;
+import org.b3log.solo.model.Statistic;
+import org.b3log.solo.repository.StatisticRepository;
+import org.json.JSONObject;
+
+
+/**
+ * Statistic counter.
+ * 
+ * <p>
+ * Holds the blog article/comment counts of the {@link Statistic#STATISTIC statistic} in memory. The counters will be 
+ * seeded from repository lazily at the first access, and then updated in memory instead of loading and saving the 
+ * statistic for each change. The changes are accumulated as deltas, and will be added to the stored statistic by
+ * {@link org.b3log.solo.service.StatisticMgmtService#checkpointStatistic()}, the counters will be {@link #reseed(JSONObject) 
+ * reseeded} from the stored statistic after that, so the changes checkpointed by the other instances are seen as well.
+ * </p>
+ * 
+ * <p>
+ * A change made in a transaction is {@link #addPending(String, int) pending} for the current thread, it will be applied 
+ * after the transaction committed by {@link #publishPendings()}, or dropped after the transaction rolled back by 
+ * {@link #discardPendings()}.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The changes will be lost if the server crashed before checkpointing.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.1.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class StatisticCounter {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(StatisticCounter.class.getName());
+
+    /**
+     * Names of the counted statistic properties.
+     */
+    private static final String[] COUNTER_NAMES = {
+        Statistic.STATISTIC_BLOG_ARTICLE_COUNT, Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT,
+        Statistic.STATISTIC_BLOG_COMMENT_COUNT, Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT};
+
+    /**
+     * Statistic repository.
+     */
+    @Inject
+    private StatisticRepository statisticRepository;
+
+    /**
+     * Counters, &lt;name, count&gt;, {@code null} if not loaded.
+     */
+    private volatile Map<String, AtomicInteger> counters;
+
+    /**
+     * Deltas not checkpointed yet, &lt;name, delta&gt;.
+     */
+    private final Map<String, AtomicInteger> deltas = new HashMap<String, AtomicInteger>();
+
+    /**
+     * Changes pending for the current thread, &lt;name, delta&gt;.
+     */
+    private final ThreadLocal<Map<String, Integer>> pendings = new ThreadLocal<Map<String, Integer>>() {
+        @Override
+        protected Map<String, Integer> initialValue() {
+            return new HashMap<String, Integer>();
+        }
+    };
+
+    /**
+     * Modification count, increments for each change.
+     */
+    private final AtomicLong modCount = new AtomicLong();
+
+    /**
+     * Constructs a statistic counter.
+     */
+    public StatisticCounter() {
+        for (final String name : COUNTER_NAMES) {
+            deltas.put(name, new AtomicInteger());
+        }
+    }
+
+    /**
+     * Gets the count of a statistic property specified by the given name.
+     * 
+     * @param name the given name, for example, {@link Statistic#STATISTIC_BLOG_ARTICLE_COUNT}
+     * @return count
+     * @throws RepositoryException if the counters not loaded and loads them failed
+     */
+    public int get(final String name) throws RepositoryException {
+        return getCounter(name).get();
+    }
+
+    /**
+     * Adds the specified delta to the count of a statistic property specified by the given name immediately.
+     * 
+     * @param name the given name, for example, {@link Statistic#STATISTIC_BLOG_ARTICLE_COUNT}
+     * @param delta the specified delta, may be negative
+     */
+    public synchronized void add(final String name, final int delta) {
+        final AtomicInteger nameDelta = getDelta(name);
+        final Map<String, AtomicInteger> current = counters;
+
+        if (null != current) { // Otherwise the delta will be applied while seeding
+            current.get(name).addAndGet(delta);
+        }
+
+        nameDelta.addAndGet(delta);
+        modCount.incrementAndGet();
+    }
+
+    /**
+     * Adds the specified delta to the count of a statistic property specified by the given name after the transaction of
+     * the current thread committed.
+     * 
+     * @param name the given name, for example, {@link Statistic#STATISTIC_BLOG_ARTICLE_COUNT}
+     * @param delta the specified delta, may be negative
+     * @see #publishPendings() 
+     * @see #discardPendings() 
+     */
+    public void addPending(final String name, final int delta) {
+        getDelta(name);
+
+        final Map<String, Integer> pending = pendings.get();
+        final Integer pendingDelta = pending.get(name);
+
+        pending.put(name, null == pendingDelta ? delta : pendingDelta + delta);
+    }
+
+    /**
+     * Applies the changes pending for the current thread, invoked after the transaction committed.
+     */
+    public void publishPendings() {
+        final Map<String, Integer> pending = pendings.get();
+
+        for (final Map.Entry<String, Integer> entry : pending.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+
+        pending.clear();
+    }
+
+    /**
+     * Drops the changes pending for the current thread, invoked after the transaction rolled back.
+     */
+    public void discardPendings() {
+        pendings.get().clear();
+    }
+
+    /**
+     * Sets the count of a statistic property specified by the given name with the specified count.
+     * 
+     * @param name the given name, for example, {@link Statistic#STATISTIC_BLOG_ARTICLE_COUNT}
+     * @param count the specified count
+     * @throws RepositoryException if the counters not loaded and loads them failed
+     */
+    public synchronized void set(final String name, final int count) throws RepositoryException {
+        add(name, count - get(name));
+    }
+
+    /**
+     * Fills the current counts into the specified statistic.
+     * 
+     * @param statistic the specified statistic
+     * @throws RepositoryException if the counters not loaded and loads them failed
+     */
+    public void fill(final JSONObject statistic) throws RepositoryException {
+        for (final String name : COUNTER_NAMES) {
+            statistic.put(name, getCounter(name).get());
+        }
+    }
+
+    /**
+     * Gets the modification count.
+     * 
+     * @return modification count
+     */
+    public long getModCount() {
+        return modCount.get();
+    }
+
+    /**
+     * Drains the deltas not checkpointed yet.
+     * 
+     * @return deltas, &lt;name, delta&gt;, the zero deltas are not included
+     * @see #restoreDeltas(Map) 
+     */
+    public synchronized Map<String, Integer> drainDeltas() {
+        final Map<String, Integer> ret = new HashMap<String, Integer>();
+
+        for (final Map.Entry<String, AtomicInteger> entry : deltas.entrySet()) {
+            final int delta = entry.getValue().getAndSet(0);
+
+            if (0 != delta) {
+                ret.put(entry.getKey(), delta);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Puts the specified deltas back, invoked if checkpointed them failed.
+     * 
+     * @param drained the specified deltas, got by {@link #drainDeltas()}
+     */
+    public synchronized void restoreDeltas(final Map<String, Integer> drained) {
+        for (final Map.Entry<String, Integer> entry : drained.entrySet()) {
+            getDelta(entry.getKey()).addAndGet(entry.getValue());
+        }
+    }
+
+    /**
+     * Reseeds the counters with the specified stored statistic, invoked after the drained deltas checkpointed.
+     * 
+     * <p>
+     * The deltas added after draining are kept.
+     * </p>
+     * 
+     * @param statistic the specified stored statistic
+     */
+    public synchronized void reseed(final JSONObject statistic) {
+        final Map<String, AtomicInteger> current = counters;
+
+        if (null == current) {
+            return;
+        }
+
+        for (final String name : COUNTER_NAMES) {
+            current.get(name).set(statistic.optInt(name) + deltas.get(name).get());
+        }
+
+        LOGGER.log(Level.DEBUG, "Reseeded statistic counters {0}", current);
+    }
+
+    /**
+     * Clears the counters, the counters will be reseeded from repository at the next access and the changes not 
+     * checkpointed will be discarded.
+     */
+    public synchronized void clear() {
+        counters = null;
+
+        for (final AtomicInteger delta : deltas.values()) {
+            delta.set(0);
+        }
+    }
+
+    /**
+     * Gets the delta of a statistic property specified by the given name.
+     * 
+     * @param name the given name
+     * @return delta
+     */
+    private AtomicInteger getDelta(final String name) {
+        final AtomicInteger ret = deltas.get(name);
+
+        if (null == ret) {
+            throw new IllegalArgumentException("Not a counted statistic property[" + name + "]");
+        }
+
+        return ret;
+    }
+
+    /**
+     * Gets the counter of a statistic property specified by the given name, seeds the counters if not loaded.
+     * 
+     * @param name the given name
+     * @return counter
+     * @throws RepositoryException if loads the counters failed
+     */
+    private AtomicInteger getCounter(final String name) throws RepositoryException {
+        getDelta(name);
+
+        Map<String, AtomicInteger> current = counters;
+
+        if (null == current) {
+            synchronized (this) {
+                if (null == counters) {
+                    counters = load();
+                }
+
+                current = counters;
+            }
+        }
+
+        return current.get(name);
+    }
+
+    /**
+     * Loads the counters from repository, the deltas not checkpointed yet are applied.
+     * 
+     * @return counters
+     * @throws RepositoryException if not found the statistic or repository exception
+     */
+    private Map<String, AtomicInteger> load() throws RepositoryException {
+        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
+
+        if (null == statistic) {
+            throw new RepositoryException("Not found statistic");
+        }
+
+        final Map<String, AtomicInteger> ret = new HashMap<String, AtomicInteger>();
+
+        for (final String name : COUNTER_NAMES) {
+            ret.put(name, new AtomicInteger(statistic.optInt(name) + deltas.get(name).get()));
+        }
+
+        LOGGER.log(Level.DEBUG, "Seeded statistic counters {0}", ret);
+
+        return ret;
+    }
+}
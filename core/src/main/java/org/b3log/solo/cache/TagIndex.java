@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.Keys;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.RepositoryException;
+import org.b3log.solo.model.Tag;
+import org.b3log.solo.repository.TagRepository;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * Tag index.
+ * 
+ * <p>
+ * A resident index of all tags by title, and ordered by {@link Tag#TAG_PUBLISHED_REFERENCE_COUNT published reference 
+ * count} descending, used by the tag cloud, the most used tags widget and tag lookups without querying the repository. 
+ * The index will be loaded lazily at the first lookup and kept current by tag/article management services.
+ * </p>
+ * 
+ * <p>
+ * An entry may be stale if the transaction updated it rolled back, the services {@link #clear() clear} the index while 
+ * rolling back.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The index is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class TagIndex {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(TagIndex.class.getName());
+
+    /**
+     * Entry comparator, published reference count descending, and then title, id ascending.
+     */
+    private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+        @Override
+        public int compare(final Entry entry1, final Entry entry2) {
+            if (entry1.publishedRefCnt != entry2.publishedRefCnt) {
+                return entry1.publishedRefCnt > entry2.publishedRefCnt ? -1 : 1;
+            }
+
+            final int ret = entry1.title.compareTo(entry2.title);
+
+            if (0 != ret) {
+                return ret;
+            }
+
+            return entry1.id.compareTo(entry2.id);
+        }
+    };
+
+    /**
+     * Tag repository.
+     */
+    @Inject
+    private TagRepository tagRepository;
+
+    /**
+     * Tag id &rarr; entry.
+     */
+    private final Map<String, Entry> entriesById = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Tag title &rarr; entry.
+     */
+    private final Map<String, Entry> entriesByTitle = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Entries ordered by {@link #ENTRY_COMPARATOR}.
+     */
+    private final ConcurrentSkipListSet<Entry> orderedEntries = new ConcurrentSkipListSet<Entry>(ENTRY_COMPARATOR);
+
+    /**
+     * Whether the index has been loaded.
+     */
+    private volatile boolean loaded;
+
+    /**
+     * Gets a tag by the specified title.
+     * 
+     * @param title the specified title
+     * @return a copy of the tag, returns {@code null} if not found
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    public JSONObject getByTitle(final String title) throws RepositoryException {
+        ensureLoaded();
+
+        final Entry entry = entriesByTitle.get(title);
+
+        if (null == entry) {
+            return null;
+        }
+
+        return copy(entry.tag);
+    }
+
+    /**
+     * Gets all tags ordered by published reference count descending.
+     * 
+     * @return copies of the tags, returns an empty list if not found
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    public List<JSONObject> getTags() throws RepositoryException {
+        return getTags(Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Gets tags of published articles (published reference count &gt; 0) ordered by published reference count 
+     * descending.
+     * 
+     * @return copies of the tags, returns an empty list if not found
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    public List<JSONObject> getPublishedTags() throws RepositoryException {
+        return getTags(Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * Gets the most used tags of published articles.
+     * 
+     * @param num the specified maximum number of tags to get
+     * @return copies of the tags ordered by published reference count descending, returns an empty list if not found
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    public List<JSONObject> getMostUsedTags(final int num) throws RepositoryException {
+        return getTags(num, true);
+    }
+
+    /**
+     * Gets the count of tags.
+     * 
+     * @return tag count
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    public int count() throws RepositoryException {
+        ensureLoaded();
+
+        return entriesById.size();
+    }
+
+    /**
+     * Loads the index from repository, replaces the current index.
+     * 
+     * @throws RepositoryException repository exception
+     */
+    public synchronized void load() throws RepositoryException {
+        entriesById.clear();
+        entriesByTitle.clear();
+        orderedEntries.clear();
+
+        final JSONArray tags = tagRepository.get(new Query().setPageCount(1)).optJSONArray(Keys.RESULTS);
+
+        for (int i = 0; i < tags.length(); i++) {
+            putInternal(tags.optJSONObject(i));
+        }
+
+        loaded = true;
+
+        LOGGER.log(Level.INFO, "Loaded tag index[tagCnt={0}]", tags.length());
+    }
+
+    /**
+     * Puts the specified tag, replaces the old one which has the same id if exists.
+     * 
+     * <p>
+     * Does nothing if the index has not been loaded, the tag will be loaded with the index.
+     * </p>
+     * 
+     * @param tag the specified tag, the index holds a copy of it
+     */
+    public synchronized void put(final JSONObject tag) {
+        if (!loaded) {
+            return;
+        }
+
+        putInternal(tag);
+    }
+
+    /**
+     * Removes a tag specified by the given id.
+     * 
+     * @param tagId the given id
+     */
+    public synchronized void remove(final String tagId) {
+        final Entry entry = entriesById.remove(tagId);
+
+        if (null != entry) {
+            removeEntry(entry);
+        }
+    }
+
+    /**
+     * Clears the index, it will be reloaded at the next lookup.
+     */
+    public synchronized void clear() {
+        loaded = false;
+        entriesById.clear();
+        entriesByTitle.clear();
+        orderedEntries.clear();
+    }
+
+    /**
+     * Loads the index if it has not been loaded.
+     * 
+     * @throws RepositoryException repository exception
+     */
+    private void ensureLoaded() throws RepositoryException {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets tags in order.
+     * 
+     * @param num the specified maximum number of tags to get
+     * @param publishedOnly whether to get tags of published articles only
+     * @return copies of the tags
+     * @throws RepositoryException if the index not loaded and loads it failed
+     */
+    private List<JSONObject> getTags(final int num, final boolean publishedOnly) throws RepositoryException {
+        ensureLoaded();
+
+        final List<JSONObject> ret = new ArrayList<JSONObject>();
+
+        for (final Entry entry : orderedEntries) {
+            if (ret.size() >= num || (publishedOnly && entry.publishedRefCnt <= 0)) {
+                break;
+            }
+
+            ret.add(copy(entry.tag));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Puts the specified tag.
+     * 
+     * @param tag the specified tag
+     */
+    private void putInternal(final JSONObject tag) {
+        final Entry entry = new Entry(copy(tag));
+        final Entry old = entriesById.put(entry.id, entry);
+
+        if (null != old) {
+            removeEntry(old);
+        }
+
+        entriesByTitle.put(entry.title, entry);
+        orderedEntries.add(entry);
+    }
+
+    /**
+     * Removes the specified entry from the title index and the ordered entries.
+     * 
+     * @param entry the specified entry
+     */
+    private void removeEntry(final Entry entry) {
+        entriesByTitle.remove(entry.title);
+        orderedEntries.remove(entry);
+    }
+
+    /**
+     * Copies the specified tag.
+     * 
+     * @param tag the specified tag
+     * @return a copy of the specified tag
+     */
+    private static JSONObject copy(final JSONObject tag) {
+        return new JSONObject(tag, JSONObject.getNames(tag));
+    }
+
+    /**
+     * Tag index entry.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Entry {
+
+        /**
+         * Tag id.
+         */
+        private final String id;
+
+        /**
+         * Tag title.
+         */
+        private final String title;
+
+        /**
+         * Published reference count.
+         */
+        private final int publishedRefCnt;
+
+        /**
+         * Tag.
+         */
+        private final JSONObject tag;
+
+        /**
+         * Constructs an entry with the specified tag.
+         * 
+         * @param tag the specified tag
+         */
+        private Entry(final JSONObject tag) {
+            this.id = tag.optString(Keys.OBJECT_ID);
+            this.title = tag.optString(Tag.TAG_TITLE);
+            this.publishedRefCnt = tag.optInt(Tag.TAG_PUBLISHED_REFERENCE_COUNT);
+            this.tag = tag;
+        }
+    }
+}
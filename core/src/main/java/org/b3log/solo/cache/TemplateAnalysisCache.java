@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import freemarker.template.Template;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.util.freemarker.Templates;
+
+
+/**
+ * Template analysis cache.
+ * 
+ * <p>
+ * Records which expressions (for example, "&lt;#list articles1 as article&gt;" or "&lt;#include "side.ftl"/&gt;") a 
+ * template contains, keyed by skin directory name and template name. Every expression of a template is searched by 
+ * {@link Templates#hasExpression(freemarker.template.Template, java.lang.String)} only once, the template source will 
+ * not be walked per request to determine which data model variables should be filled.
+ * </p>
+ * 
+ * <p>
+ * The analysis of a template is dropped while the template reloaded (the template loader returns a new template 
+ * object), and the whole cache is {@link #clear() cleared} while skins reloaded.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The cache is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class TemplateAnalysisCache {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(TemplateAnalysisCache.class.getName());
+
+    /**
+     * Analyses, &lt;skinDirName/templateName, analysis&gt;.
+     */
+    private final Map<String, Analysis> analyses = new ConcurrentHashMap<String, Analysis>();
+
+    /**
+     * Determines whether the specified template of a skin specified by the given skin directory name contains the 
+     * specified expression.
+     * 
+     * @param skinDirName the given skin directory name
+     * @param template the specified template
+     * @param expression the specified expression
+     * @return {@code true} if it contains, returns {@code false} otherwise
+     */
+    public boolean hasExpression(final String skinDirName, final Template template, final String expression) {
+        final String key = skinDirName + '/' + template.getName();
+        Analysis analysis = analyses.get(key);
+
+        if (null == analysis || analysis.template != template) {
+            LOGGER.log(Level.DEBUG, "Analyzing template[key={0}]", key);
+
+            analysis = new Analysis(template);
+            analyses.put(key, analysis);
+        }
+
+        return analysis.hasExpression(expression);
+    }
+
+    /**
+     * Clears all analyses.
+     */
+    public void clear() {
+        analyses.clear();
+
+        LOGGER.log(Level.DEBUG, "Cleared template analysis cache");
+    }
+
+    /**
+     * Analysis of a template.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Analysis {
+
+        /**
+         * The analyzed template.
+         */
+        private final Template template;
+
+        /**
+         * Searched expressions, &lt;expression, contained&gt;.
+         */
+        private final Map<String, Boolean> expressions = new ConcurrentHashMap<String, Boolean>();
+
+        /**
+         * Constructs an analysis with the specified template.
+         * 
+         * @param template the specified template
+         */
+        private Analysis(final Template template) {
+            this.template = template;
+        }
+
+        /**
+         * Determines whether the template contains the specified expression.
+         * 
+         * @param expression the specified expression
+         * @return {@code true} if it contains, returns {@code false} otherwise
+         */
+        private boolean hasExpression(final String expression) {
+            Boolean ret = expressions.get(expression);
+
+            if (null == ret) {
+                ret = Templates.hasExpression(template, expression);
+                expressions.put(expression, ret);
+            }
+
+            return ret;
+        }
+    }
+}
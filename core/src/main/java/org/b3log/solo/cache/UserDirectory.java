@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.Keys;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.model.Role;
+import org.b3log.latke.model.User;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.RepositoryException;
+import org.b3log.solo.repository.UserRepository;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+
+/**
+ * User directory.
+ * 
+ * <p>
+ * A resident snapshot of all users indexed by email and id, used by author lookups of article list rendering and 
+ * {@link org.b3log.solo.service.UserQueryService#hasMultipleUsers()} without querying the repository. The snapshot 
+ * will be loaded lazily at the first lookup and {@link #clear() cleared} by user writes (user management, article 
+ * statistic of users, etc.). Every lookup returns a copy, so callers could modify the returned user freely.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The directory is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class UserDirectory {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(UserDirectory.class.getName());
+
+    /**
+     * User repository.
+     */
+    @Inject
+    private UserRepository userRepository;
+
+    /**
+     * Current snapshot, {@code null} if not loaded.
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * Gets a user by the specified email.
+     * 
+     * @param email the specified email
+     * @return a copy of the user, returns {@code null} if not found
+     * @throws RepositoryException if the directory not loaded and loads it failed
+     */
+    public JSONObject getUserByEmail(final String email) throws RepositoryException {
+        return copy(getSnapshot().usersByEmail.get(email.toLowerCase().trim()));
+    }
+
+    /**
+     * Gets a user by the specified id.
+     * 
+     * @param userId the specified id
+     * @return a copy of the user, returns {@code null} if not found
+     * @throws RepositoryException if the directory not loaded and loads it failed
+     */
+    public JSONObject getUser(final String userId) throws RepositoryException {
+        return copy(getSnapshot().usersById.get(userId));
+    }
+
+    /**
+     * Gets the administrator.
+     * 
+     * @return a copy of the administrator, returns {@code null} if not found
+     * @throws RepositoryException if the directory not loaded and loads it failed
+     */
+    public JSONObject getAdmin() throws RepositoryException {
+        return copy(getSnapshot().admin);
+    }
+
+    /**
+     * Gets all users.
+     * 
+     * @return copies of all users, returns an empty list if not found
+     * @throws RepositoryException if the directory not loaded and loads it failed
+     */
+    public List<JSONObject> getUsers() throws RepositoryException {
+        final List<JSONObject> users = getSnapshot().users;
+        final List<JSONObject> ret = new ArrayList<JSONObject>(users.size());
+
+        for (final JSONObject user : users) {
+            ret.add(copy(user));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Gets the count of users.
+     * 
+     * @return user count
+     * @throws RepositoryException if the directory not loaded and loads it failed
+     */
+    public int getUserCount() throws RepositoryException {
+        return getSnapshot().users.size();
+    }
+
+    /**
+     * Clears the directory, it will be reloaded at the next lookup.
+     * 
+     * <p>
+     * Invokes this method after a user write committed, or the directory may be reloaded with the uncommitted state.
+     * </p>
+     */
+    public synchronized void clear() {
+        snapshot = null;
+    }
+
+    /**
+     * Gets the current snapshot, loads it from repository if not loaded.
+     * 
+     * @return current snapshot
+     * @throws RepositoryException repository exception
+     */
+    private Snapshot getSnapshot() throws RepositoryException {
+        final Snapshot ret = snapshot;
+
+        if (null != ret) {
+            return ret;
+        }
+
+        synchronized (this) {
+            if (null == snapshot) {
+                final JSONArray users = userRepository.get(new Query().setPageCount(1)).optJSONArray(Keys.RESULTS);
+
+                snapshot = new Snapshot(users);
+
+                LOGGER.log(Level.DEBUG, "Loaded user directory[userCnt={0}]", users.length());
+            }
+
+            return snapshot;
+        }
+    }
+
+    /**
+     * Copies the specified user.
+     * 
+     * @param user the specified user, may be {@code null}
+     * @return a copy of the specified user, returns {@code null} if the specified user is {@code null}
+     */
+    private static JSONObject copy(final JSONObject user) {
+        if (null == user) {
+            return null;
+        }
+
+        return new JSONObject(user, JSONObject.getNames(user));
+    }
+
+    /**
+     * User directory snapshot.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Snapshot {
+
+        /**
+         * Users in repository order.
+         */
+        private final List<JSONObject> users;
+
+        /**
+         * Email &rarr; user.
+         */
+        private final Map<String, JSONObject> usersByEmail;
+
+        /**
+         * Id &rarr; user.
+         */
+        private final Map<String, JSONObject> usersById;
+
+        /**
+         * Administrator.
+         */
+        private final JSONObject admin;
+
+        /**
+         * Constructs a snapshot with the specified users.
+         * 
+         * @param users the specified users
+         */
+        private Snapshot(final JSONArray users) {
+            final List<JSONObject> list = new ArrayList<JSONObject>(users.length());
+            final Map<String, JSONObject> byEmail = new HashMap<String, JSONObject>();
+            final Map<String, JSONObject> byId = new HashMap<String, JSONObject>();
+            JSONObject adminUser = null;
+
+            for (int i = 0; i < users.length(); i++) {
+                final JSONObject user = copy(users.optJSONObject(i));
+
+                list.add(user);
+                byEmail.put(user.optString(User.USER_EMAIL).toLowerCase().trim(), user);
+                byId.put(user.optString(Keys.OBJECT_ID), user);
+
+                if (null == adminUser && Role.ADMIN_ROLE.equals(user.optString(User.USER_ROLE))) {
+                    adminUser = user;
+                }
+            }
+
+            this.users = Collections.unmodifiableList(list);
+            this.usersByEmail = byEmail;
+            this.usersById = byId;
+            this.admin = adminUser;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+
+/**
+ * View count buffer.
+ * 
+ * <p>
+ * Accumulates article/blog view count deltas in memory, the deltas will be flushed into datastore in batch by
+ * {@link org.b3log.solo.service.StatisticMgmtService#flushViewCount()}. Every article holds its own counter, so 
+ * concurrent views of different articles do not contend with each other.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The buffer is NOT cluster-safe, the pending deltas will be lost if the server crashed before flushing.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class ViewCountBuffer {
+
+    /**
+     * Pending view count threshold to trigger a flush.
+     */
+    public static final int FLUSH_THRESHOLD = 100;
+
+    /**
+     * Article view count deltas.
+     * 
+     * <p>
+     * &lt;articleId, delta&gt;
+     * </p>
+     */
+    private final ConcurrentMap<String, AtomicInteger> articleDeltas = new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * Blog view count delta.
+     */
+    private final AtomicInteger blogDelta = new AtomicInteger();
+
+    /**
+     * Pending view count (sum of all deltas).
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Article view count +1.
+     * 
+     * @param articleId the specified article id
+     * @return {@code true} if the pending view count just reached the {@link #FLUSH_THRESHOLD threshold}, returns 
+     * {@code false} otherwise
+     */
+    public boolean incArticle(final String articleId) {
+        getCounter(articleId).incrementAndGet();
+
+        return FLUSH_THRESHOLD == pending.incrementAndGet();
+    }
+
+    /**
+     * Blog view count +1.
+     * 
+     * @return {@code true} if the pending view count just reached the {@link #FLUSH_THRESHOLD threshold}, returns 
+     * {@code false} otherwise
+     */
+    public boolean incBlog() {
+        blogDelta.incrementAndGet();
+
+        return FLUSH_THRESHOLD == pending.incrementAndGet();
+    }
+
+    /**
+     * Gets the pending view count delta of an article specified by the given article id.
+     * 
+     * @param articleId the given article id
+     * @return delta, returns {@code 0} if not found
+     */
+    public int getArticleDelta(final String articleId) {
+        final AtomicInteger counter = articleDeltas.get(articleId);
+
+        if (null == counter) {
+            return 0;
+        }
+
+        return counter.get();
+    }
+
+    /**
+     * Gets the pending blog view count delta.
+     * 
+     * @return delta
+     */
+    public int getBlogDelta() {
+        return blogDelta.get();
+    }
+
+    /**
+     * Drains the pending article view count deltas.
+     * 
+     * @return drained deltas, &lt;articleId, delta&gt;, returns an empty map if there is no pending delta
+     */
+    public Map<String, Integer> drainArticleDeltas() {
+        final Map<String, Integer> ret = new HashMap<String, Integer>();
+
+        // Counters are kept (reset to 0) rather than removed, removing may lose a concurrent increment
+        for (final Map.Entry<String, AtomicInteger> entry : articleDeltas.entrySet()) {
+            final int delta = entry.getValue().getAndSet(0);
+
+            if (0 != delta) {
+                ret.put(entry.getKey(), delta);
+                pending.addAndGet(-delta);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Drains the pending blog view count delta.
+     * 
+     * @return drained delta
+     */
+    public int drainBlogDelta() {
+        final int ret = blogDelta.getAndSet(0);
+
+        pending.addAndGet(-ret);
+
+        return ret;
+    }
+
+    /**
+     * Puts back the specified delta of an article specified by the given article id, used while flushing failed.
+     * 
+     * @param articleId the given article id
+     * @param delta the specified delta
+     */
+    public void restoreArticle(final String articleId, final int delta) {
+        getCounter(articleId).addAndGet(delta);
+        pending.addAndGet(delta);
+    }
+
+    /**
+     * Puts back the specified blog view count delta, used while flushing failed.
+     * 
+     * @param delta the specified delta
+     */
+    public void restoreBlog(final int delta) {
+        blogDelta.addAndGet(delta);
+        pending.addAndGet(delta);
+    }
+
+    /**
+     * Removes the counter of an article specified by the given article id, the pending delta of the article will be 
+     * discarded.
+     * 
+     * @param articleId the given article id
+     */
+    public void removeArticle(final String articleId) {
+        final AtomicInteger counter = articleDeltas.remove(articleId);
+
+        if (null != counter) {
+            pending.addAndGet(-counter.getAndSet(0));
+        }
+    }
+
+    /**
+     * Discards all pending deltas.
+     */
+    public void clear() {
+        articleDeltas.clear();
+        blogDelta.set(0);
+        pending.set(0);
+    }
+
+    /**
+     * Gets the counter of an article specified by the given article id, creates one if not found.
+     * 
+     * @param articleId the given article id
+     * @return counter
+     */
+    private AtomicInteger getCounter(final String articleId) {
+        AtomicInteger ret = articleDeltas.get(articleId);
+
+        if (null == ret) {
+            final AtomicInteger counter = new AtomicInteger();
+
+            ret = articleDeltas.putIfAbsent(articleId, counter);
+
+            if (null == ret) {
+                ret = counter;
+            }
+        }
+
+        return ret;
+    }
+}
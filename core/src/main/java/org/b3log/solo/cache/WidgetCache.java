@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.json.JSONObject;
+
+
+/**
+ * Side bar widget cache.
+ * 
+ * <p>
+ * Caches the prepared widget lists (recent articles, most used tags, links, etc.) of the side bar. Every list is tagged
+ * with the {@link #getGeneration() generation} current while it was loading, and will be discarded after the generation 
+ * {@link #invalidate() bumped} by a content (article, comment, link) change or after it {@link #MAX_AGE expired}.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The cached lists are shared by requests, callers MUST NOT modify them. The cache is NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.1, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class WidgetCache implements Invalidatable {
+
+    /**
+     * Maximum age of a cached widget list in milliseconds, for the changes without a generation bump (view count, etc.).
+     */
+    public static final long MAX_AGE = 1000 * 60 * 5;
+
+    /**
+     * Generation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Cached widget lists.
+     */
+    private final Map<String, Widget> widgets = new ConcurrentHashMap<String, Widget>();
+
+    /**
+     * Gets the current generation.
+     * 
+     * @return current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Invalidates all cached widget lists by bumping the generation.
+     */
+    @Override
+    public void invalidate() {
+        generation.incrementAndGet();
+        widgets.clear();
+    }
+
+    /**
+     * Gets a cached widget list by the specified key.
+     * 
+     * @param key the specified key, for example "recentArticles:10"
+     * @return widget list, returns {@code null} if not found, stale or expired
+     */
+    public List<JSONObject> get(final String key) {
+        final Widget widget = widgets.get(key);
+
+        if (null == widget) {
+            return null;
+        }
+
+        if (widget.generation != generation.get() || System.currentTimeMillis() - widget.cachedTime > MAX_AGE) {
+            widgets.remove(key);
+
+            return null;
+        }
+
+        return widget.list;
+    }
+
+    /**
+     * Puts the specified widget list loaded in the specified generation into cache with the specified key.
+     * 
+     * <p>
+     * The list will not be cached if the generation has been bumped while loading.
+     * </p>
+     * 
+     * @param key the specified key
+     * @param loadedGeneration the specified generation, got by {@link #getGeneration()} before loading
+     * @param list the specified widget list
+     */
+    public void put(final String key, final long loadedGeneration, final List<JSONObject> list) {
+        if (loadedGeneration != generation.get()) {
+            return;
+        }
+
+        widgets.put(key, new Widget(loadedGeneration, Collections.unmodifiableList(list)));
+    }
+
+    /**
+     * Cached widget list.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class Widget {
+
+        /**
+         * Generation.
+         */
+        private final long generation;
+
+        /**
+         * Widget list.
+         */
+        private final List<JSONObject> list;
+
+        /**
+         * Cached time.
+         */
+        private final long cachedTime;
+
+        /**
+         * Constructs a widget with the specified generation and list.
+         * 
+         * @param generation the specified generation
+         * @param list the specified list
+         */
+        private Widget(final long generation, final List<JSONObject> list) {
+            this.generation = generation;
+            this.list = list;
+            this.cachedTime = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.event;
+
+
+import org.b3log.latke.event.AbstractEventListener;
+import org.b3log.latke.event.Event;
+import org.b3log.latke.event.EventException;
+import org.b3log.latke.ioc.Lifecycle;
+import org.json.JSONObject;
+
+
+/**
+ * Asynchronous event listener.
+ * 
+ * <p>
+ * Wraps a listener calls remote services (pinging, syncing, etc), and hands the events over to the 
+ * {@link EventDispatcher event dispatcher}, so the request fires the event will not wait for the remote services. 
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+public final class AsyncEventListener extends AbstractEventListener<JSONObject> {
+
+    /**
+     * Wrapped listener.
+     */
+    private final AbstractEventListener<JSONObject> listener;
+
+    /**
+     * Constructs an asynchronous event listener with the specified listener.
+     * 
+     * @param listener the specified listener
+     */
+    public AsyncEventListener(final AbstractEventListener<JSONObject> listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void action(final Event<JSONObject> event) throws EventException {
+        Lifecycle.getBeanManager().getReference(EventDispatcher.class).dispatch(listener, event);
+    }
+
+    /**
+     * Gets the event type of the wrapped listener.
+     * 
+     * @return event type
+     */
+    @Override
+    public String getEventType() {
+        return listener.getEventType();
+    }
+}
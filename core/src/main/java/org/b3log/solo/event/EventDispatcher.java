@@ -0,0 +1,601 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.event;
+
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.b3log.latke.Keys;
+import org.b3log.latke.Latkes;
+import org.b3log.latke.RuntimeEnv;
+import org.b3log.latke.event.AbstractEventListener;
+import org.b3log.latke.event.Event;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.repository.FilterOperator;
+import org.b3log.latke.repository.PropertyFilter;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.Transaction;
+import org.b3log.solo.model.Article;
+import org.b3log.solo.model.Comment;
+import org.b3log.solo.model.Common;
+import org.b3log.solo.model.Option;
+import org.b3log.solo.model.Page;
+import org.b3log.solo.repository.ArticleRepository;
+import org.b3log.solo.repository.CommentRepository;
+import org.b3log.solo.repository.OptionRepository;
+import org.b3log.solo.repository.PageRepository;
+import org.b3log.solo.util.URLFetches;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+
+/**
+ * Event dispatcher.
+ * 
+ * <p>
+ * Runs {@link AsyncEventListener asynchronous listeners} on a bounded worker pool. A listener failed, and an event 
+ * rejected by the full worker queue will be saved into the retry queue, which is persisted as 
+ * {@link Option#CATEGORY_C_EVENT_RETRY event retry} options and drained by the cron job {@link #retry()}. An event 
+ * will be retried at most {@value #MAX_RETRIES} times.
+ * </p>
+ * 
+ * <p>
+ * A blocking fetch can not be interrupted, so the remote listeners fetch by {@link URLFetches#fetch(
+ * org.b3log.latke.urlfetch.HTTPRequest)} which fails on timeout, and a listener running over 
+ * {@value #LISTENER_TIMEOUT} milliseconds is only logged.
+ * </p>
+ * 
+ * <p>
+ * A retry entry holds the ids of the article, page and comment of the event data, the event data will be reloaded from
+ * repositories while retrying. Entries can not be persisted in the request thread (which is in a transaction) are 
+ * pending in memory until the next {@link #retry() retry}.
+ * </p>
+ * 
+ * <p>
+ * On {@link RuntimeEnv#GAE GAE}, background threads are not allowed, and a listener running in the request thread 
+ * would hold the request on the remote service, so the event is only persisted as a retry entry, the listener will be
+ * run by the next {@link #retry() retry}. The events are fired after the transactions committed, so the entry could
+ * be persisted in the request thread.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The pending entries are NOT cluster-safe.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.2.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Named
+@Singleton
+public class EventDispatcher {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(EventDispatcher.class.getName());
+
+    /**
+     * Number of workers.
+     */
+    private static final int WORKER_CNT = 4;
+
+    /**
+     * Capacity of the worker queue.
+     */
+    private static final int QUEUE_CAPACITY = 128;
+
+    /**
+     * Timeout of a listener, in milliseconds, a listener running over it will be logged.
+     */
+    private static final long LISTENER_TIMEOUT = 30000L;
+
+    /**
+     * Maximum retries of an event.
+     */
+    private static final int MAX_RETRIES = 5;
+
+    /**
+     * Maximum number of pending entries.
+     */
+    private static final int PENDING_CAPACITY = 1024;
+
+    /**
+     * Key of listener class name.
+     */
+    private static final String LISTENER = "listener";
+
+    /**
+     * Key of event type.
+     */
+    private static final String EVENT_TYPE = "eventType";
+
+    /**
+     * Key of article id.
+     */
+    private static final String ARTICLE_ID = "articleId";
+
+    /**
+     * Key of page id.
+     */
+    private static final String PAGE_ID = "pageId";
+
+    /**
+     * Key of comment id.
+     */
+    private static final String COMMENT_ID = "commentId";
+
+    /**
+     * Key of retries.
+     */
+    private static final String RETRIES = "retries";
+
+    /**
+     * Option repository.
+     */
+    @Inject
+    private OptionRepository optionRepository;
+
+    /**
+     * Article repository.
+     */
+    @Inject
+    private ArticleRepository articleRepository;
+
+    /**
+     * Page repository.
+     */
+    @Inject
+    private PageRepository pageRepository;
+
+    /**
+     * Comment repository.
+     */
+    @Inject
+    private CommentRepository commentRepository;
+
+    /**
+     * Retry entries not persisted yet.
+     */
+    private final Queue<JSONObject> pending = new ConcurrentLinkedQueue<JSONObject>();
+
+    /**
+     * Workers.
+     */
+    private final ThreadPoolExecutor workers = new ThreadPoolExecutor(WORKER_CNT, WORKER_CNT, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new DaemonThreadFactory("Event-"));
+
+    /**
+     * Watchdog of slow listeners.
+     */
+    private final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1,
+        new DaemonThreadFactory("Event-Watchdog-"));
+
+    /**
+     * Public constructor.
+     */
+    public EventDispatcher() {
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Dispatches the specified event to the specified listener.
+     * 
+     * <p>
+     * The event data will be copied, so the caller could modify the data after dispatched.
+     * </p>
+     * 
+     * @param listener the specified listener
+     * @param event the specified event
+     */
+    public void dispatch(final AbstractEventListener<JSONObject> listener, final Event<JSONObject> event) {
+        final Event<JSONObject> snapshot = new Event<JSONObject>(event.getType(), copy(event.getData()));
+
+        if (RuntimeEnv.GAE == Latkes.getRuntimeEnv()) {
+            // Leaves the remote call to the retry cron job
+            persist(newRetryEntry(listener, snapshot));
+
+            return;
+        }
+
+        try {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runWithTimeout(listener, snapshot);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            LOGGER.log(Level.WARN, "Event workers are busy, retries event[type={0}] in listener[className={1}] later",
+                new Object[] {event.getType(), listener.getClass().getName()});
+
+            addPending(newRetryEntry(listener, snapshot));
+        }
+    }
+
+    /**
+     * Retries the failed events.
+     * 
+     * <p>
+     * Persists the pending entries first, then runs every persisted entry in the current thread. An entry will be 
+     * removed if succeeded, retried {@value #MAX_RETRIES} times, malformed, or its article/page/comment has been 
+     * removed.
+     * </p>
+     */
+    public void retry() {
+        flushPending();
+
+        JSONArray options;
+
+        try {
+            final Query query = new Query().setFilter(
+                new PropertyFilter(Option.OPTION_CATEGORY, FilterOperator.EQUAL, Option.CATEGORY_C_EVENT_RETRY));
+
+            options = optionRepository.get(query).getJSONArray(Keys.RESULTS);
+        } catch (final Exception e) {
+            LOGGER.log(Level.ERROR, "Gets event retry entries failed", e);
+
+            return;
+        }
+
+        for (int i = 0; i < options.length(); i++) {
+            final JSONObject option = options.optJSONObject(i);
+            final String optionId = option.optString(Keys.OBJECT_ID);
+            final JSONObject entry;
+
+            try {
+                entry = new JSONObject(option.optString(Option.OPTION_VALUE));
+            } catch (final JSONException e) {
+                LOGGER.log(Level.ERROR, "Drops malformed event retry entry[id=" + optionId + "]", e);
+                removeOption(optionId);
+
+                continue;
+            }
+
+            try {
+                final Event<JSONObject> event = reload(entry);
+
+                if (null == event) {
+                    LOGGER.log(Level.DEBUG, "Drops event retry entry[{0}], the source has been removed", entry);
+                    removeOption(optionId);
+
+                    continue;
+                }
+
+                @SuppressWarnings("unchecked")
+                final AbstractEventListener<JSONObject> listener =
+                    (AbstractEventListener<JSONObject>) Class.forName(entry.getString(LISTENER)).newInstance();
+
+                listener.action(event);
+
+                removeOption(optionId);
+            } catch (final Exception e) {
+                final int retries = entry.optInt(RETRIES) + 1;
+
+                if (retries >= MAX_RETRIES) {
+                    LOGGER.log(Level.ERROR, "Event retry entry[" + entry + "] failed " + retries + " times, drops it", e);
+                    removeOption(optionId);
+
+                    continue;
+                }
+
+                LOGGER.log(Level.WARN, "Retries event entry[{0}] failed: {1}", new Object[] {entry, e.getMessage()});
+                entry.put(RETRIES, retries);
+                option.put(Option.OPTION_VALUE, entry.toString());
+                updateOption(optionId, option);
+            }
+        }
+    }
+
+    /**
+     * Shuts down the workers, and persists the pending entries.
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+        watchdog.shutdownNow();
+
+        flushPending();
+    }
+
+    /**
+     * Runs the specified listener with the specified event, saves a retry entry if the listener failed.
+     * 
+     * <p>
+     * The worker is never interrupted, a listener running over {@value #LISTENER_TIMEOUT} milliseconds is logged and 
+     * left to finish (or fail) by itself, so a slow but successful listener will not be retried.
+     * </p>
+     * 
+     * @param listener the specified listener
+     * @param event the specified event
+     */
+    private void runWithTimeout(final AbstractEventListener<JSONObject> listener, final Event<JSONObject> event) {
+        final ScheduledFuture<?> timeout = watchdog.schedule(new Runnable() {
+            @Override
+            public void run() {
+                LOGGER.log(Level.WARN, "Listener[className={0}] is running over [{1}ms] for event[type={2}]",
+                    new Object[] {listener.getClass().getName(), LISTENER_TIMEOUT, event.getType()});
+            }
+        }, LISTENER_TIMEOUT, TimeUnit.MILLISECONDS);
+
+        try {
+            listener.action(event);
+        } catch (final Exception e) {
+            LOGGER.log(Level.WARN, "Listener[" + listener.getClass().getName() + "] failed, retries later", e);
+
+            persist(newRetryEntry(listener, event));
+        } finally {
+            timeout.cancel(false);
+        }
+    }
+
+    /**
+     * Persists the pending entries.
+     */
+    private void flushPending() {
+        JSONObject entry;
+
+        while (null != (entry = pending.poll())) {
+            if (!persist(entry)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Adds the specified entry to the pending entries, drops it if the pending entries are full.
+     * 
+     * @param entry the specified entry
+     */
+    private void addPending(final JSONObject entry) {
+        if (pending.size() >= PENDING_CAPACITY) {
+            LOGGER.log(Level.ERROR, "Too many pending event retry entries, drops entry[{0}]", entry);
+
+            return;
+        }
+
+        pending.offer(entry);
+    }
+
+    /**
+     * Persists the specified entry as an option, adds it to the pending entries if failed.
+     * 
+     * @param entry the specified entry
+     * @return {@code true} if persisted, returns {@code false} otherwise
+     */
+    private boolean persist(final JSONObject entry) {
+        final JSONObject option = new JSONObject();
+
+        option.put(Option.OPTION_CATEGORY, Option.CATEGORY_C_EVENT_RETRY);
+        option.put(Option.OPTION_VALUE, entry.toString());
+
+        final Transaction transaction = optionRepository.beginTransaction();
+
+        try {
+            optionRepository.add(option);
+
+            transaction.commit();
+
+            return true;
+        } catch (final Exception e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            LOGGER.log(Level.ERROR, "Persists event retry entry[" + entry + "] failed", e);
+
+            addPending(entry);
+
+            return false;
+        }
+    }
+
+    /**
+     * Updates an option specified by the given option id with the specified option.
+     * 
+     * @param optionId the given option id
+     * @param option the specified option
+     */
+    private void updateOption(final String optionId, final JSONObject option) {
+        final Transaction transaction = optionRepository.beginTransaction();
+
+        try {
+            optionRepository.update(optionId, option);
+
+            transaction.commit();
+        } catch (final Exception e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            LOGGER.log(Level.ERROR, "Updates event retry entry[id=" + optionId + "] failed", e);
+        }
+    }
+
+    /**
+     * Removes an option specified by the given option id.
+     * 
+     * @param optionId the given option id
+     */
+    private void removeOption(final String optionId) {
+        final Transaction transaction = optionRepository.beginTransaction();
+
+        try {
+            optionRepository.remove(optionId);
+
+            transaction.commit();
+        } catch (final Exception e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            LOGGER.log(Level.ERROR, "Removes event retry entry[id=" + optionId + "] failed", e);
+        }
+    }
+
+    /**
+     * Builds a retry entry with the specified listener and event.
+     * 
+     * @param listener the specified listener
+     * @param event the specified event
+     * @return retry entry
+     */
+    private static JSONObject newRetryEntry(final AbstractEventListener<JSONObject> listener,
+        final Event<JSONObject> event) {
+        final JSONObject ret = new JSONObject();
+        final JSONObject data = event.getData();
+
+        ret.put(LISTENER, listener.getClass().getName());
+        ret.put(EVENT_TYPE, event.getType());
+        ret.put(RETRIES, 0);
+
+        final JSONObject article = data.optJSONObject(Article.ARTICLE);
+
+        if (null != article) {
+            ret.put(ARTICLE_ID, article.optString(Keys.OBJECT_ID));
+            ret.put(Common.POST_TO_COMMUNITY, article.optBoolean(Common.POST_TO_COMMUNITY, true));
+        }
+
+        final JSONObject page = data.optJSONObject(Page.PAGE);
+
+        if (null != page) {
+            ret.put(PAGE_ID, page.optString(Keys.OBJECT_ID));
+        }
+
+        final JSONObject comment = data.optJSONObject(Comment.COMMENT);
+
+        if (null != comment) {
+            ret.put(COMMENT_ID, comment.optString(Keys.OBJECT_ID));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Reloads the event of the specified retry entry from repositories.
+     * 
+     * @param entry the specified retry entry
+     * @return event, returns {@code null} if the article, page or comment of the entry has been removed
+     * @throws Exception exception
+     */
+    private Event<JSONObject> reload(final JSONObject entry) throws Exception {
+        final JSONObject data = new JSONObject();
+
+        if (entry.has(ARTICLE_ID)) {
+            final JSONObject article = articleRepository.get(entry.getString(ARTICLE_ID));
+
+            if (null == article) {
+                return null;
+            }
+
+            article.put(Common.POST_TO_COMMUNITY, entry.optBoolean(Common.POST_TO_COMMUNITY, true));
+            data.put(Article.ARTICLE, article);
+        }
+
+        if (entry.has(PAGE_ID)) {
+            final JSONObject page = pageRepository.get(entry.getString(PAGE_ID));
+
+            if (null == page) {
+                return null;
+            }
+
+            data.put(Page.PAGE, page);
+        }
+
+        if (entry.has(COMMENT_ID)) {
+            final JSONObject comment = commentRepository.get(entry.getString(COMMENT_ID));
+
+            if (null == comment) {
+                return null;
+            }
+
+            data.put(Comment.COMMENT, comment);
+        }
+
+        return new Event<JSONObject>(entry.getString(EVENT_TYPE), data);
+    }
+
+    /**
+     * Copies the specified event data, the nested JSON objects (article, comment, etc) are copied as well.
+     * 
+     * @param data the specified event data
+     * @return copy of the event data
+     */
+    private static JSONObject copy(final JSONObject data) {
+        final JSONObject ret = new JSONObject();
+        @SuppressWarnings("unchecked")
+        final Iterator<String> keys = data.keys();
+
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            final Object value = data.opt(key);
+
+            ret.put(key, value instanceof JSONObject ? copy((JSONObject) value) : value);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Daemon thread factory.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        /**
+         * Thread name prefix.
+         */
+        private final String prefix;
+
+        /**
+         * Thread number.
+         */
+        private final AtomicInteger threadNum = new AtomicInteger();
+
+        /**
+         * Constructs a daemon thread factory with the specified thread name prefix.
+         * 
+         * @param prefix the specified thread name prefix
+         */
+        private DaemonThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread ret = new Thread(runnable, prefix + threadNum.incrementAndGet());
+
+            ret.setDaemon(true);
+
+            return ret;
+        }
+    }
+}
@@ -20,7 +20,7 @@ package org.b3log.solo.event;
  * Event types.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.7, Oct 17, 2012
+ * @version 1.0.0.9, Nov 2, 2013
  * @since 0.3.1
  */
 public final class EventTypes {
@@ -40,6 +40,11 @@ public final class EventTypes {
      */
     public static final String REMOVE_ARTICLE = "Remove Article";
 
+    /**
+     * Indicates a cancel publish article event.
+     */
+    public static final String CANCEL_PUBLISH_ARTICLE = "Cancel Publish Article";
+
     /**
      * Indicates an add comment to article event.
      */
@@ -60,6 +65,41 @@ public final class EventTypes {
      */
     public static final String REMOVE_COMMENT = "Remove Comment";
 
+    /**
+     * Indicates an add page event.
+     */
+    public static final String ADD_PAGE = "Add Page";
+
+    /**
+     * Indicates an update page event.
+     */
+    public static final String UPDATE_PAGE = "Update Page";
+
+    /**
+     * Indicates a remove page event.
+     */
+    public static final String REMOVE_PAGE = "Remove Page";
+
+    /**
+     * Indicates an update preference event.
+     */
+    public static final String UPDATE_PREFERENCE = "Update Preference";
+
+    /**
+     * Indicates an add link event.
+     */
+    public static final String ADD_LINK = "Add Link";
+
+    /**
+     * Indicates an update link event.
+     */
+    public static final String UPDATE_LINK = "Update Link";
+
+    /**
+     * Indicates a remove link event.
+     */
+    public static final String REMOVE_LINK = "Remove Link";
+
     /**
      * Private default constructor.
      */
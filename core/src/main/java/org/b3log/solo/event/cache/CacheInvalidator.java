@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.event.cache;
+
+
+import java.util.List;
+import org.b3log.latke.event.AbstractEventListener;
+import org.b3log.latke.event.Event;
+import org.b3log.latke.event.EventException;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.solo.cache.Invalidatable;
+import org.json.JSONObject;
+
+
+/**
+ * This listener is responsible for invalidating the specified {@link Invalidatable caches} while the blog content
+ * changed.
+ *
+ * <p>
+ * One listener is registered for each content change event type with the caches affected by that event, see
+ * {@link org.b3log.solo.SoloServletListener}.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+public final class CacheInvalidator extends AbstractEventListener<JSONObject> {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CacheInvalidator.class.getName());
+
+    /**
+     * Event type.
+     */
+    private final String eventType;
+
+    /**
+     * Caches to invalidate, in order.
+     */
+    private final List<Invalidatable> caches;
+
+    /**
+     * Constructs a cache invalidator with the specified event type and caches.
+     *
+     * @param eventType the specified event type
+     * @param caches the specified caches to invalidate, in order
+     */
+    public CacheInvalidator(final String eventType, final List<Invalidatable> caches) {
+        this.eventType = eventType;
+        this.caches = caches;
+    }
+
+    @Override
+    public void action(final Event<JSONObject> event) throws EventException {
+        LOGGER.log(Level.DEBUG, "Processing an event[type={0}] in listener[className={1}]",
+            new Object[] {event.getType(), CacheInvalidator.class.getName()});
+
+        for (final Invalidatable cache : caches) {
+            cache.invalidate();
+        }
+    }
+
+    /**
+     * Gets the event type specified in constructor.
+     *
+     * @return event type
+     */
+    @Override
+    public String getEventType() {
+        return eventType;
+    }
+}
@@ -18,6 +18,7 @@ package org.b3log.solo.event.ping;
 
 import java.net.URL;
 import java.net.URLEncoder;
+import javax.servlet.http.HttpServletResponse;
 import org.b3log.latke.Latkes;
 import org.b3log.latke.event.AbstractEventListener;
 import org.b3log.latke.event.Event;
@@ -27,12 +28,12 @@ import org.b3log.latke.ioc.Lifecycle;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
 import org.b3log.latke.urlfetch.HTTPRequest;
-import org.b3log.latke.urlfetch.URLFetchService;
-import org.b3log.latke.urlfetch.URLFetchServiceFactory;
+import org.b3log.latke.urlfetch.HTTPResponse;
 import org.b3log.solo.event.EventTypes;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Preference;
 import org.b3log.solo.service.PreferenceQueryService;
+import org.b3log.solo.util.URLFetches;
 import org.json.JSONObject;
 
 
@@ -48,7 +49,7 @@ import org.json.JSONObject;
  * </p>
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.3, May 17, 2013
+ * @version 1.0.0.5, Nov 2, 2013
  * @see UpdateArticleGoogleBlogSearchPinger
  * @since 0.3.1
  */
@@ -59,11 +60,6 @@ public final class AddArticleGoogleBlogSearchPinger extends AbstractEventListene
      */
     private static final Logger LOGGER = Logger.getLogger(AddArticleGoogleBlogSearchPinger.class.getName());
 
-    /**
-     * URL fetch service.
-     */
-    private static final URLFetchService URL_FETCH_SERVICE = URLFetchServiceFactory.getURLFetchService();
-
     /**
      * Gets the event type {@linkplain EventTypes#ADD_ARTICLE}.
      *
@@ -107,9 +103,17 @@ public final class AddArticleGoogleBlogSearchPinger extends AbstractEventListene
 
             request.setURL(new URL(spec));
 
-            URL_FETCH_SERVICE.fetchAsync(request);
+            final HTTPResponse response = URLFetches.fetch(request);
+
+            if (HttpServletResponse.SC_OK != response.getResponseCode()) {
+                throw new EventException("Google Blog Search Service returns [" + response.getResponseCode() + "]");
+            }
+        } catch (final EventException e) {
+            throw e;
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, "Ping Google Blog Search Service fail while adding an article[title=" + articleTitle + "]", e);
+
+            throw new EventException(e);
         }
     }
 }
@@ -19,6 +19,7 @@ package org.b3log.solo.event.rhythm;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Date;
+import javax.servlet.http.HttpServletResponse;
 import org.b3log.latke.Keys;
 import org.b3log.latke.Latkes;
 import org.b3log.latke.event.AbstractEventListener;
@@ -30,14 +31,14 @@ import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
 import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.urlfetch.HTTPRequest;
-import org.b3log.latke.urlfetch.URLFetchService;
-import org.b3log.latke.urlfetch.URLFetchServiceFactory;
+import org.b3log.latke.urlfetch.HTTPResponse;
 import org.b3log.solo.SoloServletListener;
 import org.b3log.solo.event.EventTypes;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Common;
 import org.b3log.solo.model.Preference;
 import org.b3log.solo.service.PreferenceQueryService;
+import org.b3log.solo.util.URLFetches;
 import org.json.JSONObject;
 
 
@@ -50,7 +51,7 @@ import org.json.JSONObject;
  * 
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
  * @author ArmstrongCN
- * @version 1.0.2.7, Jun 13, 2013
+ * @version 1.0.2.9, Nov 2, 2013
  * @since 0.3.1
  */
 public final class ArticleSender extends AbstractEventListener<JSONObject> {
@@ -60,11 +61,6 @@ public final class ArticleSender extends AbstractEventListener<JSONObject> {
      */
     private static final Logger LOGGER = Logger.getLogger(ArticleSender.class.getName());
 
-    /**
-     * URL fetch service.
-     */
-    private final URLFetchService urlFetchService = URLFetchServiceFactory.getURLFetchService();
-
     /**
      * URL of adding article to Rhythm.
      */
@@ -139,9 +135,17 @@ public final class ArticleSender extends AbstractEventListener<JSONObject> {
 
             httpRequest.setPayload(requestJSONObject.toString().getBytes("UTF-8"));
 
-            urlFetchService.fetchAsync(httpRequest);
+            final HTTPResponse response = URLFetches.fetch(httpRequest);
+
+            if (HttpServletResponse.SC_OK != response.getResponseCode()) {
+                throw new EventException("Rhythm returns [" + response.getResponseCode() + "]");
+            }
+        } catch (final EventException e) {
+            throw e;
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, "Sends an article to Rhythm error: {0}", e.getMessage());
+
+            throw new EventException(e);
         }
 
         LOGGER.log(Level.DEBUG, "Sent an article to Rhythm");
@@ -18,6 +18,7 @@ package org.b3log.solo.event.symphony;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import javax.servlet.http.HttpServletResponse;
 import org.b3log.latke.Keys;
 import org.b3log.latke.Latkes;
 import org.b3log.latke.event.AbstractEventListener;
@@ -29,14 +30,14 @@ import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
 import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.urlfetch.HTTPRequest;
-import org.b3log.latke.urlfetch.URLFetchService;
-import org.b3log.latke.urlfetch.URLFetchServiceFactory;
+import org.b3log.latke.urlfetch.HTTPResponse;
 import org.b3log.solo.SoloServletListener;
 import org.b3log.solo.event.EventTypes;
 import org.b3log.solo.event.rhythm.ArticleSender;
 import org.b3log.solo.model.Comment;
 import org.b3log.solo.model.Preference;
 import org.b3log.solo.service.PreferenceQueryService;
+import org.b3log.solo.util.URLFetches;
 import org.json.JSONObject;
 
 
@@ -44,7 +45,7 @@ import org.json.JSONObject;
  * This listener is responsible for sending comment to B3log Symphony.
  * 
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.3, Mar 5, 2013
+ * @version 1.0.0.5, Nov 2, 2013
  * @since 0.5.5
  */
 public final class CommentSender extends AbstractEventListener<JSONObject> {
@@ -54,11 +55,6 @@ public final class CommentSender extends AbstractEventListener<JSONObject> {
      */
     private static final Logger LOGGER = Logger.getLogger(CommentSender.class.getName());
 
-    /**
-     * URL fetch service.
-     */
-    private final URLFetchService urlFetchService = URLFetchServiceFactory.getURLFetchService();
-
     /**
      * URL of adding comment to Symphony.
      */
@@ -120,9 +116,17 @@ public final class CommentSender extends AbstractEventListener<JSONObject> {
 
             httpRequest.setPayload(requestJSONObject.toString().getBytes("UTF-8"));
 
-            urlFetchService.fetchAsync(httpRequest);
+            final HTTPResponse response = URLFetches.fetch(httpRequest);
+
+            if (HttpServletResponse.SC_OK != response.getResponseCode()) {
+                throw new EventException("Symphony returns [" + response.getResponseCode() + "]");
+            }
+        } catch (final EventException e) {
+            throw e;
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, "Sends a comment to Symphony error: {0}", e.getMessage());
+
+            throw new EventException(e);
         }
 
         LOGGER.log(Level.DEBUG, "Sent a comment to Symphony");
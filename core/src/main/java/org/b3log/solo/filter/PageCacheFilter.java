@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.filter;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.b3log.latke.Keys;
+import org.b3log.latke.ioc.LatkeBeanManager;
+import org.b3log.latke.ioc.Lifecycle;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.service.ServiceException;
+import org.b3log.latke.servlet.HTTPRequestMethod;
+import org.b3log.latke.util.Requests;
+import org.b3log.solo.cache.PageCache;
+import org.b3log.solo.cache.PageCache.CachedPage;
+import org.b3log.solo.model.Article;
+import org.b3log.solo.service.ArticleMgmtService;
+import org.b3log.solo.util.ConditionalGets;
+import org.json.JSONObject;
+
+
+/**
+ * Page cache filter.
+ * 
+ * <p>
+ * Serves the pages rendered for anonymous visitors from {@link PageCache page cache}. If the requested page has not been
+ * cached, captures the rendered HTML and puts it into the cache if the processor marked the request 
+ * {@link PageCache#CACHEABLE cacheable}.
+ * </p>
+ *
+ * <p>
+ * The validators written by the processor (see {@link ConditionalGets}) are cached with the page, a cached page is 
+ * served with them and a conditional request holds the same page gets a 304 response.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.1.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+public final class PageCacheFilter implements Filter {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(PageCacheFilter.class.getName());
+
+    /**
+     * Maximum size of a page could be captured.
+     */
+    private static final int MAX_CAPTURE_SIZE = 1024 * 512;
+
+    @Override
+    public void init(final FilterConfig filterConfig) throws ServletException {}
+
+    /**
+     * Serves the requested page from page cache if cached, captures the rendered page otherwise.
+     *
+     * @param request the specified request
+     * @param response the specified response
+     * @param chain filter chain
+     * @throws IOException io exception
+     * @throws ServletException servlet exception
+     */
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain)
+        throws IOException, ServletException {
+        final HttpServletRequest httpServletRequest = (HttpServletRequest) request;
+        final HttpServletResponse httpServletResponse = (HttpServletResponse) response;
+
+        if (!HTTPRequestMethod.GET.name().equals(httpServletRequest.getMethod()) || !ConditionalGets.isAnonymous(httpServletRequest)) {
+            chain.doFilter(request, response);
+
+            return;
+        }
+
+        final LatkeBeanManager beanManager = Lifecycle.getBeanManager();
+        final PageCache pageCache = beanManager.getReference(PageCache.class);
+        final String key = PageCache.getKey(httpServletRequest);
+        final CachedPage cachedPage = pageCache.get(key);
+
+        if (null != cachedPage) {
+            LOGGER.log(Level.DEBUG, "Serves page from cache[key={0}]", key);
+
+            final String articleId = cachedPage.getArticleId();
+
+            if (null != articleId && !Requests.hasBeenServed(httpServletRequest, httpServletResponse)) {
+                try {
+                    beanManager.getReference(ArticleMgmtService.class).incViewCount(articleId);
+                } catch (final ServiceException e) {
+                    LOGGER.log(Level.ERROR, "Incs view count of article[id=" + articleId + "] failed", e);
+                }
+            }
+
+            final String eTag = cachedPage.getETag();
+
+            if (null != eTag && ConditionalGets.notModified(httpServletRequest, httpServletResponse, eTag, cachedPage.getLastModified())) {
+                return;
+            }
+
+            final byte[] content = cachedPage.getContent();
+
+            httpServletResponse.setContentType(cachedPage.getContentType());
+            httpServletResponse.setContentLength(content.length);
+
+            final ServletOutputStream outputStream = httpServletResponse.getOutputStream();
+
+            outputStream.write(content);
+            outputStream.flush();
+
+            return;
+        }
+
+        final long generation = pageCache.getGeneration();
+        final CaptureResponse captureResponse = new CaptureResponse(httpServletResponse);
+
+        chain.doFilter(request, captureResponse);
+        captureResponse.finish();
+
+        if (!Boolean.TRUE.equals(request.getAttribute(PageCache.CACHEABLE)) || !captureResponse.isCaptured()) {
+            return;
+        }
+
+        String articleId = null;
+        final JSONObject article = (JSONObject) request.getAttribute(Article.ARTICLE);
+
+        if (null != article) {
+            articleId = article.optString(Keys.OBJECT_ID);
+        }
+
+        final String eTag = (String) request.getAttribute(ConditionalGets.ETAG);
+        final Long lastModified = (Long) request.getAttribute(ConditionalGets.LAST_MODIFIED);
+
+        pageCache.put(key, generation,
+            new CachedPage(captureResponse.getContent(), captureResponse.getContentType(), articleId, eTag,
+            null == lastModified ? 0 : lastModified));
+    }
+
+    @Override
+    public void destroy() {}
+
+    /**
+     * HTTP servlet response wrapper captures the HTML written to the wrapped response.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class CaptureResponse extends HttpServletResponseWrapper {
+
+        /**
+         * Captured content, {@code null} if gave up capturing.
+         */
+        private ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+        /**
+         * Status code.
+         */
+        private int status = HttpServletResponse.SC_OK;
+
+        /**
+         * Output stream.
+         */
+        private ServletOutputStream outputStream;
+
+        /**
+         * Writer.
+         */
+        private PrintWriter writer;
+
+        /**
+         * Constructs a capture response with the specified response.
+         * 
+         * @param response the specified response
+         */
+        private CaptureResponse(final HttpServletResponse response) {
+            super(response);
+        }
+
+        /**
+         * Determines whether the response content has been captured completely.
+         * 
+         * @return {@code true} if captured, returns {@code false} otherwise
+         */
+        private boolean isCaptured() {
+            return null != captured && HttpServletResponse.SC_OK == status && 0 < captured.size();
+        }
+
+        /**
+         * Gets the captured content.
+         * 
+         * @return captured content
+         */
+        private byte[] getContent() {
+            return captured.toByteArray();
+        }
+
+        /**
+         * Flushes the writer if used.
+         */
+        private void finish() {
+            if (null != writer) {
+                writer.flush();
+            }
+        }
+
+        /**
+         * Writes the specified bytes into the captured content, gives up capturing if the content is not HTML or too 
+         * large.
+         * 
+         * @param bytes the specified bytes
+         * @param offset the specified offset
+         * @param length the specified length
+         */
+        private void capture(final byte[] bytes, final int offset, final int length) {
+            if (null == captured) {
+                return;
+            }
+
+            final String contentType = getContentType();
+
+            if (null == contentType || !contentType.startsWith("text/html")
+                || MAX_CAPTURE_SIZE < captured.size() + length) {
+                captured = null;
+
+                return;
+            }
+
+            captured.write(bytes, offset, length);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (null == outputStream) {
+                final ServletOutputStream wrapped = super.getOutputStream();
+
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(final int b) throws IOException {
+                        wrapped.write(b);
+                        capture(new byte[] {(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+                        wrapped.write(bytes, offset, length);
+                        capture(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        wrapped.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        wrapped.close();
+                    }
+                };
+            }
+
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (null == writer) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+
+            return writer;
+        }
+
+        @Override
+        public void setStatus(final int sc) {
+            super.setStatus(sc);
+            status = sc;
+        }
+
+        @Override
+        public void sendError(final int sc) throws IOException {
+            super.sendError(sc);
+            status = sc;
+        }
+
+        @Override
+        public void sendError(final int sc, final String msg) throws IOException {
+            super.sendError(sc, msg);
+            status = sc;
+        }
+
+        @Override
+        public void sendRedirect(final String location) throws IOException {
+            super.sendRedirect(location);
+            status = HttpServletResponse.SC_MOVED_TEMPORARILY;
+        }
+    }
+}
@@ -38,6 +38,7 @@ import org.b3log.latke.servlet.HTTPRequestContext;
 import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.servlet.HttpControl;
 import org.b3log.latke.servlet.renderer.HTTP500Renderer;
+import org.b3log.solo.cache.PermalinkIndex;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Page;
 import org.b3log.solo.repository.ArticleRepository;
@@ -53,7 +54,7 @@ import org.json.JSONObject;
  * Article/Page permalink filter.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.1.7, Jan 8, 2013
+ * @version 1.0.1.9, Nov 2, 2013
  * @since 0.3.1
  * @see org.b3log.solo.processor.ArticleProcessor#showArticle(org.b3log.latke.servlet.HTTPRequestContext, 
  * javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse) 
@@ -98,20 +99,46 @@ public final class PermalinkFilter implements Filter {
             return;
         }
 
-        JSONObject article;
+        JSONObject article = null;
         JSONObject page = null;
 
         final LatkeBeanManager beanManager = Lifecycle.getBeanManager();
 
         try {
+            final PermalinkIndex permalinkIndex = beanManager.getReference(PermalinkIndex.class);
             final ArticleRepository articleRepository = beanManager.getReference(ArticleRepositoryImpl.class);
+            final PageRepository pageRepository = beanManager.getReference(PageRepositoryImpl.class);
+            final PermalinkIndex.Target target = permalinkIndex.get(permalink);
+
+            if (null != target) { // Loads by id, the index entry may be stale
+                if (target.isArticle()) {
+                    article = articleRepository.get(target.getId());
+                    if (null != article && !permalink.equals(article.optString(Article.ARTICLE_PERMALINK))) {
+                        article = null;
+                    }
+                } else {
+                    page = pageRepository.get(target.getId());
+                    if (null != page && !permalink.equals(page.optString(Page.PAGE_PERMALINK))) {
+                        page = null;
+                    }
+                }
+            }
 
-            article = articleRepository.getByPermalink(permalink);
-            
-            if (null == article) {
-                final PageRepository pageRepository = beanManager.getReference(PageRepositoryImpl.class);
-         
-                page = pageRepository.getByPermalink(permalink);
+            if (null == page && null == article && !permalinkIndex.isMissed(permalink)) {
+                // Falls back to repository, the permalink may have been added on another node
+                article = articleRepository.getByPermalink(permalink);
+
+                if (null != article) {
+                    permalinkIndex.putArticle(article.optString(Keys.OBJECT_ID), permalink);
+                } else {
+                    page = pageRepository.getByPermalink(permalink);
+
+                    if (null != page) {
+                        permalinkIndex.putPage(page.optString(Keys.OBJECT_ID), permalink);
+                    } else {
+                        permalinkIndex.putMiss(permalink);
+                    }
+                }
             }
 
             if (null == page && null == article) {
@@ -21,7 +21,7 @@ package org.b3log.solo.model;
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
  * @author <a href="mailto:dongxu.wang@acm.org">Dongxu Wang</a>
- * @version 1.0.5.1, Jul 2, 2013
+ * @version 1.0.5.2, Nov 2, 2013
  * @since 0.3.1
  */
 public final class Common {
@@ -306,6 +306,11 @@ public final class Common {
      */
     public static final String GRAVATAR = "gravatar";
 
+    /**
+     * Key of comment page count.
+     */
+    public static final String COMMENT_PAGE_COUNT = "commentPageCount";
+
     /**
      * Private default constructor.
      */
@@ -20,7 +20,7 @@ package org.b3log.solo.model;
  * This class defines option model relevant keys.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.0, Apr 15, 2013
+ * @version 1.0.0.3, Nov 2, 2013
  * @since 0.6.0
  */
 public final class Option {
@@ -55,6 +55,21 @@ public final class Option {
      */
     public static final String CATEGORY_C_BROADCAST = "broadcast";
 
+    /**
+     * Event retry.
+     */
+    public static final String CATEGORY_C_EVENT_RETRY = "eventRetry";
+
+    /**
+     * Mail queue.
+     */
+    public static final String CATEGORY_C_MAIL_QUEUE = "mailQueue";
+
+    /**
+     * Mail sent time.
+     */
+    public static final String CATEGORY_C_MAIL_SENT = "mailSent";
+
     /**
      * Private constructor.
      */
@@ -16,6 +16,8 @@
 package org.b3log.solo.model.sitemap;
 
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -27,10 +29,16 @@ import java.util.List;
  * See <a href="http://www.sitemaps.org/protocol.php">Sitemap XML format</a> 
  * for more details.
  * </p>
+ * 
+ * <p>
+ * A large sitemap should be streamed by {@link #writeStart(java.io.Writer)}, {@link URL#toString()} for each URL and 
+ * {@link #writeEnd(java.io.Writer)} instead of holding all URLs in one sitemap object.
+ * </p>
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.1.0.0, Sep 22, 2011
+ * @version 1.1.1.0, Nov 2, 2013
  * @see URL
+ * @see SitemapIndex
  * @since 0.3.1
  */
 public final class Sitemap {
@@ -50,6 +58,11 @@ public final class Sitemap {
      */
     private static final String END_URL_SET_ELEMENT = "</urlset>";
 
+    /**
+     * Maximum count of URLs in one sitemap, see the protocol limits.
+     */
+    public static final int MAX_URL_COUNT = 50000;
+
     /**
      * URLs.
      */
@@ -79,4 +92,25 @@ public final class Sitemap {
 
         return stringBuilder.toString();
     }
+
+    /**
+     * Writes the start document and URL set element into the specified writer.
+     * 
+     * @param writer the specified writer
+     * @throws IOException io exception
+     */
+    public static void writeStart(final Writer writer) throws IOException {
+        writer.write(START_DOCUMENT);
+        writer.write(START_URL_SET_ELEMENT);
+    }
+
+    /**
+     * Writes the end URL set element into the specified writer.
+     * 
+     * @param writer the specified writer
+     * @throws IOException io exception
+     */
+    public static void writeEnd(final Writer writer) throws IOException {
+        writer.write(END_URL_SET_ELEMENT);
+    }
 }
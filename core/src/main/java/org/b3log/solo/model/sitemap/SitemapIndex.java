@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.model.sitemap;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Sitemap index.
+ *
+ * <p>
+ * See <a href="http://www.sitemaps.org/protocol.php#index">Using Sitemap index files</a> for more details.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @see Sitemap
+ * @since 0.6.5
+ */
+public final class SitemapIndex {
+
+    /**
+     * Start document.
+     */
+    private static final String START_DOCUMENT = "<?xml version='1.0' encoding='UTF-8'?>";
+
+    /**
+     * Start sitemap index element.
+     */
+    private static final String START_SITEMAP_INDEX_ELEMENT = "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">";
+
+    /**
+     * End sitemap index element.
+     */
+    private static final String END_SITEMAP_INDEX_ELEMENT = "</sitemapindex>";
+
+    /**
+     * Start sitemap element.
+     */
+    private static final String START_SITEMAP_ELEMENT = "<sitemap>";
+
+    /**
+     * End sitemap element.
+     */
+    private static final String END_SITEMAP_ELEMENT = "</sitemap>";
+
+    /**
+     * Start loc element.
+     */
+    private static final String START_LOC_ELEMENT = "<loc>";
+
+    /**
+     * End loc element.
+     */
+    private static final String END_LOC_ELEMENT = "</loc>";
+
+    /**
+     * Sitemap locs.
+     */
+    private List<String> locs = new ArrayList<String>();
+
+    /**
+     * Adds a sitemap with the specified loc.
+     * 
+     * @param loc the specified loc
+     */
+    public void addSitemap(final String loc) {
+        locs.add(loc);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        stringBuilder.append(START_DOCUMENT);
+        stringBuilder.append(START_SITEMAP_INDEX_ELEMENT);
+
+        for (final String loc : locs) {
+            stringBuilder.append(START_SITEMAP_ELEMENT);
+
+            stringBuilder.append(START_LOC_ELEMENT);
+            stringBuilder.append(loc);
+            stringBuilder.append(END_LOC_ELEMENT);
+
+            stringBuilder.append(END_SITEMAP_ELEMENT);
+        }
+
+        stringBuilder.append(END_SITEMAP_INDEX_ELEMENT);
+
+        return stringBuilder.toString();
+    }
+}
@@ -39,6 +39,7 @@ import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.servlet.URIPatternMode;
 import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
+import org.b3log.latke.servlet.renderer.DoNothingRenderer;
 import org.b3log.latke.servlet.renderer.JSONRenderer;
 import org.b3log.latke.servlet.renderer.TextHTMLRenderer;
 import org.b3log.latke.servlet.renderer.freemarker.AbstractFreeMarkerRenderer;
@@ -50,10 +51,13 @@ import org.b3log.latke.util.Requests;
 import org.b3log.latke.util.Stopwatchs;
 import org.b3log.latke.util.Strings;
 import org.b3log.solo.SoloServletListener;
+import org.b3log.solo.cache.PageCache;
+import org.b3log.solo.cache.ViewCountBuffer;
 import org.b3log.solo.model.*;
 import org.b3log.solo.processor.renderer.ConsoleRenderer;
 import org.b3log.solo.processor.util.Filler;
 import org.b3log.solo.service.*;
+import org.b3log.solo.util.ConditionalGets;
 import org.b3log.solo.util.Skins;
 import org.b3log.solo.util.Thumbnails;
 import org.b3log.solo.util.comparator.Comparators;
@@ -66,7 +70,7 @@ import org.jsoup.Jsoup;
  * Article processor.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.1.2.13, Oct 26, 2013
+ * @version 1.1.2.20, Nov 2, 2013
  * @since 0.3.1
  */
 @RequestProcessor
@@ -131,6 +135,12 @@ public class ArticleProcessor {
     @Inject
     private ArticleMgmtService articleMgmtService;
 
+    /**
+     * View count buffer.
+     */
+    @Inject
+    private ViewCountBuffer viewCountBuffer;
+
     /**
      * Shows the article view password form.
      * 
@@ -206,20 +216,18 @@ public class ArticleProcessor {
             final JSONObject article = articleQueryService.getArticleById(articleId);
 
             if (article.getString(Article.ARTICLE_VIEW_PWD).equals(pwdTyped)) {
-                final HttpSession session = request.getSession(false);
+                // Creates the session if need, visitors may have no session in stateless mode
+                final HttpSession session = request.getSession();
+                @SuppressWarnings("unchecked")
+                Map<String, String> viewPwds = (Map<String, String>) session.getAttribute(Common.ARTICLES_VIEW_PWD);
 
-                if (null != session) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, String> viewPwds = (Map<String, String>) session.getAttribute(Common.ARTICLES_VIEW_PWD);
+                if (null == viewPwds) {
+                    viewPwds = new HashMap<String, String>();
+                }
 
-                    if (null == viewPwds) {
-                        viewPwds = new HashMap<String, String>();
-                    }
+                viewPwds.put(articleId, pwdTyped);
 
-                    viewPwds.put(articleId, pwdTyped);
-
-                    session.setAttribute(Common.ARTICLES_VIEW_PWD, viewPwds);
-                }
+                session.setAttribute(Common.ARTICLES_VIEW_PWD, viewPwds);
 
                 response.sendRedirect(Latkes.getServePath() + article.getString(Article.ARTICLE_PERMALINK));
 
@@ -724,6 +732,8 @@ public class ArticleProcessor {
             filler.fillBlogFooter(request, dataModel, preference);
             filler.fillSide(request, dataModel, preference);
             Skins.fillLangs(preference.optString(Preference.LOCALE_STRING), (String) request.getAttribute(Keys.TEMAPLTE_DIR_NAME), dataModel);
+
+            request.setAttribute(PageCache.CACHEABLE, true);
         } catch (final ServiceException e) {
             LOGGER.log(Level.ERROR, e.getMessage(), e);
 
@@ -817,6 +827,8 @@ public class ArticleProcessor {
             filler.fillBlogHeader(request, response, dataModel, preference);
             filler.fillBlogFooter(request, dataModel, preference);
             filler.fillSide(request, dataModel, preference);
+
+            request.setAttribute(PageCache.CACHEABLE, true);
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, e.getMessage(), e);
 
@@ -873,6 +885,23 @@ public class ArticleProcessor {
         final String articleId = article.optString(Keys.OBJECT_ID);
 
         LOGGER.log(Level.DEBUG, "Article[id={0}]", articleId);
+
+        // Drafts and articles with view password are not validated, the same as PageCacheFilter
+        if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED) && Strings.isEmptyOrNull(article.optString(Article.ARTICLE_VIEW_PWD))
+            && ConditionalGets.notModified(request, response, ((Date) article.opt(Article.ARTICLE_UPDATE_DATE)).getTime())) {
+            context.setRenderer(new DoNothingRenderer());
+
+            if (!Requests.hasBeenServed(request, response)) {
+                try {
+                    articleMgmtService.incViewCount(articleId);
+                } catch (final ServiceException e) {
+                    LOGGER.log(Level.ERROR, "Incs view count of article[id=" + articleId + "] failed", e);
+                }
+            }
+
+            return;
+        }
+
         final AbstractFreeMarkerRenderer renderer = new FreeMarkerRenderer();
 
         context.setRenderer(renderer);
@@ -927,6 +956,14 @@ public class ArticleProcessor {
             if (!Requests.hasBeenServed(request, response)) {
                 articleMgmtService.incViewCount(articleId);
             }
+
+            // Merges the view count not flushed yet
+            article.put(Article.ARTICLE_VIEW_COUNT, article.optInt(Article.ARTICLE_VIEW_COUNT) + viewCountBuffer.getArticleDelta(articleId));
+
+            // Articles with view password or drafts are not cacheable, see PageCacheFilter
+            if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED) && Strings.isEmptyOrNull(article.optString(Article.ARTICLE_VIEW_PWD))) {
+                request.setAttribute(PageCache.CACHEABLE, true);
+            }
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, e.getMessage(), e);
 
@@ -1280,12 +1317,13 @@ public class ArticleProcessor {
         final int cmtCount = article.getInt(Article.ARTICLE_COMMENT_COUNT);
 
         if (0 != cmtCount) {
-            final List<JSONObject> articleComments = commentQueryService.getComments(articleId);
+            final List<JSONObject> articleComments = commentQueryService.getComments(articleId, 1);
 
             dataModel.put(Article.ARTICLE_COMMENTS_REF, articleComments);
         } else {
             dataModel.put(Article.ARTICLE_COMMENTS_REF, Collections.emptyList());
         }
+        dataModel.put(Common.COMMENT_PAGE_COUNT, CommentQueryService.getCommentPageCount(cmtCount));
         LOGGER.debug("Got article's comments");
         Stopwatchs.end();
 
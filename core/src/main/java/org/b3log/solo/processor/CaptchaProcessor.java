@@ -16,33 +16,20 @@
 package org.b3log.solo.processor;
 
 
-import java.io.BufferedInputStream;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.URL;
-import java.util.Enumeration;
-import java.util.Random;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
-import org.apache.commons.io.IOUtils;
-import org.b3log.latke.Latkes;
-import org.b3log.latke.RuntimeEnv;
-import org.b3log.latke.image.Image;
-import org.b3log.latke.image.ImageService;
-import org.b3log.latke.image.ImageServiceFactory;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
 import org.b3log.latke.servlet.HTTPRequestContext;
 import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
-import org.b3log.latke.servlet.renderer.PNGRenderer;
-import org.b3log.solo.SoloServletListener;
+import org.b3log.latke.servlet.renderer.DoNothingRenderer;
+import org.b3log.solo.cache.CaptchaPool;
+import org.b3log.solo.cache.CaptchaPool.Captcha;
 
 
 /**
@@ -54,7 +41,7 @@ import org.b3log.solo.SoloServletListener;
  * </p>
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.1.0.3, Jan 4, 2013
+ * @version 1.1.1.0, Nov 2, 2013
  * @since 0.3.1
  */
 @RequestProcessor
@@ -65,25 +52,16 @@ public class CaptchaProcessor {
      */
     private static final Logger LOGGER = Logger.getLogger(CaptchaProcessor.class.getName());
 
-    /**
-     * Images service.
-     */
-    private static final ImageService IMAGE_SERVICE = ImageServiceFactory.getImageService();
-
     /**
      * Key of captcha.
      */
     public static final String CAPTCHA = "captcha";
 
     /**
-     * Captchas.
+     * Captcha pool.
      */
-    private Image[] captchas;
-
-    /**
-     * Count of static captchas.
-     */
-    private static final int CAPTCHA_COUNT = 100;
+    @Inject
+    private CaptchaPool captchaPool;
 
     /**
      * Gets captcha.
@@ -92,96 +70,33 @@ public class CaptchaProcessor {
      */
     @RequestProcessing(value = "/captcha.do", method = HTTPRequestMethod.GET)
     public void get(final HTTPRequestContext context) {
-        final PNGRenderer renderer = new PNGRenderer();
-
-        context.setRenderer(renderer);
-
-        if (null == captchas) {
-            loadCaptchas();
-        }
+        context.setRenderer(new DoNothingRenderer());
 
         try {
             final HttpServletRequest request = context.getRequest();
             final HttpServletResponse response = context.getResponse();
 
-            final Random random = new Random();
-            final int index = random.nextInt(CAPTCHA_COUNT);
-            final Image captchaImg = captchas[index];
-            final String captcha = captchaImg.getName();
+            final Captcha captcha = captchaPool.random();
 
-            final HttpSession httpSession = request.getSession(false);
+            // Creates the session if need, visitors may have no session in stateless mode. The skins request the captcha
+            // only while the comment form is used (see page.js), so just reading an article creates no session
+            final HttpSession httpSession = request.getSession();
 
-            if (null != httpSession) {
-                LOGGER.log(Level.DEBUG, "Captcha[{0}] for session[id={1}]", new Object[] {captcha, httpSession.getId()});
-                httpSession.setAttribute(CAPTCHA, captcha);
-            }
+            LOGGER.log(Level.DEBUG, "Captcha[{0}] for session[id={1}]", new Object[] {captcha.getAnswer(), httpSession.getId()});
+            httpSession.setAttribute(CAPTCHA, captcha.getAnswer());
 
             response.setHeader("Pragma", "no-cache");
             response.setHeader("Cache-Control", "no-cache");
             response.setDateHeader("Expires", 0);
+            response.setContentType(captcha.getContentType());
+            response.setContentLength(captcha.getData().length);
 
-            renderer.setImage(captchaImg);
-        } catch (final Exception e) {
-            LOGGER.log(Level.ERROR, e.getMessage(), e);
-        }
-    }
-
-    /**
-     * Loads captcha.
-     */
-    private synchronized void loadCaptchas() {
-        LOGGER.info("Loading captchas....");
-
-        try {
-            captchas = new Image[CAPTCHA_COUNT];
-
-            ZipFile zipFile;
-
-            if (RuntimeEnv.LOCAL == Latkes.getRuntimeEnv()) {
-                final InputStream inputStream = SoloServletListener.class.getClassLoader().getResourceAsStream("captcha_static.zip");
-                final File file = File.createTempFile("b3log_captcha_static", null);
-                final OutputStream outputStream = new FileOutputStream(file);
-
-                IOUtils.copy(inputStream, outputStream);
-                zipFile = new ZipFile(file);
-                
-                IOUtils.closeQuietly(inputStream);
-                IOUtils.closeQuietly(outputStream);
-            } else {
-                final URL captchaURL = SoloServletListener.class.getClassLoader().getResource("captcha_static.zip");
-
-                zipFile = new ZipFile(captchaURL.getFile());
-            }
-
-            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
-
-            int i = 0;
-
-            while (entries.hasMoreElements()) {
-                final ZipEntry entry = entries.nextElement();
-
-                final BufferedInputStream bufferedInputStream = new BufferedInputStream(zipFile.getInputStream(entry));
-                final byte[] captchaCharData = new byte[bufferedInputStream.available()];
+            final OutputStream outputStream = response.getOutputStream();
 
-                bufferedInputStream.read(captchaCharData);
-                bufferedInputStream.close();
-
-                final Image image = IMAGE_SERVICE.makeImage(captchaCharData);
-
-                image.setName(entry.getName().substring(0, entry.getName().lastIndexOf('.')));
-
-                captchas[i] = image;
-
-                i++;
-            }
-
-            zipFile.close();
+            outputStream.write(captcha.getData());
+            outputStream.flush();
         } catch (final Exception e) {
-            LOGGER.error("Can not load captchs!");
-
-            throw new IllegalStateException(e);
+            LOGGER.log(Level.ERROR, e.getMessage(), e);
         }
-
-        LOGGER.info("Loaded captch images");
     }
 }
@@ -17,28 +17,37 @@ package org.b3log.solo.processor;
 
 
 import java.io.IOException;
+import java.util.List;
 import javax.inject.Inject;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import org.b3log.latke.Keys;
+import org.b3log.latke.Latkes;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
+import org.b3log.latke.model.Pagination;
 import org.b3log.latke.model.User;
 import org.b3log.latke.service.LangPropsService;
 import org.b3log.latke.servlet.HTTPRequestContext;
 import org.b3log.latke.servlet.HTTPRequestMethod;
+import org.b3log.latke.servlet.URIPatternMode;
 import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
 import org.b3log.latke.servlet.renderer.JSONRenderer;
 import org.b3log.latke.util.Requests;
+import org.b3log.latke.util.Stopwatchs;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Comment;
 import org.b3log.solo.model.Common;
 import org.b3log.solo.model.Page;
+import org.b3log.solo.service.ArticleQueryService;
 import org.b3log.solo.service.CommentMgmtService;
+import org.b3log.solo.service.CommentQueryService;
+import org.b3log.solo.service.PageQueryService;
 import org.b3log.solo.service.UserQueryService;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 
@@ -47,7 +56,7 @@ import org.json.JSONObject;
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
  * @author ArmstrongCN
- * @version 1.1.0.12, Oct 26, 2013
+ * @version 1.1.1.1, Nov 2, 2013
  * @since 0.3.1
  */
 @RequestProcessor
@@ -70,6 +79,24 @@ public class CommentProcessor {
     @Inject
     private CommentMgmtService commentMgmtService;
 
+    /**
+     * Comment query service.
+     */
+    @Inject
+    private CommentQueryService commentQueryService;
+
+    /**
+     * Article query service.
+     */
+    @Inject
+    private ArticleQueryService articleQueryService;
+
+    /**
+     * Page query service.
+     */
+    @Inject
+    private PageQueryService pageQueryService;
+
     /**
      * User query service.
      */
@@ -262,6 +289,106 @@ public class CommentProcessor {
         }
     }
 
+    /**
+     * Gets comments paged of an article or page with the specified context.
+     * 
+     * <p>
+     * Request URI is /comments/${onId}/${currentPageNum}, skins could lazy load the older comments pages with it. A 
+     * page past the end renders no comments.
+     * </p>
+     * 
+     * <p> Renders the response with a json object, for example,
+     * <pre>
+     * {
+     *     "sc": boolean,
+     *     "comments": [{
+     *         "oId": "",
+     *         "commentName": "",
+     *         "commentURL": "",
+     *         "commentThumbnailURL": "",
+     *         "commentContent": "",
+     *         "commentTime": long,
+     *         "commentSharpURL": "",
+     *         "isReply": boolean,
+     *         "commentOriginalCommentId": "",
+     *         "commentOriginalCommentName": ""
+     *      }, ....],
+     *     "pagination": {
+     *         "paginationPageCount": int
+     *     }
+     * }
+     * </pre> </p>
+     * 
+     * @param context the specified context
+     * @param request the specified request
+     */
+    @RequestProcessing(value = "/comments/\\d+/\\d+", uriPatternsMode = URIPatternMode.REGEX, method = HTTPRequestMethod.GET)
+    public void getCommentsByPage(final HTTPRequestContext context, final HttpServletRequest request) {
+        final JSONObject jsonObject = new JSONObject();
+
+        final JSONRenderer renderer = new JSONRenderer();
+
+        context.setRenderer(renderer);
+        renderer.setJSONObject(jsonObject);
+
+        final String path = request.getRequestURI().substring((Latkes.getContextPath() + "/comments/").length());
+        final String onId = path.substring(0, path.indexOf('/'));
+        final int currentPageNum = Requests.getCurrentPageNum(path.substring(path.indexOf('/') + 1));
+
+        Stopwatchs.start("Get Comments Paged[onId=" + onId + ", pageNum=" + currentPageNum + ']');
+
+        try {
+            jsonObject.put(Keys.STATUS_CODE, false);
+
+            int commentCount;
+            final JSONObject article = articleQueryService.getArticleById(onId);
+
+            if (null != article) {
+                if (!article.optBoolean(Article.ARTICLE_IS_PUBLISHED) || articleQueryService.needViewPwd(request, article)) {
+                    return;
+                }
+
+                commentCount = article.optInt(Article.ARTICLE_COMMENT_COUNT);
+            } else {
+                final JSONObject result = pageQueryService.getPage(onId);
+
+                if (null == result) {
+                    return;
+                }
+
+                commentCount = result.getJSONObject(Page.PAGE).optInt(Page.PAGE_COMMENT_COUNT);
+            }
+
+            final int pageCount = CommentQueryService.getCommentPageCount(commentCount);
+            final JSONObject pagination = new JSONObject();
+
+            pagination.put(Pagination.PAGINATION_PAGE_COUNT, pageCount);
+            jsonObject.put(Pagination.PAGINATION, pagination);
+
+            if (currentPageNum > pageCount) {
+                jsonObject.put(Comment.COMMENTS, new JSONArray());
+                jsonObject.put(Keys.STATUS_CODE, true);
+
+                return;
+            }
+
+            final List<JSONObject> comments = commentQueryService.getComments(onId, currentPageNum);
+
+            for (final JSONObject comment : comments) {
+                comment.remove(Comment.COMMENT_EMAIL);
+                comment.remove(Comment.COMMENT_DATE);
+            }
+
+            jsonObject.put(Comment.COMMENTS, comments);
+            jsonObject.put(Keys.STATUS_CODE, true);
+        } catch (final Exception e) {
+            jsonObject.put(Keys.STATUS_CODE, false);
+            LOGGER.log(Level.ERROR, "Gets comments paged failed", e);
+        } finally {
+            Stopwatchs.end();
+        }
+    }
+
     /**
      * Fills commenter info if logged in.
      *
@@ -17,6 +17,7 @@ package org.b3log.solo.processor;
 
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -26,6 +27,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.b3log.latke.Keys;
 import org.b3log.latke.Latkes;
+import org.b3log.latke.RuntimeEnv;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
 import org.b3log.latke.model.User;
@@ -40,11 +42,12 @@ import org.b3log.latke.servlet.HTTPRequestContext;
 import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
-import org.b3log.latke.servlet.renderer.AtomRenderer;
-import org.b3log.latke.servlet.renderer.RssRenderer;
+import org.b3log.latke.servlet.renderer.DoNothingRenderer;
 import org.b3log.latke.util.Locales;
 import org.b3log.latke.util.Strings;
 import org.b3log.solo.SoloServletListener;
+import org.b3log.solo.cache.FeedCache;
+import org.b3log.solo.cache.FeedCache.CachedFeed;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Preference;
 import org.b3log.solo.model.Tag;
@@ -59,15 +62,21 @@ import org.b3log.solo.repository.TagRepository;
 import org.b3log.solo.service.ArticleQueryService;
 import org.b3log.solo.service.PreferenceQueryService;
 import org.b3log.solo.service.UserQueryService;
+import org.b3log.solo.util.ConditionalGets;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 
 /**
  * Feed (Atom/RSS) processor.
+ * 
+ * <p>
+ * The generated feeds are cached in {@link FeedCache} until articles or preference changed, and served with 
+ * {@code ETag}/{@code Last-Modified} headers, an unchanged poll will get a 304 response.
+ * </p>
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.1.0.4, May 17, 2013
+ * @version 1.1.1.1, Nov 2, 2013
  * @since 0.3.1
  */
 @RequestProcessor
@@ -78,6 +87,26 @@ public class FeedProcessor {
      */
     private static final Logger LOGGER = Logger.getLogger(FeedProcessor.class.getName());
 
+    /**
+     * Atom feed cache key (prefix).
+     */
+    private static final String ATOM = "atom";
+
+    /**
+     * RSS feed cache key (prefix).
+     */
+    private static final String RSS = "rss";
+
+    /**
+     * Atom content type.
+     */
+    private static final String ATOM_CONTENT_TYPE = "application/atom+xml; charset=UTF-8";
+
+    /**
+     * RSS content type.
+     */
+    private static final String RSS_CONTENT_TYPE = "application/rss+xml; charset=UTF-8";
+
     /**
      * Article query service.
      */
@@ -114,6 +143,12 @@ public class FeedProcessor {
     @Inject
     private TagArticleRepository tagArticleRepository;
 
+    /**
+     * Feed cache.
+     */
+    @Inject
+    private FeedCache feedCache;
+
     /**
      * Blog articles Atom output.
      * 
@@ -121,86 +156,18 @@ public class FeedProcessor {
      */
     @RequestProcessing(value = { "/blog-articles-feed.do"}, method = { HTTPRequestMethod.GET, HTTPRequestMethod.HEAD})
     public void blogArticlesAtom(final HTTPRequestContext context) {
-        final AtomRenderer renderer = new AtomRenderer();
-
-        context.setRenderer(renderer);
-
-        final Feed feed = new Feed();
+        context.setRenderer(new DoNothingRenderer());
 
         try {
-            final JSONObject preference = preferenceQueryService.getPreference();
-
-            final String blogTitle = preference.getString(Preference.BLOG_TITLE);
-            final String blogSubtitle = preference.getString(Preference.BLOG_SUBTITLE);
-            final int outputCnt = preference.getInt(Preference.FEED_OUTPUT_CNT);
-
-            feed.setTitle(StringEscapeUtils.escapeXml(blogTitle));
-            feed.setSubtitle(StringEscapeUtils.escapeXml(blogSubtitle));
-            feed.setUpdated(new Date());
-            feed.setAuthor(StringEscapeUtils.escapeXml(blogTitle));
-            feed.setLink(Latkes.getServePath() + "/blog-articles-feed.do");
-            feed.setId(Latkes.getServePath() + "/");
-
-            final List<Filter> filters = new ArrayList<Filter>();
-
-            filters.add(new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, true));
-            filters.add(new PropertyFilter(Article.ARTICLE_VIEW_PWD, FilterOperator.EQUAL, ""));
-            final Query query = new Query().setCurrentPageNum(1).setPageSize(outputCnt).setFilter(new CompositeFilter(CompositeFilterOperator.AND, filters)).addSort(Article.ARTICLE_UPDATE_DATE, SortDirection.DESCENDING).setPageCount(
-                1);
+            CachedFeed feed = feedCache.get(ATOM);
 
-            final boolean hasMultipleUsers = userQueryService.hasMultipleUsers();
-            String authorName = "";
+            if (null == feed) {
+                final long generation = feedCache.getGeneration();
 
-            final JSONObject articleResult = articleRepository.get(query);
-            final JSONArray articles = articleResult.getJSONArray(Keys.RESULTS);
-
-            if (!hasMultipleUsers && 0 != articles.length()) {
-                authorName = articleQueryService.getAuthor(articles.getJSONObject(0)).getString(User.USER_NAME);
+                feed = feedCache.put(ATOM, generation, genBlogArticlesAtom());
             }
 
-            final boolean isFullContent = "fullContent".equals(preference.getString(Preference.FEED_OUTPUT_MODE));
-
-            for (int i = 0; i < articles.length(); i++) {
-                final JSONObject article = articles.getJSONObject(i);
-                final Entry entry = new Entry();
-
-                feed.addEntry(entry);
-                final String title = StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_TITLE));
-
-                entry.setTitle(title);
-                final String summary = isFullContent
-                    ? StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_CONTENT))
-                    : StringEscapeUtils.escapeXml(article.optString(Article.ARTICLE_ABSTRACT));
-
-                entry.setSummary(summary);
-                final Date updated = (Date) article.get(Article.ARTICLE_UPDATE_DATE);
-
-                entry.setUpdated(updated);
-
-                final String link = Latkes.getServePath() + article.getString(Article.ARTICLE_PERMALINK);
-
-                entry.setLink(link);
-                entry.setId(link);
-
-                if (hasMultipleUsers) {
-                    authorName = StringEscapeUtils.escapeXml(articleQueryService.getAuthor(article).getString(User.USER_NAME));
-                }
-                entry.setAuthor(authorName);
-
-                final String tagsString = article.getString(Article.ARTICLE_TAGS_REF);
-                final String[] tagStrings = tagsString.split(",");
-
-                for (int j = 0; j < tagStrings.length; j++) {
-                    final Category catetory = new Category();
-
-                    entry.addCatetory(catetory);
-                    final String tag = tagStrings[j];
-
-                    catetory.setTerm(tag);
-                }
-            }
-
-            renderer.setContent(feed.toString());
+            writeFeed(context, feed, ATOM_CONTENT_TYPE);
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, "Get blog article feed error", e);
 
@@ -220,9 +187,7 @@ public class FeedProcessor {
      */
     @RequestProcessing(value = { "/tag-articles-feed.do"}, method = { HTTPRequestMethod.GET, HTTPRequestMethod.HEAD})
     public void tagArticlesAtom(final HTTPRequestContext context) throws IOException {
-        final AtomRenderer renderer = new AtomRenderer();
-
-        context.setRenderer(renderer);
+        context.setRenderer(new DoNothingRenderer());
 
         final HttpServletRequest request = context.getRequest();
         final HttpServletResponse response = context.getResponse();
@@ -237,107 +202,114 @@ public class FeedProcessor {
         final String oIdMap = queryString.split("&")[0];
         final String tagId = oIdMap.split("=")[1];
 
-        final Feed feed = new Feed();
-
         try {
-            final JSONObject tag = tagRepository.get(tagId);
-
-            if (null == tag) {
-                response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                return;
-            }
+            final String key = ATOM + ':' + tagId;
+            CachedFeed feed = feedCache.get(key);
 
-            final String tagTitle = tag.getString(Tag.TAG_TITLE);
+            if (null == feed) {
+                final long generation = feedCache.getGeneration();
+                final String content = genTagArticlesAtom(tagId);
 
-            final JSONObject preference = preferenceQueryService.getPreference();
+                if (null == content) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
+                }
 
-            if (null == preference) {
-                response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                return;
+                feed = feedCache.put(key, generation, content);
             }
 
-            final String blogTitle = preference.getString(Preference.BLOG_TITLE);
-            final String blogSubtitle = preference.getString(Preference.BLOG_SUBTITLE) + ", " + tagTitle;
-            final int outputCnt = preference.getInt(Preference.FEED_OUTPUT_CNT);
+            writeFeed(context, feed, ATOM_CONTENT_TYPE);
+        } catch (final Exception e) {
+            LOGGER.log(Level.ERROR, "Get tag article feed error", e);
 
-            feed.setTitle(StringEscapeUtils.escapeXml(blogTitle));
-            feed.setSubtitle(StringEscapeUtils.escapeXml(blogSubtitle));
-            feed.setUpdated(new Date());
-            feed.setAuthor(StringEscapeUtils.escapeXml(blogTitle));
-            feed.setLink(Latkes.getServePath() + "/tag-articles-feed.do");
-            feed.setId(Latkes.getServePath() + "/");
+            try {
+                context.getResponse().sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
 
-            final JSONObject tagArticleResult = tagArticleRepository.getByTagId(tagId, 1, outputCnt);
-            final JSONArray tagArticleRelations = tagArticleResult.getJSONArray(Keys.RESULTS);
+    /**
+     * Blog articles RSS output.
+     * 
+     * @param context the specified context
+     */
+    @RequestProcessing(value = { "/blog-articles-rss.do"}, method = { HTTPRequestMethod.GET, HTTPRequestMethod.HEAD})
+    public void blogArticlesRSS(final HTTPRequestContext context) {
+        final HttpServletResponse response = context.getResponse();
 
-            if (0 == tagArticleRelations.length()) {
-                response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                return;
-            }
+        context.setRenderer(new DoNothingRenderer());
 
-            final List<JSONObject> articles = new ArrayList<JSONObject>();
+        try {
+            CachedFeed feed = feedCache.get(RSS);
 
-            for (int i = 0; i < tagArticleRelations.length(); i++) {
-                final JSONObject tagArticleRelation = tagArticleRelations.getJSONObject(i);
-                final String articleId = tagArticleRelation.getString(Article.ARTICLE + "_" + Keys.OBJECT_ID);
-                final JSONObject article = articleRepository.get(articleId);
+            if (null == feed) {
+                final long generation = feedCache.getGeneration();
+                final String content = genBlogArticlesRSS();
 
-                if (article.getBoolean(Article.ARTICLE_IS_PUBLISHED) // Skips the unpublished article
-                    && Strings.isEmptyOrNull(article.optString(Article.ARTICLE_VIEW_PWD))) { // Skips article with password
-                    articles.add(article);
+                if (null == content) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
                 }
+
+                feed = feedCache.put(RSS, generation, content);
             }
 
-            final boolean hasMultipleUsers = userQueryService.hasMultipleUsers();
-            String authorName = "";
+            writeFeed(context, feed, RSS_CONTENT_TYPE);
+        } catch (final Exception e) {
+            LOGGER.log(Level.ERROR, "Get blog article rss error", e);
 
-            if (!hasMultipleUsers && !articles.isEmpty()) {
-                authorName = articleQueryService.getAuthor(articles.get(0)).getString(User.USER_NAME);
+            try {
+                context.getResponse().sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex);
             }
+        }
+    }
 
-            final boolean isFullContent = "fullContent".equals(preference.getString(Preference.FEED_OUTPUT_MODE));
+    /**
+     * Tag articles RSS output.
+     * 
+     * @param context the specified context
+     * @throws IOException io exception 
+     */
+    @RequestProcessing(value = { "/tag-articles-rss.do"}, method = { HTTPRequestMethod.GET, HTTPRequestMethod.HEAD})
+    public void tagArticlesRSS(final HTTPRequestContext context) throws IOException {
+        final HttpServletResponse response = context.getResponse();
+        final HttpServletRequest request = context.getRequest();
 
-            for (int i = 0; i < articles.size(); i++) {
-                final JSONObject article = articles.get(i);
-                final Entry entry = new Entry();
+        context.setRenderer(new DoNothingRenderer());
 
-                feed.addEntry(entry);
-                final String title = StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_TITLE));
+        final String queryString = request.getQueryString();
 
-                entry.setTitle(title);
-                final String summary = isFullContent
-                    ? StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_CONTENT))
-                    : StringEscapeUtils.escapeXml(article.optString(Article.ARTICLE_ABSTRACT));
+        if (Strings.isEmptyOrNull(queryString)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
 
-                entry.setSummary(summary);
-                final Date updated = (Date) article.get(Article.ARTICLE_UPDATE_DATE);
+        final String oIdMap = queryString.split("&")[0];
+        final String tagId = oIdMap.split("=")[1];
 
-                entry.setUpdated(updated);
-                final String link = Latkes.getServePath() + article.getString(Article.ARTICLE_PERMALINK);
+        try {
+            final String key = RSS + ':' + tagId;
+            CachedFeed feed = feedCache.get(key);
 
-                entry.setLink(link);
-                entry.setId(link);
+            if (null == feed) {
+                final long generation = feedCache.getGeneration();
+                final String content = genTagArticlesRSS(tagId);
 
-                if (hasMultipleUsers) {
-                    authorName = StringEscapeUtils.escapeXml(articleQueryService.getAuthor(article).getString(User.USER_NAME));
+                if (null == content) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
                 }
 
-                entry.setAuthor(authorName);
-
-                final String tagsString = article.getString(Article.ARTICLE_TAGS_REF);
-                final String[] tagStrings = tagsString.split(",");
-
-                for (int j = 0; j < tagStrings.length; j++) {
-                    final Category catetory = new Category();
-
-                    entry.addCatetory(catetory);
-                    catetory.setTerm(tagStrings[j]);
-                }
+                feed = feedCache.put(key, generation, content);
             }
 
-            renderer.setContent(feed.toString());
+            writeFeed(context, feed, RSS_CONTENT_TYPE);
         } catch (final Exception e) {
-            LOGGER.log(Level.ERROR, "Get tag article feed error", e);
+            LOGGER.log(Level.ERROR, "Get tag article rss error", e);
 
             try {
                 context.getResponse().sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
@@ -348,255 +320,457 @@ public class FeedProcessor {
     }
 
     /**
-     * Blog articles RSS output.
+     * Writes the specified feed with the specified content type into the response of the specified context.
+     * 
+     * <p>
+     * Responses 304 if the client holds the same feed (by {@code If-None-Match} or {@code If-Modified-Since}), writes 
+     * the gzipped content if the client accepts it. The gzipped and the identity content have different entity tags.
+     * </p>
      * 
      * @param context the specified context
+     * @param feed the specified feed
+     * @param contentType the specified content type
+     * @throws IOException io exception
      */
-    @RequestProcessing(value = { "/blog-articles-rss.do"}, method = { HTTPRequestMethod.GET, HTTPRequestMethod.HEAD})
-    public void blogArticlesRSS(final HTTPRequestContext context) {
+    private static void writeFeed(final HTTPRequestContext context, final CachedFeed feed, final String contentType)
+        throws IOException {
+        final HttpServletRequest request = context.getRequest();
         final HttpServletResponse response = context.getResponse();
-        final RssRenderer renderer = new RssRenderer();
 
-        context.setRenderer(renderer);
+        boolean gzip = false;
 
-        final Channel channel = new Channel();
+        if (RuntimeEnv.GAE != Latkes.getRuntimeEnv()) { // GAE front end compresses responses by itself
+            response.setHeader("Vary", "Accept-Encoding");
 
-        try {
-            final JSONObject preference = preferenceQueryService.getPreference();
+            final String acceptEncoding = request.getHeader("Accept-Encoding");
 
-            if (null == preference) {
-                response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                return;
-            }
+            gzip = null != acceptEncoding && acceptEncoding.contains("gzip");
+        }
 
-            final String blogTitle = preference.getString(Preference.BLOG_TITLE);
-            final String blogSubtitle = preference.getString(Preference.BLOG_SUBTITLE);
-            final int outputCnt = preference.getInt(Preference.FEED_OUTPUT_CNT);
+        if (ConditionalGets.notModified(request, response, gzip ? feed.getGzippedETag() : feed.getETag(), feed.getLastModified())) {
+            return;
+        }
 
-            channel.setTitle(StringEscapeUtils.escapeXml(blogTitle));
-            channel.setLastBuildDate(new Date());
-            channel.setLink(Latkes.getServePath());
-            channel.setAtomLink(Latkes.getServePath() + "/blog-articles-rss.do");
-            channel.setGenerator("B3log Solo, ver " + SoloServletListener.VERSION);
-            final String localeString = preference.getString(Preference.LOCALE_STRING);
-            final String country = Locales.getCountry(localeString).toLowerCase();
-            final String language = Locales.getLanguage(localeString).toLowerCase();
+        response.setContentType(contentType);
 
-            channel.setLanguage(language + '-' + country);
-            channel.setDescription(blogSubtitle);
+        byte[] content = feed.getContent();
 
-            final List<Filter> filters = new ArrayList<Filter>();
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            content = feed.getGzippedContent();
+        }
 
-            filters.add(new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, true));
-            filters.add(new PropertyFilter(Article.ARTICLE_VIEW_PWD, FilterOperator.EQUAL, ""));
-            final Query query = new Query().setCurrentPageNum(1).setPageSize(outputCnt).setFilter(new CompositeFilter(CompositeFilterOperator.AND, filters)).addSort(Article.ARTICLE_UPDATE_DATE, SortDirection.DESCENDING).setPageCount(
-                1);
+        response.setContentLength(content.length);
 
-            final JSONObject articleResult = articleRepository.get(query);
-            final JSONArray articles = articleResult.getJSONArray(Keys.RESULTS);
+        if (HTTPRequestMethod.HEAD.name().equals(request.getMethod())) {
+            return;
+        }
 
-            final boolean hasMultipleUsers = userQueryService.hasMultipleUsers();
-            String authorName = "";
+        final OutputStream outputStream = response.getOutputStream();
 
-            if (!hasMultipleUsers && 0 != articles.length()) {
-                authorName = articleQueryService.getAuthor(articles.getJSONObject(0)).getString(User.USER_NAME);
-            }
+        outputStream.write(content);
+        outputStream.flush();
+    }
 
-            final boolean isFullContent = "fullContent".equals(preference.getString(Preference.FEED_OUTPUT_MODE));
+    /**
+     * Generates blog articles Atom.
+     * 
+     * @return Atom content
+     * @throws Exception exception
+     */
+    private String genBlogArticlesAtom() throws Exception {
+        final Feed feed = new Feed();
+        final JSONObject preference = preferenceQueryService.getPreference();
 
-            for (int i = 0; i < articles.length(); i++) {
-                final JSONObject article = articles.getJSONObject(i);
-                final Item item = new Item();
+        final String blogTitle = preference.getString(Preference.BLOG_TITLE);
+        final String blogSubtitle = preference.getString(Preference.BLOG_SUBTITLE);
+        final int outputCnt = preference.getInt(Preference.FEED_OUTPUT_CNT);
 
-                channel.addItem(item);
-                final String title = StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_TITLE));
+        feed.setTitle(StringEscapeUtils.escapeXml(blogTitle));
+        feed.setSubtitle(StringEscapeUtils.escapeXml(blogSubtitle));
+        feed.setUpdated(new Date());
+        feed.setAuthor(StringEscapeUtils.escapeXml(blogTitle));
+        feed.setLink(Latkes.getServePath() + "/blog-articles-feed.do");
+        feed.setId(Latkes.getServePath() + "/");
 
-                item.setTitle(title);
-                final String description = isFullContent
-                    ? StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_CONTENT))
-                    : StringEscapeUtils.escapeXml(article.optString(Article.ARTICLE_ABSTRACT));
+        final List<Filter> filters = new ArrayList<Filter>();
 
-                item.setDescription(description);
-                final Date pubDate = (Date) article.get(Article.ARTICLE_UPDATE_DATE);
+        filters.add(new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, true));
+        filters.add(new PropertyFilter(Article.ARTICLE_VIEW_PWD, FilterOperator.EQUAL, ""));
+        final Query query = new Query().setCurrentPageNum(1).setPageSize(outputCnt).setFilter(new CompositeFilter(CompositeFilterOperator.AND, filters)).addSort(Article.ARTICLE_UPDATE_DATE, SortDirection.DESCENDING).setPageCount(
+            1);
 
-                item.setPubDate(pubDate);
-                final String link = Latkes.getServePath() + article.getString(Article.ARTICLE_PERMALINK);
+        final boolean hasMultipleUsers = userQueryService.hasMultipleUsers();
+        String authorName = "";
 
-                item.setLink(link);
-                item.setGUID(link);
+        final JSONObject articleResult = articleRepository.get(query);
+        final JSONArray articles = articleResult.getJSONArray(Keys.RESULTS);
 
-                final String authorEmail = article.getString(Article.ARTICLE_AUTHOR_EMAIL);
+        if (!hasMultipleUsers && 0 != articles.length()) {
+            authorName = articleQueryService.getAuthor(articles.getJSONObject(0)).getString(User.USER_NAME);
+        }
 
-                if (hasMultipleUsers) {
-                    authorName = StringEscapeUtils.escapeXml(articleQueryService.getAuthor(article).getString(User.USER_NAME));
-                }
+        final boolean isFullContent = "fullContent".equals(preference.getString(Preference.FEED_OUTPUT_MODE));
 
-                item.setAuthor(authorEmail + "(" + authorName + ")");
+        for (int i = 0; i < articles.length(); i++) {
+            final JSONObject article = articles.getJSONObject(i);
+            final Entry entry = new Entry();
 
-                final String tagsString = article.getString(Article.ARTICLE_TAGS_REF);
-                final String[] tagStrings = tagsString.split(",");
+            feed.addEntry(entry);
+            final String title = StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_TITLE));
 
-                for (int j = 0; j < tagStrings.length; j++) {
-                    final org.b3log.solo.model.feed.rss.Category catetory = new org.b3log.solo.model.feed.rss.Category();
+            entry.setTitle(title);
+            final String summary = isFullContent
+                ? StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_CONTENT))
+                : StringEscapeUtils.escapeXml(article.optString(Article.ARTICLE_ABSTRACT));
 
-                    item.addCatetory(catetory);
-                    final String tag = tagStrings[j];
+            entry.setSummary(summary);
+            final Date updated = (Date) article.get(Article.ARTICLE_UPDATE_DATE);
 
-                    catetory.setTerm(tag);
-                }
+            entry.setUpdated(updated);
+
+            final String link = Latkes.getServePath() + article.getString(Article.ARTICLE_PERMALINK);
+
+            entry.setLink(link);
+            entry.setId(link);
+
+            if (hasMultipleUsers) {
+                authorName = StringEscapeUtils.escapeXml(articleQueryService.getAuthor(article).getString(User.USER_NAME));
             }
+            entry.setAuthor(authorName);
 
-            renderer.setContent(channel.toString());
-        } catch (final Exception e) {
-            LOGGER.log(Level.ERROR, "Get blog article rss error", e);
+            final String tagsString = article.getString(Article.ARTICLE_TAGS_REF);
+            final String[] tagStrings = tagsString.split(",");
 
-            try {
-                context.getResponse().sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
-            } catch (final IOException ex) {
-                throw new RuntimeException(ex);
+            for (int j = 0; j < tagStrings.length; j++) {
+                final Category catetory = new Category();
+
+                entry.addCatetory(catetory);
+                final String tag = tagStrings[j];
+
+                catetory.setTerm(tag);
             }
         }
+
+        return feed.toString();
     }
 
     /**
-     * Tag articles RSS output.
+     * Generates tag articles Atom with the specified tag id.
      * 
-     * @param context the specified context
-     * @throws IOException io exception 
+     * @param tagId the specified tag id
+     * @return Atom content, returns {@code null} if not found
+     * @throws Exception exception
      */
-    @RequestProcessing(value = { "/tag-articles-rss.do"}, method = { HTTPRequestMethod.GET, HTTPRequestMethod.HEAD})
-    public void tagArticlesRSS(final HTTPRequestContext context) throws IOException {
-        final HttpServletResponse response = context.getResponse();
-        final HttpServletRequest request = context.getRequest();
+    private String genTagArticlesAtom(final String tagId) throws Exception {
+        final Feed feed = new Feed();
+        final JSONObject tag = tagRepository.get(tagId);
 
-        final RssRenderer renderer = new RssRenderer();
+        if (null == tag) {
+            return null;
+        }
 
-        context.setRenderer(renderer);
+        final String tagTitle = tag.getString(Tag.TAG_TITLE);
 
-        final String queryString = request.getQueryString();
+        final JSONObject preference = preferenceQueryService.getPreference();
 
-        if (Strings.isEmptyOrNull(queryString)) {
-            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
-            return;
+        if (null == preference) {
+            return null;
         }
 
-        final String oIdMap = queryString.split("&")[0];
-        final String tagId = oIdMap.split("=")[1];
+        final String blogTitle = preference.getString(Preference.BLOG_TITLE);
+        final String blogSubtitle = preference.getString(Preference.BLOG_SUBTITLE) + ", " + tagTitle;
+        final int outputCnt = preference.getInt(Preference.FEED_OUTPUT_CNT);
 
-        final Channel channel = new Channel();
+        feed.setTitle(StringEscapeUtils.escapeXml(blogTitle));
+        feed.setSubtitle(StringEscapeUtils.escapeXml(blogSubtitle));
+        feed.setUpdated(new Date());
+        feed.setAuthor(StringEscapeUtils.escapeXml(blogTitle));
+        feed.setLink(Latkes.getServePath() + "/tag-articles-feed.do");
+        feed.setId(Latkes.getServePath() + "/");
 
-        try {
-            final JSONObject tag = tagRepository.get(tagId);
+        final List<JSONObject> articles = getTagArticles(tagId, outputCnt);
+
+        if (null == articles) {
+            return null;
+        }
+
+        final boolean hasMultipleUsers = userQueryService.hasMultipleUsers();
+        String authorName = "";
+
+        if (!hasMultipleUsers && !articles.isEmpty()) {
+            authorName = articleQueryService.getAuthor(articles.get(0)).getString(User.USER_NAME);
+        }
+
+        final boolean isFullContent = "fullContent".equals(preference.getString(Preference.FEED_OUTPUT_MODE));
 
-            if (null == tag) {
-                response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                return;
+        for (int i = 0; i < articles.size(); i++) {
+            final JSONObject article = articles.get(i);
+            final Entry entry = new Entry();
+
+            feed.addEntry(entry);
+            final String title = StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_TITLE));
+
+            entry.setTitle(title);
+            final String summary = isFullContent
+                ? StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_CONTENT))
+                : StringEscapeUtils.escapeXml(article.optString(Article.ARTICLE_ABSTRACT));
+
+            entry.setSummary(summary);
+            final Date updated = (Date) article.get(Article.ARTICLE_UPDATE_DATE);
+
+            entry.setUpdated(updated);
+            final String link = Latkes.getServePath() + article.getString(Article.ARTICLE_PERMALINK);
+
+            entry.setLink(link);
+            entry.setId(link);
+
+            if (hasMultipleUsers) {
+                authorName = StringEscapeUtils.escapeXml(articleQueryService.getAuthor(article).getString(User.USER_NAME));
             }
 
-            final String tagTitle = tag.getString(Tag.TAG_TITLE);
+            entry.setAuthor(authorName);
+
+            final String tagsString = article.getString(Article.ARTICLE_TAGS_REF);
+            final String[] tagStrings = tagsString.split(",");
 
-            final JSONObject preference = preferenceQueryService.getPreference();
+            for (int j = 0; j < tagStrings.length; j++) {
+                final Category catetory = new Category();
 
-            if (null == preference) {
-                response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                return;
+                entry.addCatetory(catetory);
+                catetory.setTerm(tagStrings[j]);
             }
+        }
+
+        return feed.toString();
+    }
+
+    /**
+     * Generates blog articles RSS.
+     * 
+     * @return RSS content, returns {@code null} if not found
+     * @throws Exception exception
+     */
+    private String genBlogArticlesRSS() throws Exception {
+        final Channel channel = new Channel();
+        final JSONObject preference = preferenceQueryService.getPreference();
 
-            final String blogTitle = preference.getString(Preference.BLOG_TITLE);
-            final String blogSubtitle = preference.getString(Preference.BLOG_SUBTITLE) + ", " + tagTitle;
-            final int outputCnt = preference.getInt(Preference.FEED_OUTPUT_CNT);
+        if (null == preference) {
+            return null;
+        }
 
-            channel.setTitle(StringEscapeUtils.escapeXml(blogTitle));
-            channel.setLastBuildDate(new Date());
-            channel.setLink(Latkes.getServePath());
-            channel.setAtomLink(Latkes.getServePath() + "/tag-articles-rss.do");
-            channel.setGenerator("B3log Solo, ver " + SoloServletListener.VERSION);
-            final String localeString = preference.getString(Preference.LOCALE_STRING);
-            final String country = Locales.getCountry(localeString).toLowerCase();
-            final String language = Locales.getLanguage(localeString).toLowerCase();
+        final String blogTitle = preference.getString(Preference.BLOG_TITLE);
+        final String blogSubtitle = preference.getString(Preference.BLOG_SUBTITLE);
+        final int outputCnt = preference.getInt(Preference.FEED_OUTPUT_CNT);
 
-            channel.setLanguage(language + '-' + country);
-            channel.setDescription(blogSubtitle);
+        channel.setTitle(StringEscapeUtils.escapeXml(blogTitle));
+        channel.setLastBuildDate(new Date());
+        channel.setLink(Latkes.getServePath());
+        channel.setAtomLink(Latkes.getServePath() + "/blog-articles-rss.do");
+        channel.setGenerator("B3log Solo, ver " + SoloServletListener.VERSION);
+        final String localeString = preference.getString(Preference.LOCALE_STRING);
+        final String country = Locales.getCountry(localeString).toLowerCase();
+        final String language = Locales.getLanguage(localeString).toLowerCase();
 
-            final JSONObject tagArticleResult = tagArticleRepository.getByTagId(tagId, 1, outputCnt);
-            final JSONArray tagArticleRelations = tagArticleResult.getJSONArray(Keys.RESULTS);
+        channel.setLanguage(language + '-' + country);
+        channel.setDescription(blogSubtitle);
 
-            if (0 == tagArticleRelations.length()) {
-                response.sendError(HttpServletResponse.SC_NOT_FOUND);
-                return;
-            }
+        final List<Filter> filters = new ArrayList<Filter>();
 
-            final List<JSONObject> articles = new ArrayList<JSONObject>();
+        filters.add(new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, true));
+        filters.add(new PropertyFilter(Article.ARTICLE_VIEW_PWD, FilterOperator.EQUAL, ""));
+        final Query query = new Query().setCurrentPageNum(1).setPageSize(outputCnt).setFilter(new CompositeFilter(CompositeFilterOperator.AND, filters)).addSort(Article.ARTICLE_UPDATE_DATE, SortDirection.DESCENDING).setPageCount(
+            1);
 
-            for (int i = 0; i < tagArticleRelations.length(); i++) {
-                final JSONObject tagArticleRelation = tagArticleRelations.getJSONObject(i);
-                final String articleId = tagArticleRelation.getString(Article.ARTICLE + "_" + Keys.OBJECT_ID);
-                final JSONObject article = articleRepository.get(articleId);
+        final JSONObject articleResult = articleRepository.get(query);
+        final JSONArray articles = articleResult.getJSONArray(Keys.RESULTS);
 
-                if (article.getBoolean(Article.ARTICLE_IS_PUBLISHED) // Skips the unpublished article
-                    && Strings.isEmptyOrNull(article.optString(Article.ARTICLE_VIEW_PWD))) { // Skips article with password
-                    articles.add(article);
-                }
+        final boolean hasMultipleUsers = userQueryService.hasMultipleUsers();
+        String authorName = "";
+
+        if (!hasMultipleUsers && 0 != articles.length()) {
+            authorName = articleQueryService.getAuthor(articles.getJSONObject(0)).getString(User.USER_NAME);
+        }
+
+        final boolean isFullContent = "fullContent".equals(preference.getString(Preference.FEED_OUTPUT_MODE));
+
+        for (int i = 0; i < articles.length(); i++) {
+            final JSONObject article = articles.getJSONObject(i);
+            final Item item = new Item();
+
+            channel.addItem(item);
+            final String title = StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_TITLE));
+
+            item.setTitle(title);
+            final String description = isFullContent
+                ? StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_CONTENT))
+                : StringEscapeUtils.escapeXml(article.optString(Article.ARTICLE_ABSTRACT));
+
+            item.setDescription(description);
+            final Date pubDate = (Date) article.get(Article.ARTICLE_UPDATE_DATE);
+
+            item.setPubDate(pubDate);
+            final String link = Latkes.getServePath() + article.getString(Article.ARTICLE_PERMALINK);
+
+            item.setLink(link);
+            item.setGUID(link);
+
+            final String authorEmail = article.getString(Article.ARTICLE_AUTHOR_EMAIL);
+
+            if (hasMultipleUsers) {
+                authorName = StringEscapeUtils.escapeXml(articleQueryService.getAuthor(article).getString(User.USER_NAME));
             }
 
-            final boolean hasMultipleUsers = userQueryService.hasMultipleUsers();
-            String authorName = "";
+            item.setAuthor(authorEmail + "(" + authorName + ")");
 
-            if (!hasMultipleUsers && !articles.isEmpty()) {
-                authorName = articleQueryService.getAuthor(articles.get(0)).getString(User.USER_NAME);
+            final String tagsString = article.getString(Article.ARTICLE_TAGS_REF);
+            final String[] tagStrings = tagsString.split(",");
+
+            for (int j = 0; j < tagStrings.length; j++) {
+                final org.b3log.solo.model.feed.rss.Category catetory = new org.b3log.solo.model.feed.rss.Category();
+
+                item.addCatetory(catetory);
+                final String tag = tagStrings[j];
+
+                catetory.setTerm(tag);
             }
+        }
 
-            final boolean isFullContent = "fullContent".equals(preference.getString(Preference.FEED_OUTPUT_MODE));
+        return channel.toString();
+    }
 
-            for (int i = 0; i < articles.size(); i++) {
-                final JSONObject article = articles.get(i);
-                final Item item = new Item();
+    /**
+     * Generates tag articles RSS with the specified tag id.
+     * 
+     * @param tagId the specified tag id
+     * @return RSS content, returns {@code null} if not found
+     * @throws Exception exception
+     */
+    private String genTagArticlesRSS(final String tagId) throws Exception {
+        final Channel channel = new Channel();
+        final JSONObject tag = tagRepository.get(tagId);
 
-                channel.addItem(item);
-                final String title = StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_TITLE));
+        if (null == tag) {
+            return null;
+        }
 
-                item.setTitle(title);
-                final String description = isFullContent
-                    ? StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_CONTENT))
-                    : StringEscapeUtils.escapeXml(article.optString(Article.ARTICLE_ABSTRACT));
+        final String tagTitle = tag.getString(Tag.TAG_TITLE);
 
-                item.setDescription(description);
-                final Date pubDate = (Date) article.get(Article.ARTICLE_UPDATE_DATE);
+        final JSONObject preference = preferenceQueryService.getPreference();
 
-                item.setPubDate(pubDate);
-                final String link = Latkes.getServePath() + article.getString(Article.ARTICLE_PERMALINK);
+        if (null == preference) {
+            return null;
+        }
 
-                item.setLink(link);
-                item.setGUID(link);
+        final String blogTitle = preference.getString(Preference.BLOG_TITLE);
+        final String blogSubtitle = preference.getString(Preference.BLOG_SUBTITLE) + ", " + tagTitle;
+        final int outputCnt = preference.getInt(Preference.FEED_OUTPUT_CNT);
 
-                final String authorEmail = article.getString(Article.ARTICLE_AUTHOR_EMAIL);
+        channel.setTitle(StringEscapeUtils.escapeXml(blogTitle));
+        channel.setLastBuildDate(new Date());
+        channel.setLink(Latkes.getServePath());
+        channel.setAtomLink(Latkes.getServePath() + "/tag-articles-rss.do");
+        channel.setGenerator("B3log Solo, ver " + SoloServletListener.VERSION);
+        final String localeString = preference.getString(Preference.LOCALE_STRING);
+        final String country = Locales.getCountry(localeString).toLowerCase();
+        final String language = Locales.getLanguage(localeString).toLowerCase();
 
-                if (hasMultipleUsers) {
-                    authorName = StringEscapeUtils.escapeXml(articleQueryService.getAuthor(article).getString(User.USER_NAME));
-                }
+        channel.setLanguage(language + '-' + country);
+        channel.setDescription(blogSubtitle);
 
-                item.setAuthor(authorEmail + "(" + authorName + ")");
+        final List<JSONObject> articles = getTagArticles(tagId, outputCnt);
 
-                final String tagsString = article.getString(Article.ARTICLE_TAGS_REF);
-                final String[] tagStrings = tagsString.split(",");
+        if (null == articles) {
+            return null;
+        }
 
-                for (int j = 0; j < tagStrings.length; j++) {
-                    final org.b3log.solo.model.feed.rss.Category catetory = new org.b3log.solo.model.feed.rss.Category();
+        final boolean hasMultipleUsers = userQueryService.hasMultipleUsers();
+        String authorName = "";
 
-                    item.addCatetory(catetory);
-                    catetory.setTerm(tagStrings[j]);
-                }
+        if (!hasMultipleUsers && !articles.isEmpty()) {
+            authorName = articleQueryService.getAuthor(articles.get(0)).getString(User.USER_NAME);
+        }
+
+        final boolean isFullContent = "fullContent".equals(preference.getString(Preference.FEED_OUTPUT_MODE));
+
+        for (int i = 0; i < articles.size(); i++) {
+            final JSONObject article = articles.get(i);
+            final Item item = new Item();
+
+            channel.addItem(item);
+            final String title = StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_TITLE));
+
+            item.setTitle(title);
+            final String description = isFullContent
+                ? StringEscapeUtils.escapeXml(article.getString(Article.ARTICLE_CONTENT))
+                : StringEscapeUtils.escapeXml(article.optString(Article.ARTICLE_ABSTRACT));
+
+            item.setDescription(description);
+            final Date pubDate = (Date) article.get(Article.ARTICLE_UPDATE_DATE);
+
+            item.setPubDate(pubDate);
+            final String link = Latkes.getServePath() + article.getString(Article.ARTICLE_PERMALINK);
+
+            item.setLink(link);
+            item.setGUID(link);
+
+            final String authorEmail = article.getString(Article.ARTICLE_AUTHOR_EMAIL);
+
+            if (hasMultipleUsers) {
+                authorName = StringEscapeUtils.escapeXml(articleQueryService.getAuthor(article).getString(User.USER_NAME));
             }
 
-            renderer.setContent(channel.toString());
-        } catch (final Exception e) {
-            LOGGER.log(Level.ERROR, "Get tag article rss error", e);
+            item.setAuthor(authorEmail + "(" + authorName + ")");
 
-            try {
-                context.getResponse().sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
-            } catch (final IOException ex) {
-                throw new RuntimeException(ex);
+            final String tagsString = article.getString(Article.ARTICLE_TAGS_REF);
+            final String[] tagStrings = tagsString.split(",");
+
+            for (int j = 0; j < tagStrings.length; j++) {
+                final org.b3log.solo.model.feed.rss.Category catetory = new org.b3log.solo.model.feed.rss.Category();
+
+                item.addCatetory(catetory);
+                catetory.setTerm(tagStrings[j]);
             }
         }
+
+        return channel.toString();
+    }
+
+    /**
+     * Gets the published articles without view password of a tag specified by the given tag id.
+     * 
+     * @param tagId the given tag id
+     * @param outputCnt the specified output count
+     * @return articles, returns {@code null} if the tag has no article
+     * @throws Exception exception
+     */
+    private List<JSONObject> getTagArticles(final String tagId, final int outputCnt) throws Exception {
+        final JSONObject tagArticleResult = tagArticleRepository.getByTagId(tagId, 1, outputCnt);
+        final JSONArray tagArticleRelations = tagArticleResult.getJSONArray(Keys.RESULTS);
+
+        if (0 == tagArticleRelations.length()) {
+            return null;
+        }
+
+        final List<String> articleIds = new ArrayList<String>();
+
+        for (int i = 0; i < tagArticleRelations.length(); i++) {
+            final JSONObject tagArticleRelation = tagArticleRelations.getJSONObject(i);
+
+            articleIds.add(tagArticleRelation.getString(Article.ARTICLE + "_" + Keys.OBJECT_ID));
+        }
+
+        final List<JSONObject> ret = new ArrayList<JSONObject>();
+
+        for (final String articleId : articleIds) {
+            final JSONObject article = articleRepository.get(articleId);
+
+            if (article.getBoolean(Article.ARTICLE_IS_PUBLISHED) // Skips the unpublished article
+                && Strings.isEmptyOrNull(article.optString(Article.ARTICLE_VIEW_PWD))) { // Skips article with password
+                ret.add(article);
+            }
+        }
+
+        return ret;
     }
 }
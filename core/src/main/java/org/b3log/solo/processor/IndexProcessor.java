@@ -36,15 +36,18 @@ import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.servlet.URIPatternMode;
 import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
+import org.b3log.latke.servlet.renderer.DoNothingRenderer;
 import org.b3log.latke.servlet.renderer.freemarker.AbstractFreeMarkerRenderer;
 import org.b3log.latke.servlet.renderer.freemarker.FreeMarkerRenderer;
 import org.b3log.latke.util.Locales;
 import org.b3log.latke.util.Requests;
+import org.b3log.solo.cache.PageCache;
 import org.b3log.solo.model.Common;
 import org.b3log.solo.model.Preference;
 import org.b3log.solo.processor.renderer.ConsoleRenderer;
 import org.b3log.solo.processor.util.Filler;
 import org.b3log.solo.service.PreferenceQueryService;
+import org.b3log.solo.util.ConditionalGets;
 import org.b3log.solo.util.Skins;
 import org.json.JSONObject;
 
@@ -54,7 +57,7 @@ import org.json.JSONObject;
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
  * @author <a href="mailto:385321165@qq.com">DASHU</a>
- * @version 1.1.1.4, Sep 11, 2013
+ * @version 1.1.1.6, Nov 2, 2013
  * @since 0.3.1
  */
 @RequestProcessor
@@ -92,6 +95,12 @@ public class IndexProcessor {
      */
     @RequestProcessing(value = { "/\\d*", ""}, uriPatternsMode = URIPatternMode.REGEX, method = HTTPRequestMethod.GET)
     public void showIndex(final HTTPRequestContext context, final HttpServletRequest request, final HttpServletResponse response) {
+        if (ConditionalGets.notModified(request, response, 0)) {
+            context.setRenderer(new DoNothingRenderer());
+
+            return;
+        }
+
         final AbstractFreeMarkerRenderer renderer = new FreeMarkerRenderer();
 
         context.setRenderer(renderer);
@@ -126,6 +135,8 @@ public class IndexProcessor {
             }
 
             dataModel.put(Common.PATH, "");
+
+            request.setAttribute(PageCache.CACHEABLE, true);
         } catch (final ServiceException e) {
             LOGGER.log(Level.ERROR, e.getMessage(), e);
 
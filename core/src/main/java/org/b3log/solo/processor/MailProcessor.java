@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.processor;
+
+
+import javax.inject.Inject;
+import org.b3log.latke.servlet.HTTPRequestContext;
+import org.b3log.latke.servlet.HTTPRequestMethod;
+import org.b3log.latke.servlet.annotation.RequestProcessing;
+import org.b3log.latke.servlet.annotation.RequestProcessor;
+import org.b3log.latke.servlet.renderer.DoNothingRenderer;
+import org.b3log.solo.service.MailMgmtService;
+
+
+/**
+ * Mail processor.
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@RequestProcessor
+public class MailProcessor {
+
+    /**
+     * Mail management service.
+     */
+    @Inject
+    private MailMgmtService mailMgmtService;
+
+    /**
+     * Sends the queued mails.
+     * 
+     * @param context the specified context
+     * @see MailMgmtService#sendQueuedMails() 
+     */
+    @RequestProcessing(value = "/console/mail/send", method = HTTPRequestMethod.GET)
+    public void queuedMailSender(final HTTPRequestContext context) {
+        context.setRenderer(new DoNothingRenderer());
+
+        mailMgmtService.sendQueuedMails();
+    }
+}
@@ -31,16 +31,18 @@ import org.b3log.latke.servlet.HTTPRequestContext;
 import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
+import org.b3log.latke.servlet.renderer.DoNothingRenderer;
 import org.b3log.latke.servlet.renderer.freemarker.AbstractFreeMarkerRenderer;
 import org.b3log.latke.servlet.renderer.freemarker.FreeMarkerRenderer;
 import org.b3log.latke.util.Stopwatchs;
+import org.b3log.solo.cache.MarkdownCache;
 import org.b3log.solo.model.Common;
 import org.b3log.solo.model.Page;
 import org.b3log.solo.model.Preference;
 import org.b3log.solo.processor.util.Filler;
 import org.b3log.solo.service.CommentQueryService;
 import org.b3log.solo.service.PreferenceQueryService;
-import org.b3log.solo.util.Markdowns;
+import org.b3log.solo.util.ConditionalGets;
 import org.b3log.solo.util.Skins;
 import org.json.JSONObject;
 
@@ -49,7 +51,7 @@ import org.json.JSONObject;
  * Page processor.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.1.0.3, Oct 14, 2013
+ * @version 1.1.0.8, Nov 2, 2013
  * @since 0.3.1
  */
 @RequestProcessor
@@ -84,6 +86,12 @@ public class PageProcessor {
     @Inject
     private CommentQueryService commentQueryService;
 
+    /**
+     * Markdown cache.
+     */
+    @Inject
+    private MarkdownCache markdownCache;
+
     /**
      * Shows page with the specified context.
      * 
@@ -91,6 +99,15 @@ public class PageProcessor {
      */
     @RequestProcessing(value = "/page", method = HTTPRequestMethod.GET)
     public void showPage(final HTTPRequestContext context) {
+        final HttpServletRequest request = context.getRequest();
+        final HttpServletResponse response = context.getResponse();
+
+        if (ConditionalGets.notModified(request, response, 0)) {
+            context.setRenderer(new DoNothingRenderer());
+
+            return;
+        }
+
         final AbstractFreeMarkerRenderer renderer = new FreeMarkerRenderer();
 
         context.setRenderer(renderer);
@@ -98,9 +115,6 @@ public class PageProcessor {
         renderer.setTemplateName("page.ftl");
         final Map<String, Object> dataModel = renderer.getDataModel();
 
-        final HttpServletRequest request = context.getRequest();
-        final HttpServletResponse response = context.getResponse();
-
         try {
             final JSONObject preference = preferenceQueryService.getPreference();
 
@@ -126,9 +140,10 @@ public class PageProcessor {
             page.put(Common.COMMENTABLE, preference.getBoolean(Preference.COMMENTABLE) && page.getBoolean(Page.PAGE_COMMENTABLE));
             page.put(Common.PERMALINK, page.getString(Page.PAGE_PERMALINK));
             dataModel.put(Page.PAGE, page);
-            final List<JSONObject> comments = commentQueryService.getComments(pageId);
+            final List<JSONObject> comments = commentQueryService.getComments(pageId, 1);
 
             dataModel.put(Page.PAGE_COMMENTS_REF, comments);
+            dataModel.put(Common.COMMENT_PAGE_COUNT, CommentQueryService.getCommentPageCount(page.optInt(Page.PAGE_COMMENT_COUNT)));
 
             // Markdown
             if ("CodeMirror-Markdown".equals(page.optString(Page.PAGE_EDITOR_TYPE))) {
@@ -136,7 +151,7 @@ public class PageProcessor {
 
                 final String content = page.optString(Page.PAGE_CONTENT);
 
-                page.put(Page.PAGE_CONTENT, Markdowns.toHTML(content));
+                page.put(Page.PAGE_CONTENT, markdownCache.toHTML(content));
 
                 Stopwatchs.end();
             }
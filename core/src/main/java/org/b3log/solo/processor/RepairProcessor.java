@@ -39,6 +39,22 @@ import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
 import org.b3log.latke.servlet.renderer.TextHTMLRenderer;
 import org.b3log.latke.util.CollectionUtils;
+import org.b3log.solo.cache.ArchiveDateIndex;
+import org.b3log.solo.cache.ArticleTimeline;
+import org.b3log.solo.cache.CommentCache;
+import org.b3log.solo.cache.ContentVersion;
+import org.b3log.solo.cache.FeedCache;
+import org.b3log.solo.cache.PageCache;
+import org.b3log.solo.cache.PermalinkIndex;
+import org.b3log.solo.cache.PreferenceCache;
+import org.b3log.solo.cache.RandomArticleSampler;
+import org.b3log.solo.cache.RelevantArticleIndex;
+import org.b3log.solo.cache.SitemapCache;
+import org.b3log.solo.cache.StatisticCounter;
+import org.b3log.solo.cache.TagIndex;
+import org.b3log.solo.cache.UserDirectory;
+import org.b3log.solo.cache.ViewCountBuffer;
+import org.b3log.solo.cache.WidgetCache;
 import org.b3log.solo.model.*;
 import org.b3log.solo.repository.ArticleRepository;
 import org.b3log.solo.repository.TagArticleRepository;
@@ -69,7 +85,7 @@ import org.json.JSONObject;
  * <p>See AuthFilter filter configurations in web.xml for authentication.</p>
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.1.0.10, Oct 26, 2013
+ * @version 1.1.0.26, Nov 2, 2013
  * @since 0.3.1
  */
 @RequestProcessor
@@ -98,6 +114,102 @@ public class RepairProcessor {
     @Inject
     private PreferenceMgmtService preferenceMgmtService;
 
+    /**
+     * Preference cache.
+     */
+    @Inject
+    private PreferenceCache preferenceCache;
+
+    /**
+     * Page cache.
+     */
+    @Inject
+    private PageCache pageCache;
+
+    /**
+     * Side bar widget cache.
+     */
+    @Inject
+    private WidgetCache widgetCache;
+
+    /**
+     * Permalink index.
+     */
+    @Inject
+    private PermalinkIndex permalinkIndex;
+
+    /**
+     * View count buffer.
+     */
+    @Inject
+    private ViewCountBuffer viewCountBuffer;
+
+    /**
+     * Relevant article index.
+     */
+    @Inject
+    private RelevantArticleIndex relevantArticleIndex;
+
+    /**
+     * Feed cache.
+     */
+    @Inject
+    private FeedCache feedCache;
+
+    /**
+     * Sitemap cache.
+     */
+    @Inject
+    private SitemapCache sitemapCache;
+
+    /**
+     * User directory.
+     */
+    @Inject
+    private UserDirectory userDirectory;
+
+    /**
+     * Statistic counter.
+     */
+    @Inject
+    private StatisticCounter statisticCounter;
+
+    /**
+     * Tag index.
+     */
+    @Inject
+    private TagIndex tagIndex;
+
+    /**
+     * Archive date index.
+     */
+    @Inject
+    private ArchiveDateIndex archiveDateIndex;
+
+    /**
+     * Random article sampler.
+     */
+    @Inject
+    private RandomArticleSampler randomArticleSampler;
+
+    /**
+     * Article timeline.
+     */
+    @Inject
+    private ArticleTimeline articleTimeline;
+
+    /**
+     * Comment cache.
+     */
+    @Inject
+    private CommentCache commentCache;
+
+    /**
+     * Content version.
+     */
+    @Inject
+    private ContentVersion contentVersion;
+
     /**
      * Mail service.
      */
@@ -319,8 +431,12 @@ public class RepairProcessor {
                     new Object[] {tag.getString(Tag.TAG_TITLE), tagRefCnt, publishedTagRefCnt});
             }
 
+            tagIndex.clear();
+
             renderer.setContent("Repair sucessfully!");
         } catch (final Exception e) {
+            tagIndex.clear();
+
             LOGGER.log(Level.ERROR, e.getMessage(), e);
             renderer.setContent("Repairs failed, error msg[" + e.getMessage() + "]");
         }
@@ -395,6 +511,23 @@ public class RepairProcessor {
             LOGGER.log(Level.WARN, "Removed partial data only", e);
         }
 
+        preferenceCache.clear();
+        pageCache.clear();
+        widgetCache.invalidate();
+        permalinkIndex.clear();
+        viewCountBuffer.clear();
+        relevantArticleIndex.clear();
+        feedCache.clear();
+        sitemapCache.clear();
+        userDirectory.clear();
+        statisticCounter.clear();
+        tagIndex.clear();
+        archiveDateIndex.clear();
+        randomArticleSampler.clear();
+        articleTimeline.clear();
+        commentCache.clear();
+        contentVersion.bump();
+
         final StringBuilder htmlBuilder = new StringBuilder();
 
         htmlBuilder.append("<html><head><title>Result</title></head><body>");
@@ -17,15 +17,21 @@ package org.b3log.solo.processor;
 
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.net.URLEncoder;
 import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang.time.DateFormatUtils;
 import org.b3log.latke.Keys;
 import org.b3log.latke.Latkes;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
+import org.b3log.latke.model.Pagination;
 import org.b3log.latke.repository.FilterOperator;
 import org.b3log.latke.repository.PropertyFilter;
 import org.b3log.latke.repository.Query;
@@ -34,27 +40,35 @@ import org.b3log.latke.servlet.HTTPRequestContext;
 import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
-import org.b3log.latke.servlet.renderer.TextXMLRenderer;
+import org.b3log.latke.servlet.renderer.DoNothingRenderer;
+import org.b3log.solo.cache.SitemapCache;
 import org.b3log.solo.model.ArchiveDate;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Page;
 import org.b3log.solo.model.Tag;
 import org.b3log.solo.model.sitemap.Sitemap;
+import org.b3log.solo.model.sitemap.SitemapIndex;
 import org.b3log.solo.model.sitemap.URL;
 import org.b3log.solo.repository.ArchiveDateRepository;
 import org.b3log.solo.repository.PageRepository;
 import org.b3log.solo.repository.TagRepository;
 import org.b3log.solo.repository.impl.ArticleRepositoryImpl;
-import org.b3log.solo.service.PreferenceQueryService;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 
 /**
  * Site map (sitemap) processor.
+ * 
+ * <p>
+ * The sitemap is streamed into response page by page (fetches {@value #FETCH_SIZE} records per query). If the URLs 
+ * exceed the {@link Sitemap#MAX_URL_COUNT protocol limit}, "/sitemap.xml" returns a sitemap index links to 
+ * sub-sitemaps "/sitemap.xml?p=articles-{n}", "/sitemap.xml?p=tags-{n}" and "/sitemap.xml?p=others". The generated 
+ * parts are cached in {@link SitemapCache} until articles or pages changed.
+ * </p>
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.6, May 17, 2013
+ * @version 1.1.0.1, Nov 2, 2013
  * @since 0.3.1
  */
 @RequestProcessor
@@ -66,10 +80,29 @@ public class SitemapProcessor {
     private static final Logger LOGGER = Logger.getLogger(SitemapProcessor.class.getName());
 
     /**
-     * Preference query service.
+     * Fetch size of a query.
      */
-    @Inject
-    private PreferenceQueryService preferenceQueryService;
+    private static final int FETCH_SIZE = 100;
+
+    /**
+     * Fetch pages of a sub-sitemap.
+     */
+    private static final int PART_PAGES = Sitemap.MAX_URL_COUNT / FETCH_SIZE;
+
+    /**
+     * Sitemap index (or the only sitemap) cache key.
+     */
+    private static final String INDEX = "index";
+
+    /**
+     * Others (navigations, tags wall and archives) part.
+     */
+    private static final String OTHERS = "others";
+
+    /**
+     * Sub-sitemap part pattern.
+     */
+    private static final Pattern PART_PATTERN = Pattern.compile("(articles|tags)-([1-9]\\d{0,5})");
 
     /**
      * Article repository.
@@ -96,34 +129,89 @@ public class SitemapProcessor {
     private ArchiveDateRepository archiveDateRepository;
 
     /**
-     * Returns the sitemap.
+     * Sitemap cache.
+     */
+    @Inject
+    private SitemapCache sitemapCache;
+
+    /**
+     * Returns the sitemap (or the sitemap index), or a sub-sitemap specified by request parameter "p".
      * 
      * @param context the specified context
      */
     @RequestProcessing(value = "/sitemap.xml", method = HTTPRequestMethod.GET)
     public void sitemap(final HTTPRequestContext context) {
-        final TextXMLRenderer renderer = new TextXMLRenderer();
+        context.setRenderer(new DoNothingRenderer());
 
-        context.setRenderer(renderer);
+        final HttpServletRequest request = context.getRequest();
+        final HttpServletResponse response = context.getResponse();
 
-        final Sitemap sitemap = new Sitemap();
+        final String part = request.getParameter("p");
+        final String key = null == part ? INDEX : part;
 
         try {
-            addArticles(sitemap);
-            addNavigations(sitemap);
-            addTags(sitemap);
-            addArchives(sitemap);
+            Matcher matcher = null;
 
-            LOGGER.log(Level.INFO, "Generating sitemap....");
-            final String content = sitemap.toString();
+            if (null != part && !OTHERS.equals(part)) {
+                matcher = PART_PATTERN.matcher(part);
 
-            LOGGER.log(Level.INFO, "Generated sitemap");
-            renderer.setContent(content);
+                if (!matcher.matches()) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
+                }
+            }
+
+            response.setContentType("text/xml; charset=UTF-8");
+
+            final byte[] cached = sitemapCache.get(key);
+
+            if (null != cached) {
+                response.setContentLength(cached.length);
+
+                final OutputStream outputStream = response.getOutputStream();
+
+                outputStream.write(cached);
+                outputStream.flush();
+
+                return;
+            }
+
+            LOGGER.log(Level.INFO, "Generating sitemap[part={0}]....", key);
+
+            final long generation = sitemapCache.getGeneration();
+            final CopyWriter writer = new CopyWriter(response.getWriter());
+            int count;
+
+            if (null == part) {
+                count = writeIndex(writer);
+            } else if (OTHERS.equals(part)) {
+                Sitemap.writeStart(writer);
+                count = writeOthers(writer);
+                Sitemap.writeEnd(writer);
+            } else {
+                final int num = Integer.valueOf(matcher.group(2));
+
+                Sitemap.writeStart(writer);
+                count = "articles".equals(matcher.group(1)) ? writeArticles(writer, num) : writeTags(writer, num);
+                Sitemap.writeEnd(writer);
+            }
+
+            writer.flush();
+
+            if (0 < count) { // Does not cache the out of range parts
+                sitemapCache.put(key, generation, writer.getCopy().getBytes("UTF-8"));
+            }
+
+            LOGGER.log(Level.INFO, "Generated sitemap[part={0}, urls={1}]", key, count);
         } catch (final Exception e) {
-            LOGGER.log(Level.ERROR, "Get blog article feed error", e);
+            LOGGER.log(Level.ERROR, "Get sitemap error", e);
+
+            if (response.isCommitted()) {
+                return;
+            }
 
             try {
-                context.getResponse().sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
             } catch (final IOException ex) {
                 throw new RuntimeException(ex);
             }
@@ -131,103 +219,206 @@ public class SitemapProcessor {
     }
 
     /**
-     * Adds articles into the specified sitemap.
+     * Writes the sitemap into the specified writer if the URLs not exceed the protocol limit, writes the sitemap index 
+     * otherwise.
      * 
-     * @param sitemap the specified sitemap
+     * @param writer the specified writer
+     * @return count of the written URLs (or sub-sitemaps)
      * @throws Exception exception
      */
-    private void addArticles(final Sitemap sitemap) throws Exception {
-        // XXX: query all articles?
-        final Query query = new Query().setCurrentPageNum(1).setFilter(new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, true)).addSort(
-            Article.ARTICLE_CREATE_DATE, SortDirection.DESCENDING);
+    private int writeIndex(final Writer writer) throws Exception {
+        final int articlePageCount = getArticlePageCount();
+        final long tagCount = tagRepository.count();
+        final long othersCount = pageRepository.count() + archiveDateRepository.count() + 1;
 
-        // XXX: maybe out of memory 
-        final JSONObject articleResult = articleRepository.get(query);
+        if ((long) articlePageCount * FETCH_SIZE + tagCount + othersCount <= Sitemap.MAX_URL_COUNT) {
+            Sitemap.writeStart(writer);
 
-        final JSONArray articles = articleResult.getJSONArray(Keys.RESULTS);
+            final int ret = writeArticles(writer, 1, articlePageCount, articlePageCount)
+                + writeTags(writer, 1, Integer.MAX_VALUE, getPageCount(tagCount)) + writeOthers(writer);
 
-        for (int i = 0; i < articles.length(); i++) {
-            final JSONObject article = articles.getJSONObject(i);
-            final String permalink = article.getString(Article.ARTICLE_PERMALINK);
+            Sitemap.writeEnd(writer);
 
-            final URL url = new URL();
+            return ret;
+        }
 
-            url.setLoc(Latkes.getServePath() + permalink);
+        final SitemapIndex sitemapIndex = new SitemapIndex();
+        final String sitemapPath = Latkes.getServePath() + "/sitemap.xml?p=";
 
-            final Date updateDate = (Date) article.get(Article.ARTICLE_UPDATE_DATE);
-            final String lastMod = DateFormatUtils.ISO_DATETIME_TIME_ZONE_FORMAT.format(updateDate);
+        final int articlePartCount = (articlePageCount + PART_PAGES - 1) / PART_PAGES;
 
-            url.setLastMod(lastMod);
+        for (int i = 1; i <= articlePartCount; i++) {
+            sitemapIndex.addSitemap(sitemapPath + "articles-" + i);
+        }
+
+        final int tagPartCount = (int) ((tagCount + Sitemap.MAX_URL_COUNT - 1) / Sitemap.MAX_URL_COUNT);
 
-            sitemap.addURL(url);
+        for (int i = 1; i <= tagPartCount; i++) {
+            sitemapIndex.addSitemap(sitemapPath + "tags-" + i);
         }
+
+        sitemapIndex.addSitemap(sitemapPath + OTHERS);
+
+        writer.write(sitemapIndex.toString());
+
+        return articlePartCount + tagPartCount + 1;
     }
 
     /**
-     * Adds navigations into the specified sitemap.
+     * Writes the articles of the specified sub-sitemap into the specified writer.
      * 
-     * @param sitemap the specified sitemap
-     * @throws Exception exception 
+     * @param writer the specified writer
+     * @param partNum the specified sub-sitemap number, starts from 1
+     * @return count of the written URLs
+     * @throws Exception exception
      */
-    private void addNavigations(final Sitemap sitemap) throws Exception {
-        final JSONObject result = pageRepository.get(new Query());
-        final JSONArray pages = result.getJSONArray(Keys.RESULTS);
+    private int writeArticles(final Writer writer, final int partNum) throws Exception {
+        final int articlePageCount = getArticlePageCount();
+        final int startPageNum = (partNum - 1) * PART_PAGES + 1;
 
-        for (int i = 0; i < pages.length(); i++) {
-            final JSONObject page = pages.getJSONObject(i);
-            final String permalink = page.getString(Page.PAGE_PERMALINK);
+        return writeArticles(writer, startPageNum, Math.min(startPageNum + PART_PAGES - 1, articlePageCount),
+            articlePageCount);
+    }
 
-            final URL url = new URL();
+    /**
+     * Writes published articles of the specified fetch pages into the specified writer.
+     * 
+     * @param writer the specified writer
+     * @param startPageNum the specified start page number, inclusive
+     * @param endPageNum the specified end page number, inclusive
+     * @param pageCount the specified page count
+     * @return count of the written URLs
+     * @throws Exception exception
+     */
+    private int writeArticles(final Writer writer, final int startPageNum, final int endPageNum, final int pageCount)
+        throws Exception {
+        int ret = 0;
+
+        for (int pageNum = startPageNum; pageNum <= endPageNum; pageNum++) {
+            final Query query = new Query().setCurrentPageNum(pageNum).setPageSize(FETCH_SIZE).setPageCount(pageCount).setFilter(new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, true)).addSort(Article.ARTICLE_CREATE_DATE, SortDirection.DESCENDING).addProjection(Article.ARTICLE_PERMALINK, String.class).addProjection(
+                Article.ARTICLE_UPDATE_DATE, Date.class);
+
+            final JSONArray articles = articleRepository.get(query).getJSONArray(Keys.RESULTS);
+
+            for (int i = 0; i < articles.length(); i++) {
+                final JSONObject article = articles.getJSONObject(i);
+                final String permalink = article.getString(Article.ARTICLE_PERMALINK);
+
+                final URL url = new URL();
 
-            // The navigation maybe a page or a link
-            // Just filters for user mistakes tolerance
-            if (!permalink.contains("://")) {
                 url.setLoc(Latkes.getServePath() + permalink);
-            } else {
-                url.setLoc(permalink);
+
+                final Date updateDate = (Date) article.get(Article.ARTICLE_UPDATE_DATE);
+                final String lastMod = DateFormatUtils.ISO_DATETIME_TIME_ZONE_FORMAT.format(updateDate);
+
+                url.setLastMod(lastMod);
+
+                writer.write(url.toString());
             }
 
-            sitemap.addURL(url);
+            ret += articles.length();
+
+            if (FETCH_SIZE > articles.length()) {
+                break;
+            }
         }
+
+        return ret;
     }
 
     /**
-     * Adds tags (tag-articles) and tags wall (/tags.html) into the specified sitemap.
+     * Writes tags (tag-articles) of the specified sub-sitemap into the specified writer.
      * 
-     * @param sitemap the specified sitemap
+     * @param writer the specified writer
+     * @param partNum the specified sub-sitemap number, starts from 1
+     * @return count of the written URLs
      * @throws Exception exception
      */
-    private void addTags(final Sitemap sitemap) throws Exception {
-        final JSONObject result = tagRepository.get(new Query());
-        final JSONArray tags = result.getJSONArray(Keys.RESULTS);
+    private int writeTags(final Writer writer, final int partNum) throws Exception {
+        final int startPageNum = (partNum - 1) * PART_PAGES + 1;
 
-        for (int i = 0; i < tags.length(); i++) {
-            final JSONObject tag = tags.getJSONObject(i);
-            final String link = URLEncoder.encode(tag.getString(Tag.TAG_TITLE), "UTF-8");
+        return writeTags(writer, startPageNum, startPageNum + PART_PAGES - 1, getPageCount(tagRepository.count()));
+    }
 
-            final URL url = new URL();
+    /**
+     * Writes tags (tag-articles) of the specified fetch pages into the specified writer.
+     * 
+     * @param writer the specified writer
+     * @param startPageNum the specified start page number, inclusive
+     * @param endPageNum the specified end page number, inclusive
+     * @param pageCount the specified page count
+     * @return count of the written URLs
+     * @throws Exception exception
+     */
+    private int writeTags(final Writer writer, final int startPageNum, final int endPageNum, final int pageCount)
+        throws Exception {
+        int ret = 0;
 
-            url.setLoc(Latkes.getServePath() + "/tags/" + link);
+        for (int pageNum = startPageNum; pageNum <= Math.min(endPageNum, pageCount); pageNum++) {
+            final Query query = new Query().setCurrentPageNum(pageNum).setPageSize(FETCH_SIZE).setPageCount(pageCount).addSort(Keys.OBJECT_ID, SortDirection.ASCENDING).addProjection(
+                Tag.TAG_TITLE, String.class);
 
-            sitemap.addURL(url);
-        }
+            final JSONArray tags = tagRepository.get(query).getJSONArray(Keys.RESULTS);
 
-        // Tags wall
-        final URL url = new URL();
+            for (int i = 0; i < tags.length(); i++) {
+                final JSONObject tag = tags.getJSONObject(i);
+                final String link = URLEncoder.encode(tag.getString(Tag.TAG_TITLE), "UTF-8");
+
+                final URL url = new URL();
+
+                url.setLoc(Latkes.getServePath() + "/tags/" + link);
+
+                writer.write(url.toString());
+            }
+
+            ret += tags.length();
+
+            if (FETCH_SIZE > tags.length()) {
+                break;
+            }
+        }
 
-        url.setLoc(Latkes.getServePath() + "/tags.html");
-        sitemap.addURL(url);
+        return ret;
     }
 
     /**
-     * Adds archives (archive-articles) into the specified sitemap.
+     * Writes navigations, tags wall (/tags.html) and archives (archive-articles) into the specified writer.
      * 
-     * @param sitemap the specified sitemap
+     * @param writer the specified writer
+     * @return count of the written URLs
      * @throws Exception exception
      */
-    private void addArchives(final Sitemap sitemap) throws Exception {
-        final JSONObject result = archiveDateRepository.get(new Query());
-        final JSONArray archiveDates = result.getJSONArray(Keys.RESULTS);
+    private int writeOthers(final Writer writer) throws Exception {
+        int ret = 0;
+
+        final JSONArray pages = pageRepository.get(new Query()).getJSONArray(Keys.RESULTS);
+
+        for (int i = 0; i < pages.length(); i++) {
+            final JSONObject page = pages.getJSONObject(i);
+            final String permalink = page.getString(Page.PAGE_PERMALINK);
+
+            final URL url = new URL();
+
+            // The navigation maybe a page or a link
+            // Just filters for user mistakes tolerance
+            if (!permalink.contains("://")) {
+                url.setLoc(Latkes.getServePath() + permalink);
+            } else {
+                url.setLoc(permalink);
+            }
+
+            writer.write(url.toString());
+            ret++;
+        }
+
+        // Tags wall
+        final URL tagsWall = new URL();
+
+        tagsWall.setLoc(Latkes.getServePath() + "/tags.html");
+        writer.write(tagsWall.toString());
+        ret++;
+
+        final JSONArray archiveDates = archiveDateRepository.get(new Query()).getJSONArray(Keys.RESULTS);
 
         for (int i = 0; i < archiveDates.length(); i++) {
             final JSONObject archiveDate = archiveDates.getJSONObject(i);
@@ -238,7 +429,92 @@ public class SitemapProcessor {
 
             url.setLoc(Latkes.getServePath() + "/archives/" + dateString);
 
-            sitemap.addURL(url);
+            writer.write(url.toString());
+            ret++;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Gets the fetch page count of published articles.
+     * 
+     * @return page count
+     * @throws Exception exception
+     */
+    private int getArticlePageCount() throws Exception {
+        final Query query = new Query().setCurrentPageNum(1).setPageSize(FETCH_SIZE).setFilter(new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, true)).addProjection(
+            Keys.OBJECT_ID, String.class);
+
+        return articleRepository.get(query).getJSONObject(Pagination.PAGINATION).getInt(Pagination.PAGINATION_PAGE_COUNT);
+    }
+
+    /**
+     * Gets the fetch page count of the specified record count.
+     * 
+     * @param recordCount the specified record count
+     * @return page count
+     */
+    private static int getPageCount(final long recordCount) {
+        return (int) ((recordCount + FETCH_SIZE - 1) / FETCH_SIZE);
+    }
+
+    /**
+     * Writer writes to a delegate writer and keeps a copy of the written characters.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class CopyWriter extends Writer {
+
+        /**
+         * Delegate writer.
+         */
+        private final Writer delegate;
+
+        /**
+         * Copy.
+         */
+        private final StringBuilder copy = new StringBuilder();
+
+        /**
+         * Constructs a copy writer with the specified delegate writer.
+         * 
+         * @param delegate the specified delegate writer
+         */
+        private CopyWriter(final Writer delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Gets the copy of the written characters.
+         * 
+         * @return copy
+         */
+        private String getCopy() {
+            return copy.toString();
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) throws IOException {
+            delegate.write(cbuf, off, len);
+            copy.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(final String str) throws IOException {
+            delegate.write(str);
+            copy.append(str);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
         }
     }
 }
@@ -16,7 +16,12 @@
 package org.b3log.solo.processor;
 
 
+import java.io.IOException;
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.b3log.latke.Latkes;
+import org.b3log.latke.RuntimeEnv;
 import org.b3log.latke.logging.Logger;
 import org.b3log.latke.servlet.HTTPRequestContext;
 import org.b3log.latke.servlet.HTTPRequestMethod;
@@ -24,6 +29,7 @@ import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
 import org.b3log.latke.servlet.renderer.DoNothingRenderer;
 import org.b3log.solo.service.StatisticMgmtService;
+import org.b3log.solo.service.UserQueryService;
 
 
 /**
@@ -33,12 +39,15 @@ import org.b3log.solo.service.StatisticMgmtService;
  * Statistics of B3log Solo: 
  * 
  *   <ul>
- *     <li>{@link #viewCounter(org.b3log.latke.servlet.HTTPRequestContext) Blog/Article view counting}</li>
+ *     <li>{@link #viewCountFlusher(org.b3log.latke.servlet.HTTPRequestContext) Blog/Article view count flushing}</li>
+ *     <li>{@link #onlineVisitorCountRefresher(org.b3log.latke.servlet.HTTPRequestContext) Online visitor counting}</li>
+ *     <li>{@link #statisticCheckpointer(org.b3log.latke.servlet.HTTPRequestContext) Article/comment count checkpointing}</li>
+ *     <li>{@link #statisticReconciler(org.b3log.latke.servlet.HTTPRequestContext) Article/comment count reconciling}</li>
  *   </ul>
  * <p>
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.2.0, Oct 12, 2013
+ * @version 1.0.4.1, Nov 2, 2013
  * @since 0.4.0
  */
 @RequestProcessor
@@ -55,6 +64,25 @@ public class StatProcessor {
     @Inject
     private StatisticMgmtService statisticMgmtService;
 
+    /**
+     * User query service.
+     */
+    @Inject
+    private UserQueryService userQueryService;
+
+    /**
+     * Flushes the buffered blog/article view count into datastore.
+     * 
+     * @param context the specified context
+     * @see StatisticMgmtService#flushViewCount() 
+     */
+    @RequestProcessing(value = "/console/stat/viewcnt", method = HTTPRequestMethod.GET)
+    public void viewCountFlusher(final HTTPRequestContext context) {
+        context.setRenderer(new DoNothingRenderer());
+
+        statisticMgmtService.flushViewCount();
+    }
+
     /**
      * Online visitor count refresher.
      * 
@@ -66,4 +94,68 @@ public class StatProcessor {
 
         statisticMgmtService.removeExpiredOnlineVisitor();
     }
+
+    /**
+     * Checkpoints the article/comment count into datastore.
+     * 
+     * @param context the specified context
+     * @see StatisticMgmtService#checkpointStatistic() 
+     */
+    @RequestProcessing(value = "/console/stat/checkpoint", method = HTTPRequestMethod.GET)
+    public void statisticCheckpointer(final HTTPRequestContext context) {
+        context.setRenderer(new DoNothingRenderer());
+
+        statisticMgmtService.checkpointStatistic();
+    }
+
+    /**
+     * Recomputes the article/comment count from articles and comments.
+     * 
+     * <p>
+     * It scans all articles, so only the cron service and the administrator are allowed.
+     * </p>
+     * 
+     * @param context the specified context
+     * @throws IOException io exception
+     * @see StatisticMgmtService#reconcileStatistic() 
+     */
+    @RequestProcessing(value = "/console/stat/reconcile", method = HTTPRequestMethod.GET)
+    public void statisticReconciler(final HTTPRequestContext context) throws IOException {
+        context.setRenderer(new DoNothingRenderer());
+
+        final HttpServletRequest request = context.getRequest();
+
+        if (!isCronRequest(request) && !userQueryService.isAdminLoggedIn(request)) {
+            context.getResponse().sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        statisticMgmtService.reconcileStatistic();
+    }
+
+    /**
+     * Determines whether the specified request is made by the cron service.
+     * 
+     * <p>
+     * On GAE, the cron service sets header "X-AppEngine-Cron" which is stripped from external requests. On the other
+     * runtimes, Latke requests the cron URLs from the server itself, so a request made from the local address and not 
+     * forwarded by a proxy is considered as a cron request.
+     * </p>
+     * 
+     * @param request the specified request
+     * @return {@code true} if it is made by the cron service, returns {@code false} otherwise
+     */
+    private static boolean isCronRequest(final HttpServletRequest request) {
+        if (RuntimeEnv.GAE == Latkes.getRuntimeEnv()) {
+            return "true".equals(request.getHeader("X-AppEngine-Cron"));
+        }
+
+        if (null != request.getHeader("X-Forwarded-For")) {
+            return false;
+        }
+
+        final String remoteAddr = request.getRemoteAddr();
+
+        return "127.0.0.1".equals(remoteAddr) || "0:0:0:0:0:0:0:1".equals(remoteAddr) || remoteAddr.equals(request.getLocalAddr());
+    }
 }
@@ -36,11 +36,13 @@ import org.b3log.latke.servlet.HTTPRequestContext;
 import org.b3log.latke.servlet.HTTPRequestMethod;
 import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
+import org.b3log.latke.servlet.renderer.DoNothingRenderer;
 import org.b3log.latke.servlet.renderer.freemarker.AbstractFreeMarkerRenderer;
 import org.b3log.latke.servlet.renderer.freemarker.FreeMarkerRenderer;
 import org.b3log.latke.util.Paginator;
 import org.b3log.latke.util.Requests;
 import org.b3log.latke.util.Strings;
+import org.b3log.solo.cache.PageCache;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Common;
 import org.b3log.solo.model.Preference;
@@ -50,6 +52,7 @@ import org.b3log.solo.service.ArticleQueryService;
 import org.b3log.solo.service.PreferenceQueryService;
 import org.b3log.solo.service.TagQueryService;
 import org.b3log.solo.service.UserQueryService;
+import org.b3log.solo.util.ConditionalGets;
 import org.b3log.solo.util.Skins;
 import org.b3log.solo.util.comparator.Comparators;
 import org.json.JSONException;
@@ -60,7 +63,7 @@ import org.json.JSONObject;
  * Tag processor.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.1.1.2, Oct 29, 2013
+ * @version 1.1.1.4, Nov 2, 2013
  * @since 0.3.1
  */
 @RequestProcessor
@@ -115,6 +118,15 @@ public class TagProcessor {
      */
     @RequestProcessing(value = "/tags/**", method = HTTPRequestMethod.GET)
     public void showTagArticles(final HTTPRequestContext context) throws IOException {
+        final HttpServletRequest request = context.getRequest();
+        final HttpServletResponse response = context.getResponse();
+
+        if (ConditionalGets.notModified(request, response, 0)) {
+            context.setRenderer(new DoNothingRenderer());
+
+            return;
+        }
+
         final AbstractFreeMarkerRenderer renderer = new FreeMarkerRenderer();
 
         context.setRenderer(renderer);
@@ -122,9 +134,6 @@ public class TagProcessor {
         renderer.setTemplateName("tag-articles.ftl");
         final Map<String, Object> dataModel = renderer.getDataModel();
 
-        final HttpServletRequest request = context.getRequest();
-        final HttpServletResponse response = context.getResponse();
-
         try {
             String requestURI = request.getRequestURI();
 
@@ -201,6 +210,8 @@ public class TagProcessor {
             filler.fillSide(request, dataModel, preference);
             filler.fillBlogHeader(request, response, dataModel, preference);
             filler.fillBlogFooter(request, dataModel, preference);
+
+            request.setAttribute(PageCache.CACHEABLE, true);
         } catch (final ServiceException e) {
             LOGGER.log(Level.ERROR, e.getMessage(), e);
 
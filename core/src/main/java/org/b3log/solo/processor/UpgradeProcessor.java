@@ -34,6 +34,7 @@ import org.b3log.latke.servlet.annotation.RequestProcessing;
 import org.b3log.latke.servlet.annotation.RequestProcessor;
 import org.b3log.latke.servlet.renderer.TextHTMLRenderer;
 import org.b3log.solo.SoloServletListener;
+import org.b3log.solo.cache.PreferenceCache;
 import org.b3log.solo.model.*;
 import org.b3log.solo.repository.*;
 import org.b3log.solo.service.PreferenceQueryService;
@@ -47,7 +48,7 @@ import org.json.JSONObject;
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
  * @author <a href="mailto:dongxu.wang@acm.org">Dongxu Wang</a>
- * @version 1.1.1.11, Oct 27, 2013
+ * @version 1.1.1.12, Nov 2, 2013
  * @since 0.3.1
  */
 @RequestProcessor
@@ -87,6 +88,12 @@ public class UpgradeProcessor {
     @Inject
     private PreferenceQueryService preferenceQueryService;
 
+    /**
+     * Preference cache.
+     */
+    @Inject
+    private PreferenceCache preferenceCache;
+
     /**
      * Mail Service.
      */
@@ -185,6 +192,8 @@ public class UpgradeProcessor {
 
             transaction.commit();
 
+            preferenceCache.putPreference(preference);
+
             LOGGER.log(Level.TRACE, "Updated preference");
         } catch (final Exception e) {
             if (null != transaction && transaction.isActive()) {
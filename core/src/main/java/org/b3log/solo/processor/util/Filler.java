@@ -17,17 +17,14 @@ package org.b3log.solo.processor.util;
 
 
 import freemarker.template.Template;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang.StringEscapeUtils;
-import org.apache.commons.lang.time.DateFormatUtils;
 import org.b3log.latke.Keys;
 import org.b3log.latke.Latkes;
 import org.b3log.latke.event.Event;
@@ -45,17 +42,20 @@ import org.b3log.latke.service.annotation.Service;
 import org.b3log.latke.util.*;
 import org.b3log.latke.util.freemarker.Templates;
 import org.b3log.solo.SoloServletListener;
+import org.b3log.solo.cache.ArchiveDateIndex;
+import org.b3log.solo.cache.ArticleTimeline;
+import org.b3log.solo.cache.TagIndex;
+import org.b3log.solo.cache.TemplateAnalysisCache;
+import org.b3log.solo.cache.UserDirectory;
+import org.b3log.solo.cache.ViewCountBuffer;
+import org.b3log.solo.cache.WidgetCache;
 import org.b3log.solo.model.*;
-import org.b3log.solo.repository.ArchiveDateRepository;
 import org.b3log.solo.repository.ArticleRepository;
 import org.b3log.solo.repository.CommentRepository;
 import org.b3log.solo.repository.LinkRepository;
 import org.b3log.solo.repository.PageRepository;
-import org.b3log.solo.repository.TagRepository;
-import org.b3log.solo.repository.UserRepository;
 import org.b3log.solo.service.ArticleQueryService;
 import org.b3log.solo.service.StatisticQueryService;
-import org.b3log.solo.service.TagQueryService;
 import org.b3log.solo.service.UserQueryService;
 import org.b3log.solo.util.Thumbnails;
 import org.b3log.solo.util.comparator.Comparators;
@@ -68,7 +68,7 @@ import org.json.JSONObject;
  * Filler utilities.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.6.9, Oct 29, 2013
+ * @version 1.0.7.6, Nov 2, 2013
  * @since 0.3.1
  */
 @Service
@@ -98,16 +98,22 @@ public class Filler {
     private CommentRepository commentRepository;
 
     /**
-     * Archive date repository.
+     * Archive date index.
      */
     @Inject
-    private ArchiveDateRepository archiveDateRepository;
+    private ArchiveDateIndex archiveDateIndex;
 
     /**
-     * Tag repository.
+     * Article timeline.
      */
     @Inject
-    private TagRepository tagRepository;
+    private ArticleTimeline articleTimeline;
+
+    /**
+     * Tag index.
+     */
+    @Inject
+    private TagIndex tagIndex;
 
     /**
      * Link repository.
@@ -128,10 +134,10 @@ public class Filler {
     private StatisticQueryService statisticQueryService;
 
     /**
-     * User repository.
+     * User directory.
      */
     @Inject
-    private UserRepository userRepository;
+    private UserDirectory userDirectory;
 
     /**
      * Article query service.
@@ -144,12 +150,6 @@ public class Filler {
      */
     private static final boolean PUBLISHED = true;
 
-    /**
-     * Tag query service.
-     */
-    @Inject
-    private TagQueryService tagQueryService;
-
     /**
      * User query service.
      */
@@ -168,6 +168,24 @@ public class Filler {
     @Inject
     private EventManager eventManager;
 
+    /**
+     * Side bar widget cache.
+     */
+    @Inject
+    private WidgetCache widgetCache;
+
+    /**
+     * View count buffer.
+     */
+    @Inject
+    private ViewCountBuffer viewCountBuffer;
+
+    /**
+     * Template analysis cache.
+     */
+    @Inject
+    private TemplateAnalysisCache templateAnalysisCache;
+
     /**
      * Fills articles in index.ftl.
      *
@@ -193,14 +211,15 @@ public class Filler {
             final Query query = new Query().setCurrentPageNum(currentPageNum).setPageSize(pageSize).setPageCount(pageCount).setFilter(
                 new PropertyFilter(Article.ARTICLE_IS_PUBLISHED, FilterOperator.EQUAL, PUBLISHED));
 
-            final Template template = Templates.getTemplate((String) request.getAttribute(Keys.TEMAPLTE_DIR_NAME), "index.ftl");
+            final String skinDirName = (String) request.getAttribute(Keys.TEMAPLTE_DIR_NAME);
+            final Template template = Templates.getTemplate(skinDirName, "index.ftl");
 
             boolean isArticles1 = false;
 
             if (null == template) {
                 LOGGER.debug("The skin dose not contain [index.ftl] template");
             } else { // See https://github.com/b3log/b3log-solo/issues/179 for more details
-                if (Templates.hasExpression(template, "<#list articles1 as article>")) {
+                if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list articles1 as article>")) {
                     isArticles1 = true;
                     query.addSort(Article.ARTICLE_CREATE_DATE, SortDirection.DESCENDING);
 
@@ -267,12 +286,17 @@ public class Filler {
     public void fillLinks(final Map<String, Object> dataModel) throws ServiceException {
         Stopwatchs.start("Fill Links");
         try {
-            final Map<String, SortDirection> sorts = new HashMap<String, SortDirection>();
+            final String cacheKey = Link.LINKS;
+            List<JSONObject> links = widgetCache.get(cacheKey);
+
+            if (null == links) {
+                final long generation = widgetCache.getGeneration();
+                final Query query = new Query().addSort(Link.LINK_ORDER, SortDirection.ASCENDING).setPageCount(1);
+                final JSONObject linkResult = linkRepository.get(query);
 
-            sorts.put(Link.LINK_ORDER, SortDirection.ASCENDING);
-            final Query query = new Query().addSort(Link.LINK_ORDER, SortDirection.ASCENDING).setPageCount(1);
-            final JSONObject linkResult = linkRepository.get(query);
-            final List<JSONObject> links = org.b3log.latke.util.CollectionUtils.jsonArrayToList(linkResult.getJSONArray(Keys.RESULTS));
+                links = org.b3log.latke.util.CollectionUtils.jsonArrayToList(linkResult.getJSONArray(Keys.RESULTS));
+                widgetCache.put(cacheKey, generation, links);
+            }
 
             dataModel.put(Link.LINKS, links);
         } catch (final JSONException e) {
@@ -296,9 +320,8 @@ public class Filler {
     public void fillTags(final Map<String, Object> dataModel) throws ServiceException {
         Stopwatchs.start("Fill Tags");
         try {
-            final List<JSONObject> tags = tagQueryService.getTags();
+            final List<JSONObject> tags = tagIndex.getPublishedTags();
 
-            tagQueryService.removeForUnpublishedArticles(tags);
             Collections.sort(tags, Comparators.TAG_REF_CNT_COMPARATOR);
 
             dataModel.put(Tag.TAGS, tags);
@@ -328,10 +351,15 @@ public class Filler {
         try {
             LOGGER.debug("Filling most used tags....");
             final int mostUsedTagDisplayCnt = preference.getInt(Preference.MOST_USED_TAG_DISPLAY_CNT);
+            final String cacheKey = Common.MOST_USED_TAGS + ':' + mostUsedTagDisplayCnt;
+            List<JSONObject> tags = widgetCache.get(cacheKey);
 
-            final List<JSONObject> tags = tagRepository.getMostUsedTags(mostUsedTagDisplayCnt);
+            if (null == tags) {
+                final long generation = widgetCache.getGeneration();
 
-            tagQueryService.removeForUnpublishedArticles(tags);
+                tags = tagIndex.getMostUsedTags(mostUsedTagDisplayCnt);
+                widgetCache.put(cacheKey, generation, tags);
+            }
 
             dataModel.put(Common.MOST_USED_TAGS, tags);
         } catch (final JSONException e) {
@@ -357,53 +385,23 @@ public class Filler {
 
         try {
             LOGGER.debug("Filling archive dates....");
-            final List<JSONObject> archiveDates = archiveDateRepository.getArchiveDates();
-            final List<JSONObject> archiveDates2 = new ArrayList<JSONObject>();
-
-            dataModel.put(ArchiveDate.ARCHIVE_DATES, archiveDates2);
-
-            if (archiveDates.isEmpty()) {
-                return;
-            }
-
-            archiveDates2.add(archiveDates.get(0));
-
-            // XXX: Workaround, remove the duplicated archive dates
-            for (final JSONObject archiveDate : archiveDates) {
-                final long time = archiveDate.getLong(ArchiveDate.ARCHIVE_TIME);
-                final String dateString = DateFormatUtils.format(time, "yyyy/MM");
-
-                final JSONObject last = archiveDates2.get(archiveDates2.size() - 1);
-                final String lastDateString = DateFormatUtils.format(last.getLong(ArchiveDate.ARCHIVE_TIME), "yyyy/MM");
-
-                if (!dateString.equals(lastDateString)) {
-                    archiveDates2.add(archiveDate);
-                } else {
-                    LOGGER.log(Level.WARN, "Found a duplicated archive date [{0}]", dateString);
-                }
-            }
-
             final String localeString = preference.getString(Preference.LOCALE_STRING);
             final String language = Locales.getLanguage(localeString);
+            final String cacheKey = ArchiveDate.ARCHIVE_DATES + ':' + language;
+            final List<JSONObject> cached = widgetCache.get(cacheKey);
 
-            for (final JSONObject archiveDate : archiveDates2) {
-                final long time = archiveDate.getLong(ArchiveDate.ARCHIVE_TIME);
-                final String dateString = DateFormatUtils.format(time, "yyyy/MM");
-                final String[] dateStrings = dateString.split("/");
-                final String year = dateStrings[0];
-                final String month = dateStrings[1];
+            if (null != cached) {
+                dataModel.put(ArchiveDate.ARCHIVE_DATES, cached);
 
-                archiveDate.put(ArchiveDate.ARCHIVE_DATE_YEAR, year);
+                return;
+            }
 
-                archiveDate.put(ArchiveDate.ARCHIVE_DATE_MONTH, month);
-                if ("en".equals(language)) {
-                    final String monthName = Dates.EN_MONTHS.get(month);
+            final long generation = widgetCache.getGeneration();
+            final List<JSONObject> archiveDates = archiveDateIndex.getArchiveDates(language);
 
-                    archiveDate.put(Common.MONTH_NAME, monthName);
-                }
-            }
+            dataModel.put(ArchiveDate.ARCHIVE_DATES, archiveDates);
 
-            dataModel.put(ArchiveDate.ARCHIVE_DATES, archiveDates2);
+            widgetCache.put(cacheKey, generation, archiveDates);
         } catch (final JSONException e) {
             LOGGER.log(Level.ERROR, "Fills archive dates failed", e);
             throw new ServiceException(e);
@@ -426,8 +424,16 @@ public class Filler {
         Stopwatchs.start("Fill Most View Articles");
         try {
             LOGGER.debug("Filling the most view count articles....");
-            final int mostCommentArticleDisplayCnt = preference.getInt(Preference.MOST_VIEW_ARTICLE_DISPLAY_CNT);
-            final List<JSONObject> mostViewCountArticles = articleRepository.getMostViewCountArticles(mostCommentArticleDisplayCnt);
+            final int mostViewArticleDisplayCnt = preference.getInt(Preference.MOST_VIEW_ARTICLE_DISPLAY_CNT);
+            final String cacheKey = Common.MOST_VIEW_COUNT_ARTICLES + ':' + mostViewArticleDisplayCnt;
+            List<JSONObject> mostViewCountArticles = widgetCache.get(cacheKey);
+
+            if (null == mostViewCountArticles) {
+                final long generation = widgetCache.getGeneration();
+
+                mostViewCountArticles = articleRepository.getMostViewCountArticles(mostViewArticleDisplayCnt);
+                widgetCache.put(cacheKey, generation, mostViewCountArticles);
+            }
 
             dataModel.put(Common.MOST_VIEW_COUNT_ARTICLES, mostViewCountArticles);
 
@@ -452,7 +458,15 @@ public class Filler {
         try {
             LOGGER.debug("Filling most comment articles....");
             final int mostCommentArticleDisplayCnt = preference.getInt(Preference.MOST_COMMENT_ARTICLE_DISPLAY_CNT);
-            final List<JSONObject> mostCommentArticles = articleRepository.getMostCommentArticles(mostCommentArticleDisplayCnt);
+            final String cacheKey = Common.MOST_COMMENT_ARTICLES + ':' + mostCommentArticleDisplayCnt;
+            List<JSONObject> mostCommentArticles = widgetCache.get(cacheKey);
+
+            if (null == mostCommentArticles) {
+                final long generation = widgetCache.getGeneration();
+
+                mostCommentArticles = articleRepository.getMostCommentArticles(mostCommentArticleDisplayCnt);
+                widgetCache.put(cacheKey, generation, mostCommentArticles);
+            }
 
             dataModel.put(Common.MOST_COMMENT_ARTICLES, mostCommentArticles);
         } catch (final Exception e) {
@@ -475,8 +489,16 @@ public class Filler {
 
         try {
             final int recentArticleDisplayCnt = preference.getInt(Preference.RECENT_ARTICLE_DISPLAY_CNT);
+            final String cacheKey = Common.RECENT_ARTICLES + ':' + recentArticleDisplayCnt;
+            List<JSONObject> recentArticles = widgetCache.get(cacheKey);
 
-            final List<JSONObject> recentArticles = articleRepository.getRecentArticles(recentArticleDisplayCnt);
+            if (null == recentArticles) {
+                final long generation = widgetCache.getGeneration();
+
+                recentArticles = articleRepository.getByIds(articleTimeline.getRecentArticleIds(recentArticleDisplayCnt));
+                Collections.sort(recentArticles, Comparators.ARTICLE_UPDATE_DATE_COMPARATOR);
+                widgetCache.put(cacheKey, generation, recentArticles);
+            }
 
             dataModel.put(Common.RECENT_ARTICLES, recentArticles);
 
@@ -503,17 +525,25 @@ public class Filler {
         try {
             LOGGER.debug("Filling recent comments....");
             final int recentCommentDisplayCnt = preference.getInt(Preference.RECENT_COMMENT_DISPLAY_CNT);
+            final String cacheKey = Common.RECENT_COMMENTS + ':' + recentCommentDisplayCnt;
+            List<JSONObject> recentComments = widgetCache.get(cacheKey);
 
-            final List<JSONObject> recentComments = commentRepository.getRecentComments(recentCommentDisplayCnt);
+            if (null == recentComments) {
+                final long generation = widgetCache.getGeneration();
 
-            for (final JSONObject comment : recentComments) {
-                final String content = comment.getString(Comment.COMMENT_CONTENT).replaceAll(SoloServletListener.ENTER_ESC, "&nbsp;");
+                recentComments = commentRepository.getRecentComments(recentCommentDisplayCnt);
 
-                comment.put(Comment.COMMENT_CONTENT, content);
-                comment.put(Comment.COMMENT_NAME, StringEscapeUtils.escapeHtml(comment.getString(Comment.COMMENT_NAME)));
-                comment.put(Comment.COMMENT_URL, StringEscapeUtils.escapeHtml(comment.getString(Comment.COMMENT_URL)));
+                for (final JSONObject comment : recentComments) {
+                    final String content = comment.getString(Comment.COMMENT_CONTENT).replaceAll(SoloServletListener.ENTER_ESC, "&nbsp;");
 
-                comment.remove(Comment.COMMENT_EMAIL); // Erases email for security reason
+                    comment.put(Comment.COMMENT_CONTENT, content);
+                    comment.put(Comment.COMMENT_NAME, StringEscapeUtils.escapeHtml(comment.getString(Comment.COMMENT_NAME)));
+                    comment.put(Comment.COMMENT_URL, StringEscapeUtils.escapeHtml(comment.getString(Comment.COMMENT_URL)));
+
+                    comment.remove(Comment.COMMENT_EMAIL); // Erases email for security reason
+                }
+
+                widgetCache.put(cacheKey, generation, recentComments);
             }
 
             dataModel.put(Common.RECENT_COMMENTS, recentComments);
@@ -619,10 +649,7 @@ public class Filler {
 
             dataModel.put(Preference.NOTICE_BOARD, noticeBoard);
 
-            final Query query = new Query().setPageCount(1);
-            final JSONObject result = userRepository.get(query);
-            final JSONArray users = result.getJSONArray(Keys.RESULTS);
-            final List<JSONObject> userList = CollectionUtils.jsonArrayToList(users);
+            final List<JSONObject> userList = userDirectory.getUsers();
 
             dataModel.put(User.USERS, userList);
             for (final JSONObject user : userList) {
@@ -683,12 +710,13 @@ public class Filler {
         try {
             LOGGER.debug("Filling side....");
 
-            Template template = Templates.getTemplate((String) request.getAttribute(Keys.TEMAPLTE_DIR_NAME), "side.ftl");
+            final String skinDirName = (String) request.getAttribute(Keys.TEMAPLTE_DIR_NAME);
+            Template template = Templates.getTemplate(skinDirName, "side.ftl");
 
             if (null == template) {
                 LOGGER.debug("The skin dose not contain [side.ftl] template");
 
-                template = Templates.getTemplate((String) request.getAttribute(Keys.TEMAPLTE_DIR_NAME), "index.ftl");
+                template = Templates.getTemplate(skinDirName, "index.ftl");
                 if (null == template) {
                     LOGGER.debug("The skin dose not contain [index.ftl] template");
                     return;
@@ -697,31 +725,31 @@ public class Filler {
 
             dataModel.put("fillTagArticles", fillTagArticles);
 
-            if (Templates.hasExpression(template, "<#list recentArticles as article>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list recentArticles as article>")) {
                 fillRecentArticles(dataModel, preference);
             }
 
-            if (Templates.hasExpression(template, "<#list links as link>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list links as link>")) {
                 fillLinks(dataModel);
             }
 
-            if (Templates.hasExpression(template, "<#list recentComments as comment>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list recentComments as comment>")) {
                 fillRecentComments(dataModel, preference);
             }
 
-            if (Templates.hasExpression(template, "<#list mostUsedTags as tag>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list mostUsedTags as tag>")) {
                 fillMostUsedTags(dataModel, preference);
             }
 
-            if (Templates.hasExpression(template, "<#list mostCommentArticles as article>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list mostCommentArticles as article>")) {
                 fillMostCommentArticles(dataModel, preference);
             }
 
-            if (Templates.hasExpression(template, "<#list mostViewCountArticles as article>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list mostViewCountArticles as article>")) {
                 fillMostViewCountArticles(dataModel, preference);
             }
 
-            if (Templates.hasExpression(template, "<#list archiveDates as archiveDate>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list archiveDates as archiveDate>")) {
                 fillArchiveDates(dataModel, preference);
             }
 
@@ -748,35 +776,37 @@ public class Filler {
         try {
             LOGGER.log(Level.DEBUG, "Filling user template[name{0}]", template.getName());
 
-            if (Templates.hasExpression(template, "<#list links as link>")) {
+            final String skinDirName = (String) request.getAttribute(Keys.TEMAPLTE_DIR_NAME);
+
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list links as link>")) {
                 fillLinks(dataModel);
             }
 
-            if (Templates.hasExpression(template, "<#list tags as tag>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list tags as tag>")) {
                 fillTags(dataModel);
             }
 
-            if (Templates.hasExpression(template, "<#list recentComments as comment>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list recentComments as comment>")) {
                 fillRecentComments(dataModel, preference);
             }
 
-            if (Templates.hasExpression(template, "<#list mostUsedTags as tag>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list mostUsedTags as tag>")) {
                 fillMostUsedTags(dataModel, preference);
             }
 
-            if (Templates.hasExpression(template, "<#list mostCommentArticles as article>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list mostCommentArticles as article>")) {
                 fillMostCommentArticles(dataModel, preference);
             }
 
-            if (Templates.hasExpression(template, "<#list mostViewCountArticles as article>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list mostViewCountArticles as article>")) {
                 fillMostViewCountArticles(dataModel, preference);
             }
 
-            if (Templates.hasExpression(template, "<#list archiveDates as archiveDate>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#list archiveDates as archiveDate>")) {
                 fillArchiveDates(dataModel, preference);
             }
 
-            if (Templates.hasExpression(template, "<#include \"side.ftl\"/>")) {
+            if (templateAnalysisCache.hasExpression(skinDirName, template, "<#include \"side.ftl\"/>")) {
                 fillSide(request, dataModel, preference);
             }
 
@@ -832,6 +862,10 @@ public class Filler {
             LOGGER.debug("Filling statistic....");
             final JSONObject statistic = statisticQueryService.getStatistic();
 
+            // Merges the view count not flushed yet
+            statistic.put(Statistic.STATISTIC_BLOG_VIEW_COUNT,
+                statistic.optInt(Statistic.STATISTIC_BLOG_VIEW_COUNT) + viewCountBuffer.getBlogDelta());
+
             dataModel.put(Statistic.STATISTIC, statistic);
         } catch (final ServiceException e) {
             LOGGER.log(Level.ERROR, "Fills statistic failed", e);
@@ -878,6 +912,7 @@ public class Filler {
                 article.put(Common.HAS_UPDATED, false);
             }
 
+            mergeViewCount(article);
             processArticleAbstract(preference, article);
 
             articleQueryService.markdown(article);
@@ -922,6 +957,7 @@ public class Filler {
                 article.put(Common.HAS_UPDATED, false);
             }
 
+            mergeViewCount(article);
             processArticleAbstract(preference, article);
 
             articleQueryService.markdown(article);
@@ -931,6 +967,23 @@ public class Filler {
         }
     }
 
+    /**
+     * Merges the buffered view count (not flushed yet) into the specified article.
+     * 
+     * @param article the specified article
+     * @throws JSONException json exception
+     * @see ViewCountBuffer
+     */
+    private void mergeViewCount(final JSONObject article) throws JSONException {
+        if (!article.has(Article.ARTICLE_VIEW_COUNT)) {
+            return;
+        }
+
+        final int delta = viewCountBuffer.getArticleDelta(article.optString(Keys.OBJECT_ID));
+
+        article.put(Article.ARTICLE_VIEW_COUNT, article.getInt(Article.ARTICLE_VIEW_COUNT) + delta);
+    }
+
     /**
      * Sets some extra properties into the specified article with the specified author and preference.
      *
@@ -16,6 +16,7 @@
 package org.b3log.solo.repository;
 
 
+import java.util.Collection;
 import java.util.List;
 import org.b3log.latke.repository.Repository;
 import org.b3log.latke.repository.RepositoryException;
@@ -26,7 +27,7 @@ import org.json.JSONObject;
  * Article repository.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.1.9, Dec 31, 2011
+ * @version 1.0.1.10, Nov 2, 2013
  * @since 0.3.1
  */
 public interface ArticleRepository extends Repository {
@@ -128,4 +129,13 @@ public interface ArticleRepository extends Repository {
      * @throws RepositoryException repository exception
      */
     boolean isPublished(final String articleId) throws RepositoryException;
+
+    /**
+     * Gets articles by the specified article ids in one query.
+     * 
+     * @param articleIds the specified article ids
+     * @return a list of articles found, in no particular order, returns an empty list if not found
+     * @throws RepositoryException repository exception
+     */
+    List<JSONObject> getByIds(final Collection<String> articleIds) throws RepositoryException;
 }
@@ -17,6 +17,8 @@ package org.b3log.solo.repository.impl;
 
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import org.b3log.latke.Keys;
@@ -42,7 +44,7 @@ import org.json.JSONObject;
  * Article repository.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.3.10, Jan 31, 2013
+ * @version 1.0.3.11, Nov 2, 2013
  * @since 0.3.1
  */
 @Repository
@@ -199,6 +201,20 @@ public class ArticleRepositoryImpl extends AbstractRepository implements Article
         return article.optBoolean(Article.ARTICLE_IS_PUBLISHED);
     }
 
+    @Override
+    public List<JSONObject> getByIds(final Collection<String> articleIds) throws RepositoryException {
+        if (articleIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Query query = new Query().setFilter(new PropertyFilter(Keys.OBJECT_ID, FilterOperator.IN, articleIds)).setPageCount(1);
+
+        final JSONObject result = get(query);
+        final JSONArray array = result.optJSONArray(Keys.RESULTS);
+
+        return CollectionUtils.jsonArrayToList(array);
+    }
+
     @Override
     public List<JSONObject> getRandomly(final int fetchSize) throws RepositoryException {
         final List<JSONObject> ret = new ArrayList<JSONObject>();
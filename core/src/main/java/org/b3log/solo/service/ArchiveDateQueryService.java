@@ -23,8 +23,8 @@ import org.b3log.latke.logging.Logger;
 import org.b3log.latke.repository.RepositoryException;
 import org.b3log.latke.service.ServiceException;
 import org.b3log.latke.service.annotation.Service;
+import org.b3log.solo.cache.ArchiveDateIndex;
 import org.b3log.solo.model.ArchiveDate;
-import org.b3log.solo.repository.ArchiveDateRepository;
 import org.json.JSONObject;
 
 
@@ -32,7 +32,7 @@ import org.json.JSONObject;
  * Archive date query service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.0, Feb 7, 2012
+ * @version 1.0.1.0, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -44,20 +44,20 @@ public class ArchiveDateQueryService {
     private static final Logger LOGGER = Logger.getLogger(ArchiveDateQueryService.class.getName());
 
     /**
-     * Archive date repository.
+     * Archive date index.
      */
     @Inject
-    private ArchiveDateRepository archiveDateRepository;
+    private ArchiveDateIndex archiveDateIndex;
 
     /**
-     * Gets all archive dates.
+     * Gets all archive dates of published articles.
      * 
-     * @return a list of archive dates, returns an empty list if not found
+     * @return a list of archive dates ordered by archive time descending, returns an empty list if not found
      * @throws ServiceException service exception
      */
     public List<JSONObject> getArchiveDates() throws ServiceException {
         try {
-            return archiveDateRepository.getArchiveDates();
+            return archiveDateIndex.getArchiveDates();
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Gets archive dates failed", e);
             throw new ServiceException("Gets archive dates failed");
@@ -85,7 +85,7 @@ public class ArchiveDateQueryService {
         final JSONObject ret = new JSONObject();
 
         try {
-            final JSONObject archiveDate = archiveDateRepository.getByArchiveDate(archiveDateString);
+            final JSONObject archiveDate = archiveDateIndex.getByArchiveDate(archiveDateString);
 
             if (null == archiveDate) {
                 return null;
@@ -101,11 +101,11 @@ public class ArchiveDateQueryService {
     }
 
     /**
-     * Sets archive date repository with the specified archive date repository.
+     * Sets archive date index with the specified archive date index.
      * 
-     * @param archiveDateRepository the specified archive date repository
+     * @param archiveDateIndex the specified archive date index
      */
-    public void setArchiveDateRepository(final ArchiveDateRepository archiveDateRepository) {
-        this.archiveDateRepository = archiveDateRepository;
+    public void setArchiveDateIndex(final ArchiveDateIndex archiveDateIndex) {
+        this.archiveDateIndex = archiveDateIndex;
     }
 }
@@ -38,6 +38,18 @@ import org.b3log.latke.service.annotation.Service;
 import org.b3log.latke.util.CollectionUtils;
 import org.b3log.latke.util.Ids;
 import org.b3log.latke.util.Strings;
+import org.b3log.solo.cache.ArchiveDateIndex;
+import org.b3log.solo.cache.ArticleTimeline;
+import org.b3log.solo.cache.CommentCache;
+import org.b3log.solo.cache.ContentVersion;
+import org.b3log.solo.cache.MarkdownCache;
+import org.b3log.solo.cache.PageCache;
+import org.b3log.solo.cache.PermalinkIndex;
+import org.b3log.solo.cache.RandomArticleSampler;
+import org.b3log.solo.cache.RelevantArticleIndex;
+import org.b3log.solo.cache.TagIndex;
+import org.b3log.solo.cache.UserDirectory;
+import org.b3log.solo.cache.ViewCountBuffer;
 import org.b3log.solo.event.EventTypes;
 import org.b3log.solo.model.*;
 import static org.b3log.solo.model.Article.*;
@@ -58,7 +70,7 @@ import org.json.JSONObject;
  * Article management service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.1.6, Oct 26, 2013
+ * @version 1.0.1.19, Nov 2, 2013
  * @since 0.3.5
  */
 @Service
@@ -136,22 +148,88 @@ public class ArticleMgmtService {
     private EventManager eventManager;
 
     /**
-     * Language service.
+     * Permalink index.
      */
     @Inject
-    private LangPropsService langPropsService;
+    private PermalinkIndex permalinkIndex;
 
     /**
-     * Statistic management service.
+     * View count buffer.
      */
     @Inject
-    private StatisticMgmtService statisticMgmtService;
+    private ViewCountBuffer viewCountBuffer;
+
+    /**
+     * Markdown cache.
+     */
+    @Inject
+    private MarkdownCache markdownCache;
+
+    /**
+     * Relevant article index.
+     */
+    @Inject
+    private RelevantArticleIndex relevantArticleIndex;
+
+    /**
+     * Content version.
+     */
+    @Inject
+    private ContentVersion contentVersion;
+
+    /**
+     * Page cache.
+     */
+    @Inject
+    private PageCache pageCache;
+
+    /**
+     * Random article sampler.
+     */
+    @Inject
+    private RandomArticleSampler randomArticleSampler;
+
+    /**
+     * Article timeline.
+     */
+    @Inject
+    private ArticleTimeline articleTimeline;
+
+    /**
+     * Comment cache.
+     */
+    @Inject
+    private CommentCache commentCache;
 
     /**
-     * Statistic query service.
+     * User directory.
      */
     @Inject
-    private StatisticQueryService statisticQueryService;
+    private UserDirectory userDirectory;
+
+    /**
+     * Tag index.
+     */
+    @Inject
+    private TagIndex tagIndex;
+
+    /**
+     * Archive date index.
+     */
+    @Inject
+    private ArchiveDateIndex archiveDateIndex;
+
+    /**
+     * Language service.
+     */
+    @Inject
+    private LangPropsService langPropsService;
+
+    /**
+     * Statistic management service.
+     */
+    @Inject
+    private StatisticMgmtService statisticMgmtService;
 
     /**
      * Tag management service.
@@ -194,10 +272,9 @@ public class ArticleMgmtService {
 
             articleRepository.update(articleId, article);
             statisticMgmtService.decPublishedBlogArticleCount();
-            final int blogCmtCnt = statisticQueryService.getPublishedBlogCommentCount();
             final int articleCmtCnt = article.getInt(ARTICLE_COMMENT_COUNT);
 
-            statisticMgmtService.setPublishedBlogCommentCount(blogCmtCnt - articleCmtCnt);
+            statisticMgmtService.addPublishedBlogCommentCount(-articleCmtCnt);
 
             final JSONObject author = userRepository.getByEmail(article.optString(Article.ARTICLE_AUTHOR_EMAIL));
 
@@ -205,11 +282,34 @@ public class ArticleMgmtService {
             userRepository.update(author.optString(Keys.OBJECT_ID), author);
 
             transaction.commit();
+
+            statisticMgmtService.publishCountChanges();
+
+            relevantArticleIndex.remove(articleId);
+            randomArticleSampler.remove(articleId);
+            articleTimeline.remove(articleId);
+            userDirectory.clear();
+
+            // Fire cancel publish article event
+            final JSONObject eventData = new JSONObject();
+
+            eventData.put(ARTICLE, article);
+            try {
+                eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.CANCEL_PUBLISH_ARTICLE, eventData));
+            } catch (final EventException e) {
+                LOGGER.log(Level.WARN, "Cancel publish article event process failed", e);
+            }
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
+                tagIndex.clear();
+                archiveDateIndex.clear();
+                randomArticleSampler.clear();
+                articleTimeline.clear();
             }
 
+            statisticMgmtService.discardCountChanges();
+
             LOGGER.log(Level.ERROR, "Cancels publish article failed", e);
 
             throw new ServiceException(e);
@@ -235,6 +335,10 @@ public class ArticleMgmtService {
             articleRepository.update(articleId, topArticle);
 
             transaction.commit();
+
+            // The article list order changed, no event for it
+            contentVersion.bump();
+            pageCache.clear();
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
@@ -329,10 +433,9 @@ public class ArticleMgmtService {
             if (publishNewArticle) {
                 // This article is updated from unpublished to published
                 statisticMgmtService.incPublishedBlogArticleCount();
-                final int blogCmtCnt = statisticQueryService.getPublishedBlogCommentCount();
                 final int articleCmtCnt = article.getInt(ARTICLE_COMMENT_COUNT);
 
-                statisticMgmtService.setPublishedBlogCommentCount(blogCmtCnt + articleCmtCnt);
+                statisticMgmtService.addPublishedBlogCommentCount(articleCmtCnt);
 
                 final JSONObject author = userRepository.getByEmail(article.optString(Article.ARTICLE_AUTHOR_EMAIL));
 
@@ -353,44 +456,54 @@ public class ArticleMgmtService {
 
             article.put(Common.POST_TO_COMMUNITY, postToCommunity); // Restores the property
 
-            if (publishNewArticle) {
-                // Fire add article event
-                final JSONObject eventData = new JSONObject();
+            transaction.commit();
 
-                eventData.put(ARTICLE, article);
-                eventData.put(Keys.RESULTS, ret);
-                try {
-                    eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.ADD_ARTICLE, eventData));
-                } catch (final EventException e) {
-                    LOGGER.log(Level.ERROR, e.getMessage(), e);
-                }
-            } else {
-                // Fire update article event
-                final JSONObject eventData = new JSONObject();
+            statisticMgmtService.publishCountChanges();
 
-                eventData.put(ARTICLE, article);
-                eventData.put(Keys.RESULTS, ret);
-                try {
-                    eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.UPDATE_ARTICLE, eventData));
-                } catch (final EventException e) {
-                    LOGGER.log(Level.ERROR, e.getMessage(), e);
-                }
-            }
+            permalinkIndex.putArticle(articleId, permalink);
+            relevantArticleIndex.putArticle(article);
+            randomArticleSampler.putArticle(article);
+            articleTimeline.putArticle(article);
+            commentCache.remove(articleId);
+            userDirectory.clear();
+            cacheMarkdown(article);
 
-            transaction.commit();
+            // Fire add/update article event after commit, so that the listeners (caches, etc.) see the committed article
+            final JSONObject eventData = new JSONObject();
+
+            eventData.put(ARTICLE, article);
+            eventData.put(Keys.RESULTS, ret);
+            try {
+                eventManager.fireEventSynchronously(
+                    new Event<JSONObject>(publishNewArticle ? EventTypes.ADD_ARTICLE : EventTypes.UPDATE_ARTICLE, eventData));
+            } catch (final EventException e) {
+                LOGGER.log(Level.ERROR, e.getMessage(), e);
+            }
         } catch (final ServiceException e) {
             if (transaction.isActive()) {
                 transaction.rollback();
+                tagIndex.clear();
+                archiveDateIndex.clear();
+                randomArticleSampler.clear();
+                articleTimeline.clear();
             }
 
+            statisticMgmtService.discardCountChanges();
+
             LOGGER.log(Level.ERROR, "Updates an article failed", e);
 
             throw e;
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
+                tagIndex.clear();
+                archiveDateIndex.clear();
+                randomArticleSampler.clear();
+                articleTimeline.clear();
             }
 
+            statisticMgmtService.discardCountChanges();
+
             LOGGER.log(Level.ERROR, "Updates an article failed", e);
 
             throw new ServiceException(e.getMessage());
@@ -430,29 +543,66 @@ public class ArticleMgmtService {
 
         try {
             final JSONObject article = requestJSONObject.getJSONObject(Article.ARTICLE);
+            final boolean postToCommunity = article.optBoolean(Common.POST_TO_COMMUNITY, true);
 
             final String ret = addArticleInternal(article);
 
             transaction.commit();
 
+            statisticMgmtService.publishCountChanges();
+            archiveDateIndex.publishPendings();
+            indexTags(ret);
+            permalinkIndex.putArticle(ret, article.optString(Article.ARTICLE_PERMALINK));
+            relevantArticleIndex.putArticle(article);
+            randomArticleSampler.putArticle(article);
+            articleTimeline.putArticle(article);
+            userDirectory.clear();
+
+            if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED)) {
+                // Fire add article event after commit, so that the listeners (caches, etc.) see the committed article
+                article.put(Common.POST_TO_COMMUNITY, postToCommunity);
+
+                final JSONObject eventData = new JSONObject();
+
+                eventData.put(Article.ARTICLE, article);
+                try {
+                    eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.ADD_ARTICLE, eventData));
+                } catch (final EventException e) {
+                    LOGGER.log(Level.WARN, "Adds an article event process failed", e);
+                }
+
+                article.remove(Common.POST_TO_COMMUNITY);
+            }
+
             return ret;
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
+                tagIndex.clear();
+                archiveDateIndex.clear();
+                randomArticleSampler.clear();
+                articleTimeline.clear();
             }
 
+            statisticMgmtService.discardCountChanges();
+            archiveDateIndex.discardPendings();
+
             throw new ServiceException(e.getMessage());
         }
     }
 
     /**
-     * Adds the specified article for internal invocation purposes.
+     * Adds the specified article in the current transaction.
+     * 
+     * <p>
+     * The add article event will be fired by the caller after the transaction committed.
+     * </p>
      *
      * @param article the specified article
      * @return generated article id
      * @throws ServiceException service exception
      */
-    public String addArticleInternal(final JSONObject article) throws ServiceException {
+    private String addArticleInternal(final JSONObject article) throws ServiceException {
         String ret = article.optString(Keys.OBJECT_ID);
 
         if (Strings.isEmptyOrNull(ret)) {
@@ -505,8 +655,6 @@ public class ArticleMgmtService {
             // Step 11: Set random double
             article.put(Article.ARTICLE_RANDOM_DOUBLE, Math.random());
             // Step 12: Set post to community
-            final boolean postToCommunity = article.optBoolean(Common.POST_TO_COMMUNITY, true);
-
             article.remove(Common.POST_TO_COMMUNITY); // Do not persist this property
             // Setp 13: Update user article statistic
             final JSONObject author = userRepository.getByEmail(article.optString(Article.ARTICLE_AUTHOR_EMAIL));
@@ -523,24 +671,11 @@ public class ArticleMgmtService {
             }
             // Step 15: Add article
             articleRepository.add(article);
-
-            article.put(Common.POST_TO_COMMUNITY, postToCommunity); // Restores the property
-
-            if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED)) {
-                // Fire add article event
-                final JSONObject eventData = new JSONObject();
-
-                eventData.put(Article.ARTICLE, article);
-                eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.ADD_ARTICLE, eventData));
-            }
-
-            article.remove(Common.POST_TO_COMMUNITY);
+            cacheMarkdown(article);
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Adds an article failed", e);
 
             throw new ServiceException(e);
-        } catch (final EventException e) {
-            LOGGER.log(Level.WARN, "Adds an article event process failed", e);
         }
 
         return ret;
@@ -579,11 +714,37 @@ public class ArticleMgmtService {
             userRepository.update(author.optString(Keys.OBJECT_ID), author);
 
             transaction.commit();
+
+            statisticMgmtService.publishCountChanges();
+
+            permalinkIndex.remove(articleId);
+            relevantArticleIndex.remove(articleId);
+            randomArticleSampler.remove(articleId);
+            articleTimeline.remove(articleId);
+            commentCache.remove(articleId);
+            viewCountBuffer.removeArticle(articleId);
+            userDirectory.clear();
+
+            // Fire remove article event
+            final JSONObject eventData = new JSONObject();
+
+            eventData.put(ARTICLE, article);
+            try {
+                eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.REMOVE_ARTICLE, eventData));
+            } catch (final EventException e) {
+                LOGGER.log(Level.WARN, "Remove article event process failed", e);
+            }
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
+                tagIndex.clear();
+                archiveDateIndex.clear();
+                randomArticleSampler.clear();
+                articleTimeline.clear();
             }
 
+            statisticMgmtService.discardCountChanges();
+
             LOGGER.log(Level.ERROR, "Removes an article[id=" + articleId + "] failed", e);
             throw new ServiceException(e);
         }
@@ -626,40 +787,18 @@ public class ArticleMgmtService {
     /**
      * Increments the view count of the article specified by the given article id.
      * 
+     * <p>
+     * The view count is buffered in {@link ViewCountBuffer}, and will be flushed into datastore while the pending count
+     * reached the {@link ViewCountBuffer#FLUSH_THRESHOLD threshold} or by the cron job (/console/stat/viewcnt).
+     * </p>
+     * 
      * @param articleId the given article id
      * @throws ServiceException service exception
+     * @see StatisticMgmtService#flushViewCount() 
      */
     public void incViewCount(final String articleId) throws ServiceException {
-        JSONObject article;
-
-        try {
-            article = articleRepository.get(articleId);
-
-            if (null == article) {
-                return;
-            }
-        } catch (final RepositoryException e) {
-            LOGGER.log(Level.ERROR, "Gets article [id=" + articleId + "] failed", e);
-
-            return;
-        }
-
-        final Transaction transaction = articleRepository.beginTransaction();
-
-        try {
-            article.put(Article.ARTICLE_VIEW_COUNT, article.getInt(Article.ARTICLE_VIEW_COUNT) + 1);
-
-            articleRepository.update(articleId, article);
-
-            transaction.commit();
-        } catch (final Exception e) {
-            if (transaction.isActive()) {
-                transaction.rollback();
-            }
-
-            LOGGER.log(Level.WARN, "Updates article view count failed");
-
-            throw new ServiceException(e);
+        if (viewCountBuffer.incArticle(articleId)) {
+            statisticMgmtService.flushViewCount();
         }
     }
 
@@ -688,6 +827,7 @@ public class ArticleMgmtService {
                     tag.put(Tag.TAG_PUBLISHED_REFERENCE_COUNT, publishedRefCnt);
                 }
                 tagRepository.update(tagId, tag);
+                tagIndex.put(tag);
                 LOGGER.log(Level.TRACE, "Deced tag[title={0}, refCnt={1}, publishedRefCnt={2}] of article[id={3}]",
                     new Object[] {
                     tag.getString(Tag.TAG_TITLE), tag.getInt(Tag.TAG_REFERENCE_COUNT), tag.getInt(Tag.TAG_PUBLISHED_REFERENCE_COUNT),
@@ -724,6 +864,7 @@ public class ArticleMgmtService {
 
             if (0 == archiveDateArticleCnt) {
                 archiveDateRepository.remove(archiveDateId);
+                archiveDateIndex.remove(archiveDateId);
             } else {
                 final JSONObject newArchiveDate = new JSONObject(archiveDate,
                     CollectionUtils.jsonArrayToArray(archiveDate.names(), String[].class));
@@ -731,6 +872,7 @@ public class ArticleMgmtService {
                 newArchiveDate.put(ArchiveDate.ARCHIVE_DATE_ARTICLE_COUNT, archiveDateArticleCnt);
                 newArchiveDate.put(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT, archiveDatePublishedArticleCnt);
                 archiveDateRepository.update(archiveDateId, newArchiveDate);
+                archiveDateIndex.put(newArchiveDate);
             }
 
             archiveDateArticleRepository.remove(archiveDateArticleRelation.getString(Keys.OBJECT_ID));
@@ -838,11 +980,13 @@ public class ArticleMgmtService {
                 if (!newArticle.getBoolean(Article.ARTICLE_IS_PUBLISHED)) {
                     tagUnchanged.put(Tag.TAG_PUBLISHED_REFERENCE_COUNT, publishedRefCnt - 1);
                     tagRepository.update(tagId, tagUnchanged);
+                    tagIndex.put(tagUnchanged);
                 }
             } else {
                 if (newArticle.getBoolean(Article.ARTICLE_IS_PUBLISHED)) {
                     tagUnchanged.put(Tag.TAG_PUBLISHED_REFERENCE_COUNT, publishedRefCnt + 1);
                     tagRepository.update(tagId, tagUnchanged);
+                    tagIndex.put(tagUnchanged);
                 }
             }
         }
@@ -859,6 +1003,7 @@ public class ArticleMgmtService {
             }
 
             tagRepository.update(tagId, tagDropped);
+            tagIndex.put(tagDropped);
         }
 
         final String[] tagIdsDropped = new String[tagsDropped.size()];
@@ -881,6 +1026,10 @@ public class ArticleMgmtService {
         }
         final JSONArray tags = tag(tagStrings, newArticle);
 
+        for (int i = 0; i < tags.length(); i++) {
+            tagIndex.put(tags.optJSONObject(i));
+        }
+
         addTagArticleRelation(tags, newArticle);
     }
 
@@ -939,9 +1088,13 @@ public class ArticleMgmtService {
     /**
      * Tags the specified article with the specified tag titles.
      *
+     * <p>
+     * The tags are not put into {@link TagIndex}, callers index them.
+     * </p>
+     *
      * @param tagTitles the specified tag titles
      * @param article the specified article
-     * @return an array of tags
+     * @return an array of tags with their updated reference counts
      * @throws RepositoryException repository exception
      */
     private JSONArray tag(final String[] tagTitles, final JSONObject article) throws RepositoryException {
@@ -984,6 +1137,7 @@ public class ArticleMgmtService {
                     tagTmp.put(Tag.TAG_PUBLISHED_REFERENCE_COUNT, publishedRefCnt);
                 }
                 tagRepository.update(tagId, tagTmp);
+                tag = tagTmp;
             }
 
             ret.put(tag);
@@ -1004,18 +1158,35 @@ public class ArticleMgmtService {
      */
     private void removeArticleComments(final String articleId) throws JSONException, RepositoryException {
         final int removedCnt = commentRepository.removeComments(articleId);
-        int blogCommentCount = statisticQueryService.getBlogCommentCount();
 
-        blogCommentCount -= removedCnt;
-        statisticMgmtService.setBlogCommentCount(blogCommentCount);
+        statisticMgmtService.addBlogCommentCount(-removedCnt);
 
         final JSONObject article = articleRepository.get(articleId);
 
         if (article.getBoolean(Article.ARTICLE_IS_PUBLISHED)) {
-            int publishedBlogCommentCount = statisticQueryService.getPublishedBlogCommentCount();
+            statisticMgmtService.addPublishedBlogCommentCount(-removedCnt);
+        }
+    }
 
-            publishedBlogCommentCount -= removedCnt;
-            statisticMgmtService.setPublishedBlogCommentCount(publishedBlogCommentCount);
+    /**
+     * Puts the tags of an article specified by the given article id into {@link TagIndex}.
+     * 
+     * <p>
+     * Invoked after the article committed. The index will be cleared (and reloaded at the next lookup) if reads the 
+     * tags failed.
+     * </p>
+     *
+     * @param articleId the given article id
+     */
+    private void indexTags(final String articleId) {
+        try {
+            for (final JSONObject tag : tagRepository.getByArticleId(articleId)) {
+                tagIndex.put(tag);
+            }
+        } catch (final RepositoryException e) {
+            LOGGER.log(Level.WARN, "Indexes tags of article[id=" + articleId + "] failed", e);
+
+            tagIndex.clear();
         }
     }
 
@@ -1054,39 +1225,68 @@ public class ArticleMgmtService {
     private void archiveDate(final JSONObject article) throws RepositoryException {
         final Date createDate = (Date) article.opt(Article.ARTICLE_CREATE_DATE);
         final String createDateString = DateFormatUtils.format(createDate, "yyyy/MM");
-        JSONObject archiveDate = archiveDateRepository.getByArchiveDate(createDateString);
+        String archiveDateId;
 
-        if (null == archiveDate) {
-            archiveDate = new JSONObject();
-            try {
-                archiveDate.put(ArchiveDate.ARCHIVE_TIME, DateUtils.parseDate(createDateString, new String[] {"yyyy/MM"}).getTime());
-                archiveDate.put(ArchiveDate.ARCHIVE_DATE_ARTICLE_COUNT, 0);
-                archiveDate.put(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT, 0);
+        synchronized (archiveDateIndex) { // Looks up, adds and counts atomically, keeps one archive date per month
+            JSONObject archiveDate = archiveDateIndex.getForUpdate(createDateString);
+            final boolean created = null == archiveDate;
 
-                archiveDateRepository.add(archiveDate);
-            } catch (final ParseException e) {
-                LOGGER.log(Level.ERROR, e.getMessage(), e);
-                throw new RepositoryException(e);
+            if (created) {
+                archiveDate = new JSONObject();
+                try {
+                    archiveDate.put(ArchiveDate.ARCHIVE_TIME, DateUtils.parseDate(createDateString, new String[] {"yyyy/MM"}).getTime());
+                    archiveDate.put(ArchiveDate.ARCHIVE_DATE_ARTICLE_COUNT, 0);
+                    archiveDate.put(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT, 0);
+
+                    archiveDateRepository.add(archiveDate);
+                } catch (final ParseException e) {
+                    LOGGER.log(Level.ERROR, e.getMessage(), e);
+                    throw new RepositoryException(e);
+                }
             }
-        }
 
-        final JSONObject newArchiveDate = new JSONObject(archiveDate, CollectionUtils.jsonArrayToArray(archiveDate.names(), String[].class));
+            archiveDateId = archiveDate.optString(Keys.OBJECT_ID);
+
+            final JSONObject newArchiveDate = new JSONObject(archiveDate,
+                CollectionUtils.jsonArrayToArray(archiveDate.names(), String[].class));
 
-        newArchiveDate.put(ArchiveDate.ARCHIVE_DATE_ARTICLE_COUNT, archiveDate.optInt(ArchiveDate.ARCHIVE_DATE_ARTICLE_COUNT) + 1);
-        if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED)) {
-            newArchiveDate.put(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT,
-                archiveDate.optInt(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT) + 1);
+            newArchiveDate.put(ArchiveDate.ARCHIVE_DATE_ARTICLE_COUNT, archiveDate.optInt(ArchiveDate.ARCHIVE_DATE_ARTICLE_COUNT) + 1);
+            if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED)) {
+                newArchiveDate.put(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT,
+                    archiveDate.optInt(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT) + 1);
+            }
+            archiveDateRepository.update(archiveDateId, newArchiveDate);
+
+            if (created) { // Indexes it after commit, see addArticle
+                archiveDateIndex.putPending(newArchiveDate);
+            } else {
+                archiveDateIndex.put(newArchiveDate);
+            }
         }
-        archiveDateRepository.update(archiveDate.optString(Keys.OBJECT_ID), newArchiveDate);
 
         final JSONObject archiveDateArticleRelation = new JSONObject();
 
-        archiveDateArticleRelation.put(ArchiveDate.ARCHIVE_DATE + "_" + Keys.OBJECT_ID, archiveDate.optString(Keys.OBJECT_ID));
+        archiveDateArticleRelation.put(ArchiveDate.ARCHIVE_DATE + "_" + Keys.OBJECT_ID, archiveDateId);
         archiveDateArticleRelation.put(Article.ARTICLE + "_" + Keys.OBJECT_ID, article.optString(Keys.OBJECT_ID));
 
         archiveDateArticleRepository.add(archiveDateArticleRelation);
     }
 
+    /**
+     * Converts the content and abstract of the specified article to HTML into {@link MarkdownCache} if it is saved by 
+     * Markdown editor, so that views of the article need not to convert them again.
+     * 
+     * @param article the specified article
+     */
+    private void cacheMarkdown(final JSONObject article) {
+        if (!"CodeMirror-Markdown".equals(article.optString(ARTICLE_EDITOR_TYPE))) {
+            return;
+        }
+
+        markdownCache.toHTML(article.optString(ARTICLE_CONTENT));
+        markdownCache.toHTML(article.optString(ARTICLE_ABSTRACT));
+    }
+
     /**
      * Fills 'auto' properties for the specified article and old article.
      *
@@ -1200,6 +1400,7 @@ public class ArticleMgmtService {
         archiveDate.put(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT,
             archiveDate.getInt(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT) - 1);
         archiveDateRepository.update(archiveDateId, archiveDate);
+        archiveDateIndex.put(archiveDate);
     }
 
     /**
@@ -1219,6 +1420,7 @@ public class ArticleMgmtService {
         archiveDate.put(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT,
             archiveDate.getInt(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT) + 1);
         archiveDateRepository.update(archiveDateId, archiveDate);
+        archiveDateIndex.put(archiveDate);
     }
 
     /**
@@ -1293,15 +1495,6 @@ public class ArticleMgmtService {
         this.statisticMgmtService = statisticMgmtService;
     }
 
-    /**
-     * Sets the statistic query service with the specified statistic query service.
-     * 
-     * @param statisticQueryService the specified statistic query service
-     */
-    public void setStatisticQueryService(final StatisticQueryService statisticQueryService) {
-        this.statisticQueryService = statisticQueryService;
-    }
-
     /**
      * Sets the tag repository with the specified tag repository.
      * 
@@ -1346,4 +1539,112 @@ public class ArticleMgmtService {
     public void setLangPropsService(final LangPropsService langPropsService) {
         this.langPropsService = langPropsService;
     }
+
+    /**
+     * Sets the permalink index with the specified permalink index.
+     * 
+     * @param permalinkIndex the specified permalink index
+     */
+    public void setPermalinkIndex(final PermalinkIndex permalinkIndex) {
+        this.permalinkIndex = permalinkIndex;
+    }
+
+    /**
+     * Sets the view count buffer with the specified view count buffer.
+     * 
+     * @param viewCountBuffer the specified view count buffer
+     */
+    public void setViewCountBuffer(final ViewCountBuffer viewCountBuffer) {
+        this.viewCountBuffer = viewCountBuffer;
+    }
+
+    /**
+     * Sets the markdown cache with the specified markdown cache.
+     * 
+     * @param markdownCache the specified markdown cache
+     */
+    public void setMarkdownCache(final MarkdownCache markdownCache) {
+        this.markdownCache = markdownCache;
+    }
+
+    /**
+     * Sets the relevant article index with the specified relevant article index.
+     * 
+     * @param relevantArticleIndex the specified relevant article index
+     */
+    public void setRelevantArticleIndex(final RelevantArticleIndex relevantArticleIndex) {
+        this.relevantArticleIndex = relevantArticleIndex;
+    }
+
+    /**
+     * Sets the content version with the specified content version.
+     * 
+     * @param contentVersion the specified content version
+     */
+    public void setContentVersion(final ContentVersion contentVersion) {
+        this.contentVersion = contentVersion;
+    }
+
+    /**
+     * Sets the page cache with the specified page cache.
+     * 
+     * @param pageCache the specified page cache
+     */
+    public void setPageCache(final PageCache pageCache) {
+        this.pageCache = pageCache;
+    }
+
+    /**
+     * Sets the user directory with the specified user directory.
+     * 
+     * @param userDirectory the specified user directory
+     */
+    public void setUserDirectory(final UserDirectory userDirectory) {
+        this.userDirectory = userDirectory;
+    }
+
+    /**
+     * Sets the tag index with the specified tag index.
+     * 
+     * @param tagIndex the specified tag index
+     */
+    public void setTagIndex(final TagIndex tagIndex) {
+        this.tagIndex = tagIndex;
+    }
+
+    /**
+     * Sets the archive date index with the specified archive date index.
+     * 
+     * @param archiveDateIndex the specified archive date index
+     */
+    public void setArchiveDateIndex(final ArchiveDateIndex archiveDateIndex) {
+        this.archiveDateIndex = archiveDateIndex;
+    }
+
+    /**
+     * Sets the random article sampler with the specified random article sampler.
+     * 
+     * @param randomArticleSampler the specified random article sampler
+     */
+    public void setRandomArticleSampler(final RandomArticleSampler randomArticleSampler) {
+        this.randomArticleSampler = randomArticleSampler;
+    }
+
+    /**
+     * Sets the article timeline with the specified article timeline.
+     * 
+     * @param articleTimeline the specified article timeline
+     */
+    public void setArticleTimeline(final ArticleTimeline articleTimeline) {
+        this.articleTimeline = articleTimeline;
+    }
+
+    /**
+     * Sets the comment cache with the specified comment cache.
+     * 
+     * @param commentCache the specified comment cache
+     */
+    public void setCommentCache(final CommentCache commentCache) {
+        this.commentCache = commentCache;
+    }
 }
@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -41,6 +42,11 @@ import org.b3log.latke.util.CollectionUtils;
 import org.b3log.latke.util.Paginator;
 import org.b3log.latke.util.Stopwatchs;
 import org.b3log.latke.util.Strings;
+import org.b3log.solo.cache.ArticleTimeline;
+import org.b3log.solo.cache.MarkdownCache;
+import org.b3log.solo.cache.RandomArticleSampler;
+import org.b3log.solo.cache.RelevantArticleIndex;
+import org.b3log.solo.cache.UserDirectory;
 import org.b3log.solo.model.Article;
 import static org.b3log.solo.model.Article.*;
 import org.b3log.solo.model.Common;
@@ -51,8 +57,6 @@ import org.b3log.solo.repository.ArchiveDateArticleRepository;
 import org.b3log.solo.repository.ArticleRepository;
 import org.b3log.solo.repository.TagArticleRepository;
 import org.b3log.solo.repository.TagRepository;
-import org.b3log.solo.repository.UserRepository;
-import org.b3log.solo.util.Markdowns;
 import org.b3log.solo.util.comparator.Comparators;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -64,7 +68,7 @@ import org.json.JSONObject;
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
  * @author <a href="http://blog.sweelia.com">ArmstrongCN</a>
- * @version 1.0.1.3, Jul 10, 2013
+ * @version 1.0.2.3, Nov 2, 2013
  * @since 0.3.5
  */
 @Service
@@ -82,10 +86,10 @@ public class ArticleQueryService {
     private UserQueryService userQueryService;
 
     /**
-     * User repository.
+     * User directory.
      */
     @Inject
-    private UserRepository userRepository;
+    private UserDirectory userDirectory;
 
     /**
      * Article repository.
@@ -129,6 +133,30 @@ public class ArticleQueryService {
     @Inject
     private LangPropsService langPropsService;
 
+    /**
+     * Markdown cache.
+     */
+    @Inject
+    private MarkdownCache markdownCache;
+
+    /**
+     * Relevant article index.
+     */
+    @Inject
+    private RelevantArticleIndex relevantArticleIndex;
+
+    /**
+     * Random article sampler.
+     */
+    @Inject
+    private RandomArticleSampler randomArticleSampler;
+
+    /**
+     * Article timeline.
+     */
+    @Inject
+    private ArticleTimeline articleTimeline;
+
     /**
      * Can the current user access an article specified by the given article id?
      *
@@ -215,15 +243,7 @@ public class ArticleQueryService {
      */
     public long getRecentArticleTime() throws ServiceException {
         try {
-            final List<JSONObject> recentArticles = articleRepository.getRecentArticles(1);
-
-            if (recentArticles.isEmpty()) {
-                return 0;
-            }
-
-            final JSONObject recentArticle = recentArticles.get(0);
-
-            return ((Date) recentArticle.get(Article.ARTICLE_UPDATE_DATE)).getTime();
+            return articleTimeline.getRecentArticleTime();
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, e.getMessage(), e);
             throw new ServiceException("Gets recent article time failed");
@@ -252,14 +272,14 @@ public class ArticleQueryService {
         try {
             final String email = article.getString(Article.ARTICLE_AUTHOR_EMAIL);
 
-            JSONObject ret = userRepository.getByEmail(email);
+            JSONObject ret = userDirectory.getUserByEmail(email);
 
             if (null == ret) {
                 LOGGER.log(Level.WARN, "Gets author of article failed, assumes the administrator is the author of this article[id={0}]",
                     article.getString(Keys.OBJECT_ID));
                 // This author may be deleted by admin, use admin as the author
                 // of this article
-                ret = userRepository.getAdmin();
+                ret = userDirectory.getAdmin();
             }
 
             return ret;
@@ -360,7 +380,11 @@ public class ArticleQueryService {
      */
     public List<JSONObject> getRecentArticles(final int fetchSize) throws ServiceException {
         try {
-            return articleRepository.getRecentArticles(fetchSize);
+            final List<JSONObject> ret = articleRepository.getByIds(articleTimeline.getRecentArticleIds(fetchSize));
+
+            Collections.sort(ret, Comparators.ARTICLE_UPDATE_DATE_COMPARATOR);
+
+            return ret;
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Gets recent articles failed", e);
 
@@ -690,6 +714,10 @@ public class ArticleQueryService {
      * Gets a list of articles randomly with the specified fetch size.
      * 
      * <p>
+     * The article ids are sampled by the {@link RandomArticleSampler}, and the sampled articles are loaded in one query.
+     * </p>
+     * 
+     * <p>
      *   <b>Note</b>: The article content and abstract is raw (no editor type processing).
      * </p>
      *
@@ -700,7 +728,14 @@ public class ArticleQueryService {
      */
     public List<JSONObject> getArticlesRandomly(final int fetchSize) throws ServiceException {
         try {
-            final List<JSONObject> ret = articleRepository.getRandomly(fetchSize);
+            final List<String> articleIds = randomArticleSampler.sample(fetchSize);
+            final List<JSONObject> ret = new ArrayList<JSONObject>();
+
+            for (final JSONObject article : articleRepository.getByIds(articleIds)) {
+                if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED)) {
+                    ret.add(article);
+                }
+            }
 
             removeUnusedProperties(ret);
 
@@ -715,6 +750,10 @@ public class ArticleQueryService {
      * Gets the relevant published articles of the specified article.
      * 
      * <p>
+     * The candidates are looked up in the {@link RelevantArticleIndex}, and the chosen articles are loaded in one query.
+     * </p>
+     * 
+     * <p>
      *   <b>Note</b>: The article content and abstract is raw (no editor type processing).
      * </p>
      *
@@ -731,59 +770,48 @@ public class ArticleQueryService {
             final int maxTagCnt = displayCnt > tagTitles.length ? tagTitles.length : displayCnt;
             final String articleId = article.getString(Keys.OBJECT_ID);
 
-            final List<JSONObject> articles = new ArrayList<JSONObject>();
+            final Set<String> relevantArticleIds = new LinkedHashSet<String>();
 
             for (int i = 0; i < maxTagCnt; i++) { // XXX: should average by tag?
-                final String tagTitle = tagTitles[i];
-                final JSONObject tag = tagRepository.getByTitle(tagTitle);
-                final String tagId = tag.getString(Keys.OBJECT_ID);
-                final JSONObject result = tagArticleRepository.getByTagId(tagId, 1, displayCnt);
-                final JSONArray tagArticleRelations = result.getJSONArray(Keys.RESULTS);
-
-                final int relationSize = displayCnt < tagArticleRelations.length() ? displayCnt : tagArticleRelations.length();
+                final List<String> tagArticleIds = relevantArticleIndex.getArticleIds(tagTitles[i].trim());
+                int cnt = 0;
 
-                for (int j = 0; j < relationSize; j++) {
-                    final JSONObject tagArticleRelation = tagArticleRelations.getJSONObject(j);
-                    final String relatedArticleId = tagArticleRelation.getString(Article.ARTICLE + "_" + Keys.OBJECT_ID);
-
-                    if (articleId.equals(relatedArticleId)) {
-                        continue;
+                for (final String relevantArticleId : tagArticleIds) {
+                    if (cnt >= displayCnt) {
+                        break;
                     }
 
-                    final JSONObject relevant = articleRepository.get(relatedArticleId);
-
-                    if (!relevant.getBoolean(Article.ARTICLE_IS_PUBLISHED)) {
-                        continue;
+                    if (!articleId.equals(relevantArticleId)) {
+                        relevantArticleIds.add(relevantArticleId);
+                        cnt++;
                     }
+                }
+            }
 
-                    boolean existed = false;
+            List<String> chosenArticleIds = new ArrayList<String>(relevantArticleIds);
 
-                    for (final JSONObject relevantArticle : articles) {
-                        if (relevantArticle.getString(Keys.OBJECT_ID).equals(relevant.getString(Keys.OBJECT_ID))) {
-                            existed = true;
-                        }
-                    }
+            if (displayCnt < chosenArticleIds.size()) {
+                final List<Integer> randomIntegers = CollectionUtils.getRandomIntegers(0, chosenArticleIds.size() - 1, displayCnt);
+                final List<String> randomArticleIds = new ArrayList<String>();
 
-                    if (!existed) {
-                        articles.add(relevant);
-                    }
+                for (final int index : randomIntegers) {
+                    randomArticleIds.add(chosenArticleIds.get(index));
                 }
-            }
 
-            Collections.sort(articles, Comparators.ARTICLE_UPDATE_DATE_COMPARATOR);
-            removeUnusedProperties(articles);
-
-            if (displayCnt > articles.size()) {
-                return articles;
+                chosenArticleIds = randomArticleIds;
             }
 
-            final List<Integer> randomIntegers = CollectionUtils.getRandomIntegers(0, articles.size() - 1, displayCnt);
             final List<JSONObject> ret = new ArrayList<JSONObject>();
 
-            for (final int index : randomIntegers) {
-                ret.add(articles.get(index));
+            for (final JSONObject relevant : articleRepository.getByIds(chosenArticleIds)) {
+                if (relevant.optBoolean(Article.ARTICLE_IS_PUBLISHED)) {
+                    ret.add(relevant);
+                }
             }
 
+            Collections.sort(ret, Comparators.ARTICLE_UPDATE_DATE_COMPARATOR);
+            removeUnusedProperties(ret);
+
             return ret;
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, "Gets relevant articles failed", e);
@@ -828,7 +856,11 @@ public class ArticleQueryService {
      */
     public JSONObject getNextArticle(final String articleId) throws ServiceException {
         try {
-            return articleRepository.getNextArticle(articleId);
+            if (!articleTimeline.contains(articleId)) { // Unpublished article
+                return articleRepository.getNextArticle(articleId);
+            }
+
+            return articleTimeline.getNext(articleId);
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Gets the next article failed[articleId=" + articleId + "]", e);
             throw new ServiceException(e);
@@ -855,7 +887,11 @@ public class ArticleQueryService {
      */
     public JSONObject getPreviousArticle(final String articleId) throws ServiceException {
         try {
-            return articleRepository.getPreviousArticle(articleId);
+            if (!articleTimeline.contains(articleId)) { // Unpublished article
+                return articleRepository.getPreviousArticle(articleId);
+            }
+
+            return articleTimeline.getPrevious(articleId);
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Gets the previous article failed[articleId=" + articleId + "]", e);
             throw new ServiceException(e);
@@ -953,7 +989,7 @@ public class ArticleQueryService {
                 Stopwatchs.start("Get Article Content [Markdown]");
                 final String content = article.optString(ARTICLE_CONTENT);
 
-                article.put(ARTICLE_CONTENT, Markdowns.toHTML(content));
+                article.put(ARTICLE_CONTENT, markdownCache.toHTML(content));
                 Stopwatchs.end();
             }
 
@@ -980,6 +1016,10 @@ public class ArticleQueryService {
     /**
      * Converts the content and abstract for the specified article to HTML if it is saved by Markdown editor.
      * 
+     * <p>
+     * The converted HTML is cached by {@link MarkdownCache}, the markdown text will be converted only once until it changed.
+     * </p>
+     * 
      * @param article the specified article
      * @throws Exception exception 
      */
@@ -990,14 +1030,14 @@ public class ArticleQueryService {
             Stopwatchs.start("Content");
             final String content = article.optString(ARTICLE_CONTENT);
 
-            article.put(ARTICLE_CONTENT, Markdowns.toHTML(content));
+            article.put(ARTICLE_CONTENT, markdownCache.toHTML(content));
             Stopwatchs.end();
 
             final String abstractContent = article.optString(ARTICLE_ABSTRACT);
 
             if (!Strings.isEmptyOrNull(abstractContent)) {
                 Stopwatchs.start("Abstract");
-                article.put(ARTICLE_ABSTRACT, Markdowns.toHTML(abstractContent));
+                article.put(ARTICLE_ABSTRACT, markdownCache.toHTML(abstractContent));
                 Stopwatchs.end();
             }
 
@@ -1078,12 +1118,12 @@ public class ArticleQueryService {
     }
 
     /**
-     * Sets the user repository with the specified user repository.
+     * Sets the user directory with the specified user directory.
      * 
-     * @param userRepository the specified user repository
+     * @param userDirectory the specified user directory
      */
-    public void setUserRepository(final UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public void setUserDirectory(final UserDirectory userDirectory) {
+        this.userDirectory = userDirectory;
     }
 
     /**
@@ -1121,4 +1161,40 @@ public class ArticleQueryService {
     public void setTagArticleRepository(final TagArticleRepository tagArticleRepository) {
         this.tagArticleRepository = tagArticleRepository;
     }
+
+    /**
+     * Sets the markdown cache with the specified markdown cache.
+     * 
+     * @param markdownCache the specified markdown cache
+     */
+    public void setMarkdownCache(final MarkdownCache markdownCache) {
+        this.markdownCache = markdownCache;
+    }
+
+    /**
+     * Sets the relevant article index with the specified relevant article index.
+     * 
+     * @param relevantArticleIndex the specified relevant article index
+     */
+    public void setRelevantArticleIndex(final RelevantArticleIndex relevantArticleIndex) {
+        this.relevantArticleIndex = relevantArticleIndex;
+    }
+
+    /**
+     * Sets the random article sampler with the specified random article sampler.
+     * 
+     * @param randomArticleSampler the specified random article sampler
+     */
+    public void setRandomArticleSampler(final RandomArticleSampler randomArticleSampler) {
+        this.randomArticleSampler = randomArticleSampler;
+    }
+
+    /**
+     * Sets the article timeline with the specified article timeline.
+     * 
+     * @param articleTimeline the specified article timeline
+     */
+    public void setArticleTimeline(final ArticleTimeline articleTimeline) {
+        this.articleTimeline = articleTimeline;
+    }
 }
@@ -16,37 +16,32 @@
 package org.b3log.solo.service;
 
 
-import java.io.IOException;
-import java.net.URL;
 import java.util.Date;
 import javax.inject.Inject;
-import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.time.DateFormatUtils;
 import org.b3log.latke.Keys;
-import org.b3log.latke.Latkes;
 import org.b3log.latke.event.Event;
+import org.b3log.latke.event.EventException;
 import org.b3log.latke.event.EventManager;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
-import org.b3log.latke.mail.MailService;
-import org.b3log.latke.mail.MailServiceFactory;
 import org.b3log.latke.repository.RepositoryException;
 import org.b3log.latke.repository.Transaction;
 import org.b3log.latke.service.LangPropsService;
 import org.b3log.latke.service.ServiceException;
 import org.b3log.latke.service.annotation.Service;
-import org.b3log.latke.urlfetch.*;
 import org.b3log.latke.util.Ids;
 import org.b3log.latke.util.Strings;
 import org.b3log.solo.SoloServletListener;
+import org.b3log.solo.cache.CommentCache;
+import org.b3log.solo.cache.GravatarCache;
 import org.b3log.solo.event.EventTypes;
 import org.b3log.solo.model.*;
 import org.b3log.solo.repository.ArticleRepository;
 import org.b3log.solo.repository.CommentRepository;
 import org.b3log.solo.repository.PageRepository;
 import org.b3log.solo.util.Comments;
-import org.b3log.solo.util.Thumbnails;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -55,7 +50,7 @@ import org.json.JSONObject;
  * Comment management service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.4, Jan 18, 2013
+ * @version 1.0.2.2, Nov 2, 2013
  * @since 0.3.5
  */
 @Service
@@ -109,14 +104,16 @@ public class CommentMgmtService {
     private static EventManager eventManager;
 
     /**
-     * Default user thumbnail.
+     * Gravatar cache.
      */
-    private static final String DEFAULT_USER_THUMBNAIL = "default-user-thumbnail.png";
+    @Inject
+    private static GravatarCache gravatarCache;
 
     /**
-     * URL fetch service.
+     * Comment cache.
      */
-    private static URLFetchService urlFetchService = URLFetchServiceFactory.getURLFetchService();
+    @Inject
+    private CommentCache commentCache;
 
     /**
      * Language service.
@@ -145,9 +142,10 @@ public class CommentMgmtService {
     private static final int MAX_COMMENT_CONTENT_LENGTH = 500;
 
     /**
-     * Mail service.
+     * Mail management service.
      */
-    private MailService mailService = MailServiceFactory.getMailService();
+    @Inject
+    private MailMgmtService mailMgmtService;
 
     /**
      * Comment mail HTML body.
@@ -156,26 +154,24 @@ public class CommentMgmtService {
         + " received a new comment:</p>" + "{commenter}: <span><a href=\"{commentSharpURL}\">" + "{commentContent}</a></span>";
 
     /**
-     * Sends a notification mail to administrator for notifying the specified
-     * article or page received the specified comment and original comment.
+     * Queues a notification mail to administrator for notifying the specified comment.
+     * 
+     * <p>
+     * Does nothing if the specified comment is commented by administrator, or is a reply of a comment of administrator.
+     * Should be invoked in the comment adding transaction, the mail will be sent by 
+     * {@link MailMgmtService#sendQueuedMails()}.
+     * </p>
      *
-     * @param articleOrPage the specified article or page
      * @param comment the specified comment
-     * @param originalComment original comment, if not exists, set it as
-     * {@code null}
+     * @param originalComment original comment, if not exists, set it as {@code null}
      * @param preference the specified preference
-     * @throws IOException io exception
+     * @throws RepositoryException repository exception
      * @throws JSONException json exception
      */
-    public void sendNotificationMail(final JSONObject articleOrPage,
-        final JSONObject comment,
-        final JSONObject originalComment,
-        final JSONObject preference)
-        throws IOException, JSONException {
+    public void queueNotificationMail(final JSONObject comment, final JSONObject originalComment, final JSONObject preference)
+        throws RepositoryException, JSONException {
         final String commentEmail = comment.getString(Comment.COMMENT_EMAIL);
         final String commentId = comment.getString(Keys.OBJECT_ID);
-        final String commentContent = comment.getString(Comment.COMMENT_CONTENT).replaceAll(SoloServletListener.ENTER_ESC, "<br/>");
-
         final String adminEmail = preference.getString(Preference.ADMIN_EMAIL);
 
         if (adminEmail.equalsIgnoreCase(commentEmail)) {
@@ -193,52 +189,31 @@ public class CommentMgmtService {
             }
         }
 
-        final String blogTitle = preference.getString(Preference.BLOG_TITLE);
-        boolean isArticle = true;
-        String title = articleOrPage.optString(Article.ARTICLE_TITLE);
-
-        if (Strings.isEmptyOrNull(title)) {
-            title = articleOrPage.getString(Page.PAGE_TITLE);
-            isArticle = false;
-        }
-
-        final String commentSharpURL = comment.getString(Comment.COMMENT_SHARP_URL);
-        final MailService.Message message = new MailService.Message();
-
-        message.setFrom(adminEmail);
-        message.addRecipient(adminEmail);
-        String mailSubject;
-        String articleOrPageURL;
-        String mailBody;
-
-        if (isArticle) {
-            mailSubject = blogTitle + ": New comment on article [" + title + "]";
-            articleOrPageURL = Latkes.getServePath() + articleOrPage.getString(Article.ARTICLE_PERMALINK);
-            mailBody = COMMENT_MAIL_HTML_BODY.replace("{articleOrPage}", "Article");
-        } else {
-            mailSubject = blogTitle + ": New comment on page [" + title + "]";
-            articleOrPageURL = Latkes.getServePath() + articleOrPage.getString(Page.PAGE_PERMALINK);
-            mailBody = COMMENT_MAIL_HTML_BODY.replace("{articleOrPage}", "Page");
-        }
+        mailMgmtService.queueCommentNotification(adminEmail, commentId);
+    }
 
-        message.setSubject(mailSubject);
-        final String commentName = comment.getString(Comment.COMMENT_NAME);
-        final String commentURL = comment.getString(Comment.COMMENT_URL);
-        String commenter;
+    /**
+     * Queues a notification mail to the original commenter for notifying the specified reply.
+     * 
+     * <p>
+     * Does nothing if the specified reply is replied by the original commenter. Should be invoked in the comment adding
+     * transaction, the mail will be sent by {@link MailMgmtService#sendQueuedMails()}.
+     * </p>
+     *
+     * @param comment the specified reply
+     * @param originalComment the specified original comment
+     * @throws RepositoryException repository exception
+     * @throws JSONException json exception
+     */
+    public void queueReplyNotificationMail(final JSONObject comment, final JSONObject originalComment)
+        throws RepositoryException, JSONException {
+        final String originalCommentEmail = originalComment.getString(Comment.COMMENT_EMAIL);
 
-        if (!"http://".equals(commentURL)) {
-            commenter = "<a target=\"_blank\" " + "href=\"" + commentURL + "\">" + commentName + "</a>";
-        } else {
-            commenter = commentName;
+        if (originalCommentEmail.equalsIgnoreCase(comment.getString(Comment.COMMENT_EMAIL))) {
+            return;
         }
 
-        mailBody = mailBody.replace("{articleOrPageURL}", articleOrPageURL).replace("{title}", title).replace("{commentContent}", commentContent).replace("{commentSharpURL}", Latkes.getServePath() + commentSharpURL).replace(
-            "{commenter}", commenter);
-        message.setHtmlBody(mailBody);
-
-        LOGGER.log(Level.DEBUG, "Sending a mail[mailSubject={0}, mailBody=[{1}] to admin[email={2}]",
-            new Object[] {mailSubject, mailBody, adminEmail});
-        mailService.send(message);
+        mailMgmtService.queueReplyNotification(originalCommentEmail, comment.getString(Keys.OBJECT_ID));
     }
 
     /**
@@ -418,7 +393,7 @@ public class CommentMgmtService {
                         commentName, commentContent);
                 }
             }
-            setCommentThumbnailURL(comment);
+            final boolean thumbnailResolved = setCommentThumbnailURL(comment);
             ret.put(Comment.COMMENT_THUMBNAIL_URL, comment.getString(Comment.COMMENT_THUMBNAIL_URL));
             // Sets comment on page....
             comment.put(Comment.COMMENT_ON_ID, pageId);
@@ -438,25 +413,43 @@ public class CommentMgmtService {
             // Step 3: Update blog statistic comment count
             statisticMgmtService.incBlogCommentCount();
             statisticMgmtService.incPublishedBlogCommentCount();
-            // Step 4: Send an email to admin
+            // Step 4: Queue notification mails to admin and the original commenter
             try {
-                sendNotificationMail(page, comment, originalComment, preference);
+                queueNotificationMail(comment, originalComment, preference);
+                if (null != originalComment) {
+                    queueReplyNotificationMail(comment, originalComment);
+                }
             } catch (final Exception e) {
-                LOGGER.log(Level.WARN, "Send mail failed", e);
+                LOGGER.log(Level.WARN, "Queue mail failed", e);
             }
-            // Step 5: Fire add comment event
+
+            transaction.commit();
+
+            statisticMgmtService.publishCountChanges();
+
+            // Step 5: Fire add comment event after commit, so that the listeners (caches, etc.) see the committed comment
             final JSONObject eventData = new JSONObject();
 
             eventData.put(Comment.COMMENT, comment);
             eventData.put(Page.PAGE, page);
-            eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.ADD_COMMENT_TO_PAGE, eventData));
+            try {
+                eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.ADD_COMMENT_TO_PAGE, eventData));
+            } catch (final EventException e) {
+                LOGGER.log(Level.WARN, "Add comment event process failed", e);
+            }
 
-            transaction.commit();
+            commentCache.remove(pageId);
+
+            if (!thumbnailResolved) {
+                gravatarCache.backfill(commentEmail, commentId);
+            }
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
             }
 
+            statisticMgmtService.discardCountChanges();
+
             throw new ServiceException(e);
         }
 
@@ -538,7 +531,7 @@ public class CommentMgmtService {
                         new String[] {originalCommentId, commentName, commentContent});
                 }
             }
-            setCommentThumbnailURL(comment);
+            final boolean thumbnailResolved = setCommentThumbnailURL(comment);
             ret.put(Comment.COMMENT_THUMBNAIL_URL, comment.getString(Comment.COMMENT_THUMBNAIL_URL));
             // Sets comment on article....
             comment.put(Comment.COMMENT_ON_ID, articleId);
@@ -558,26 +551,44 @@ public class CommentMgmtService {
             // Step 3: Update blog statistic comment count
             statisticMgmtService.incBlogCommentCount();
             statisticMgmtService.incPublishedBlogCommentCount();
-            // Step 4: Send an email to admin
+            // Step 4: Queue notification mails to admin and the original commenter
             try {
-                sendNotificationMail(article, comment, originalComment, preference);
+                queueNotificationMail(comment, originalComment, preference);
+                if (null != originalComment) {
+                    queueReplyNotificationMail(comment, originalComment);
+                }
             } catch (final Exception e) {
-                LOGGER.log(Level.WARN, "Send mail failed", e);
+                LOGGER.log(Level.WARN, "Queue mail failed", e);
             }
-            // Step 5: Fire add comment event
+
+            transaction.commit();
+
+            statisticMgmtService.publishCountChanges();
+
+            // Step 5: Fire add comment event after commit, so that the listeners (caches, etc.) see the committed comment
             final JSONObject eventData = new JSONObject();
 
             eventData.put(Comment.COMMENT, comment);
             comment.put(Comment.COMMENT_CONTENT, contentNoEsc);
             eventData.put(Article.ARTICLE, article);
-            eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.ADD_COMMENT_TO_ARTICLE, eventData));
+            try {
+                eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.ADD_COMMENT_TO_ARTICLE, eventData));
+            } catch (final EventException e) {
+                LOGGER.log(Level.WARN, "Add comment event process failed", e);
+            }
 
-            transaction.commit();
+            commentCache.remove(articleId);
+
+            if (!thumbnailResolved) {
+                gravatarCache.backfill(commentEmail, commentId);
+            }
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
             }
 
+            statisticMgmtService.discardCountChanges();
+
             throw new ServiceException(e);
         }
 
@@ -606,11 +617,19 @@ public class CommentMgmtService {
             statisticMgmtService.decPublishedBlogCommentCount();
 
             transaction.commit();
+
+            statisticMgmtService.publishCountChanges();
+
+            commentCache.remove(pageId);
+
+            fireRemoveCommentEvent(comment);
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
             }
 
+            statisticMgmtService.discardCountChanges();
+
             LOGGER.log(Level.ERROR, "Removes a comment of a page failed", e);
             throw new ServiceException(e);
         }
@@ -639,16 +658,41 @@ public class CommentMgmtService {
             statisticMgmtService.decPublishedBlogCommentCount();
 
             transaction.commit();
+
+            statisticMgmtService.publishCountChanges();
+
+            commentCache.remove(articleId);
+
+            fireRemoveCommentEvent(comment);
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
             }
 
+            statisticMgmtService.discardCountChanges();
+
             LOGGER.log(Level.ERROR, "Removes a comment of an article failed", e);
             throw new ServiceException(e);
         }
     }
 
+    /**
+     * Fires {@link EventTypes#REMOVE_COMMENT remove comment event} with the specified removed comment.
+     * 
+     * @param comment the specified removed comment
+     * @throws JSONException json exception
+     */
+    private void fireRemoveCommentEvent(final JSONObject comment) throws JSONException {
+        final JSONObject eventData = new JSONObject();
+
+        eventData.put(Comment.COMMENT, comment);
+        try {
+            eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.REMOVE_COMMENT, eventData));
+        } catch (final EventException e) {
+            LOGGER.log(Level.WARN, "Remove comment event process failed", e);
+        }
+    }
+
     /**
      * Page comment count +1 for an page specified by the given page 
      * id.
@@ -707,36 +751,28 @@ public class CommentMgmtService {
      * Sets commenter thumbnail URL for the specified comment.
      * 
      * <p>
-     * Try to set thumbnail URL using Gravatar service.
+     * Sets the Gravatar URL if the commenter email is known by the {@link GravatarCache}, sets the default thumbnail 
+     * URL otherwise, the caller should {@link GravatarCache#backfill(java.lang.String, java.lang.String) backfill} it 
+     * after the comment persisted. Never fetches Gravatar.
      * </p>
      *
      * @param comment the specified comment
-     * @throws Exception exception
+     * @return {@code true} if the thumbnail URL resolved from the cache, returns {@code false} otherwise
+     * @throws JSONException json exception
      */
-    public static void setCommentThumbnailURL(final JSONObject comment) throws Exception {
-        final String commentEmail = comment.getString(Comment.COMMENT_EMAIL);
-
-        String thumbnailURL = Thumbnails.getGravatarURL(commentEmail.toLowerCase(), "60");
-        final URL gravatarURL = new URL(thumbnailURL);
+    public static boolean setCommentThumbnailURL(final JSONObject comment) throws JSONException {
+        final String commentEmail = comment.getString(Comment.COMMENT_EMAIL).toLowerCase();
+        final String thumbnailURL = gravatarCache.getThumbnailURL(commentEmail);
 
-        int statusCode = HttpServletResponse.SC_OK;
+        if (null == thumbnailURL) {
+            comment.put(Comment.COMMENT_THUMBNAIL_URL, gravatarCache.getDefaultThumbnailURL());
 
-        try {
-            final HTTPRequest request = new HTTPRequest();
-
-            request.setURL(gravatarURL);
-            final HTTPResponse response = urlFetchService.fetch(request);
-
-            statusCode = response.getResponseCode();
-        } catch (final IOException e) {
-            LOGGER.log(Level.WARN, "Can not fetch thumbnail from Gravatar[commentEmail={0}]", commentEmail);
-        } finally {
-            if (HttpServletResponse.SC_OK != statusCode) {
-                thumbnailURL = Latkes.getStaticServePath() + "/images/" + DEFAULT_USER_THUMBNAIL;
-            }
+            return false;
         }
 
         comment.put(Comment.COMMENT_THUMBNAIL_URL, thumbnailURL);
+
+        return true;
     }
 
     /**
@@ -801,4 +837,22 @@ public class CommentMgmtService {
     public void setLangPropsService(final LangPropsService langPropsService) {
         this.langPropsService = langPropsService;
     }
+
+    /**
+     * Sets the mail management service with the specified mail management service.
+     * 
+     * @param mailMgmtService the specified mail management service
+     */
+    public void setMailMgmtService(final MailMgmtService mailMgmtService) {
+        this.mailMgmtService = mailMgmtService;
+    }
+
+    /**
+     * Sets the comment cache with the specified comment cache.
+     * 
+     * @param commentCache the specified comment cache
+     */
+    public void setCommentCache(final CommentCache commentCache) {
+        this.commentCache = commentCache;
+    }
 }
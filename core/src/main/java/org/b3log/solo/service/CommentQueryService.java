@@ -32,6 +32,7 @@ import org.b3log.latke.service.annotation.Service;
 import org.b3log.latke.util.Paginator;
 import org.b3log.latke.util.Strings;
 import org.b3log.solo.SoloServletListener;
+import org.b3log.solo.cache.CommentCache;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Comment;
 import org.b3log.solo.model.Common;
@@ -47,7 +48,7 @@ import org.json.JSONObject;
  * Comment query service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.4, Dec 20, 2011
+ * @version 1.0.1.2, Nov 2, 2013
  * @since 0.3.5
  */
 @Service
@@ -58,6 +59,11 @@ public class CommentQueryService {
      */
     private static final Logger LOGGER = Logger.getLogger(CommentQueryService.class.getName());
 
+    /**
+     * Comment page size of an article or page.
+     */
+    public static final int COMMENT_PAGE_SIZE = 100;
+
     /**
      * Comment repository.
      */
@@ -76,6 +82,12 @@ public class CommentQueryService {
     @Inject
     private PageRepository pageRepository;
 
+    /**
+     * Comment cache.
+     */
+    @Inject
+    private CommentCache commentCache;
+
     /**
      * Gets comments with the specified request json object, request and response.
      * 
@@ -182,22 +194,53 @@ public class CommentQueryService {
             final List<JSONObject> comments = commentRepository.getComments(onId, 1, Integer.MAX_VALUE);
 
             for (final JSONObject comment : comments) {
-                final String content = comment.getString(Comment.COMMENT_CONTENT).replaceAll(SoloServletListener.ENTER_ESC, "<br/>");
+                prepare(comment);
 
-                comment.put(Comment.COMMENT_CONTENT, content);
-                comment.put(Comment.COMMENT_TIME, ((Date) comment.get(Comment.COMMENT_DATE)).getTime());
-                comment.put(Comment.COMMENT_NAME, StringEscapeUtils.escapeHtml(comment.getString(Comment.COMMENT_NAME)));
-                comment.put(Comment.COMMENT_URL, StringEscapeUtils.escapeHtml(comment.getString(Comment.COMMENT_URL)));
-                comment.put(Common.IS_REPLY, false); // Assumes this comment is not a reply
+                ret.add(comment);
+            }
 
-                if (!Strings.isEmptyOrNull(comment.optString(Comment.COMMENT_ORIGINAL_COMMENT_ID))) {
-                    // This comment is a reply
-                    comment.put(Common.IS_REPLY, true);
-                }
+            return ret;
+        } catch (final Exception e) {
+            LOGGER.log(Level.ERROR, "Gets comments failed", e);
+            throw new ServiceException(e);
+        }
+    }
+
+    /**
+     * Gets the specified page of comments of an article or page specified by the on id.
+     * 
+     * <p>
+     * Comments are sorted by creation time descending, each page holds at most {@value #COMMENT_PAGE_SIZE} comments. 
+     * Prepared pages are served from the {@link CommentCache comment cache}, the cached pages of an article or page will 
+     * be removed while a comment added to or removed from it.
+     * </p>
+     *
+     * @param onId the specified on id
+     * @param currentPageNum the specified current page number, starts with 1
+     * @return a list of comments, returns an empty list if not found
+     * @throws ServiceException repository exception
+     */
+    public List<JSONObject> getComments(final String onId, final int currentPageNum) throws ServiceException {
+        final List<JSONObject> cached = commentCache.getPage(onId, currentPageNum);
+
+        if (null != cached) {
+            return cached;
+        }
+
+        try {
+            final long version = commentCache.getVersion();
+            final List<JSONObject> ret = new ArrayList<JSONObject>();
+
+            final List<JSONObject> comments = commentRepository.getComments(onId, currentPageNum, COMMENT_PAGE_SIZE);
+
+            for (final JSONObject comment : comments) {
+                prepare(comment);
 
                 ret.add(comment);
             }
 
+            commentCache.putPage(onId, currentPageNum, ret, version);
+
             return ret;
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, "Gets comments failed", e);
@@ -205,6 +248,45 @@ public class CommentQueryService {
         }
     }
 
+    /**
+     * Gets the comment page count of an article or page with the specified comment count.
+     * 
+     * <p>
+     * Article and page views render the first page only, the skins lazy load the older pages by 
+     * "/comments/{onId}/{pageNum}".
+     * </p>
+     * 
+     * @param commentCount the specified comment count
+     * @return page count
+     */
+    public static int getCommentPageCount(final int commentCount) {
+        return (int) Math.ceil((double) commentCount / (double) COMMENT_PAGE_SIZE);
+    }
+
+    /**
+     * Prepares the specified comment for rendering.
+     * 
+     * <p>
+     * Converts line breaks of the content, escapes the name and URL, sets the comment time and reply flag.
+     * </p>
+     * 
+     * @param comment the specified comment
+     */
+    private void prepare(final JSONObject comment) {
+        final String content = comment.getString(Comment.COMMENT_CONTENT).replaceAll(SoloServletListener.ENTER_ESC, "<br/>");
+
+        comment.put(Comment.COMMENT_CONTENT, content);
+        comment.put(Comment.COMMENT_TIME, ((Date) comment.get(Comment.COMMENT_DATE)).getTime());
+        comment.put(Comment.COMMENT_NAME, StringEscapeUtils.escapeHtml(comment.getString(Comment.COMMENT_NAME)));
+        comment.put(Comment.COMMENT_URL, StringEscapeUtils.escapeHtml(comment.getString(Comment.COMMENT_URL)));
+        comment.put(Common.IS_REPLY, false); // Assumes this comment is not a reply
+
+        if (!Strings.isEmptyOrNull(comment.optString(Comment.COMMENT_ORIGINAL_COMMENT_ID))) {
+            // This comment is a reply
+            comment.put(Common.IS_REPLY, true);
+        }
+    }
+
     /**
      * Sets the article repository with the specified article repository.
      * 
@@ -231,4 +313,13 @@ public class CommentQueryService {
     public void setCommentRepository(final CommentRepository commentRepository) {
         this.commentRepository = commentRepository;
     }
+
+    /**
+     * Sets the comment cache with the specified comment cache.
+     * 
+     * @param commentCache the specified comment cache
+     */
+    public void setCommentCache(final CommentCache commentCache) {
+        this.commentCache = commentCache;
+    }
 }
@@ -45,6 +45,23 @@ import org.b3log.latke.util.Ids;
 import org.b3log.latke.util.MD5;
 import org.b3log.latke.util.freemarker.Templates;
 import org.b3log.solo.SoloServletListener;
+import org.b3log.solo.cache.ArchiveDateIndex;
+import org.b3log.solo.cache.ArticleTimeline;
+import org.b3log.solo.cache.CommentCache;
+import org.b3log.solo.cache.ContentVersion;
+import org.b3log.solo.cache.FeedCache;
+import org.b3log.solo.cache.PageCache;
+import org.b3log.solo.cache.PermalinkIndex;
+import org.b3log.solo.cache.PreferenceCache;
+import org.b3log.solo.cache.RandomArticleSampler;
+import org.b3log.solo.cache.RelevantArticleIndex;
+import org.b3log.solo.cache.SitemapCache;
+import org.b3log.solo.cache.StatisticCounter;
+import org.b3log.solo.cache.TagIndex;
+import org.b3log.solo.cache.UserDirectory;
+import org.b3log.solo.cache.TemplateAnalysisCache;
+import org.b3log.solo.cache.ViewCountBuffer;
+import org.b3log.solo.cache.WidgetCache;
 import org.b3log.solo.model.*;
 import static org.b3log.solo.model.Preference.*;
 import org.b3log.solo.model.Preference.Default;
@@ -62,7 +79,7 @@ import org.json.JSONObject;
  * B3log Solo initialization service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.1.7, Jun 28, 2013
+ * @version 1.0.1.24, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -149,6 +166,108 @@ public class InitService {
     @Inject
     private PluginManager pluginManager;
 
+    /**
+     * Preference cache.
+     */
+    @Inject
+    private PreferenceCache preferenceCache;
+
+    /**
+     * Page cache.
+     */
+    @Inject
+    private PageCache pageCache;
+
+    /**
+     * Side bar widget cache.
+     */
+    @Inject
+    private WidgetCache widgetCache;
+
+    /**
+     * Permalink index.
+     */
+    @Inject
+    private PermalinkIndex permalinkIndex;
+
+    /**
+     * View count buffer.
+     */
+    @Inject
+    private ViewCountBuffer viewCountBuffer;
+
+    /**
+     * Relevant article index.
+     */
+    @Inject
+    private RelevantArticleIndex relevantArticleIndex;
+
+    /**
+     * Feed cache.
+     */
+    @Inject
+    private FeedCache feedCache;
+
+    /**
+     * Sitemap cache.
+     */
+    @Inject
+    private SitemapCache sitemapCache;
+
+    /**
+     * User directory.
+     */
+    @Inject
+    private UserDirectory userDirectory;
+
+    /**
+     * Statistic counter.
+     */
+    @Inject
+    private StatisticCounter statisticCounter;
+
+    /**
+     * Tag index.
+     */
+    @Inject
+    private TagIndex tagIndex;
+
+    /**
+     * Archive date index.
+     */
+    @Inject
+    private ArchiveDateIndex archiveDateIndex;
+
+    /**
+     * Random article sampler.
+     */
+    @Inject
+    private RandomArticleSampler randomArticleSampler;
+
+    /**
+     * Article timeline.
+     */
+    @Inject
+    private ArticleTimeline articleTimeline;
+
+    /**
+     * Comment cache.
+     */
+    @Inject
+    private CommentCache commentCache;
+
+    /**
+     * Content version.
+     */
+    @Inject
+    private ContentVersion contentVersion;
+
+    /**
+     * Template analysis cache.
+     */
+    @Inject
+    private TemplateAnalysisCache templateAnalysisCache;
+
     /**
      * Determines Solo had been initialized.
      *
@@ -157,7 +276,7 @@ public class InitService {
     // XXX: to find a better way (isInited)?
     public boolean isInited() {
         try {
-            final JSONObject admin = userRepository.getAdmin();
+            final JSONObject admin = userDirectory.getAdmin();
 
             return null != admin;
         } catch (final RepositoryException e) {
@@ -260,6 +379,23 @@ public class InitService {
             LOGGER.log(Level.ERROR, "Hello World error?!", e);
         }
 
+        preferenceCache.clear();
+        pageCache.clear();
+        widgetCache.invalidate();
+        permalinkIndex.clear();
+        viewCountBuffer.clear();
+        relevantArticleIndex.clear();
+        feedCache.clear();
+        sitemapCache.clear();
+        userDirectory.clear();
+        statisticCounter.clear();
+        tagIndex.clear();
+        archiveDateIndex.clear();
+        randomArticleSampler.clear();
+        articleTimeline.clear();
+        commentCache.clear();
+        contentVersion.bump();
+
         pluginManager.load();
     }
 
@@ -599,6 +735,7 @@ public class InitService {
             final String skinPath = webRootPath + Skin.SKINS + "/" + skinDirName;
 
             Templates.MAIN_CFG.setDirectoryForTemplateLoading(new File(skinPath));
+            templateAnalysisCache.clear();
         } catch (final IOException e) {
             LOGGER.log(Level.ERROR, "Loads skins error!", e);
             throw new IllegalStateException(e);
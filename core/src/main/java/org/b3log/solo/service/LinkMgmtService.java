@@ -18,13 +18,18 @@ package org.b3log.solo.service;
 
 import javax.inject.Inject;
 import org.b3log.latke.Keys;
+import org.b3log.latke.event.Event;
+import org.b3log.latke.event.EventException;
+import org.b3log.latke.event.EventManager;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
 import org.b3log.latke.repository.Transaction;
 import org.b3log.latke.service.ServiceException;
 import org.b3log.latke.service.annotation.Service;
+import org.b3log.solo.event.EventTypes;
 import org.b3log.solo.model.Link;
 import org.b3log.solo.repository.LinkRepository;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 
@@ -32,7 +37,7 @@ import org.json.JSONObject;
  * Link management service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.1, Nov 2, 2011
+ * @version 1.0.0.2, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -49,6 +54,12 @@ public class LinkMgmtService {
     @Inject
     private LinkRepository linkRepository;
 
+    /**
+     * Event manager.
+     */
+    @Inject
+    private EventManager eventManager;
+
     /**
      * Removes a link specified by the given link id.
      *
@@ -60,9 +71,15 @@ public class LinkMgmtService {
         final Transaction transaction = linkRepository.beginTransaction();
 
         try {
+            final JSONObject link = linkRepository.get(linkId);
+
             linkRepository.remove(linkId);
 
             transaction.commit();
+
+            if (null != link) {
+                fireLinkEvent(EventTypes.REMOVE_LINK, link);
+            }
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
@@ -102,6 +119,8 @@ public class LinkMgmtService {
             linkRepository.update(linkId, link);
 
             transaction.commit();
+
+            fireLinkEvent(EventTypes.UPDATE_LINK, link);
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
@@ -154,6 +173,8 @@ public class LinkMgmtService {
             linkRepository.update(targetLink.getString(Keys.OBJECT_ID), targetLink);
 
             transaction.commit();
+
+            fireLinkEvent(EventTypes.UPDATE_LINK, srcLink);
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
@@ -194,6 +215,8 @@ public class LinkMgmtService {
 
             transaction.commit();
 
+            fireLinkEvent(EventTypes.ADD_LINK, link);
+
             return ret;
         } catch (final Exception e) {
             if (transaction.isActive()) {
@@ -205,6 +228,24 @@ public class LinkMgmtService {
         }
     }
 
+    /**
+     * Fires a link event with the specified event type and link.
+     * 
+     * @param eventType the specified event type, for example {@link EventTypes#ADD_LINK}
+     * @param link the specified link
+     * @throws JSONException json exception
+     */
+    private void fireLinkEvent(final String eventType, final JSONObject link) throws JSONException {
+        final JSONObject eventData = new JSONObject();
+
+        eventData.put(Link.LINK, link);
+        try {
+            eventManager.fireEventSynchronously(new Event<JSONObject>(eventType, eventData));
+        } catch (final EventException e) {
+            LOGGER.log(Level.WARN, "Link event[type=" + eventType + "] process failed", e);
+        }
+    }
+
     /**
      * Sets the link repository with the specified link repository.
      * 
@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.service;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import org.b3log.latke.Keys;
+import org.b3log.latke.Latkes;
+import org.b3log.latke.logging.Level;
+import org.b3log.latke.logging.Logger;
+import org.b3log.latke.mail.MailService;
+import org.b3log.latke.mail.MailServiceFactory;
+import org.b3log.latke.repository.FilterOperator;
+import org.b3log.latke.repository.PropertyFilter;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.RepositoryException;
+import org.b3log.latke.repository.SortDirection;
+import org.b3log.latke.repository.Transaction;
+import org.b3log.latke.service.annotation.Service;
+import org.b3log.latke.util.MD5;
+import org.b3log.solo.SoloServletListener;
+import org.b3log.solo.model.Article;
+import org.b3log.solo.model.Comment;
+import org.b3log.solo.model.Option;
+import org.b3log.solo.model.Page;
+import org.b3log.solo.model.Preference;
+import org.b3log.solo.repository.ArticleRepository;
+import org.b3log.solo.repository.CommentRepository;
+import org.b3log.solo.repository.OptionRepository;
+import org.b3log.solo.repository.PageRepository;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+
+/**
+ * Mail management service.
+ * 
+ * <p>
+ * Comment notification mails are not sent in the comment submission, they are queued as 
+ * {@link Option#CATEGORY_C_MAIL_QUEUE mail queue} options in the comment transaction, and sent by the cron job 
+ * {@link #sendQueuedMails()} in batches:
+ *   <ul>
+ *     <li>Notifications to the same recipient are coalesced into one digest mail</li>
+ *     <li>At most {@value #MAX_MAILS_PER_SEND} mails will be sent in one batch</li>
+ *     <li>At most one mail will be sent to a recipient in {@value #RECIPIENT_INTERVAL} milliseconds, the notifications
+ *     keep queued and will be coalesced into the next digest</li>
+ *   </ul>
+ * </p>
+ * 
+ * <p>
+ * The last sent time of a recipient is stored as a {@link Option#CATEGORY_C_MAIL_SENT mail sent} option along with 
+ * the queue, in the transaction removing the sent notifications, so the interval holds across server instances and 
+ * restarts. A malformed queued notification will be dropped.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.1.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Service
+public class MailMgmtService {
+
+    /**
+     * Logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(MailMgmtService.class.getName());
+
+    /**
+     * Maximum number of notifications read in one batch.
+     */
+    private static final int BATCH_SIZE = 200;
+
+    /**
+     * Maximum number of mails sent in one batch.
+     */
+    private static final int MAX_MAILS_PER_SEND = 10;
+
+    /**
+     * Minimum interval between two mails to the same recipient, in milliseconds.
+     */
+    private static final long RECIPIENT_INTERVAL = 1000L * 60 * 10;
+
+    /**
+     * Notification type of comment, notifies administrator.
+     */
+    private static final String TYPE_COMMENT = "comment";
+
+    /**
+     * Notification type of reply, notifies the original commenter.
+     */
+    private static final String TYPE_REPLY = "reply";
+
+    /**
+     * Key of recipient.
+     */
+    private static final String RECIPIENT = "recipient";
+
+    /**
+     * Key of notification type.
+     */
+    private static final String TYPE = "type";
+
+    /**
+     * Key of comment id.
+     */
+    private static final String COMMENT_ID = "commentId";
+
+    /**
+     * Option repository.
+     */
+    @Inject
+    private OptionRepository optionRepository;
+
+    /**
+     * Comment repository.
+     */
+    @Inject
+    private CommentRepository commentRepository;
+
+    /**
+     * Article repository.
+     */
+    @Inject
+    private ArticleRepository articleRepository;
+
+    /**
+     * Page repository.
+     */
+    @Inject
+    private PageRepository pageRepository;
+
+    /**
+     * Preference query service.
+     */
+    @Inject
+    private PreferenceQueryService preferenceQueryService;
+
+    /**
+     * Mail service.
+     */
+    private MailService mailService = MailServiceFactory.getMailService();
+
+    /**
+     * Queues a notification mail to administrator for notifying the specified comment.
+     * 
+     * <p>
+     * Should be invoked in a transaction.
+     * </p>
+     * 
+     * @param adminEmail the specified administrator email
+     * @param commentId the specified comment id
+     * @throws RepositoryException repository exception
+     */
+    public void queueCommentNotification(final String adminEmail, final String commentId) throws RepositoryException {
+        queue(adminEmail, TYPE_COMMENT, commentId);
+    }
+
+    /**
+     * Queues a notification mail to the specified original commenter for notifying the specified reply.
+     * 
+     * <p>
+     * Should be invoked in a transaction.
+     * </p>
+     * 
+     * @param originalCommentEmail the specified original commenter email
+     * @param commentId the specified reply comment id
+     * @throws RepositoryException repository exception
+     */
+    public void queueReplyNotification(final String originalCommentEmail, final String commentId)
+        throws RepositoryException {
+        queue(originalCommentEmail, TYPE_REPLY, commentId);
+    }
+
+    /**
+     * Sends the queued notification mails in a batch.
+     * 
+     * <p>
+     * The notifications of a mail will be removed from the queue after the mail sent. If sending fails, the batch 
+     * stops, the remaining notifications keep queued for the next batch.
+     * </p>
+     */
+    public void sendQueuedMails() {
+        JSONArray options;
+        JSONObject preference;
+        JSONObject replyNotificationTemplate;
+
+        try {
+            final Query query = new Query().setFilter(
+                new PropertyFilter(Option.OPTION_CATEGORY, FilterOperator.EQUAL, Option.CATEGORY_C_MAIL_QUEUE)).addSort(
+                Keys.OBJECT_ID, SortDirection.ASCENDING).setCurrentPageNum(1).setPageSize(BATCH_SIZE).setPageCount(1);
+
+            options = optionRepository.get(query).getJSONArray(Keys.RESULTS);
+            if (0 == options.length()) {
+                pruneSentTimes();
+
+                return;
+            }
+
+            preference = preferenceQueryService.getPreference();
+            replyNotificationTemplate = preferenceQueryService.getReplyNotificationTemplate();
+            if (null == preference || null == replyNotificationTemplate) {
+                LOGGER.log(Level.WARN, "Not found preference, skips sending queued mails");
+
+                return;
+            }
+        } catch (final Exception e) {
+            LOGGER.log(Level.ERROR, "Gets queued mails failed", e);
+
+            return;
+        }
+
+        final Map<String, List<JSONObject>> notifications = new LinkedHashMap<String, List<JSONObject>>();
+        final List<JSONObject> malformed = new ArrayList<JSONObject>();
+
+        for (int i = 0; i < options.length(); i++) {
+            final JSONObject option = options.optJSONObject(i);
+            final String optionId = option.optString(Keys.OBJECT_ID);
+            final JSONObject notification;
+
+            try {
+                notification = new JSONObject(option.optString(Option.OPTION_VALUE));
+            } catch (final JSONException e) {
+                LOGGER.log(Level.ERROR, "Drops malformed queued notification[id=" + optionId + "]", e);
+                malformed.add(option);
+
+                continue;
+            }
+
+            notification.put(Keys.OBJECT_ID, optionId);
+
+            final String recipient = notification.optString(RECIPIENT);
+            List<JSONObject> recipientNotifications = notifications.get(recipient);
+
+            if (null == recipientNotifications) {
+                recipientNotifications = new ArrayList<JSONObject>();
+                notifications.put(recipient, recipientNotifications);
+            }
+
+            recipientNotifications.add(notification);
+        }
+
+        if (!malformed.isEmpty()) {
+            removeNotifications(malformed, null, 0);
+        }
+
+        final long now = System.currentTimeMillis();
+        int sent = 0;
+
+        for (final Map.Entry<String, List<JSONObject>> entry : notifications.entrySet()) {
+            if (sent >= MAX_MAILS_PER_SEND) {
+                break;
+            }
+
+            final String recipient = entry.getKey();
+            long lastSentTime;
+
+            try {
+                lastSentTime = getLastSentTime(recipient);
+            } catch (final RepositoryException e) {
+                LOGGER.log(Level.ERROR, "Gets last sent time of [" + recipient + "] failed, retries in the next batch", e);
+
+                break;
+            }
+
+            if (now - lastSentTime < RECIPIENT_INTERVAL) {
+                continue;
+            }
+
+            boolean mailed = false;
+
+            try {
+                mailed = sendDigest(recipient, entry.getValue(), preference, replyNotificationTemplate);
+                if (mailed) {
+                    sent++;
+                }
+            } catch (final IOException e) {
+                LOGGER.log(Level.ERROR, "Sends mail to [" + recipient + "] failed, retries in the next batch", e);
+
+                break;
+            } catch (final Exception e) {
+                LOGGER.log(Level.ERROR, "Sends mail to [" + recipient + "] failed, drops the notifications", e);
+            }
+
+            removeNotifications(entry.getValue(), mailed ? recipient : null, now);
+        }
+    }
+
+    /**
+     * Sets the mail service with the specified mail service.
+     * 
+     * @param mailService the specified mail service
+     */
+    public void setMailService(final MailService mailService) {
+        this.mailService = mailService;
+    }
+
+    /**
+     * Queues a notification with the specified recipient, type and comment id.
+     * 
+     * @param recipient the specified recipient
+     * @param type the specified type
+     * @param commentId the specified comment id
+     * @throws RepositoryException repository exception
+     */
+    private void queue(final String recipient, final String type, final String commentId) throws RepositoryException {
+        final JSONObject notification = new JSONObject();
+
+        notification.put(RECIPIENT, recipient);
+        notification.put(TYPE, type);
+        notification.put(COMMENT_ID, commentId);
+
+        final JSONObject option = new JSONObject();
+
+        option.put(Option.OPTION_CATEGORY, Option.CATEGORY_C_MAIL_QUEUE);
+        option.put(Option.OPTION_VALUE, notification.toString());
+
+        optionRepository.add(option);
+    }
+
+    /**
+     * Gets the last sent time of the specified recipient.
+     * 
+     * @param recipient the specified recipient
+     * @return last sent time, returns {@code 0} if not sent yet
+     * @throws RepositoryException repository exception
+     */
+    private long getLastSentTime(final String recipient) throws RepositoryException {
+        final JSONObject option = optionRepository.get(getSentTimeOptionId(recipient));
+
+        if (null == option) {
+            return 0;
+        }
+
+        return option.optLong(Option.OPTION_VALUE);
+    }
+
+    /**
+     * Gets the id of the sent time option of the specified recipient.
+     * 
+     * @param recipient the specified recipient
+     * @return option id
+     */
+    private static String getSentTimeOptionId(final String recipient) {
+        return Option.CATEGORY_C_MAIL_SENT + "_" + MD5.hash(recipient);
+    }
+
+    /**
+     * Removes the sent time options elapsed the recipient interval.
+     */
+    private void pruneSentTimes() {
+        final long now = System.currentTimeMillis();
+        final Transaction transaction = optionRepository.beginTransaction();
+
+        try {
+            final Query query = new Query().setFilter(
+                new PropertyFilter(Option.OPTION_CATEGORY, FilterOperator.EQUAL, Option.CATEGORY_C_MAIL_SENT)).setCurrentPageNum(
+                1).setPageSize(BATCH_SIZE).setPageCount(1);
+            final JSONArray options = optionRepository.get(query).getJSONArray(Keys.RESULTS);
+
+            for (int i = 0; i < options.length(); i++) {
+                final JSONObject option = options.optJSONObject(i);
+
+                if (now - option.optLong(Option.OPTION_VALUE) >= RECIPIENT_INTERVAL) {
+                    optionRepository.remove(option.optString(Keys.OBJECT_ID));
+                }
+            }
+
+            transaction.commit();
+        } catch (final Exception e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            LOGGER.log(Level.ERROR, "Prunes mail sent times failed", e);
+        }
+    }
+
+    /**
+     * Sends a digest mail of the specified notifications to the specified recipient.
+     * 
+     * @param recipient the specified recipient
+     * @param notifications the specified notifications
+     * @param preference the specified preference
+     * @param replyNotificationTemplate the specified reply notification template
+     * @return {@code true} if sent, returns {@code false} if the comments of all the notifications have been removed
+     * @throws Exception exception
+     */
+    private boolean sendDigest(final String recipient, final List<JSONObject> notifications, final JSONObject preference,
+        final JSONObject replyNotificationTemplate) throws Exception {
+        final String blogTitle = preference.getString(Preference.BLOG_TITLE);
+        final List<String> subjects = new ArrayList<String>();
+        final StringBuilder bodyBuilder = new StringBuilder();
+
+        for (final JSONObject notification : notifications) {
+            final JSONObject comment = commentRepository.get(notification.getString(COMMENT_ID));
+
+            if (null == comment) {
+                continue;
+            }
+
+            final boolean isArticle = Article.ARTICLE.equals(comment.getString(Comment.COMMENT_ON_TYPE));
+            final String onId = comment.getString(Comment.COMMENT_ON_ID);
+            final JSONObject articleOrPage = isArticle ? articleRepository.get(onId) : pageRepository.get(onId);
+
+            if (null == articleOrPage) {
+                continue;
+            }
+
+            final String title = articleOrPage.getString(isArticle ? Article.ARTICLE_TITLE : Page.PAGE_TITLE);
+            final String articleOrPageURL = Latkes.getServePath()
+                + articleOrPage.getString(isArticle ? Article.ARTICLE_PERMALINK : Page.PAGE_PERMALINK);
+            final String commentContent = comment.getString(Comment.COMMENT_CONTENT).replaceAll(
+                SoloServletListener.ENTER_ESC, "<br/>");
+            final String commentSharpURL = Latkes.getServePath() + comment.getString(Comment.COMMENT_SHARP_URL);
+            final String commentName = comment.getString(Comment.COMMENT_NAME);
+            final String commentURL = comment.getString(Comment.COMMENT_URL);
+            String commenter;
+
+            if (!"http://".equals(commentURL)) {
+                commenter = "<a target=\"_blank\" " + "href=\"" + commentURL + "\">" + commentName + "</a>";
+            } else {
+                commenter = commentName;
+            }
+
+            if (0 < bodyBuilder.length()) {
+                bodyBuilder.append("<hr/>");
+            }
+
+            if (TYPE_REPLY.equals(notification.getString(TYPE))) {
+                subjects.add(replyNotificationTemplate.getString("subject").replace("${blogTitle}", blogTitle));
+                bodyBuilder.append(replyNotificationTemplate.getString("body").replace("${postLink}", articleOrPageURL).replace(
+                    "${postTitle}", title).replace("${replier}", commenter).replace("${replyURL}", commentSharpURL).replace(
+                    "${replyContent}", commentContent));
+            } else {
+                subjects.add(blogTitle + ": New comment on " + (isArticle ? "article" : "page") + " [" + title + "]");
+                bodyBuilder.append(CommentMgmtService.COMMENT_MAIL_HTML_BODY.replace("{articleOrPage}", isArticle ? "Article" : "Page").replace(
+                    "{articleOrPageURL}", articleOrPageURL).replace("{title}", title).replace("{commentContent}", commentContent).replace(
+                    "{commentSharpURL}", commentSharpURL).replace("{commenter}", commenter));
+            }
+        }
+
+        if (subjects.isEmpty()) {
+            return false;
+        }
+
+        final MailService.Message message = new MailService.Message();
+
+        message.setFrom(preference.getString(Preference.ADMIN_EMAIL));
+        message.addRecipient(recipient);
+        final String mailSubject = 1 == subjects.size() ? subjects.get(0) : blogTitle + ": " + subjects.size() + " new comments";
+
+        message.setSubject(mailSubject);
+        message.setHtmlBody(bodyBuilder.toString());
+
+        LOGGER.log(Level.DEBUG, "Sending a mail[mailSubject={0}] of [{1}] notifications to [{2}]",
+            new Object[] {mailSubject, subjects.size(), recipient});
+        mailService.send(message);
+
+        return true;
+    }
+
+    /**
+     * Removes the specified notifications from the queue, and saves the specified sent time of the specified recipient.
+     * 
+     * @param notifications the specified notifications
+     * @param recipient the specified recipient, {@code null} if not mailed
+     * @param sentTime the specified sent time
+     */
+    private void removeNotifications(final List<JSONObject> notifications, final String recipient, final long sentTime) {
+        final Transaction transaction = optionRepository.beginTransaction();
+
+        try {
+            for (final JSONObject notification : notifications) {
+                optionRepository.remove(notification.getString(Keys.OBJECT_ID));
+            }
+
+            if (null != recipient) {
+                final String optionId = getSentTimeOptionId(recipient);
+                final JSONObject option = new JSONObject();
+
+                option.put(Keys.OBJECT_ID, optionId);
+                option.put(Option.OPTION_CATEGORY, Option.CATEGORY_C_MAIL_SENT);
+                option.put(Option.OPTION_VALUE, String.valueOf(sentTime));
+
+                if (null == optionRepository.get(optionId)) {
+                    optionRepository.add(option);
+                } else {
+                    optionRepository.update(optionId, option);
+                }
+            }
+
+            transaction.commit();
+        } catch (final Exception e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            LOGGER.log(Level.ERROR, "Removes sent notifications failed", e);
+        }
+    }
+}
@@ -19,6 +19,9 @@ package org.b3log.solo.service;
 import java.util.List;
 import javax.inject.Inject;
 import org.b3log.latke.Keys;
+import org.b3log.latke.event.Event;
+import org.b3log.latke.event.EventException;
+import org.b3log.latke.event.EventManager;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
 import org.b3log.latke.repository.RepositoryException;
@@ -28,6 +31,10 @@ import org.b3log.latke.service.ServiceException;
 import org.b3log.latke.service.annotation.Service;
 import org.b3log.latke.util.Ids;
 import org.b3log.latke.util.Strings;
+import org.b3log.solo.cache.CommentCache;
+import org.b3log.solo.cache.MarkdownCache;
+import org.b3log.solo.cache.PermalinkIndex;
+import org.b3log.solo.event.EventTypes;
 import org.b3log.solo.model.Comment;
 import org.b3log.solo.model.Page;
 import org.b3log.solo.model.Preference;
@@ -42,7 +49,7 @@ import org.json.JSONObject;
  * Page management service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.7, Jun 8, 2012
+ * @version 1.0.0.13, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -90,10 +97,28 @@ public class PageMgmtService {
     private StatisticMgmtService statisticMgmtService;
 
     /**
-     * Statistic query service.
+     * Event manager.
      */
     @Inject
-    private StatisticQueryService statisticQueryService;
+    private EventManager eventManager;
+
+    /**
+     * Permalink index.
+     */
+    @Inject
+    private PermalinkIndex permalinkIndex;
+
+    /**
+     * Markdown cache.
+     */
+    @Inject
+    private MarkdownCache markdownCache;
+
+    /**
+     * Comment cache.
+     */
+    @Inject
+    private CommentCache commentCache;
 
     /**
      * Updates a page by the specified request json object.
@@ -176,6 +201,11 @@ public class PageMgmtService {
 
             transaction.commit();
 
+            permalinkIndex.putPage(pageId, newPage.getString(Page.PAGE_PERMALINK));
+            commentCache.remove(pageId);
+            cacheMarkdown(newPage);
+            firePageEvent(EventTypes.UPDATE_PAGE, newPage);
+
             LOGGER.log(Level.DEBUG, "Updated a page[id={0}]", pageId);
         } catch (final Exception e) {
             LOGGER.log(Level.ERROR, e.getMessage(), e);
@@ -198,16 +228,27 @@ public class PageMgmtService {
 
         try {
             LOGGER.log(Level.DEBUG, "Removing a page[id={0}]", pageId);
+            final JSONObject page = pageRepository.get(pageId);
+
             removePageComments(pageId);
             pageRepository.remove(pageId);
 
             transaction.commit();
 
+            statisticMgmtService.publishCountChanges();
+
+            permalinkIndex.remove(pageId);
+            commentCache.remove(pageId);
+            if (null != page) {
+                firePageEvent(EventTypes.REMOVE_PAGE, page);
+            }
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
             }
 
+            statisticMgmtService.discardCountChanges();
+
             LOGGER.log(Level.ERROR, "Removes a page[id=" + pageId + "] failed", e);
 
             throw new ServiceException(e);
@@ -284,6 +325,11 @@ public class PageMgmtService {
 
             transaction.commit();
 
+            permalinkIndex.putPage(ret, page.getString(Page.PAGE_PERMALINK));
+            cacheMarkdown(page);
+
+            firePageEvent(EventTypes.ADD_PAGE, page);
+
             return ret;
         } catch (final JSONException e) {
             LOGGER.log(Level.ERROR, e.getMessage(), e);
@@ -343,6 +389,8 @@ public class PageMgmtService {
             pageRepository.update(targetPage.getString(Keys.OBJECT_ID), targetPage);
 
             transaction.commit();
+
+            firePageEvent(EventTypes.UPDATE_PAGE, srcPage);
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
@@ -354,6 +402,35 @@ public class PageMgmtService {
         }
     }
 
+    /**
+     * Converts the content of the specified page to HTML into {@link MarkdownCache} if it is saved by Markdown editor.
+     * 
+     * @param page the specified page
+     */
+    private void cacheMarkdown(final JSONObject page) {
+        if ("CodeMirror-Markdown".equals(page.optString(Page.PAGE_EDITOR_TYPE))) {
+            markdownCache.toHTML(page.optString(Page.PAGE_CONTENT));
+        }
+    }
+
+    /**
+     * Fires a page event with the specified event type and page.
+     * 
+     * @param eventType the specified event type, for example {@link EventTypes#ADD_PAGE}
+     * @param page the specified page
+     * @throws JSONException json exception
+     */
+    private void firePageEvent(final String eventType, final JSONObject page) throws JSONException {
+        final JSONObject eventData = new JSONObject();
+
+        eventData.put(Page.PAGE, page);
+        try {
+            eventManager.fireEventSynchronously(new Event<JSONObject>(eventType, eventData));
+        } catch (final EventException e) {
+            LOGGER.log(Level.WARN, "Page event[type=" + eventType + "] process failed", e);
+        }
+    }
+
     /**
      * Removes page comments by the specified page id.
      *
@@ -368,15 +445,8 @@ public class PageMgmtService {
     private void removePageComments(final String pageId) throws JSONException, RepositoryException {
         final int removedCnt = commentRepository.removeComments(pageId);
 
-        int blogCommentCount = statisticQueryService.getBlogCommentCount();
-
-        blogCommentCount -= removedCnt;
-        statisticMgmtService.setBlogCommentCount(blogCommentCount);
-
-        int publishedBlogCommentCount = statisticQueryService.getPublishedBlogCommentCount();
-
-        publishedBlogCommentCount -= removedCnt;
-        statisticMgmtService.setPublishedBlogCommentCount(publishedBlogCommentCount);
+        statisticMgmtService.addBlogCommentCount(-removedCnt);
+        statisticMgmtService.addPublishedBlogCommentCount(-removedCnt);
     }
 
     /**
@@ -434,15 +504,6 @@ public class PageMgmtService {
         this.preferenceQueryService = preferenceQueryService;
     }
 
-    /**
-     * Sets the statistic query service with the specified statistic query service.
-     * 
-     * @param statisticQueryService the specified statistic query service
-     */
-    public void setStatisticQueryService(final StatisticQueryService statisticQueryService) {
-        this.statisticQueryService = statisticQueryService;
-    }
-
     /**
      * Sets the statistic management service with the specified statistic management service.
      * 
@@ -469,4 +530,31 @@ public class PageMgmtService {
     public void setLangPropsService(final LangPropsService langPropsService) {
         this.langPropsService = langPropsService;
     }
+
+    /**
+     * Sets the permalink index with the specified permalink index.
+     * 
+     * @param permalinkIndex the specified permalink index
+     */
+    public void setPermalinkIndex(final PermalinkIndex permalinkIndex) {
+        this.permalinkIndex = permalinkIndex;
+    }
+
+    /**
+     * Sets the markdown cache with the specified markdown cache.
+     * 
+     * @param markdownCache the specified markdown cache
+     */
+    public void setMarkdownCache(final MarkdownCache markdownCache) {
+        this.markdownCache = markdownCache;
+    }
+
+    /**
+     * Sets the comment cache with the specified comment cache.
+     * 
+     * @param commentCache the specified comment cache
+     */
+    public void setCommentCache(final CommentCache commentCache) {
+        this.commentCache = commentCache;
+    }
 }
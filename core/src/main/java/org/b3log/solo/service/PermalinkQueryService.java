@@ -33,7 +33,7 @@ import org.b3log.solo.repository.PageRepository;
  * Permalink query service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.1, Oct 26, 2013
+ * @version 1.0.0.2, Nov 2, 2013
  * @since 0.6.1
  */
 @Service
@@ -66,7 +66,7 @@ public class PermalinkQueryService {
         "/login", "/logout", "/forgot", "/get-article-content", "/admin-index.do", "/admin-article.do", "/admin-article-list.do",
         "/admin-link-list.do", "/admin-preference.do", "/admin-file-list.do", "/admin-page-list.do", "/admin-others.do",
         "/admin-draft-list.do", "/admin-user-list.do", "/admin-plugin-list.do", "/admin-main.do", "/admin-about.do", "/admin-label",
-        "/admin-about.do", "/rm-all-data.do", "/init", "/register.html"
+        "/admin-about.do", "/rm-all-data.do", "/init", "/register.html", "/comments/"
     };
 
     /**
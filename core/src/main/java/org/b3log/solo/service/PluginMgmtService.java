@@ -33,6 +33,8 @@ import org.b3log.latke.repository.Transaction;
 import org.b3log.latke.service.LangPropsService;
 import org.b3log.latke.service.annotation.Service;
 import org.b3log.latke.util.CollectionUtils;
+import org.b3log.solo.cache.ContentVersion;
+import org.b3log.solo.cache.PageCache;
 import org.b3log.solo.repository.PluginRepository;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -43,7 +45,7 @@ import org.json.JSONObject;
  * Plugin management service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.0, Oct 27, 2011
+ * @version 1.0.0.2, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -60,6 +62,18 @@ public class PluginMgmtService {
     @Inject
     private PluginRepository pluginRepository;
 
+    /**
+     * Content version.
+     */
+    @Inject
+    private ContentVersion contentVersion;
+
+    /**
+     * Page cache.
+     */
+    @Inject
+    private PageCache pageCache;
+
     /**
      * Language service.
      */
@@ -183,6 +197,8 @@ public class PluginMgmtService {
                     transaction.commit();
 
                     pluginManager.update(plugin);
+                    pageCache.clear();
+                    contentVersion.bump();
 
                     ret.put(Keys.STATUS_CODE, true);
                     ret.put(Keys.MSG, langs.get("setSuccLabel"));
@@ -236,6 +252,9 @@ public class PluginMgmtService {
 
                     transaction.commit();
 
+                    pageCache.clear();
+                    contentVersion.bump();
+
                     ret.put(Keys.STATUS_CODE, true);
                     ret.put(Keys.MSG, langs.get("setSuccLabel"));
 
@@ -277,4 +296,22 @@ public class PluginMgmtService {
     public void setLangPropsService(final LangPropsService langPropsService) {
         this.langPropsService = langPropsService;
     }
+
+    /**
+     * Sets the content version with the specified content version.
+     * 
+     * @param contentVersion the specified content version
+     */
+    public void setContentVersion(final ContentVersion contentVersion) {
+        this.contentVersion = contentVersion;
+    }
+
+    /**
+     * Sets the page cache with the specified page cache.
+     * 
+     * @param pageCache the specified page cache
+     */
+    public void setPageCache(final PageCache pageCache) {
+        this.pageCache = pageCache;
+    }
 }
@@ -27,6 +27,9 @@ import java.util.Locale;
 import java.util.Set;
 import javax.inject.Inject;
 import org.b3log.latke.Latkes;
+import org.b3log.latke.event.Event;
+import org.b3log.latke.event.EventException;
+import org.b3log.latke.event.EventManager;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
 import org.b3log.latke.repository.RepositoryException;
@@ -38,6 +41,9 @@ import org.b3log.latke.util.Stopwatchs;
 import org.b3log.latke.util.Strings;
 import org.b3log.latke.util.freemarker.Templates;
 import org.b3log.solo.SoloServletListener;
+import org.b3log.solo.cache.PreferenceCache;
+import org.b3log.solo.cache.TemplateAnalysisCache;
+import org.b3log.solo.event.EventTypes;
 import org.b3log.solo.model.Preference;
 import org.b3log.solo.model.Skin;
 import org.b3log.solo.repository.PreferenceRepository;
@@ -56,7 +62,7 @@ import static org.b3log.solo.util.Skins.setDirectoryForTemplateLoading;
  * Preference management service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.7, Jul 18, 2013
+ * @version 1.0.1.9, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -79,6 +85,24 @@ public class PreferenceMgmtService {
     @Inject
     private LangPropsService langPropsService;
 
+    /**
+     * Preference cache.
+     */
+    @Inject
+    private PreferenceCache preferenceCache;
+
+    /**
+     * Template analysis cache.
+     */
+    @Inject
+    private TemplateAnalysisCache templateAnalysisCache;
+
+    /**
+     * Event manager.
+     */
+    @Inject
+    private EventManager eventManager;
+
     /**
      * Loads skins for the specified preference and initializes templates loading.
      * 
@@ -145,6 +169,7 @@ public class PreferenceMgmtService {
         }
 
         setDirectoryForTemplateLoading(preference.getString(SKIN_DIR_NAME));
+        templateAnalysisCache.clear();
 
         final String localeString = preference.getString(Preference.LOCALE_STRING);
 
@@ -181,6 +206,10 @@ public class PreferenceMgmtService {
 
     /**
      * Updates the preference with the specified preference.
+     * 
+     * <p>
+     * Swaps the {@link PreferenceCache cached preference} with the specified preference after the update committed.
+     * </p>
      *
      * @param preference the specified preference
      * @throws ServiceException service exception
@@ -250,7 +279,20 @@ public class PreferenceMgmtService {
 
             transaction.commit();
 
+            preferenceCache.putPreference(preference);
+
             Templates.MAIN_CFG.setDirectoryForTemplateLoading(new File(skinPath));
+            templateAnalysisCache.clear();
+
+            // Fire update preference event
+            final JSONObject eventData = new JSONObject();
+
+            eventData.put(Preference.PREFERENCE, preference);
+            try {
+                eventManager.fireEventSynchronously(new Event<JSONObject>(EventTypes.UPDATE_PREFERENCE, eventData));
+            } catch (final EventException e) {
+                LOGGER.log(Level.WARN, "Update preference event process failed", e);
+            }
         } catch (final JSONException e) {
             if (transaction.isActive()) {
                 transaction.rollback();
@@ -291,4 +333,22 @@ public class PreferenceMgmtService {
     public void setLangPropsService(final LangPropsService langPropsService) {
         this.langPropsService = langPropsService;
     }
+
+    /**
+     * Sets the preference cache with the specified preference cache.
+     * 
+     * @param preferenceCache the specified preference cache
+     */
+    public void setPreferenceCache(final PreferenceCache preferenceCache) {
+        this.preferenceCache = preferenceCache;
+    }
+
+    /**
+     * Sets the template analysis cache with the specified template analysis cache.
+     * 
+     * @param templateAnalysisCache the specified template analysis cache
+     */
+    public void setTemplateAnalysisCache(final TemplateAnalysisCache templateAnalysisCache) {
+        this.templateAnalysisCache = templateAnalysisCache;
+    }
 }
@@ -22,6 +22,7 @@ import org.b3log.latke.logging.Logger;
 import org.b3log.latke.repository.RepositoryException;
 import org.b3log.latke.service.ServiceException;
 import org.b3log.latke.service.annotation.Service;
+import org.b3log.solo.cache.PreferenceCache;
 import org.b3log.solo.model.Preference;
 import org.b3log.solo.repository.PreferenceRepository;
 import org.json.JSONObject;
@@ -31,7 +32,7 @@ import org.json.JSONObject;
  * Preference query service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.1, Oct 31, 2011
+ * @version 1.0.1.1, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -48,6 +49,12 @@ public class PreferenceQueryService {
     @Inject
     private PreferenceRepository preferenceRepository;
 
+    /**
+     * Preference cache.
+     */
+    @Inject
+    private PreferenceCache preferenceCache;
+
     /**
      * Gets the reply notification template.
      * 
@@ -69,19 +76,34 @@ public class PreferenceQueryService {
      * <p>
      *   <b>Note</b>: Invoking the method will not load skin.
      * </p>
+     * 
+     * <p>
+     * Reads the preference from {@link PreferenceCache cache}, loads it from repository only if not cached. The returned 
+     * preference is a copy, modifies it will not affect the cache.
+     * </p>
      *
      * @return user preference, returns {@code null} if not found
      * @throws ServiceException if repository exception
      */
     public JSONObject getPreference() throws ServiceException {
+        JSONObject ret = preferenceCache.getPreference();
+
+        if (null != ret) {
+            return ret;
+        }
+
         try {
-            final JSONObject ret = preferenceRepository.get(Preference.PREFERENCE);
+            final long version = preferenceCache.getVersion();
+
+            ret = preferenceRepository.get(Preference.PREFERENCE);
 
             if (null == ret) {
                 LOGGER.log(Level.WARN, "Can not load preference from datastore");
                 return null;
             }
 
+            preferenceCache.putPreference(ret, version);
+
             return ret;
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, e.getMessage(), e);
@@ -97,4 +119,13 @@ public class PreferenceQueryService {
     public void setPreferenceRepository(final PreferenceRepository preferenceRepository) {
         this.preferenceRepository = preferenceRepository;
     }
+
+    /**
+     * Sets the preference cache with the specified preference cache.
+     * 
+     * @param preferenceCache the specified preference cache
+     */
+    public void setPreferenceCache(final PreferenceCache preferenceCache) {
+        this.preferenceCache = preferenceCache;
+    }
 }
@@ -16,37 +16,53 @@
 package org.b3log.solo.service;
 
 
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.b3log.latke.Keys;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
+import org.b3log.latke.repository.Query;
 import org.b3log.latke.repository.RepositoryException;
 import org.b3log.latke.repository.Transaction;
 import org.b3log.latke.service.LangPropsService;
 import org.b3log.latke.service.ServiceException;
 import org.b3log.latke.service.annotation.Service;
 import org.b3log.latke.util.Requests;
-import org.json.JSONObject;
+import org.b3log.solo.cache.OnlineVisitorTracker;
+import org.b3log.solo.cache.StatisticCounter;
+import org.b3log.solo.cache.ViewCountBuffer;
+import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Statistic;
 import org.b3log.solo.repository.ArticleRepository;
+import org.b3log.solo.repository.CommentRepository;
 import org.b3log.solo.repository.StatisticRepository;
+import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
 
 
 /**
  * Statistic management service.
  * 
  * <p>
- *   <b>Note</b>: The {@link #onlineVisitorCount online visitor counting} is NOT cluster-safe.
+ * The article/comment count changes made in a transaction are applied after the transaction committed, the caller 
+ * MUST invoke {@link #publishCountChanges()} after commit and {@link #discardCountChanges()} after rollback.
+ * </p>
+ * 
+ * <p>
+ *   <b>Note</b>: The {@link #onlineVisitorCount online visitor counting} and the {@link #flushViewCount() view count 
+ *   buffering} are NOT cluster-safe.
  * </p>
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.0, Jul 18, 2012
+ * @version 1.0.4.0, Nov 2, 2013
  * @since 0.5.0
+ * @see OnlineVisitorTracker
+ * @see StatisticCounter
  */
 @Service
 public class StatisticMgmtService {
@@ -75,18 +91,33 @@ public class StatisticMgmtService {
     private ArticleRepository articleRepository;
 
     /**
-     * Online visitor cache.
-     * 
-     * <p>
-     * &lt;ip, recentTime&gt;
-     * </p>
+     * Comment repository.
+     */
+    @Inject
+    private CommentRepository commentRepository;
+
+    /**
+     * Statistic counter.
      */
-    public static final Map<String, Long> ONLINE_VISITORS = new HashMap<String, Long>();
+    @Inject
+    private StatisticCounter statisticCounter;
+
+    /**
+     * View count buffer.
+     */
+    @Inject
+    private ViewCountBuffer viewCountBuffer;
+
+    /**
+     * Maximum count of articles updated in one transaction while flushing view count.
+     */
+    private static final int FLUSH_BATCH_SIZE = 20;
 
     /**
-     * Online visitor expiration in 5 minutes.
+     * Online visitor tracker.
      */
-    private static final int ONLINE_VISITOR_EXPIRATION = 300000;
+    @Inject
+    private OnlineVisitorTracker onlineVisitorTracker;
 
     /**
      * Blog statistic view count +1.
@@ -96,17 +127,16 @@ public class StatisticMgmtService {
      * </p>
      * 
      * <p>
-     * There is a cron job (/console/stat/viewcnt) to flush the blog view count from cache to datastore.
+     * The view count is buffered in {@link ViewCountBuffer}, there is a cron job (/console/stat/viewcnt) to flush the 
+     * blog view count from cache to datastore.
      * </p>
      * 
      * @param request the specified request
      * @param response the specified response
-     * @throws RepositoryException repository exception
-     * @throws JSONException json exception 
      * @see Requests#searchEngineBotRequest(javax.servlet.http.HttpServletRequest) 
+     * @see #flushViewCount() 
      */
-    public void incBlogViewCount(final HttpServletRequest request, final HttpServletResponse response)
-        throws RepositoryException, JSONException {
+    public void incBlogViewCount(final HttpServletRequest request, final HttpServletResponse response) {
         if (Requests.searchEngineBotRequest(request)) {
             return;
         }
@@ -115,34 +145,100 @@ public class StatisticMgmtService {
             return;
         }
 
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            return;
+        if (viewCountBuffer.incBlog()) {
+            flushViewCount();
         }
+    }
+
+    /**
+     * Flushes the buffered article/blog view count into datastore.
+     * 
+     * <p>
+     * Articles are updated in batches of {@value #FLUSH_BATCH_SIZE} per transaction, the deltas of a failed batch will be 
+     * put back into the buffer for the next flush.
+     * </p>
+     * 
+     * @see ViewCountBuffer
+     */
+    public synchronized void flushViewCount() {
+        final Map<String, Integer> articleDeltas = viewCountBuffer.drainArticleDeltas();
+        final List<String> articleIds = new ArrayList<String>(articleDeltas.keySet());
+
+        for (int i = 0; i < articleIds.size(); i += FLUSH_BATCH_SIZE) {
+            final List<String> batch = articleIds.subList(i, Math.min(i + FLUSH_BATCH_SIZE, articleIds.size()));
 
-        LOGGER.log(Level.TRACE, "Before inc blog view count[statistic={0}]", statistic);
+            flushArticleViewCount(batch, articleDeltas);
+        }
 
-        int blogViewCnt = statistic.getInt(Statistic.STATISTIC_BLOG_VIEW_COUNT);
+        final int blogDelta = viewCountBuffer.drainBlogDelta();
 
-        ++blogViewCnt;
-        statistic.put(Statistic.STATISTIC_BLOG_VIEW_COUNT, blogViewCnt);
+        if (0 == blogDelta) {
+            return;
+        }
 
         final Transaction transaction = statisticRepository.beginTransaction();
 
         try {
+            final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
+
+            if (null == statistic) {
+                transaction.rollback();
+
+                return;
+            }
+
+            statistic.put(Statistic.STATISTIC_BLOG_VIEW_COUNT, statistic.getInt(Statistic.STATISTIC_BLOG_VIEW_COUNT) + blogDelta);
             statisticRepository.update(Statistic.STATISTIC, statistic);
 
             transaction.commit();
-        } catch (final RepositoryException e) {
+
+            LOGGER.log(Level.DEBUG, "Flushed blog view count[delta={0}]", blogDelta);
+        } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
             }
 
-            LOGGER.log(Level.ERROR, "Updates blog view count failed", e);
+            viewCountBuffer.restoreBlog(blogDelta);
+
+            LOGGER.log(Level.ERROR, "Flushes blog view count failed", e);
         }
+    }
 
-        LOGGER.log(Level.DEBUG, "Inced blog view count[statistic={0}]", statistic);
+    /**
+     * Flushes view count of the articles specified by the given article ids with the specified deltas in one transaction.
+     * 
+     * @param articleIds the given article ids
+     * @param articleDeltas the specified deltas, &lt;articleId, delta&gt;
+     */
+    private void flushArticleViewCount(final List<String> articleIds, final Map<String, Integer> articleDeltas) {
+        final Transaction transaction = articleRepository.beginTransaction();
+
+        try {
+            for (final String articleId : articleIds) {
+                final JSONObject article = articleRepository.get(articleId);
+
+                if (null == article) { // Removed
+                    continue;
+                }
+
+                article.put(Article.ARTICLE_VIEW_COUNT, article.getInt(Article.ARTICLE_VIEW_COUNT) + articleDeltas.get(articleId));
+                articleRepository.update(articleId, article);
+            }
+
+            transaction.commit();
+
+            LOGGER.log(Level.DEBUG, "Flushed view count of [{0}] articles", articleIds.size());
+        } catch (final Exception e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            for (final String articleId : articleIds) {
+                viewCountBuffer.restoreArticle(articleId, articleDeltas.get(articleId));
+            }
+
+            LOGGER.log(Level.ERROR, "Flushes article view count failed", e);
+        }
     }
 
     /**
@@ -151,14 +247,7 @@ public class StatisticMgmtService {
      * @throws RepositoryException repository exception
      */
     public void incBlogArticleCount() throws RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-
-        statistic.put(Statistic.STATISTIC_BLOG_ARTICLE_COUNT, statistic.optInt(Statistic.STATISTIC_BLOG_ARTICLE_COUNT) + 1);
-        statisticRepository.update(Statistic.STATISTIC, statistic);
+        statisticCounter.addPending(Statistic.STATISTIC_BLOG_ARTICLE_COUNT, 1);
     }
 
     /**
@@ -167,14 +256,7 @@ public class StatisticMgmtService {
      * @throws RepositoryException repository exception
      */
     public void incPublishedBlogArticleCount() throws RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-
-        statistic.put(Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT, statistic.optInt(Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT) + 1);
-        statisticRepository.update(Statistic.STATISTIC, statistic);
+        statisticCounter.addPending(Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT, 1);
     }
 
     /**
@@ -184,14 +266,7 @@ public class StatisticMgmtService {
      * @throws RepositoryException repository exception
      */
     public void decBlogArticleCount() throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-
-        statistic.put(Statistic.STATISTIC_BLOG_ARTICLE_COUNT, statistic.getInt(Statistic.STATISTIC_BLOG_ARTICLE_COUNT) - 1);
-        statisticRepository.update(Statistic.STATISTIC, statistic);
+        statisticCounter.addPending(Statistic.STATISTIC_BLOG_ARTICLE_COUNT, -1);
     }
 
     /**
@@ -201,14 +276,7 @@ public class StatisticMgmtService {
      * @throws RepositoryException repository exception
      */
     public void decPublishedBlogArticleCount() throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-
-        statistic.put(Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT, statistic.getInt(Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT) - 1);
-        statisticRepository.update(Statistic.STATISTIC, statistic);
+        statisticCounter.addPending(Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT, -1);
     }
 
     /**
@@ -218,13 +286,7 @@ public class StatisticMgmtService {
      * @throws RepositoryException repository exception
      */
     public void incBlogCommentCount() throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-        statistic.put(Statistic.STATISTIC_BLOG_COMMENT_COUNT, statistic.getInt(Statistic.STATISTIC_BLOG_COMMENT_COUNT) + 1);
-        statisticRepository.update(Statistic.STATISTIC, statistic);
+        statisticCounter.addPending(Statistic.STATISTIC_BLOG_COMMENT_COUNT, 1);
     }
 
     /**
@@ -234,14 +296,7 @@ public class StatisticMgmtService {
      * @throws RepositoryException repository exception
      */
     public void incPublishedBlogCommentCount() throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-        statistic.put(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT,
-            statistic.getInt(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT) + 1);
-        statisticRepository.update(Statistic.STATISTIC, statistic);
+        statisticCounter.addPending(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT, 1);
     }
 
     /**
@@ -251,14 +306,7 @@ public class StatisticMgmtService {
      * @throws RepositoryException repository exception
      */
     public void decBlogCommentCount() throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-
-        statistic.put(Statistic.STATISTIC_BLOG_COMMENT_COUNT, statistic.getInt(Statistic.STATISTIC_BLOG_COMMENT_COUNT) - 1);
-        statisticRepository.update(Statistic.STATISTIC, statistic);
+        statisticCounter.addPending(Statistic.STATISTIC_BLOG_COMMENT_COUNT, -1);
     }
 
     /**
@@ -268,15 +316,41 @@ public class StatisticMgmtService {
      * @throws RepositoryException repository exception
      */
     public void decPublishedBlogCommentCount() throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
+        statisticCounter.addPending(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT, -1);
+    }
 
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
+    /**
+     * Adds the specified delta to blog comment count.
+     *
+     * @param delta the specified delta, may be negative
+     * @throws RepositoryException repository exception
+     */
+    public void addBlogCommentCount(final int delta) throws RepositoryException {
+        statisticCounter.addPending(Statistic.STATISTIC_BLOG_COMMENT_COUNT, delta);
+    }
 
-        statistic.put(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT,
-            statistic.getInt(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT) - 1);
-        statisticRepository.update(Statistic.STATISTIC, statistic);
+    /**
+     * Adds the specified delta to blog comment(published article) count.
+     *
+     * @param delta the specified delta, may be negative
+     * @throws RepositoryException repository exception
+     */
+    public void addPublishedBlogCommentCount(final int delta) throws RepositoryException {
+        statisticCounter.addPending(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT, delta);
+    }
+
+    /**
+     * Applies the article/comment count changes made by the current thread, invoked after the transaction committed.
+     */
+    public void publishCountChanges() {
+        statisticCounter.publishPendings();
+    }
+
+    /**
+     * Drops the article/comment count changes made by the current thread, invoked after the transaction rolled back.
+     */
+    public void discardCountChanges() {
+        statisticCounter.discardPendings();
     }
 
     /**
@@ -287,14 +361,7 @@ public class StatisticMgmtService {
      * @throws RepositoryException repository exception
      */
     public void setBlogCommentCount(final int count) throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-
-        statistic.put(Statistic.STATISTIC_BLOG_COMMENT_COUNT, count);
-        statisticRepository.update(Statistic.STATISTIC, statistic);
+        statisticCounter.set(Statistic.STATISTIC_BLOG_COMMENT_COUNT, count);
     }
 
     /**
@@ -305,14 +372,127 @@ public class StatisticMgmtService {
      * @throws RepositoryException repository exception
      */
     public void setPublishedBlogCommentCount(final int count) throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
+        statisticCounter.set(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT, count);
+    }
+
+    /**
+     * Checkpoints the {@link StatisticCounter statistic counters} into datastore if they have been changed since the last 
+     * checkpoint.
+     * 
+     * <p>
+     * The deltas since the last checkpoint are added to the stored statistic (the same as {@link #flushViewCount()}), so 
+     * the changes checkpointed by the other instances are kept. The deltas will be put back for the next checkpoint if 
+     * failed.
+     * </p>
+     * 
+     * <p>
+     * There is a cron job (/console/stat/checkpoint) to checkpoint periodically, and the counters will be checkpointed 
+     * while the server shutting down as well.
+     * </p>
+     */
+    public synchronized void checkpointStatistic() {
+        final Map<String, Integer> deltas = statisticCounter.drainDeltas();
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        final Transaction transaction = statisticRepository.beginTransaction();
+
+        try {
+            final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
+
+            if (null == statistic) {
+                transaction.rollback();
+                statisticCounter.restoreDeltas(deltas);
+
+                return;
+            }
+
+            for (final Map.Entry<String, Integer> delta : deltas.entrySet()) {
+                statistic.put(delta.getKey(), statistic.optInt(delta.getKey()) + delta.getValue());
+            }
+
+            statisticRepository.update(Statistic.STATISTIC, statistic);
+
+            transaction.commit();
+
+            statisticCounter.reseed(statistic);
+
+            LOGGER.log(Level.DEBUG, "Checkpointed statistic[deltas={0}]", deltas);
+        } catch (final Exception e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            statisticCounter.restoreDeltas(deltas);
+
+            LOGGER.log(Level.ERROR, "Checkpoints statistic failed", e);
+        }
+    }
+
+    /**
+     * Reconciles the {@link StatisticCounter statistic counters} with the true counts recomputed from articles and 
+     * comments, and then checkpoints them.
+     * 
+     * <p>
+     * The comment count of a published article or a page is counted as published blog comment count.
+     * </p>
+     * 
+     * <p>
+     * The differences are applied to the counters rather than overwriting them, and the reconciling is skipped if the
+     * counters are modified while scanning.
+     * </p>
+     */
+    public synchronized void reconcileStatistic() {
+        try {
+            final long modCount = statisticCounter.getModCount();
+            final int countedArticleCnt = statisticCounter.get(Statistic.STATISTIC_BLOG_ARTICLE_COUNT);
+            final int countedPublishedArticleCnt = statisticCounter.get(Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT);
+            final int countedCommentCnt = statisticCounter.get(Statistic.STATISTIC_BLOG_COMMENT_COUNT);
+            final int countedPublishedCommentCnt = statisticCounter.get(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT);
+
+            final Query query = new Query().setPageCount(1).addProjection(Article.ARTICLE_IS_PUBLISHED, Boolean.class).addProjection(
+                Article.ARTICLE_COMMENT_COUNT, Integer.class);
+            final JSONArray articles = articleRepository.get(query).optJSONArray(Keys.RESULTS);
+
+            int publishedArticleCnt = 0;
+            int unpublishedArticleCmtCnt = 0;
+
+            for (int i = 0; i < articles.length(); i++) {
+                final JSONObject article = articles.optJSONObject(i);
+
+                if (article.optBoolean(Article.ARTICLE_IS_PUBLISHED)) {
+                    publishedArticleCnt++;
+                } else {
+                    unpublishedArticleCmtCnt += article.optInt(Article.ARTICLE_COMMENT_COUNT);
+                }
+            }
 
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
+            final int commentCnt = (int) commentRepository.count();
+
+            if (modCount != statisticCounter.getModCount()) {
+                LOGGER.log(Level.INFO, "Statistic changed while reconciling, skips it till the next time");
+
+                return;
+            }
+
+            // Applies the drifts as deltas, so that the changes made after the check are kept
+            statisticCounter.add(Statistic.STATISTIC_BLOG_ARTICLE_COUNT, articles.length() - countedArticleCnt);
+            statisticCounter.add(Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT, publishedArticleCnt - countedPublishedArticleCnt);
+            statisticCounter.add(Statistic.STATISTIC_BLOG_COMMENT_COUNT, commentCnt - countedCommentCnt);
+            statisticCounter.add(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT,
+                commentCnt - unpublishedArticleCmtCnt - countedPublishedCommentCnt);
+
+            LOGGER.log(Level.INFO, "Reconciled statistic[articleCnt={0}, publishedArticleCnt={1}, commentCnt={2}]",
+                new Object[] {articles.length(), publishedArticleCnt, commentCnt});
+        } catch (final RepositoryException e) {
+            LOGGER.log(Level.ERROR, "Reconciles statistic failed", e);
+
+            return;
         }
 
-        statistic.put(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT, count);
-        statisticRepository.update(Statistic.STATISTIC, statistic);
+        checkpointStatistic();
     }
 
     /**
@@ -325,28 +505,16 @@ public class StatisticMgmtService {
 
         LOGGER.log(Level.DEBUG, "Current request [IP={0}]", remoteAddr);
 
-        ONLINE_VISITORS.put(remoteAddr, System.currentTimeMillis());
-        LOGGER.log(Level.DEBUG, "Current online visitor count [{0}]", ONLINE_VISITORS.size());
+        onlineVisitorTracker.visit(remoteAddr);
     }
 
     /**
      * Removes the expired online visitor.
      */
-    public static void removeExpiredOnlineVisitor() {
-        final long currentTimeMillis = System.currentTimeMillis();
-
-        final Iterator<Map.Entry<String, Long>> iterator = ONLINE_VISITORS.entrySet().iterator();
-
-        while (iterator.hasNext()) {
-            final Map.Entry<String, Long> onlineVisitor = iterator.next();
-
-            if (currentTimeMillis > (onlineVisitor.getValue() + ONLINE_VISITOR_EXPIRATION)) {
-                iterator.remove();
-                LOGGER.log(Level.TRACE, "Removed online visitor[ip={0}]", onlineVisitor.getKey());
-            }
-        }
+    public void removeExpiredOnlineVisitor() {
+        onlineVisitorTracker.removeExpired();
 
-        LOGGER.log(Level.DEBUG, "Current online visitor count [{0}]", ONLINE_VISITORS.size());
+        LOGGER.log(Level.DEBUG, "Current online visitor count [{0}]", onlineVisitorTracker.count());
     }
 
     /**
@@ -355,12 +523,14 @@ public class StatisticMgmtService {
      * @param statistic the specified statistic
      * @throws ServiceException service exception
      */
-    public void updateStatistic(final JSONObject statistic) throws ServiceException {
+    public synchronized void updateStatistic(final JSONObject statistic) throws ServiceException {
         final Transaction transaction = statisticRepository.beginTransaction();
 
         try {
             statisticRepository.update(Statistic.STATISTIC, statistic);
             transaction.commit();
+
+            statisticCounter.clear();
         } catch (final RepositoryException e) {
             if (transaction.isActive()) {
                 transaction.rollback();
@@ -380,6 +550,24 @@ public class StatisticMgmtService {
         this.articleRepository = articleRepository;
     }
 
+    /**
+     * Sets the comment repository with the specified comment repository.
+     * 
+     * @param commentRepository the specified comment repository
+     */
+    public void setCommentRepository(final CommentRepository commentRepository) {
+        this.commentRepository = commentRepository;
+    }
+
+    /**
+     * Sets the statistic counter with the specified statistic counter.
+     * 
+     * @param statisticCounter the specified statistic counter
+     */
+    public void setStatisticCounter(final StatisticCounter statisticCounter) {
+        this.statisticCounter = statisticCounter;
+    }
+
     /**
      * Sets the statistic repository with the specified statistic repository.
      * 
@@ -389,6 +577,24 @@ public class StatisticMgmtService {
         this.statisticRepository = statisticRepository;
     }
 
+    /**
+     * Sets the online visitor tracker with the specified online visitor tracker.
+     * 
+     * @param onlineVisitorTracker the specified online visitor tracker
+     */
+    public void setOnlineVisitorTracker(final OnlineVisitorTracker onlineVisitorTracker) {
+        this.onlineVisitorTracker = onlineVisitorTracker;
+    }
+
+    /**
+     * Sets the view count buffer with the specified view count buffer.
+     * 
+     * @param viewCountBuffer the specified view count buffer
+     */
+    public void setViewCountBuffer(final ViewCountBuffer viewCountBuffer) {
+        this.viewCountBuffer = viewCountBuffer;
+    }
+
     /**
      * Sets the language service with the specified language service.
      * 
@@ -22,6 +22,8 @@ import org.b3log.latke.logging.Logger;
 import org.b3log.latke.repository.RepositoryException;
 import org.b3log.latke.service.ServiceException;
 import org.b3log.latke.service.annotation.Service;
+import org.b3log.solo.cache.OnlineVisitorTracker;
+import org.b3log.solo.cache.StatisticCounter;
 import org.b3log.solo.model.Statistic;
 import org.b3log.solo.repository.StatisticRepository;
 import org.json.JSONException;
@@ -32,7 +34,7 @@ import org.json.JSONObject;
  * Statistic query service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.0, Jul 18, 2012
+ * @version 1.0.2.0, Nov 2, 2013
  * @since 0.5.0
  */
 @Service
@@ -49,13 +51,25 @@ public class StatisticQueryService {
     @Inject
     private StatisticRepository statisticRepository;
 
+    /**
+     * Online visitor tracker.
+     */
+    @Inject
+    private OnlineVisitorTracker onlineVisitorTracker;
+
+    /**
+     * Statistic counter.
+     */
+    @Inject
+    private StatisticCounter statisticCounter;
+
     /**
      * Gets the online visitor count.
      * 
      * @return online visitor count
      */
-    public static int getOnlineVisitorCount() {
-        return StatisticMgmtService.ONLINE_VISITORS.size();
+    public int getOnlineVisitorCount() {
+        return onlineVisitorTracker.count();
     }
 
     /**
@@ -66,13 +80,7 @@ public class StatisticQueryService {
      * @throws RepositoryException repository exception
      */
     public int getBlogCommentCount() throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-
-        return statistic.getInt(Statistic.STATISTIC_BLOG_COMMENT_COUNT);
+        return statisticCounter.get(Statistic.STATISTIC_BLOG_COMMENT_COUNT);
     }
 
     /**
@@ -83,13 +91,7 @@ public class StatisticQueryService {
      * @throws RepositoryException repository exception
      */
     public int getPublishedBlogCommentCount() throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-
-        return statistic.getInt(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT);
+        return statisticCounter.get(Statistic.STATISTIC_PUBLISHED_BLOG_COMMENT_COUNT);
     }
 
     /**
@@ -100,13 +102,7 @@ public class StatisticQueryService {
      * @throws RepositoryException repository exception
      */
     public int getPublishedBlogArticleCount() throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-
-        return statistic.getInt(Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT);
+        return statisticCounter.get(Statistic.STATISTIC_PUBLISHED_ARTICLE_COUNT);
     }
 
     /**
@@ -117,13 +113,7 @@ public class StatisticQueryService {
      * @throws RepositoryException repository exception
      */
     public int getBlogArticleCount() throws JSONException, RepositoryException {
-        final JSONObject statistic = statisticRepository.get(Statistic.STATISTIC);
-
-        if (null == statistic) {
-            throw new RepositoryException("Not found statistic");
-        }
-
-        return statistic.getInt(Statistic.STATISTIC_BLOG_ARTICLE_COUNT);
+        return statisticCounter.get(Statistic.STATISTIC_BLOG_ARTICLE_COUNT);
     }
 
     /**
@@ -141,6 +131,8 @@ public class StatisticQueryService {
                 return null;
             }
 
+            statisticCounter.fill(ret);
+
             return ret;
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, e.getMessage(), e);
@@ -156,4 +148,22 @@ public class StatisticQueryService {
     public void setStatisticRepository(final StatisticRepository statisticRepository) {
         this.statisticRepository = statisticRepository;
     }
+
+    /**
+     * Sets the online visitor tracker with the specified online visitor tracker.
+     * 
+     * @param onlineVisitorTracker the specified online visitor tracker
+     */
+    public void setOnlineVisitorTracker(final OnlineVisitorTracker onlineVisitorTracker) {
+        this.onlineVisitorTracker = onlineVisitorTracker;
+    }
+
+    /**
+     * Sets the statistic counter with the specified statistic counter.
+     * 
+     * @param statisticCounter the specified statistic counter
+     */
+    public void setStatisticCounter(final StatisticCounter statisticCounter) {
+        this.statisticCounter = statisticCounter;
+    }
 }
@@ -25,6 +25,9 @@ import org.b3log.latke.repository.RepositoryException;
 import org.b3log.latke.repository.Transaction;
 import org.b3log.latke.service.ServiceException;
 import org.b3log.latke.service.annotation.Service;
+import org.b3log.solo.cache.ContentVersion;
+import org.b3log.solo.cache.PageCache;
+import org.b3log.solo.cache.TagIndex;
 import org.b3log.solo.model.Tag;
 import org.b3log.solo.repository.TagRepository;
 import org.json.JSONException;
@@ -35,7 +38,7 @@ import org.json.JSONObject;
  * Tag management service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.1, Oct 26, 2011
+ * @version 1.0.0.4, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -58,6 +61,24 @@ public class TagMgmtService {
     @Inject
     private TagRepository tagRepository;
 
+    /**
+     * Content version.
+     */
+    @Inject
+    private ContentVersion contentVersion;
+
+    /**
+     * Page cache.
+     */
+    @Inject
+    private PageCache pageCache;
+
+    /**
+     * Tag index.
+     */
+    @Inject
+    private TagIndex tagIndex;
+
     /**
      * Decrements reference count of every tag of an published article specified
      * by the given article id.
@@ -78,6 +99,7 @@ public class TagMgmtService {
 
             tag.put(Tag.TAG_PUBLISHED_REFERENCE_COUNT, publishedRefCnt - 1);
             tagRepository.update(tagId, tag);
+            tagIndex.put(tag);
         }
     }
 
@@ -100,13 +122,18 @@ public class TagMgmtService {
                     final String tagId = tag.getString(Keys.OBJECT_ID);
 
                     tagRepository.remove(tagId);
+                    tagIndex.remove(tagId);
                 }
             }
 
             transaction.commit();
+
+            pageCache.clear();
+            contentVersion.bump();
         } catch (final Exception e) {
             if (transaction.isActive()) {
                 transaction.rollback();
+                tagIndex.clear();
             }
 
             LOGGER.log(Level.ERROR, "Removes unused tags failed", e);
@@ -132,4 +159,31 @@ public class TagMgmtService {
     public void setTagQueryService(final TagQueryService tagQueryService) {
         this.tagQueryService = tagQueryService;
     }
+
+    /**
+     * Sets the content version with the specified content version.
+     * 
+     * @param contentVersion the specified content version
+     */
+    public void setContentVersion(final ContentVersion contentVersion) {
+        this.contentVersion = contentVersion;
+    }
+
+    /**
+     * Sets the page cache with the specified page cache.
+     * 
+     * @param pageCache the specified page cache
+     */
+    public void setPageCache(final PageCache pageCache) {
+        this.pageCache = pageCache;
+    }
+
+    /**
+     * Sets the tag index with the specified tag index.
+     * 
+     * @param tagIndex the specified tag index
+     */
+    public void setTagIndex(final TagIndex tagIndex) {
+        this.tagIndex = tagIndex;
+    }
 }
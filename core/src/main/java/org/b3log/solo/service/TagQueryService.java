@@ -19,17 +19,13 @@ package org.b3log.solo.service;
 import java.util.Iterator;
 import java.util.List;
 import javax.inject.Inject;
-import org.b3log.latke.Keys;
 import org.b3log.latke.logging.Level;
 import org.b3log.latke.logging.Logger;
-import org.b3log.latke.repository.Query;
 import org.b3log.latke.repository.RepositoryException;
 import org.b3log.latke.service.ServiceException;
 import org.b3log.latke.service.annotation.Service;
-import org.b3log.latke.util.CollectionUtils;
+import org.b3log.solo.cache.TagIndex;
 import org.b3log.solo.model.Tag;
-import org.b3log.solo.repository.TagRepository;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -38,7 +34,7 @@ import org.json.JSONObject;
  * Tag query service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.3, Jun 28, 2012
+ * @version 1.0.1.0, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -50,10 +46,10 @@ public class TagQueryService {
     private static final Logger LOGGER = Logger.getLogger(TagQueryService.class.getName());
 
     /**
-     * Tag repository.
+     * Tag index.
      */
     @Inject
-    private TagRepository tagRepository;
+    private TagIndex tagIndex;
 
     /**
      * Gets a tag by the specified tag title.
@@ -76,7 +72,7 @@ public class TagQueryService {
         try {
             final JSONObject ret = new JSONObject();
 
-            final JSONObject tag = tagRepository.getByTitle(tagTitle);
+            final JSONObject tag = tagIndex.getByTitle(tagTitle);
 
             if (null == tag) {
                 return null;
@@ -101,7 +97,7 @@ public class TagQueryService {
      */
     public long getTagCount() throws ServiceException {
         try {
-            return tagRepository.count();
+            return tagIndex.count();
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Gets tags failed", e);
 
@@ -110,7 +106,7 @@ public class TagQueryService {
     }
 
     /**
-     * Gets all tags.
+     * Gets all tags ordered by published reference count descending.
      *
      * @return for example,
      * <pre>
@@ -123,12 +119,7 @@ public class TagQueryService {
      */
     public List<JSONObject> getTags() throws ServiceException {
         try {
-            final Query query = new Query().setPageCount(1);
-
-            final JSONObject result = tagRepository.get(query);
-            final JSONArray tagArray = result.optJSONArray(Keys.RESULTS);
-
-            return CollectionUtils.jsonArrayToList(tagArray);
+            return tagIndex.getTags();
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Gets tags failed", e);
 
@@ -156,11 +147,11 @@ public class TagQueryService {
     }
 
     /**
-     * Sets the tag repository with the specified tag repository.
+     * Sets the tag index with the specified tag index.
      * 
-     * @param tagRepository the specified tag repository
+     * @param tagIndex the specified tag index
      */
-    public void setTagRepository(final TagRepository tagRepository) {
-        this.tagRepository = tagRepository;
+    public void setTagIndex(final TagIndex tagIndex) {
+        this.tagIndex = tagIndex;
     }
 }
@@ -36,6 +36,9 @@ import org.b3log.latke.service.annotation.Service;
 import org.b3log.latke.util.MD5;
 import org.b3log.latke.util.Sessions;
 import org.b3log.latke.util.Strings;
+import org.b3log.solo.cache.ContentVersion;
+import org.b3log.solo.cache.PageCache;
+import org.b3log.solo.cache.UserDirectory;
 import org.b3log.solo.model.UserExt;
 import org.b3log.solo.repository.UserRepository;
 import org.json.JSONObject;
@@ -46,7 +49,7 @@ import org.json.JSONObject;
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
  * @author <a href="mailto:385321165@qq.com">DASHU</a>
- * @version 1.0.0.6, May 27, 2013
+ * @version 1.0.0.9, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -69,6 +72,24 @@ public class UserMgmtService {
     @Inject
     private LangPropsService langPropsService;
 
+    /**
+     * Content version.
+     */
+    @Inject
+    private ContentVersion contentVersion;
+
+    /**
+     * Page cache.
+     */
+    @Inject
+    private PageCache pageCache;
+
+    /**
+     * User directory.
+     */
+    @Inject
+    private UserDirectory userDirectory;
+
     /**
      * Length of hashed password.
      */
@@ -199,6 +220,10 @@ public class UserMgmtService {
 
             userRepository.update(oldUserId, oldUser);
             transaction.commit();
+
+            userDirectory.clear();
+            pageCache.clear();
+            contentVersion.bump();
         } catch (final RepositoryException e) {
             if (transaction.isActive()) {
                 transaction.rollback();
@@ -236,6 +261,10 @@ public class UserMgmtService {
 
             userRepository.update(userId, oldUser);
             transaction.commit();
+
+            userDirectory.clear();
+            pageCache.clear();
+            contentVersion.bump();
         } catch (final RepositoryException e) {
             if (transaction.isActive()) {
                 transaction.rollback();
@@ -311,6 +340,10 @@ public class UserMgmtService {
 
             transaction.commit();
 
+            userDirectory.clear();
+            pageCache.clear();
+            contentVersion.bump();
+
             return user.optString(Keys.OBJECT_ID);
         } catch (final RepositoryException e) {
             if (transaction.isActive()) {
@@ -335,6 +368,10 @@ public class UserMgmtService {
             userRepository.remove(userId);
 
             transaction.commit();
+
+            userDirectory.clear();
+            pageCache.clear();
+            contentVersion.bump();
         } catch (final RepositoryException e) {
             if (transaction.isActive()) {
                 transaction.rollback();
@@ -362,4 +399,31 @@ public class UserMgmtService {
     public void setLangPropsService(final LangPropsService langPropsService) {
         this.langPropsService = langPropsService;
     }
+
+    /**
+     * Sets the content version with the specified content version.
+     * 
+     * @param contentVersion the specified content version
+     */
+    public void setContentVersion(final ContentVersion contentVersion) {
+        this.contentVersion = contentVersion;
+    }
+
+    /**
+     * Sets the page cache with the specified page cache.
+     * 
+     * @param pageCache the specified page cache
+     */
+    public void setPageCache(final PageCache pageCache) {
+        this.pageCache = pageCache;
+    }
+
+    /**
+     * Sets the user directory with the specified user directory.
+     * 
+     * @param userDirectory the specified user directory
+     */
+    public void setUserDirectory(final UserDirectory userDirectory) {
+        this.userDirectory = userDirectory;
+    }
 }
@@ -33,9 +33,9 @@ import org.b3log.latke.user.GeneralUser;
 import org.b3log.latke.user.UserService;
 import org.b3log.latke.user.UserServiceFactory;
 import org.b3log.latke.util.Paginator;
+import org.b3log.solo.cache.UserDirectory;
 import org.b3log.solo.repository.UserRepository;
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
 
@@ -43,7 +43,7 @@ import org.json.JSONObject;
  * User query service.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.3, Jul 10, 2013
+ * @version 1.0.1.0, Nov 2, 2013
  * @since 0.4.0
  */
 @Service
@@ -71,6 +71,12 @@ public class UserQueryService {
     @Inject
     private UserMgmtService userMgmtService;
 
+    /**
+     * User directory.
+     */
+    @Inject
+    private UserDirectory userDirectory;
+
     /**
      * Determines whether if exists multiple users in current Solo.
      *
@@ -78,19 +84,11 @@ public class UserQueryService {
      * @throws ServiceException service exception
      */
     public boolean hasMultipleUsers() throws ServiceException {
-        final Query query = new Query().setPageCount(1);
-
         try {
-            final JSONArray users = userRepository.get(query).getJSONArray(Keys.RESULTS);
-
-            return 1 != users.length();
+            return 1 != userDirectory.getUserCount();
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Determines multiple users failed", e);
 
-            throw new ServiceException(e);
-        } catch (final JSONException e) {
-            LOGGER.log(Level.ERROR, "Determines multiple users failed", e);
-
             throw new ServiceException(e);
         }
     }
@@ -143,7 +141,7 @@ public class UserQueryService {
         final String email = currentUser.getEmail();
 
         try {
-            return userRepository.getByEmail(email);
+            return userDirectory.getUserByEmail(email);
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Gets current user by request failed, returns null", e);
 
@@ -159,7 +157,7 @@ public class UserQueryService {
      */
     public JSONObject getAdmin() throws ServiceException {
         try {
-            return userRepository.getAdmin();
+            return userDirectory.getAdmin();
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Gets admin failed", e);
             throw new ServiceException(e);
@@ -175,7 +173,7 @@ public class UserQueryService {
      */
     public JSONObject getUserByEmail(final String email) throws ServiceException {
         try {
-            return userRepository.getByEmail(email);
+            return userDirectory.getUserByEmail(email);
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Gets user by email[" + email + "] failed", e);
             throw new ServiceException(e);
@@ -270,7 +268,7 @@ public class UserQueryService {
         JSONObject user = null;
 
         try {
-            user = userRepository.get(userId);
+            user = userDirectory.getUser(userId);
         } catch (final RepositoryException e) {
             LOGGER.log(Level.ERROR, "Gets a user failed", e);
             throw new ServiceException(e);
@@ -321,4 +319,13 @@ public class UserQueryService {
     public void setUserRepository(final UserRepository userRepository) {
         this.userRepository = userRepository;
     }
+
+    /**
+     * Sets the user directory with the specified user directory.
+     * 
+     * @param userDirectory the specified user directory
+     */
+    public void setUserDirectory(final UserDirectory userDirectory) {
+        this.userDirectory = userDirectory;
+    }
 }
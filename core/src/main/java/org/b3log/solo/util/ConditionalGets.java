@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.util;
+
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.b3log.latke.Keys;
+import org.b3log.latke.ioc.Lifecycle;
+import org.b3log.latke.user.UserServiceFactory;
+import org.b3log.solo.cache.ContentVersion;
+
+
+/**
+ * Conditional GET utilities.
+ * 
+ * <p>
+ * Writes validators ({@code ETag} and {@code Last-Modified}) into responses and determines whether the client holds 
+ * the same representation ({@code If-None-Match} and {@code If-Modified-Since}), see 
+ * <a href="http://tools.ietf.org/html/rfc2616#section-14.26">RFC 2616</a> for more details.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+public final class ConditionalGets {
+
+    /**
+     * Request attribute name of the written ETag.
+     */
+    public static final String ETAG = "conditionalGetETag";
+
+    /**
+     * Request attribute name of the written last modified time.
+     */
+    public static final String LAST_MODIFIED = "conditionalGetLastModified";
+
+    /**
+     * Name of the cookie used by login with cookie.
+     */
+    private static final String LOGIN_COOKIE_NAME = "b3log-latke";
+
+    /**
+     * Writes validators of a blog-facing page with the specified entity updated time, and determines whether the page
+     * not modified.
+     * 
+     * <p>
+     * The validators are combined from the {@link ContentVersion content version}, the specified entity updated time 
+     * and the skin of the specified request, and will also be set into the request attributes {@link #ETAG} and 
+     * {@link #LAST_MODIFIED}. Writes nothing for a non-{@link #isAnonymous(HttpServletRequest) anonymous} request, 
+     * whose page should not be revalidated with the validators of an anonymous page.
+     * </p>
+     * 
+     * @param request the specified request
+     * @param response the specified response
+     * @param entityUpdated the specified entity (article for example) updated time, {@code 0} if no entity
+     * @return {@code true} if not modified (the response status has been set to 304), returns {@code false} otherwise
+     */
+    public static boolean notModified(final HttpServletRequest request, final HttpServletResponse response, final long entityUpdated) {
+        if (!isAnonymous(request)) {
+            return false;
+        }
+
+        final ContentVersion contentVersion = Lifecycle.getBeanManager().getReference(ContentVersion.class);
+        final long updated = entityUpdated / 1000 * 1000;
+
+        final String eTag = "W/\"" + contentVersion.getTag() + '-' + Long.toHexString(updated) + '-'
+            + request.getAttribute(Keys.TEMAPLTE_DIR_NAME) + '"';
+        final long lastModified = Math.max(contentVersion.getLastModified(), updated);
+
+        request.setAttribute(ETAG, eTag);
+        request.setAttribute(LAST_MODIFIED, lastModified);
+
+        return notModified(request, response, eTag, lastModified);
+    }
+
+    /**
+     * Writes the specified validators into the specified response, and determines whether the representation not
+     * modified.
+     * 
+     * @param request the specified request
+     * @param response the specified response
+     * @param eTag the specified ETag
+     * @param lastModified the specified last modified time, in milliseconds truncated to seconds
+     * @return {@code true} if not modified (the response status has been set to 304), returns {@code false} otherwise
+     */
+    public static boolean notModified(final HttpServletRequest request, final HttpServletResponse response, final String eTag,
+        final long lastModified) {
+        response.setHeader("ETag", eTag);
+        response.setDateHeader("Last-Modified", lastModified);
+
+        if (matches(request, eTag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Determines whether the specified request is made by an anonymous visitor.
+     * 
+     * <p>
+     * A request with the login cookie is not anonymous, it may be logged in with the cookie later.
+     * </p>
+     * 
+     * @param request the specified request
+     * @return {@code true} if it is anonymous, returns {@code false} otherwise
+     */
+    public static boolean isAnonymous(final HttpServletRequest request) {
+        if (null != UserServiceFactory.getUserService().getCurrentUser(request)) {
+            return false;
+        }
+
+        final Cookie[] cookies = request.getCookies();
+
+        if (null == cookies) {
+            return true;
+        }
+
+        for (final Cookie cookie : cookies) {
+            if (LOGIN_COOKIE_NAME.equals(cookie.getName())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Determines whether the client of the specified request holds the representation with the specified validators.
+     * 
+     * @param request the specified request
+     * @param eTag the specified ETag
+     * @param lastModified the specified last modified time
+     * @return {@code true} if holds, returns {@code false} otherwise
+     */
+    private static boolean matches(final HttpServletRequest request, final String eTag, final long lastModified) {
+        final String ifNoneMatch = request.getHeader("If-None-Match");
+
+        if (null != ifNoneMatch) { // If-None-Match takes precedence over If-Modified-Since
+            return ifNoneMatch.contains(eTag) || "*".equals(ifNoneMatch.trim());
+        }
+
+        try {
+            final long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+
+            return -1 != ifModifiedSince && lastModified <= ifModifiedSince;
+        } catch (final IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private ConditionalGets() {}
+}
@@ -20,11 +20,14 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.b3log.latke.Keys;
 import org.b3log.latke.Latkes;
 import org.b3log.latke.ioc.LatkeBeanManager;
@@ -45,7 +48,7 @@ import static org.b3log.solo.model.Skin.*;
  * Skin utilities.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.2.6, Jun 12, 2012
+ * @version 1.0.3.0, Nov 2, 2013
  * @since 0.3.1
  */
 public final class Skins {
@@ -56,9 +59,14 @@ public final class Skins {
     private static final Logger LOGGER = Logger.getLogger(Skins.class.getName());
 
     /**
-     * Properties map.
+     * Interval of checking whether a skin language configuration file modified, in milliseconds.
      */
-    private static final Map<String, Map<String, String>> LANG_MAP = new HashMap<String, Map<String, String>>();
+    private static final long LANG_CHECK_INTERVAL = 1000 * 5;
+
+    /**
+     * Merged language configurations, &lt;skinDirName.localeString.coreLocale, langs&gt;.
+     */
+    private static final Map<String, SkinLangs> LANG_MAP = new ConcurrentHashMap<String, SkinLangs>();
 
     /**
      * Private default constructor.
@@ -69,6 +77,12 @@ public final class Skins {
      * Fills the specified data model with the current skink's (WebRoot/skins/${skinName}/lang/lang_xx_XX.properties) and 
      * core language (WebRoot/WEB-INF/classes/lang_xx_XX.properties) configurations.
      * 
+     * <p>
+     * The two configurations are merged (the core overrides the skin's) into an immutable map once per skin and locale,
+     * and the merged map will be reloaded if the skin's language configuration file modified (checked every 
+     * {@value #LANG_CHECK_INTERVAL} milliseconds at most).
+     * </p>
+     * 
      * @param localeString the specified locale string
      * @param currentSkinDirName the specified current skin directory name
      * @param dataModel the specified data model
@@ -79,44 +93,17 @@ public final class Skins {
         Stopwatchs.start("Fill Skin Langs");
 
         try {
-            final String langName = currentSkinDirName + "." + localeString;
-            Map<String, String> langs = LANG_MAP.get(langName);
-
-            if (null == langs) {
-                LANG_MAP.clear(); // Collect unused skin languages
-
-                LOGGER.log(Level.INFO, "Loading skin [dirName={0}, locale={1}]", new Object[] {currentSkinDirName, localeString});
-                langs = new HashMap<String, String>();
+            final Locale coreLocale = Latkes.getLocale();
+            final String langName = currentSkinDirName + "." + localeString + "." + coreLocale;
+            SkinLangs langs = LANG_MAP.get(langName);
 
-                final String webRootPath = SoloServletListener.getWebRoot();
-
-                final String language = Locales.getLanguage(localeString);
-                final String country = Locales.getCountry(localeString);
-
-                final Properties props = new Properties();
-
-                props.load(
-                    new FileReader(
-                        webRootPath + "skins" + File.separator + currentSkinDirName + File.separator + Keys.LANGUAGE + File.separator
-                        + Keys.LANGUAGE + '_' + language + '_' + country + ".properties"));
-                final Set<Object> keys = props.keySet();
-
-                for (final Object key : keys) {
-                    langs.put((String) key, props.getProperty((String) key));
-                }
+            if (null == langs || langs.isModified()) {
+                langs = loadLangs(localeString, currentSkinDirName, coreLocale);
 
                 LANG_MAP.put(langName, langs);
-                LOGGER.log(Level.INFO, "Loaded skin[dirName={0}, locale={1}, keyCount={2}]",
-                    new Object[] {currentSkinDirName, localeString, langs.size()});
             }
 
-            dataModel.putAll(langs); // Fills the current skin's language configurations
-            
-            // Fills the core language configurations
-            final LatkeBeanManager beanManager = Lifecycle.getBeanManager();
-            final LangPropsService langPropsService = beanManager.getReference(LangPropsServiceImpl.class);
-
-            dataModel.putAll(langPropsService.getAll(Latkes.getLocale()));
+            dataModel.putAll(langs.getLangs());
         } catch (final IOException e) {
             LOGGER.log(Level.ERROR, "Fills skin langs failed", e);
             throw new ServiceException(e);
@@ -125,6 +112,60 @@ public final class Skins {
         }
     }
 
+    /**
+     * Loads the language configurations of a skin specified by the given skin directory name and locale string, and 
+     * merges with the core language configurations of the specified core locale.
+     * 
+     * @param localeString the given locale string
+     * @param skinDirName the given skin directory name
+     * @param coreLocale the specified core locale
+     * @return merged language configurations
+     * @throws IOException io exception
+     */
+    private static SkinLangs loadLangs(final String localeString, final String skinDirName, final Locale coreLocale)
+        throws IOException {
+        LOGGER.log(Level.INFO, "Loading skin [dirName={0}, locale={1}]", new Object[] {skinDirName, localeString});
+
+        final String webRootPath = SoloServletListener.getWebRoot();
+
+        final String language = Locales.getLanguage(localeString);
+        final String country = Locales.getCountry(localeString);
+
+        final File file = new File(
+            webRootPath + "skins" + File.separator + skinDirName + File.separator + Keys.LANGUAGE + File.separator
+            + Keys.LANGUAGE + '_' + language + '_' + country + ".properties");
+        final long lastModified = file.lastModified();
+
+        final Properties props = new Properties();
+        final FileReader reader = new FileReader(file);
+
+        try {
+            props.load(reader);
+        } finally {
+            reader.close();
+        }
+
+        final Map<String, String> langs = new HashMap<String, String>();
+        final Set<Object> keys = props.keySet();
+
+        for (final Object key : keys) {
+            langs.put((String) key, props.getProperty((String) key));
+        }
+
+        final int skinKeyCount = langs.size();
+
+        // Merges the core language configurations
+        final LatkeBeanManager beanManager = Lifecycle.getBeanManager();
+        final LangPropsService langPropsService = beanManager.getReference(LangPropsServiceImpl.class);
+
+        langs.putAll(langPropsService.getAll(coreLocale));
+
+        LOGGER.log(Level.INFO, "Loaded skin[dirName={0}, locale={1}, keyCount={2}]",
+            new Object[] {skinDirName, localeString, skinKeyCount});
+
+        return new SkinLangs(file, lastModified, Collections.unmodifiableMap(langs));
+    }
+
     /**
      * Sets the directory for template loading with the specified skin directory
      * name, and sets the directory for mobile request template loading.
@@ -233,4 +274,73 @@ public final class Skins {
             return null;
         }
     }
+
+    /**
+     * Merged language configurations of a skin.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class SkinLangs {
+
+        /**
+         * Skin language configuration file.
+         */
+        private final File file;
+
+        /**
+         * Last modified time of the file while loaded.
+         */
+        private final long lastModified;
+
+        /**
+         * Merged language configurations.
+         */
+        private final Map<String, String> langs;
+
+        /**
+         * Last checked time.
+         */
+        private volatile long lastChecked = System.currentTimeMillis();
+
+        /**
+         * Constructs a skin langs with the specified file, last modified time and langs.
+         * 
+         * @param file the specified file
+         * @param lastModified the specified last modified time
+         * @param langs the specified langs
+         */
+        private SkinLangs(final File file, final long lastModified, final Map<String, String> langs) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.langs = langs;
+        }
+
+        /**
+         * Gets the merged language configurations.
+         * 
+         * @return merged language configurations, unmodifiable
+         */
+        private Map<String, String> getLangs() {
+            return langs;
+        }
+
+        /**
+         * Determines whether the skin language configuration file has been modified since loaded.
+         * 
+         * @return {@code true} if modified, returns {@code false} otherwise or checked in the recent 
+         * {@value Skins#LANG_CHECK_INTERVAL} milliseconds
+         */
+        private boolean isModified() {
+            final long now = System.currentTimeMillis();
+
+            if (now - lastChecked < LANG_CHECK_INTERVAL) {
+                return false;
+            }
+
+            lastChecked = now;
+
+            return file.lastModified() != lastModified;
+        }
+    }
 }
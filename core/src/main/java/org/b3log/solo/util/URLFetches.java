@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.util;
+
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.b3log.latke.urlfetch.HTTPRequest;
+import org.b3log.latke.urlfetch.HTTPResponse;
+import org.b3log.latke.urlfetch.URLFetchService;
+import org.b3log.latke.urlfetch.URLFetchServiceFactory;
+
+
+/**
+ * URL fetch utilities.
+ * 
+ * <p>
+ * A blocking {@link URLFetchService#fetch(HTTPRequest) fetch} can not be interrupted, and may hang on an unresponsive
+ * remote service. {@link #fetch(HTTPRequest)} fetches asynchronously and waits the response with a timeout, so the
+ * caller (an event listener for example) fails in time and could be retried later.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+public final class URLFetches {
+
+    /**
+     * Timeout of a fetch, in milliseconds.
+     */
+    public static final long FETCH_TIMEOUT = 10000L;
+
+    /**
+     * URL fetch service.
+     */
+    private static final URLFetchService URL_FETCH_SERVICE = URLFetchServiceFactory.getURLFetchService();
+
+    /**
+     * Fetches the specified request, gives up if the response is not received in {@value #FETCH_TIMEOUT} milliseconds.
+     * 
+     * @param request the specified request
+     * @return response
+     * @throws IOException if the fetch failed, timed out or interrupted
+     */
+    public static HTTPResponse fetch(final HTTPRequest request) throws IOException {
+        @SuppressWarnings("unchecked")
+        final Future<HTTPResponse> future = (Future<HTTPResponse>) URL_FETCH_SERVICE.fetchAsync(request);
+
+        try {
+            return future.get(FETCH_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+
+            throw new IOException("Fetches [" + request.getURL() + "] timed out");
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Fetches [" + request.getURL() + "] interrupted");
+        } catch (final ExecutionException e) {
+            throw new IOException("Fetches [" + request.getURL() + "] failed", e.getCause());
+        }
+    }
+
+    /**
+     * Private constructor.
+     */
+    private URLFetches() {}
+}
@@ -23,6 +23,8 @@ import org.b3log.latke.Latkes;
 import org.b3log.latke.ioc.LatkeBeanManager;
 import org.b3log.latke.ioc.Lifecycle;
 import org.b3log.latke.ioc.config.Discoverer;
+import org.b3log.solo.cache.GravatarCache;
+import org.b3log.solo.event.EventDispatcher;
 import org.b3log.solo.repository.ArchiveDateArticleRepository;
 import org.b3log.solo.repository.ArchiveDateRepository;
 import org.b3log.solo.repository.ArticleRepository;
@@ -57,7 +59,7 @@ import org.testng.annotations.BeforeClass;
  * Abstract test case.
  * 
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.8, Oct 14, 2013
+ * @version 1.0.0.12, Nov 2, 2013
  * @see #beforeClass() 
  * @see #afterClass() 
  */
@@ -382,6 +384,15 @@ public abstract class AbstractTestCase {
         return beanManager.getReference(OptionMgmtService.class);
     }
 
+    /**
+     * Gets mail management service.
+     * 
+     * @return mail management service
+     */
+    public MailMgmtService getMailMgmtService() {
+        return beanManager.getReference(MailMgmtService.class);
+    }
+
     /**
      * Gets option query service.
      * 
@@ -390,4 +401,40 @@ public abstract class AbstractTestCase {
     public OptionQueryService getOptionQueryService() {
         return beanManager.getReference(OptionQueryService.class);
     }
+
+    /**
+     * Gets statistic management service.
+     * 
+     * @return statistic management service
+     */
+    public StatisticMgmtService getStatisticMgmtService() {
+        return beanManager.getReference(StatisticMgmtService.class);
+    }
+
+    /**
+     * Gets statistic query service.
+     * 
+     * @return statistic query service
+     */
+    public StatisticQueryService getStatisticQueryService() {
+        return beanManager.getReference(StatisticQueryService.class);
+    }
+
+    /**
+     * Gets Gravatar cache.
+     * 
+     * @return Gravatar cache
+     */
+    public GravatarCache getGravatarCache() {
+        return beanManager.getReference(GravatarCache.class);
+    }
+
+    /**
+     * Gets event dispatcher.
+     * 
+     * @return event dispatcher
+     */
+    public EventDispatcher getEventDispatcher() {
+        return beanManager.getReference(EventDispatcher.class);
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * {@link OnlineVisitorTracker} test case.
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+public final class OnlineVisitorTrackerTestCase {
+
+    /**
+     * Start time.
+     */
+    private static final long START = 1383350400000L;
+
+    /**
+     * Test method for {@linkplain OnlineVisitorTracker#count()} in exact mode.
+     */
+    @Test
+    public void count() {
+        final OnlineVisitorTracker tracker = new OnlineVisitorTracker();
+
+        for (int i = 0; i < 100; i++) {
+            tracker.visit("192.168.0." + i, START);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            tracker.visit("192.168.0." + i, START + OnlineVisitorTracker.BUCKET_SPAN);
+        }
+
+        Assert.assertEquals(tracker.count(START + OnlineVisitorTracker.BUCKET_SPAN), 100);
+
+        // The first bucket falls out of the window
+        Assert.assertEquals(tracker.count(START + OnlineVisitorTracker.BUCKET_SPAN * OnlineVisitorTracker.BUCKET_CNT), 50);
+
+        Assert.assertEquals(tracker.count(START + OnlineVisitorTracker.BUCKET_SPAN * (OnlineVisitorTracker.BUCKET_CNT + 1)), 0);
+    }
+
+    /**
+     * Test method for {@linkplain OnlineVisitorTracker#count()} in estimating mode.
+     */
+    @Test
+    public void estimate() {
+        final OnlineVisitorTracker tracker = new OnlineVisitorTracker();
+
+        tracker.setEstimating(true);
+
+        final int visitorCnt = 10000;
+
+        for (int i = 0; i < visitorCnt; i++) {
+            tracker.visit("10.0." + i / 256 + "." + i % 256, START);
+            tracker.visit("10.0." + i / 256 + "." + i % 256, START + OnlineVisitorTracker.BUCKET_SPAN);
+        }
+
+        final int count = tracker.count(START + OnlineVisitorTracker.BUCKET_SPAN);
+
+        Assert.assertTrue(Math.abs(count - visitorCnt) < visitorCnt / 10, "Estimated [" + count + "]");
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.cache;
+
+
+import org.b3log.solo.cache.PageCache.CachedPage;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * {@link PageCache} test case.
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+public final class PageCacheTestCase {
+
+    /**
+     * Test method for {@linkplain PageCache#put(String, long, CachedPage)} and {@linkplain PageCache#get(String)}.
+     */
+    @Test
+    public void putGet() {
+        final PageCache pageCache = new PageCache();
+
+        pageCache.put("/index.html", pageCache.getGeneration(), page("index"));
+
+        final CachedPage cachedPage = pageCache.get("/index.html");
+
+        Assert.assertNotNull(cachedPage);
+        Assert.assertEquals(new String(cachedPage.getContent()), "index");
+        Assert.assertEquals(cachedPage.getETag(), "\"1\"");
+        Assert.assertNull(pageCache.get("/tags.html"));
+    }
+
+    /**
+     * Test method for {@linkplain PageCache#clear()}.
+     */
+    @Test
+    public void clear() {
+        final PageCache pageCache = new PageCache();
+
+        pageCache.put("/index.html", pageCache.getGeneration(), page("index"));
+        pageCache.clear();
+
+        Assert.assertNull(pageCache.get("/index.html"));
+        Assert.assertEquals(pageCache.size(), 0);
+    }
+
+    /**
+     * Test method for {@linkplain PageCache#put(String, long, CachedPage)} with a page rendered across a clear.
+     */
+    @Test
+    public void putStale() {
+        final PageCache pageCache = new PageCache();
+        final long generation = pageCache.getGeneration();
+
+        // Cleared while rendering
+        pageCache.invalidate();
+
+        pageCache.put("/index.html", generation, page("stale"));
+        Assert.assertNull(pageCache.get("/index.html"));
+
+        pageCache.put("/index.html", pageCache.getGeneration(), page("fresh"));
+        Assert.assertEquals(new String(pageCache.get("/index.html").getContent()), "fresh");
+    }
+
+    /**
+     * Creates a HTML page with the specified content.
+     *
+     * @param content the specified content
+     * @return page
+     */
+    private static CachedPage page(final String content) {
+        return new CachedPage(content.getBytes(), "text/html; charset=UTF-8", null, "\"1\"", 1383350400000L);
+    }
+}
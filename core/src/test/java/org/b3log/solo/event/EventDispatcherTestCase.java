@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.event;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.b3log.latke.Keys;
+import org.b3log.latke.event.AbstractEventListener;
+import org.b3log.latke.event.Event;
+import org.b3log.latke.event.EventException;
+import org.b3log.latke.repository.FilterOperator;
+import org.b3log.latke.repository.PropertyFilter;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.Transaction;
+import org.b3log.solo.AbstractTestCase;
+import org.b3log.solo.model.Option;
+import org.b3log.solo.repository.OptionRepository;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * {@link EventDispatcher} test case.
+ * 
+ * <p>
+ * The test runtime is GAE, so listeners run in the dispatching thread.
+ * </p>
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Test(suiteName = "event")
+public class EventDispatcherTestCase extends AbstractTestCase {
+
+    /**
+     * Test event type.
+     */
+    private static final String EVENT_TYPE = "testEvent";
+
+    /**
+     * Dispatch and retry.
+     * 
+     * @throws Exception exception
+     */
+    @Test
+    public void retry() throws Exception {
+        final EventDispatcher eventDispatcher = getEventDispatcher();
+
+        FlakyListener.reset(1);
+        eventDispatcher.dispatch(new FlakyListener(), new Event<JSONObject>(EVENT_TYPE, new JSONObject()));
+
+        Assert.assertEquals(FlakyListener.ACTIONS.get(), 1);
+        Assert.assertEquals(countRetryEntries(), 0); // Pending in memory, not persisted in the request thread
+
+        eventDispatcher.retry();
+
+        Assert.assertEquals(FlakyListener.ACTIONS.get(), 2);
+        Assert.assertEquals(countRetryEntries(), 0); // Succeeded, removed
+    }
+
+    /**
+     * Retry drops an entry after the maximum retries.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = "retry")
+    public void retryDrops() throws Exception {
+        final EventDispatcher eventDispatcher = getEventDispatcher();
+
+        FlakyListener.reset(Integer.MAX_VALUE);
+        eventDispatcher.dispatch(new FlakyListener(), new Event<JSONObject>(EVENT_TYPE, new JSONObject()));
+
+        for (int i = 0; i < 4; i++) {
+            eventDispatcher.retry();
+        }
+
+        Assert.assertEquals(countRetryEntries(), 1);
+
+        eventDispatcher.retry();
+
+        Assert.assertEquals(FlakyListener.ACTIONS.get(), 6);
+        Assert.assertEquals(countRetryEntries(), 0); // Failed 5 times, dropped
+    }
+
+    /**
+     * Retry drops a malformed entry.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = "retryDrops")
+    public void retryDropsMalformed() throws Exception {
+        final OptionRepository optionRepository = getOptionRepository();
+        final JSONObject option = new JSONObject();
+
+        option.put(Option.OPTION_CATEGORY, Option.CATEGORY_C_EVENT_RETRY);
+        option.put(Option.OPTION_VALUE, "{malformed");
+
+        final Transaction transaction = optionRepository.beginTransaction();
+
+        optionRepository.add(option);
+        transaction.commit();
+
+        Assert.assertEquals(countRetryEntries(), 1);
+
+        getEventDispatcher().retry();
+
+        Assert.assertEquals(countRetryEntries(), 0);
+    }
+
+    /**
+     * Counts the persisted event retry entries.
+     * 
+     * @return count
+     * @throws Exception exception
+     */
+    private int countRetryEntries() throws Exception {
+        final Query query = new Query().setFilter(
+            new PropertyFilter(Option.OPTION_CATEGORY, FilterOperator.EQUAL, Option.CATEGORY_C_EVENT_RETRY));
+
+        return getOptionRepository().get(query).getJSONArray(Keys.RESULTS).length();
+    }
+
+    /**
+     * A listener fails the specified times, instantiated by class name while retrying.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    public static final class FlakyListener extends AbstractEventListener<JSONObject> {
+
+        /**
+         * Number of actions.
+         */
+        private static final AtomicInteger ACTIONS = new AtomicInteger();
+
+        /**
+         * Number of remaining failures.
+         */
+        private static final AtomicInteger FAILURES = new AtomicInteger();
+
+        /**
+         * Resets the action count and the remaining failures.
+         * 
+         * @param failures the specified number of failures
+         */
+        private static void reset(final int failures) {
+            ACTIONS.set(0);
+            FAILURES.set(failures);
+        }
+
+        @Override
+        public String getEventType() {
+            return EVENT_TYPE;
+        }
+
+        @Override
+        public void action(final Event<JSONObject> event) throws EventException {
+            ACTIONS.incrementAndGet();
+
+            if (FAILURES.getAndDecrement() > 0) {
+                throw new EventException("Fails for test");
+            }
+        }
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.filter;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.b3log.latke.Keys;
+import org.b3log.latke.ioc.Lifecycle;
+import org.b3log.solo.AbstractTestCase;
+import org.b3log.solo.cache.PageCache;
+import org.b3log.solo.cache.PageCache.CachedPage;
+import org.b3log.solo.util.ConditionalGets;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+/**
+ * {@link PageCacheFilter} test case.
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.0, Nov 2, 2013
+ * @since 0.6.5
+ */
+public final class PageCacheFilterTestCase extends AbstractTestCase {
+
+    /**
+     * Page content.
+     */
+    private static final String CONTENT = "<html><body>Hello, Solo!</body></html>";
+
+    /**
+     * ETag.
+     */
+    private static final String ETAG = "\"141f1e2a3b0.1\"";
+
+    /**
+     * Last modified time.
+     */
+    private static final long LAST_MODIFIED = 1383350400000L;
+
+    /**
+     * Page cache.
+     */
+    private PageCache pageCache;
+
+    /**
+     * Clears the page cache before each test.
+     */
+    @BeforeMethod
+    public void beforeMethod() {
+        pageCache = Lifecycle.getBeanManager().getReference(PageCache.class);
+        pageCache.clear();
+    }
+
+    /**
+     * Captures a cacheable HTML page.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void capture() throws Exception {
+        final MockRequest request = new MockRequest("/index.html");
+        final MockResponse response = new MockResponse();
+        final MockChain chain = new MockChain(HttpServletResponse.SC_OK, "text/html; charset=UTF-8", true);
+
+        new PageCacheFilter().doFilter(request.proxy(), response.proxy(), chain);
+
+        Assert.assertEquals(chain.invocationCnt, 1);
+        Assert.assertEquals(response.getContent(), CONTENT);
+
+        final CachedPage cachedPage = pageCache.get(PageCache.getKey(request.proxy()));
+
+        Assert.assertNotNull(cachedPage);
+        Assert.assertEquals(new String(cachedPage.getContent(), "UTF-8"), CONTENT);
+        Assert.assertEquals(cachedPage.getContentType(), "text/html; charset=UTF-8");
+        Assert.assertEquals(cachedPage.getETag(), ETAG);
+        Assert.assertEquals(cachedPage.getLastModified(), LAST_MODIFIED);
+
+        // Served from cache
+        final MockResponse cachedResponse = new MockResponse();
+
+        new PageCacheFilter().doFilter(new MockRequest("/index.html").proxy(), cachedResponse.proxy(), chain);
+
+        Assert.assertEquals(chain.invocationCnt, 1);
+        Assert.assertEquals(cachedResponse.getContent(), CONTENT);
+        Assert.assertEquals(cachedResponse.headers.get("ETag"), ETAG);
+    }
+
+    /**
+     * Does not cache a page not marked cacheable.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void notCacheable() throws Exception {
+        final MockRequest request = new MockRequest("/admin-index.do");
+
+        new PageCacheFilter().doFilter(request.proxy(), new MockResponse().proxy(),
+            new MockChain(HttpServletResponse.SC_OK, "text/html; charset=UTF-8", false));
+
+        Assert.assertNull(pageCache.get(PageCache.getKey(request.proxy())));
+    }
+
+    /**
+     * Does not cache a non-200 response.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void skipNon200() throws Exception {
+        final MockRequest request = new MockRequest("/articles/not-found.html");
+        final MockResponse response = new MockResponse();
+
+        new PageCacheFilter().doFilter(request.proxy(), response.proxy(),
+            new MockChain(HttpServletResponse.SC_NOT_FOUND, "text/html; charset=UTF-8", true));
+
+        Assert.assertEquals(response.status, HttpServletResponse.SC_NOT_FOUND);
+        Assert.assertNull(pageCache.get(PageCache.getKey(request.proxy())));
+    }
+
+    /**
+     * Does not cache a non-HTML response.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void skipNonHTML() throws Exception {
+        final MockRequest request = new MockRequest("/get-random-articles.do");
+        final MockResponse response = new MockResponse();
+
+        new PageCacheFilter().doFilter(request.proxy(), response.proxy(),
+            new MockChain(HttpServletResponse.SC_OK, "application/json; charset=UTF-8", true));
+
+        Assert.assertEquals(response.getContent(), CONTENT);
+        Assert.assertNull(pageCache.get(PageCache.getKey(request.proxy())));
+    }
+
+    /**
+     * Neither serves nor captures pages for a request with the login cookie.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void skipNonAnonymous() throws Exception {
+        final MockRequest request = new MockRequest("/tags.html");
+        final String key = PageCache.getKey(request.proxy());
+
+        pageCache.put(key, pageCache.getGeneration(),
+            new CachedPage("cached".getBytes("UTF-8"), "text/html; charset=UTF-8", null, ETAG, LAST_MODIFIED));
+
+        request.cookies = new Cookie[] {new Cookie("b3log-latke", "{}")};
+
+        final MockResponse response = new MockResponse();
+        final MockChain chain = new MockChain(HttpServletResponse.SC_OK, "text/html; charset=UTF-8", true);
+
+        new PageCacheFilter().doFilter(request.proxy(), response.proxy(), chain);
+
+        Assert.assertEquals(chain.invocationCnt, 1);
+        Assert.assertEquals(response.getContent(), CONTENT);
+        Assert.assertEquals(new String(pageCache.get(key).getContent(), "UTF-8"), "cached");
+    }
+
+    /**
+     * Serves 304 from cache for a conditional request holds the cached page.
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void notModified() throws Exception {
+        final MockRequest request = new MockRequest("/archives.html");
+
+        pageCache.put(PageCache.getKey(request.proxy()), pageCache.getGeneration(),
+            new CachedPage(CONTENT.getBytes("UTF-8"), "text/html; charset=UTF-8", null, ETAG, LAST_MODIFIED));
+
+        request.headers.put("If-None-Match", ETAG);
+
+        final MockResponse response = new MockResponse();
+        final MockChain chain = new MockChain(HttpServletResponse.SC_OK, "text/html; charset=UTF-8", true);
+
+        new PageCacheFilter().doFilter(request.proxy(), response.proxy(), chain);
+
+        Assert.assertEquals(chain.invocationCnt, 0);
+        Assert.assertEquals(response.status, HttpServletResponse.SC_NOT_MODIFIED);
+        Assert.assertEquals(response.getContent(), "");
+
+        // Stale validator
+        final MockRequest staleRequest = new MockRequest("/archives.html");
+
+        staleRequest.headers.put("If-None-Match", "\"141f1e2a3b0.0\"");
+
+        final MockResponse staleResponse = new MockResponse();
+
+        new PageCacheFilter().doFilter(staleRequest.proxy(), staleResponse.proxy(), chain);
+
+        Assert.assertEquals(chain.invocationCnt, 0);
+        Assert.assertEquals(staleResponse.status, HttpServletResponse.SC_OK);
+        Assert.assertEquals(staleResponse.getContent(), CONTENT);
+    }
+
+    /**
+     * Filter chain renders a page.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class MockChain implements FilterChain {
+
+        /**
+         * Status code.
+         */
+        private final int status;
+
+        /**
+         * Content type.
+         */
+        private final String contentType;
+
+        /**
+         * Whether marks the request cacheable.
+         */
+        private final boolean cacheable;
+
+        /**
+         * Invocation count.
+         */
+        private int invocationCnt;
+
+        /**
+         * Constructs a filter chain with the specified status code, content type and cacheable flag.
+         *
+         * @param status the specified status code
+         * @param contentType the specified content type
+         * @param cacheable the specified cacheable flag
+         */
+        private MockChain(final int status, final String contentType, final boolean cacheable) {
+            this.status = status;
+            this.contentType = contentType;
+            this.cacheable = cacheable;
+        }
+
+        @Override
+        public void doFilter(final ServletRequest request, final ServletResponse response) throws IOException, ServletException {
+            invocationCnt++;
+
+            final HttpServletResponse httpServletResponse = (HttpServletResponse) response;
+
+            if (cacheable) {
+                request.setAttribute(PageCache.CACHEABLE, true);
+            }
+
+            request.setAttribute(ConditionalGets.ETAG, ETAG);
+            request.setAttribute(ConditionalGets.LAST_MODIFIED, LAST_MODIFIED);
+
+            httpServletResponse.setStatus(status);
+            httpServletResponse.setContentType(contentType);
+            httpServletResponse.getWriter().write(CONTENT);
+        }
+    }
+
+    /**
+     * HTTP servlet request of an anonymous GET.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class MockRequest implements InvocationHandler {
+
+        /**
+         * Request URI.
+         */
+        private final String requestURI;
+
+        /**
+         * Attributes.
+         */
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+        /**
+         * Headers.
+         */
+        private final Map<String, String> headers = new HashMap<String, String>();
+
+        /**
+         * Cookies.
+         */
+        private Cookie[] cookies;
+
+        /**
+         * Constructs a request with the specified request URI.
+         *
+         * @param requestURI the specified request URI
+         */
+        private MockRequest(final String requestURI) {
+            this.requestURI = requestURI;
+            attributes.put(Keys.TEMAPLTE_DIR_NAME, "ease");
+        }
+
+        /**
+         * Gets the proxy of this request.
+         *
+         * @return proxy
+         */
+        private HttpServletRequest proxy() {
+            return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+                new Class<?>[] {HttpServletRequest.class}, this);
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+
+            if ("getMethod".equals(name)) {
+                return "GET";
+            } else if ("getRequestURI".equals(name)) {
+                return requestURI;
+            } else if ("getAttribute".equals(name)) {
+                return attributes.get((String) args[0]);
+            } else if ("setAttribute".equals(name)) {
+                attributes.put((String) args[0], args[1]);
+            } else if ("removeAttribute".equals(name)) {
+                attributes.remove((String) args[0]);
+            } else if ("getCookies".equals(name)) {
+                return cookies;
+            } else if ("getHeader".equals(name)) {
+                return headers.get((String) args[0]);
+            } else if ("getDateHeader".equals(name)) {
+                return -1L;
+            } else if ("getIntHeader".equals(name)) {
+                return -1;
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * HTTP servlet response records status, headers and content.
+     *
+     * @author <a href="http://88250.b3log.org">Liang Ding</a>
+     * @version 1.0.0.0, Nov 2, 2013
+     */
+    private static final class MockResponse implements InvocationHandler {
+
+        /**
+         * Status code.
+         */
+        private int status = HttpServletResponse.SC_OK;
+
+        /**
+         * Content type.
+         */
+        private String contentType;
+
+        /**
+         * Headers.
+         */
+        private final Map<String, Object> headers = new HashMap<String, Object>();
+
+        /**
+         * Content.
+         */
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        /**
+         * Output stream.
+         */
+        private final ServletOutputStream outputStream = new ServletOutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                content.write(b);
+            }
+        };
+
+        /**
+         * Writer, {@code null} if not used.
+         */
+        private PrintWriter writer;
+
+        /**
+         * Gets the proxy of this response.
+         *
+         * @return proxy
+         */
+        private HttpServletResponse proxy() {
+            return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+                new Class<?>[] {HttpServletResponse.class}, this);
+        }
+
+        /**
+         * Gets the written content.
+         *
+         * @return content
+         * @throws IOException io exception
+         */
+        private String getContent() throws IOException {
+            if (null != writer) {
+                writer.flush();
+            }
+
+            return content.toString("UTF-8");
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+
+            if ("setStatus".equals(name) || "sendError".equals(name)) {
+                status = (Integer) args[0];
+            } else if ("setContentType".equals(name)) {
+                contentType = (String) args[0];
+            } else if ("getContentType".equals(name)) {
+                return contentType;
+            } else if ("getCharacterEncoding".equals(name)) {
+                return "UTF-8";
+            } else if ("setHeader".equals(name) || "setDateHeader".equals(name)) {
+                headers.put((String) args[0], args[1]);
+            } else if ("getOutputStream".equals(name)) {
+                return outputStream;
+            } else if ("getWriter".equals(name)) {
+                if (null == writer) {
+                    writer = new PrintWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+                }
+
+                return writer;
+            } else if ("isCommitted".equals(name)) {
+                return false;
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+
+            return null;
+        }
+    }
+}
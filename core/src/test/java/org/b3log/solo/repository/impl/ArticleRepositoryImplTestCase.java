@@ -15,6 +15,7 @@
  */
 package org.b3log.solo.repository.impl;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import org.b3log.latke.Keys;
@@ -32,7 +33,7 @@ import org.testng.annotations.Test;
  * {@link ArticleRepositoryImpl} test case.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.3, May 1, 2012
+ * @version 1.0.0.4, Nov 2, 2013
  */
 @Test(suiteName = "repository")
 public final class ArticleRepositoryImplTestCase extends AbstractTestCase {
@@ -297,4 +298,26 @@ public final class ArticleRepositoryImplTestCase extends AbstractTestCase {
 
         Assert.assertFalse(articleRepository.isPublished("not found"));
     }
+
+    /**
+     * Get By Ids.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = {"add", "getMostViewCountArticles"})
+    public void getByIds() throws Exception {
+        final ArticleRepository articleRepository = getArticleRepository();
+
+        final JSONArray all = articleRepository.get(new Query()).getJSONArray(Keys.RESULTS);
+        final List<String> articleIds = new ArrayList<String>();
+
+        articleIds.add(all.getJSONObject(0).getString(Keys.OBJECT_ID));
+        articleIds.add(all.getJSONObject(1).getString(Keys.OBJECT_ID));
+        articleIds.add("not found");
+
+        final List<JSONObject> articles = articleRepository.getByIds(articleIds);
+        Assert.assertEquals(articles.size(), 2);
+
+        Assert.assertTrue(articleRepository.getByIds(new ArrayList<String>()).isEmpty());
+    }
 }
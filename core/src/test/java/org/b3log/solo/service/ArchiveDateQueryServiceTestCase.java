@@ -22,6 +22,8 @@ import org.apache.commons.lang.time.DateUtils;
 import org.b3log.latke.model.User;
 import org.b3log.solo.AbstractTestCase;
 import org.b3log.solo.model.ArchiveDate;
+import org.b3log.solo.model.Article;
+import org.b3log.solo.model.Common;
 import org.json.JSONObject;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -30,7 +32,7 @@ import org.testng.annotations.Test;
  * {@link ArchiveDateQueryService} test case.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.1, Sep 11, 2012
+ * @version 1.0.0.2, Nov 2, 2013
  */
 public class ArchiveDateQueryServiceTestCase extends AbstractTestCase {
 
@@ -84,4 +86,43 @@ public class ArchiveDateQueryServiceTestCase extends AbstractTestCase {
         Assert.assertEquals(result.getJSONObject(ArchiveDate.ARCHIVE_DATE).getLong(ArchiveDate.ARCHIVE_TIME), 
                             DateUtils.parseDate(archiveDateString, new String[] {"yyyy/MM"}).getTime());
     }
+
+    /**
+     * Get Archive Dates After Article Added.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = {"getArchiveDates", "getByArchiveDateString"})
+    public void getArchiveDatesAfterArticleAdded() throws Exception {
+        final ArticleMgmtService articleMgmtService = getArticleMgmtService();
+
+        final JSONObject requestJSONObject = new JSONObject();
+        final JSONObject article = new JSONObject();
+        requestJSONObject.put(Article.ARTICLE, article);
+
+        article.put(Article.ARTICLE_AUTHOR_EMAIL, "test@gmail.com");
+        article.put(Article.ARTICLE_TITLE, "article1 title");
+        article.put(Article.ARTICLE_ABSTRACT, "article1 abstract");
+        article.put(Article.ARTICLE_CONTENT, "article1 content");
+        article.put(Article.ARTICLE_TAGS_REF, "tag1");
+        article.put(Article.ARTICLE_PERMALINK, "article1 permalink");
+        article.put(Article.ARTICLE_IS_PUBLISHED, true);
+        article.put(Common.POST_TO_COMMUNITY, false);
+        article.put(Article.ARTICLE_SIGN_ID, "1");
+        article.put(Article.ARTICLE_COMMENTABLE, true);
+        article.put(Article.ARTICLE_VIEW_PWD, "");
+
+        articleMgmtService.addArticle(requestJSONObject);
+
+        final ArchiveDateQueryService archiveDateQueryService = getArchiveDateQueryService();
+
+        final List<JSONObject> archiveDates = archiveDateQueryService.getArchiveDates();
+        Assert.assertEquals(archiveDates.size(), 1);
+
+        final JSONObject archiveDate = archiveDates.get(0);
+        final String archiveDateString = DateFormatUtils.format(new Date(), "yyyy/MM");
+        Assert.assertEquals(archiveDate.getInt(ArchiveDate.ARCHIVE_DATE_PUBLISHED_ARTICLE_COUNT), 2);
+        Assert.assertEquals(archiveDate.getString(ArchiveDate.ARCHIVE_DATE_YEAR) + '/' 
+                            + archiveDate.getString(ArchiveDate.ARCHIVE_DATE_MONTH), archiveDateString);
+    }
 }
@@ -22,6 +22,7 @@ import org.b3log.latke.util.Requests;
 import org.b3log.solo.AbstractTestCase;
 import org.b3log.solo.model.Article;
 import org.b3log.solo.model.Common;
+import org.b3log.solo.model.Statistic;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.testng.Assert;
@@ -31,7 +32,7 @@ import org.testng.annotations.Test;
  * {@link ArticleMgmtService} test case.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.5, Sep 11, 2012
+ * @version 1.0.0.8, Nov 2, 2013
  */
 @Test(suiteName = "service")
 public class ArticleMgmtServiceTestCase extends AbstractTestCase {
@@ -275,4 +276,72 @@ public class ArticleMgmtServiceTestCase extends AbstractTestCase {
         //Assert.assertNotEquals(articleQueryService.getArticleById(articleId).
         //        getDouble(Article.ARTICLE_RANDOM_DOUBLE), randomValue);
     }
+
+    /**
+     * Inc View Count.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = "addArticle")
+    public void incViewCount() throws Exception {
+        final ArticleMgmtService articleMgmtService = getArticleMgmtService();
+        final ArticleQueryService articleQueryService = getArticleQueryService();
+
+        final List<JSONObject> articles = articleQueryService.getRecentArticles(10);
+        Assert.assertNotEquals(articles.size(), 0);
+
+        final String articleId = articles.get(0).getString(Keys.OBJECT_ID);
+        final int viewCount = getArticleRepository().get(articleId).getInt(Article.ARTICLE_VIEW_COUNT);
+
+        articleMgmtService.incViewCount(articleId);
+        articleMgmtService.incViewCount(articleId);
+
+        // Buffered
+        Assert.assertEquals(getArticleRepository().get(articleId).getInt(Article.ARTICLE_VIEW_COUNT), viewCount);
+
+        getStatisticMgmtService().flushViewCount();
+        Assert.assertEquals(getArticleRepository().get(articleId).getInt(Article.ARTICLE_VIEW_COUNT), viewCount + 2);
+    }
+
+    /**
+     * Checkpoint Statistic.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = "addArticle")
+    public void checkpointStatistic() throws Exception {
+        final StatisticMgmtService statisticMgmtService = getStatisticMgmtService();
+        final StatisticQueryService statisticQueryService = getStatisticQueryService();
+
+        statisticMgmtService.checkpointStatistic();
+
+        final int articleCount = statisticQueryService.getBlogArticleCount();
+
+        Assert.assertEquals(getStatisticRepository().get(Statistic.STATISTIC).getInt(Statistic.STATISTIC_BLOG_ARTICLE_COUNT),
+            articleCount);
+
+        // Dropped with a rolled back transaction
+        statisticMgmtService.incBlogArticleCount();
+        statisticMgmtService.discardCountChanges();
+        Assert.assertEquals(statisticQueryService.getBlogArticleCount(), articleCount);
+
+        statisticMgmtService.incBlogArticleCount();
+        Assert.assertEquals(statisticQueryService.getBlogArticleCount(), articleCount);
+        statisticMgmtService.publishCountChanges();
+
+        // Counted in memory after committed
+        Assert.assertEquals(statisticQueryService.getBlogArticleCount(), articleCount + 1);
+        Assert.assertEquals(getStatisticRepository().get(Statistic.STATISTIC).getInt(Statistic.STATISTIC_BLOG_ARTICLE_COUNT),
+            articleCount);
+
+        statisticMgmtService.checkpointStatistic();
+        Assert.assertEquals(getStatisticRepository().get(Statistic.STATISTIC).getInt(Statistic.STATISTIC_BLOG_ARTICLE_COUNT),
+            articleCount + 1);
+
+        // Recomputes from articles
+        statisticMgmtService.reconcileStatistic();
+        Assert.assertEquals(statisticQueryService.getBlogArticleCount(), articleCount);
+        Assert.assertEquals(getStatisticRepository().get(Statistic.STATISTIC).getInt(Statistic.STATISTIC_BLOG_ARTICLE_COUNT),
+            articleCount);
+    }
 }
@@ -20,6 +20,7 @@ import org.b3log.latke.Keys;
 import org.b3log.latke.model.User;
 import org.b3log.solo.AbstractTestCase;
 import org.b3log.solo.model.Article;
+import org.b3log.solo.model.Common;
 import org.b3log.solo.model.Tag;
 import org.json.JSONObject;
 import org.testng.Assert;
@@ -29,7 +30,7 @@ import org.testng.annotations.Test;
  * {@link ArticleQueryService} test case.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.2, Jun 28, 2013
+ * @version 1.0.0.4, Nov 2, 2013
  */
 @Test(suiteName = "service")
 public class ArticleQueryServiceTestCase extends AbstractTestCase {
@@ -172,5 +173,70 @@ public class ArticleQueryServiceTestCase extends AbstractTestCase {
         Assert.assertNotNull(articles);
         Assert.assertTrue(articles.isEmpty());
     }
+
+    /**
+     * Get Articles Randomly.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = "init")
+    public void getArticlesRandomly() throws Exception {
+        final ArticleQueryService articleQueryService = getArticleQueryService();
+
+        List<JSONObject> articles = articleQueryService.getArticlesRandomly(5);
+        Assert.assertNotNull(articles);
+        Assert.assertEquals(articles.size(), 1);
+        Assert.assertTrue(articles.get(0).getBoolean(Article.ARTICLE_IS_PUBLISHED));
+
+        articles = articleQueryService.getArticlesRandomly(0);
+        Assert.assertTrue(articles.isEmpty());
+    }
+
+    /**
+     * Get Previous/Next Article.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = {"getArticle", "getArticleById", "getArticleContent", "getArticlesByTag",
+                              "getArticlesByArchiveDate", "getArticlesRandomly"})
+    public void getPreviousNextArticle() throws Exception {
+        final ArticleQueryService articleQueryService = getArticleQueryService();
+        final String firstArticleId = articleQueryService.getRecentArticles(1).get(0).getString(Keys.OBJECT_ID);
+
+        Assert.assertNull(articleQueryService.getPreviousArticle(firstArticleId));
+        Assert.assertNull(articleQueryService.getNextArticle(firstArticleId));
+
+        final ArticleMgmtService articleMgmtService = getArticleMgmtService();
+
+        final JSONObject requestJSONObject = new JSONObject();
+        final JSONObject article = new JSONObject();
+        requestJSONObject.put(Article.ARTICLE, article);
+
+        article.put(Article.ARTICLE_AUTHOR_EMAIL, "test@gmail.com");
+        article.put(Article.ARTICLE_TITLE, "article1 title");
+        article.put(Article.ARTICLE_ABSTRACT, "article1 abstract");
+        article.put(Article.ARTICLE_CONTENT, "article1 content");
+        article.put(Article.ARTICLE_TAGS_REF, "tag1");
+        article.put(Article.ARTICLE_PERMALINK, "article1 permalink");
+        article.put(Article.ARTICLE_IS_PUBLISHED, true);
+        article.put(Common.POST_TO_COMMUNITY, false);
+        article.put(Article.ARTICLE_SIGN_ID, "1");
+        article.put(Article.ARTICLE_COMMENTABLE, true);
+        article.put(Article.ARTICLE_VIEW_PWD, "");
+
+        final String articleId = articleMgmtService.addArticle(requestJSONObject);
+
+        final JSONObject next = articleQueryService.getNextArticle(firstArticleId);
+        Assert.assertNotNull(next);
+        Assert.assertEquals(next.getString(Article.ARTICLE_TITLE), "article1 title");
+
+        final JSONObject previous = articleQueryService.getPreviousArticle(articleId);
+        Assert.assertNotNull(previous);
+        Assert.assertFalse("article1 title".equals(previous.getString(Article.ARTICLE_TITLE)));
+
+        final List<JSONObject> recentArticles = articleQueryService.getRecentArticles(10);
+        Assert.assertEquals(recentArticles.size(), 2);
+        Assert.assertEquals(recentArticles.get(0).getString(Keys.OBJECT_ID), articleId);
+    }
     // TODO: getByXXX
 }
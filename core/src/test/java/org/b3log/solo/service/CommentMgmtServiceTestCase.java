@@ -15,13 +15,20 @@
  */
 package org.b3log.solo.service;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.List;
 import org.b3log.latke.Keys;
 import org.b3log.latke.model.User;
 import org.b3log.latke.util.Requests;
 import org.b3log.solo.AbstractTestCase;
+import org.b3log.solo.cache.GravatarCache;
 import org.b3log.solo.model.Comment;
 import org.b3log.solo.model.Page;
+import org.b3log.solo.util.Thumbnails;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.testng.Assert;
@@ -31,7 +38,7 @@ import org.testng.annotations.Test;
  * {@link CommentMgmtService} test case.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.2, Sep 11, 2012
+ * @version 1.0.0.3, Nov 2, 2013
  */
 @Test(suiteName = "service")
 public class CommentMgmtServiceTestCase extends AbstractTestCase {
@@ -153,6 +160,62 @@ public class CommentMgmtServiceTestCase extends AbstractTestCase {
         Assert.assertEquals(pageComments.size(), 1);
     }
 
+    /**
+     * Backfills Gravatar, resolves Gravatar from a local server.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = "addPageComment")
+    public void backfillGravatar() throws Exception {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+        server.createContext("/avatar/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        final GravatarCache gravatarCache = getGravatarCache();
+        final String gravatar = "http://localhost:" + server.getAddress().getPort() + "/avatar/";
+
+        try {
+            gravatarCache.setGravatar(gravatar);
+
+            final String articleId = getArticleQueryService().getRecentArticles(10).get(0).getString(Keys.OBJECT_ID);
+            final JSONObject requestJSONObject = new JSONObject();
+
+            requestJSONObject.put(Keys.OBJECT_ID, articleId);
+            requestJSONObject.put(Comment.COMMENT_NAME, "comment name");
+            requestJSONObject.put(Comment.COMMENT_EMAIL, "gravatar@gmail.com");
+            requestJSONObject.put(Comment.COMMENT_URL, "comment URL");
+            requestJSONObject.put(Comment.COMMENT_CONTENT, "comment content");
+
+            final JSONObject addResult = getCommentMgmtService().addArticleComment(requestJSONObject);
+            final String commentId = addResult.getString(Keys.OBJECT_ID);
+
+            String thumbnailURL = null;
+
+            for (int i = 0; i < 50; i++) { // Backfills asynchronously if not on GAE
+                thumbnailURL = getCommentRepository().get(commentId).getString(Comment.COMMENT_THUMBNAIL_URL);
+
+                if (thumbnailURL.startsWith(gravatar)) {
+                    break;
+                }
+
+                Thread.sleep(100);
+            }
+
+            Assert.assertTrue(thumbnailURL.startsWith(gravatar));
+            Assert.assertTrue(gravatarCache.getThumbnailURL("gravatar@gmail.com").startsWith(gravatar));
+        } finally {
+            gravatarCache.setGravatar(Thumbnails.GRAVATAR);
+            server.stop(0);
+        }
+    }
+
     /**
      * Adds a page.
      * 
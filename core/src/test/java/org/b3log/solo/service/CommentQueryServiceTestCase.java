@@ -34,7 +34,7 @@ import org.testng.annotations.Test;
  * {@link CommentQueryService} test case.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.1, Sep 11, 2012
+ * @version 1.0.0.4, Nov 2, 2013
  */
 @Test(suiteName = "service")
 public class CommentQueryServiceTestCase extends AbstractTestCase {
@@ -97,4 +97,47 @@ public class CommentQueryServiceTestCase extends AbstractTestCase {
         Assert.assertNotNull(comments);
         Assert.assertEquals(comments.size(), 1);
     }
+
+    /**
+     * Get Comments Paged.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = {"getComments", "getCommentsOnId"})
+    public void getCommentsPaged() throws Exception {
+        final ArticleQueryService articleQueryService = getArticleQueryService();
+        final List<JSONObject> articles = articleQueryService.getRecentArticles(10);
+        final String articleId = articles.get(0).getString(Keys.OBJECT_ID);
+
+        final CommentQueryService commentQueryService = getCommentQueryService();
+        List<JSONObject> comments = commentQueryService.getComments(articleId, 1);
+        Assert.assertEquals(comments.size(), 1);
+
+        // Cached page returns copies
+        comments.get(0).put(Comment.COMMENT_CONTENT, "modified");
+        comments = commentQueryService.getComments(articleId, 1);
+        Assert.assertNotEquals(comments.get(0).getString(Comment.COMMENT_CONTENT), "modified");
+
+        Assert.assertTrue(commentQueryService.getComments(articleId, 2).isEmpty());
+
+        // Adding a comment invalidates the cached pages
+        final CommentMgmtService commentMgmtService = getCommentMgmtService();
+        final JSONObject requestJSONObject = new JSONObject();
+
+        requestJSONObject.put(Keys.OBJECT_ID, articleId);
+        requestJSONObject.put(Comment.COMMENT_NAME, "comment name");
+        requestJSONObject.put(Comment.COMMENT_EMAIL, "comment email");
+        requestJSONObject.put(Comment.COMMENT_URL, "comment URL");
+        requestJSONObject.put(Comment.COMMENT_CONTENT, "comment content");
+
+        final JSONObject addResult = commentMgmtService.addArticleComment(requestJSONObject);
+
+        comments = commentQueryService.getComments(articleId, 1);
+        Assert.assertEquals(comments.size(), 2);
+        Assert.assertEquals(comments.get(0).getString(Keys.OBJECT_ID), addResult.getString(Keys.OBJECT_ID));
+
+        Assert.assertEquals(CommentQueryService.getCommentPageCount(0), 0);
+        Assert.assertEquals(CommentQueryService.getCommentPageCount(2), 1);
+        Assert.assertEquals(CommentQueryService.getCommentPageCount(CommentQueryService.COMMENT_PAGE_SIZE + 1), 2);
+    }
 }
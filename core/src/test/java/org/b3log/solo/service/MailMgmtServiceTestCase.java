@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2009, 2010, 2011, 2012, 2013, B3log Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.b3log.solo.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.b3log.latke.Keys;
+import org.b3log.latke.mail.MailService;
+import org.b3log.latke.model.User;
+import org.b3log.latke.repository.FilterOperator;
+import org.b3log.latke.repository.PropertyFilter;
+import org.b3log.latke.repository.Query;
+import org.b3log.latke.repository.Transaction;
+import org.b3log.solo.AbstractTestCase;
+import org.b3log.solo.model.Comment;
+import org.b3log.solo.model.Option;
+import org.b3log.solo.repository.OptionRepository;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * {@link MailMgmtService} test case.
+ *
+ * @author <a href="http://88250.b3log.org">Liang Ding</a>
+ * @version 1.0.0.1, Nov 2, 2013
+ * @since 0.6.5
+ */
+@Test(suiteName = "service")
+public class MailMgmtServiceTestCase extends AbstractTestCase {
+
+    /**
+     * Sent mails.
+     */
+    private final List<MailService.Message> sentMails = new ArrayList<MailService.Message>();
+
+    /**
+     * Init.
+     * 
+     * @throws Exception exception
+     */
+    @Test
+    public void init() throws Exception {
+        final InitService initService = getInitService();
+
+        final JSONObject requestJSONObject = new JSONObject();
+        requestJSONObject.put(User.USER_EMAIL, "test@gmail.com");
+        requestJSONObject.put(User.USER_NAME, "Admin");
+        requestJSONObject.put(User.USER_PASSWORD, "pass");
+
+        initService.init(requestJSONObject);
+
+        final UserQueryService userQueryService = getUserQueryService();
+        Assert.assertNotNull(userQueryService.getUserByEmail("test@gmail.com"));
+
+        getMailMgmtService().setMailService(new MailService() {
+            @Override
+            public void send(final Message message) throws IOException {
+                sentMails.add(message);
+            }
+        });
+    }
+
+    /**
+     * Send Queued Mails.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = "init")
+    public void sendQueuedMails() throws Exception {
+        final MailMgmtService mailMgmtService = getMailMgmtService();
+
+        addArticleComment("comment content 1");
+        addArticleComment("comment content 2");
+
+        mailMgmtService.sendQueuedMails();
+
+        Assert.assertEquals(sentMails.size(), 1); // Coalesced into one digest
+        Assert.assertTrue(sentMails.get(0).getHtmlBody().contains("comment content 1"));
+        Assert.assertTrue(sentMails.get(0).getHtmlBody().contains("comment content 2"));
+        Assert.assertEquals(countOptions(Option.CATEGORY_C_MAIL_SENT), 1); // Sent time stored
+
+        mailMgmtService.sendQueuedMails();
+        Assert.assertEquals(sentMails.size(), 1); // Sent notifications have been removed
+
+        addArticleComment("comment content 3");
+
+        mailMgmtService.sendQueuedMails();
+        Assert.assertEquals(sentMails.size(), 1); // Rate limited, keeps queued
+        Assert.assertEquals(countOptions(Option.CATEGORY_C_MAIL_QUEUE), 1);
+    }
+
+    /**
+     * Send Queued Mails drops a malformed notification.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = "sendQueuedMails")
+    public void sendQueuedMailsDropsMalformed() throws Exception {
+        final OptionRepository optionRepository = getOptionRepository();
+        final JSONObject option = new JSONObject();
+
+        option.put(Option.OPTION_CATEGORY, Option.CATEGORY_C_MAIL_QUEUE);
+        option.put(Option.OPTION_VALUE, "{malformed");
+
+        final Transaction transaction = optionRepository.beginTransaction();
+
+        optionRepository.add(option);
+        transaction.commit();
+
+        Assert.assertEquals(countOptions(Option.CATEGORY_C_MAIL_QUEUE), 2);
+
+        getMailMgmtService().sendQueuedMails();
+
+        Assert.assertEquals(countOptions(Option.CATEGORY_C_MAIL_QUEUE), 1); // The rate limited one keeps queued
+    }
+
+    /**
+     * Counts the options of the specified category.
+     * 
+     * @param category the specified category
+     * @return count
+     * @throws Exception exception
+     */
+    private int countOptions(final String category) throws Exception {
+        final Query query = new Query().setFilter(new PropertyFilter(Option.OPTION_CATEGORY, FilterOperator.EQUAL, category));
+
+        return getOptionRepository().get(query).getJSONArray(Keys.RESULTS).length();
+    }
+
+    /**
+     * Adds a comment with the specified content to the first article.
+     * 
+     * @param content the specified content
+     * @throws Exception exception
+     */
+    private void addArticleComment(final String content) throws Exception {
+        final String articleId = getArticleQueryService().getRecentArticles(10).get(0).getString(Keys.OBJECT_ID);
+        final JSONObject requestJSONObject = new JSONObject();
+
+        requestJSONObject.put(Keys.OBJECT_ID, articleId);
+        requestJSONObject.put(Comment.COMMENT_NAME, "comment name");
+        requestJSONObject.put(Comment.COMMENT_EMAIL, "commenter@gmail.com");
+        requestJSONObject.put(Comment.COMMENT_URL, "comment URL");
+        requestJSONObject.put(Comment.COMMENT_CONTENT, content);
+
+        getCommentMgmtService().addArticleComment(requestJSONObject);
+    }
+}
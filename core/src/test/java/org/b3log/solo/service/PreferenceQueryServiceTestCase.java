@@ -26,7 +26,7 @@ import org.testng.annotations.Test;
  * {@link PreferenceQueryService} test case.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.1, Sep  11, 2012
+ * @version 1.0.0.2, Nov 2, 2013
  */
 @Test(suiteName = "service")
 public class PreferenceQueryServiceTestCase extends AbstractTestCase {
@@ -66,6 +66,22 @@ public class PreferenceQueryServiceTestCase extends AbstractTestCase {
                             Preference.Default.DEFAULT_BLOG_TITLE);
     }
 
+    /**
+     * Get Preference, modifies the returned preference should not affect the cached one.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = "getPreference")
+    public void getPreferenceCopy() throws Exception {
+        final PreferenceQueryService preferenceQueryService =
+                getPreferenceQueryService();
+        final JSONObject preference = preferenceQueryService.getPreference();
+        preference.put(Preference.BLOG_TITLE, "Modified");
+
+        Assert.assertEquals(preferenceQueryService.getPreference().getString(Preference.BLOG_TITLE),
+                            Preference.Default.DEFAULT_BLOG_TITLE);
+    }
+
     /**
      * Get Reply Notification Template.
      * 
@@ -19,6 +19,8 @@ import java.util.List;
 
 import org.b3log.latke.model.User;
 import org.b3log.solo.AbstractTestCase;
+import org.b3log.solo.model.Article;
+import org.b3log.solo.model.Common;
 import org.b3log.solo.model.Tag;
 import org.json.JSONObject;
 import org.testng.Assert;
@@ -28,7 +30,7 @@ import org.testng.annotations.Test;
  * {@link TagQueryService} test case.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.1, Sep 11, 2012
+ * @version 1.0.0.2, Nov 2, 2013
  */
 @Test(suiteName = "service")
 public class TagQueryServiceTestCase extends AbstractTestCase {
@@ -85,4 +87,44 @@ public class TagQueryServiceTestCase extends AbstractTestCase {
         Assert.assertEquals(tag.getString(Tag.TAG_TITLE), "B3log");
         
     }
+
+    /**
+     * Get Tags After Article Added.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = {"getTags", "getTagByTitle"})
+    public void getTagsAfterArticleAdded() throws Exception {
+        final ArticleMgmtService articleMgmtService = getArticleMgmtService();
+
+        final JSONObject requestJSONObject = new JSONObject();
+        final JSONObject article = new JSONObject();
+        requestJSONObject.put(Article.ARTICLE, article);
+
+        article.put(Article.ARTICLE_AUTHOR_EMAIL, "test@gmail.com");
+        article.put(Article.ARTICLE_TITLE, "article1 title");
+        article.put(Article.ARTICLE_ABSTRACT, "article1 abstract");
+        article.put(Article.ARTICLE_CONTENT, "article1 content");
+        article.put(Article.ARTICLE_TAGS_REF, "B3log, tag1");
+        article.put(Article.ARTICLE_PERMALINK, "article1 permalink");
+        article.put(Article.ARTICLE_IS_PUBLISHED, true);
+        article.put(Common.POST_TO_COMMUNITY, false);
+        article.put(Article.ARTICLE_SIGN_ID, "1");
+        article.put(Article.ARTICLE_COMMENTABLE, true);
+        article.put(Article.ARTICLE_VIEW_PWD, "");
+
+        articleMgmtService.addArticle(requestJSONObject);
+
+        final TagQueryService tagQueryService = getTagQueryService();
+
+        final List<JSONObject> tags = tagQueryService.getTags();
+        Assert.assertEquals(tags.size(), 2);
+        Assert.assertEquals(tags.get(0).getString(Tag.TAG_TITLE), "B3log");
+        Assert.assertEquals(tags.get(0).getInt(Tag.TAG_PUBLISHED_REFERENCE_COUNT), 2);
+        Assert.assertEquals(tagQueryService.getTagCount(), 2);
+
+        final JSONObject result = tagQueryService.getTagByTitle("tag1");
+        Assert.assertNotNull(result);
+        Assert.assertEquals(result.getJSONObject(Tag.TAG).getInt(Tag.TAG_PUBLISHED_REFERENCE_COUNT), 1);
+    }
 }
@@ -27,7 +27,7 @@ import org.testng.annotations.Test;
  * {@link UserQueryService} test case.
  *
  * @author <a href="http://88250.b3log.org">Liang Ding</a>
- * @version 1.0.0.1, May 16, 2012
+ * @version 1.0.0.2, Nov 2, 2013
  */
 @Test(suiteName = "service")
 public class UserQueryServiceTestCase extends AbstractTestCase {
@@ -78,6 +78,34 @@ public class UserQueryServiceTestCase extends AbstractTestCase {
         Assert.assertNotNull(user);
     }
 
+    /**
+     * Has Multiple Users.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = "addUser")
+    public void hasMultipleUsers() throws Exception {
+        final UserQueryService userQueryService = getUserQueryService();
+
+        Assert.assertTrue(userQueryService.hasMultipleUsers());
+    }
+
+    /**
+     * Get User By Email after updated.
+     * 
+     * @throws Exception exception
+     */
+    @Test(dependsOnMethods = {"getUserByEmail", "hasMultipleUsers"})
+    public void getUserByEmailAfterUpdated() throws Exception {
+        final UserQueryService userQueryService = getUserQueryService();
+        final JSONObject user = userQueryService.getUserByEmail("test1@gmail.com");
+
+        user.put(User.USER_NAME, "user1 new name");
+        getUserMgmtService().updateUser(user);
+
+        Assert.assertEquals(userQueryService.getUserByEmail("test1@gmail.com").getString(User.USER_NAME), "user1 new name");
+    }
+
     /**
      * Get Users.
      * 
@@ -18,11 +18,14 @@
  *
  * @author <a href="mailto:LLY219@gmail.com">Liyuan Li</a>
  * @author <a href="mailto:DL88250@gmail.com">Liang Ding</a>
- * @version 1.0.3.5, Oct 26, 2013
+ * @version 1.0.5.0, Nov 2, 2013
  */
 var Page = function(tips) {
     this.currentCommentId = "";
     this.tips = tips;
+    // 文章/自定义页面只渲染了第一页评论，其余页由 loadMoreComments 加载
+    this.commentPageNum = 1;
+    this.commentsLoading = false;
 };
 $.extend(Page.prototype, {
     /*
@@ -384,7 +387,10 @@ $.extend(Page.prototype, {
                 that.submitComment();
             }
         });
-        // captcha
+        // captcha, loads it while using the comment form, so the visitors just reading need no session
+        $("#commentForm input, #commentForm textarea").focus(function() {
+            that.loadCaptcha("");
+        });
         $("#captcha").click(function() {
             $(this).attr("src", latkeConfig.servePath + "/captcha.do?code=" + Math.random());
         });
@@ -594,6 +600,63 @@ $.extend(Page.prototype, {
             });
         }
     },
+    /*
+     * @description 加载验证码，已加载时不再加载
+     * @param {String} state 用于区分评论文章还是回复评论
+     */
+    loadCaptcha: function(state) {
+        var $captcha = $("#captcha" + state);
+        if ($captcha.length === 1 && !$captcha.attr("src")) {
+            $captcha.attr("src", latkeConfig.servePath + "/captcha.do?code=" + Math.random());
+        }
+    },
+    /*
+     * @description 加载下一页评论，追加到评论列表末尾，没有更多评论时移除 #moreComments
+     * @param {Function} renderComment 皮肤提供的评论渲染函数，参数为评论，返回评论 HTML
+     * @param {String} listSelector 评论列表选择器
+     */
+    loadMoreComments: function(renderComment, listSelector) {
+        var that = this;
+        if (that.commentsLoading) {
+            return;
+        }
+
+        that.commentsLoading = true;
+        $("#moreComments").html(that.tips.loadingLabel);
+
+        $.ajax({
+            type: "GET",
+            url: latkeConfig.servePath + "/comments/" + that.tips.oId + "/" + (that.commentPageNum + 1),
+            cache: false,
+            success: function(result) {
+                that.commentsLoading = false;
+                if (!result.sc) {
+                    $("#moreComments").remove();
+                    return;
+                }
+
+                that.commentPageNum++;
+                var commentsHTML = "";
+                for (var i = 0; i < result.comments.length; i++) {
+                    // 跳过异步添加评论后顺延到下一页的评论
+                    if ($("#" + result.comments[i].oId).length === 0) {
+                        commentsHTML += renderComment(result.comments[i]);
+                    }
+                }
+                $(listSelector).append(commentsHTML);
+
+                if (that.commentPageNum >= result.pagination.paginationPageCount) {
+                    $("#moreComments").remove();
+                } else {
+                    $("#moreComments").html(that.tips.moreCommentsLabel);
+                }
+            },
+            error: function() {
+                that.commentsLoading = false;
+                $("#moreComments").html(that.tips.moreCommentsLabel);
+            }
+        });
+    },
     /*
      * @description 添加回复评论表单
      * @param {String} id 被回复的评论 id
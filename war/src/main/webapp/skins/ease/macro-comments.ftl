@@ -30,6 +30,9 @@
     </div>
     </#list>
 </div>
+<#if commentPageCount?? && 1 lt commentPageCount>
+<a id="moreComments" class="ft-gray" rel="nofollow" href="javascript:page.loadMoreComments(renderComment, '#comments');">${moreCommentsLabel}</a>
+</#if>
 <#if article.commentable>
 <div class="form">
     <table id="commentForm">
@@ -82,7 +85,7 @@
             <tr>
                 <td colspan="2">
                     <input type="text" class="normalInput" id="commentValidate"/>
-                    <img id="captcha" alt="validate" src="${servePath}/captcha.do" />
+                    <img id="captcha" alt="validate" />
                 </td>
             </tr>
             </#if>
@@ -115,6 +118,7 @@
                            "captchaCannotEmptyLabel": "${captchaCannotEmptyLabel}",
                            "captchaErrorLabel": "${captchaErrorLabel}",
                            "loadingLabel": "${loadingLabel}",
+                           "moreCommentsLabel": "${moreCommentsLabel}",
                            "oId": "${oId}",
                            "skinDirName": "${skinDirName}",
                            "blogHost": "${blogHost}",
@@ -147,6 +151,37 @@
                            return commentHTML;
                        };
 
+                       var renderComment = function(comment) {
+                           var commentHTML = '<div id="' + comment.oId + '"><img class="comment-header" title="'
+                                   + comment.commentName + '" alt="' + comment.commentName + '" src="'
+                                   + comment.commentThumbnailURL + '"/><div class="comment-panel"><div class="left">';
+
+                           if ("http://" === comment.commentURL) {
+                               commentHTML += '<a>' + comment.commentName + '</a>';
+                           } else {
+                               commentHTML += '<a href="' + comment.commentURL + '" target="_blank">' + comment.commentName + '</a>';
+                           }
+
+                           if (comment.isReply) {
+                               commentHTML += '@<a href="#' + comment.commentOriginalCommentId + '"'
+                                       + ' onmouseover="page.showComment(this, \'' + comment.commentOriginalCommentId + '\', 20);"'
+                                       + ' onmouseout="page.hideComment(\'' + comment.commentOriginalCommentId + '\')">'
+                                       + comment.commentOriginalCommentName + '</a>';
+                           }
+
+                           commentHTML += '</div>';
+                           if ($("#commentForm").length > 0) {
+                               commentHTML += '<div class="right ft-gray">' + Util.toDate(comment.commentTime, "yy-MM-dd HH:mm")
+                                       + ' <a rel="nofollow" href="javascript:replyTo(\'' + comment.oId + '\');">${replyLabel}</a></div>';
+                           }
+
+                           commentHTML += '<span class="clear"></span><div class="article-body">'
+                                   + Util.replaceEmString(comment.commentContent)
+                                   + '</div></div><span class="clear"></span></div>';
+
+                           return commentHTML;
+                       };
+
                        var replyTo = function(id) {
                            var commentFormHTML = "<table class='form' id='replyForm'>";
                            page.addReplyForm(id, commentFormHTML);
@@ -4,7 +4,7 @@
 <div class="comment_wrapper" id="comments">
     <#if 0 lt commentList?size>
     <h3 onclick="bnc_showhide_coms_toggle();" id="com-head">
-        ${commentList?size} ${responses}
+        ${(article.articleCommentCount)!(article.pageCommentCount)!commentList?size} ${responses}
     </h3>
     </#if>
     <ol class="commentlist" id="commentlist">
@@ -39,6 +39,9 @@
         </li>
         </#list>
     </ol>
+    <#if commentPageCount?? && 1 lt commentPageCount>
+    <p><a id="moreComments" rel="nofollow" href="javascript:page.loadMoreComments(renderComment, '#commentlist');">${moreCommentsLabel}</a></p>
+    </#if>
     <#if article.commentable>
     <div id="textinputwrap">
         <div id="refresher" style="display:none;">
@@ -72,7 +75,7 @@
             <p>
                 <input type="text" id="commentValidate" tabindex="5" />
                 <label for="url">${captchaLabel}</label>
-                <img id="captcha" alt="validate" src="${servePath}/captcha.do" />
+                <img id="captcha" alt="validate" />
             </p>
             </#if>
             <p>
@@ -158,6 +161,34 @@
 
         };
 
+        var renderComment = function(comment) {
+            var commentHTML = '<li id="' + comment.oId + '"><div class="comwrap"><div class="comtop"><img alt="'
+                    + comment.commentName + '" src="' + comment.commentThumbnailURL
+                    + '" class="avatar avatar-64 photo" height="64" width="64" /><div class="com-author">';
+
+            if ("http://" === comment.commentURL) {
+                commentHTML += '<a>' + comment.commentName + '</a>';
+            } else {
+                commentHTML += '<a href="' + comment.commentURL + '" rel="external nofollow" target="_blank" class="url">'
+                        + comment.commentName + '</a>';
+            }
+
+            if (comment.isReply) {
+                commentHTML += ' @ <a href="#' + comment.commentOriginalCommentId + '">' + comment.commentOriginalCommentName + '</a>';
+            }
+
+            commentHTML += '</div>';
+            if ($("#commentForm").length > 0) {
+                commentHTML += '<div class="comdater">' + Util.toDate(comment.commentTime, "yyyy-MM-dd HH:mm:ss")
+                        + ' <a rel="nofollow" href="javascript:replyTo(\'' + comment.oId + '\');">${replyLabel}</a></div>';
+            }
+
+            commentHTML += '</div><div class="combody"><p>' + Util.replaceEmString(comment.commentContent)
+                    + '</p></div></div></li>';
+
+            return commentHTML;
+        };
+
         var replyTo = function(id) {
             var commentFormHTML = "<div id='replyForm'>";
             page.addReplyForm(id, commentFormHTML, "</div>");
@@ -170,6 +201,7 @@
             "commentContentCannotEmptyLabel": "${commentContentCannotEmptyLabel}",
             "captchaCannotEmptyLabel": "${captchaCannotEmptyLabel}",
             "loadingLabel": "${loadingLabel}",
+            "moreCommentsLabel": "${moreCommentsLabel}",
             "oId": "${oId}",
             "skinDirName": "${skinDirName}",
             "blogHost": "${blogHost}",